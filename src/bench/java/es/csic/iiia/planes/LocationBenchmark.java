@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+import es.csic.iiia.planes.Location.MoveStep;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the distance computations and movements of locations.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class LocationBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int points;
+
+    private Location[] locations;
+    private Location[] origins;
+    private Location[] destinations;
+    private MoveStep[] steps;
+
+    @Setup
+    public void setUp() {
+        Random r = new Random(0);
+        locations = new Location[points];
+        origins = new Location[points];
+        destinations = new Location[points];
+        steps = new MoveStep[points];
+        for (int i = 0; i < points; i++) {
+            locations[i] = new Location(r.nextDouble()*10000, r.nextDouble()*10000);
+            origins[i] = new Location(locations[i]);
+            destinations[i] = new Location(r.nextDouble()*10000, r.nextDouble()*10000);
+            steps[i] = locations[i].buildMoveStep(destinations[i], 10);
+        }
+    }
+
+    /**
+     * Distance between every pair of consecutive locations.
+     */
+    @Benchmark
+    public double getDistance() {
+        double d = 0;
+        for (int i = 0; i < points; i++) {
+            d += locations[i].getDistance(locations[(i + 1) % points]);
+        }
+        return d;
+    }
+
+    /**
+     * One movement step of every location, which bounce between their origin
+     * and destination.
+     */
+    @Benchmark
+    public int move() {
+        int arrived = 0;
+        for (int i = 0; i < points; i++) {
+            if (locations[i].move(steps[i])) {
+                final Location tmp = origins[i];
+                origins[i] = destinations[i];
+                destinations[i] = tmp;
+                steps[i] = locations[i].buildMoveStep(destinations[i], 10);
+                arrived++;
+            }
+        }
+        return arrived;
+    }
+
+}
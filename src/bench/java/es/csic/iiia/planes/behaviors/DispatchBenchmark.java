@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.behaviors;
+
+import es.csic.iiia.planes.DefaultWorld;
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.MessagingAgent;
+import es.csic.iiia.planes.messaging.AbstractMessage;
+import es.csic.iiia.planes.messaging.Message;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the dispatching of messages to the behaviors of an agent.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+
+    @Param({"1", "16", "256"})
+    public int messages;
+
+    private BenchAgent agent;
+    private Message[] inbox;
+
+    @Setup
+    public void setUp() {
+        agent = new BenchAgent();
+        agent.setWorld(new DefaultWorld(null));
+        agent.initialize();
+
+        // Mix of messages handled by one, both and none of the behaviors
+        inbox = new Message[messages];
+        for (int i = 0; i < messages; i++) {
+            switch (i % 3) {
+                case 0: inbox[i] = new PingMessage(); break;
+                case 1: inbox[i] = new PongMessage(); break;
+                default: inbox[i] = new IgnoredMessage(); break;
+            }
+        }
+    }
+
+    /**
+     * A full step of an agent that has received the messages.
+     */
+    @Benchmark
+    public int step() {
+        for (Message m : inbox) {
+            agent.receive(m);
+        }
+        agent.preStep();
+        agent.step();
+        agent.postStep();
+        return agent.handled;
+    }
+
+    public static class PingMessage extends AbstractMessage {}
+
+    public static class PongMessage extends PingMessage {}
+
+    public static class IgnoredMessage extends AbstractMessage {}
+
+    /**
+     * Behavior that handles all the ping messages (including pongs).
+     */
+    public static class PingBehavior extends AbstractBehavior<BenchAgent> {
+
+        public PingBehavior(BenchAgent agent) {
+            super(agent);
+        }
+
+        @Override
+        public Class[] getDependencies() {
+            return new Class[0];
+        }
+
+        public void on(PingMessage m) {
+            getAgent().handled++;
+        }
+
+        private static final Handler ON_PING = new Handler() {
+            @Override
+            public void invoke(Behavior b, Message m) {
+                ((PingBehavior)b).on((PingMessage)m);
+            }
+        };
+
+        @Override
+        public Handler getHandler(Class<? extends Message> messageClass) {
+            return messageClass == PingMessage.class ? ON_PING : null;
+        }
+    }
+
+    /**
+     * Behavior that handles the pong messages only.
+     */
+    public static class PongBehavior extends AbstractBehavior<BenchAgent> {
+
+        public PongBehavior(BenchAgent agent) {
+            super(agent);
+        }
+
+        @Override
+        public Class[] getDependencies() {
+            return new Class[]{PingBehavior.class};
+        }
+
+        public void on(PongMessage m) {
+            getAgent().handled++;
+        }
+
+        private static final Handler ON_PONG = new Handler() {
+            @Override
+            public void invoke(Behavior b, Message m) {
+                ((PongBehavior)b).on((PongMessage)m);
+            }
+        };
+
+        @Override
+        public Handler getHandler(Class<? extends Message> messageClass) {
+            return messageClass == PongMessage.class ? ON_PONG : null;
+        }
+    }
+
+    /**
+     * Agent with the benchmarked behaviors.
+     */
+    public static class BenchAgent extends AbstractBehaviorAgent {
+        private int handled;
+
+        public BenchAgent() {
+            super(new Location(0, 0));
+            addBehavior(new PingBehavior(this));
+            addBehavior(new PongBehavior(this));
+        }
+
+        @Override
+        public int compareTo(Object o) {
+            return o == this ? 0 : 1;
+        }
+    }
+
+}
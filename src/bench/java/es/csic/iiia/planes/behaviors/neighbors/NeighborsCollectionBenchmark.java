@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.behaviors.neighbors;
+
+import es.csic.iiia.planes.DefaultPlane;
+import es.csic.iiia.planes.DefaultWorld;
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.MessagingAgent;
+import es.csic.iiia.planes.World;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the updates and queries of the neighbors collections.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class NeighborsCollectionBenchmark {
+
+    @Param({"8", "64", "512"})
+    public int neighbors;
+
+    private MessagingAgent[] agents;
+    private int[] iters;
+    private NeighborsCollection collection;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        World world = new DefaultWorld(null);
+        Random r = new Random(0);
+        agents = new MessagingAgent[neighbors];
+        iters = new int[neighbors];
+        collection = new NeighborsCollection();
+        for (int i = 0; i < neighbors; i++) {
+            DefaultPlane p = new DefaultPlane(new Location(0, 0));
+            world.addPlane(p);
+            agents[i] = p;
+            iters[i] = r.nextInt(100);
+            collection.add(p, iters[i]);
+        }
+    }
+
+    /**
+     * Filling a collection with all the neighbors.
+     */
+    @Benchmark
+    public int add() {
+        NeighborsCollection c = new NeighborsCollection();
+        for (int i = 0; i < neighbors; i++) {
+            c.add(agents[i], iters[i]);
+        }
+        return c.size();
+    }
+
+    /**
+     * Refreshing some neighbors and then listing those that remain for a
+     * while, as the neighbor tracking does on every step.
+     */
+    @Benchmark
+    public int query() {
+        step++;
+        for (int i = step % 4; i < neighbors; i += 4) {
+            iters[i] = (iters[i] + 37) % 100;
+            collection.add(agents[i], iters[i]);
+        }
+        int found = 0;
+        for (MessagingAgent a : collection.get(50)) {
+            found++;
+        }
+        return found;
+    }
+
+}
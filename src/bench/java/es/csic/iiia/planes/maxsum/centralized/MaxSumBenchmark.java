@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.maxsum.centralized;
+
+import es.csic.iiia.bms.DirectCommunicationAdapter;
+import es.csic.iiia.bms.Factor;
+import es.csic.iiia.bms.Minimize;
+import es.csic.iiia.bms.factors.SelectorFactor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the max-sum iterations over a centralized allocation graph,
+ * built as in {@link es.csic.iiia.planes.omniscient.MaxSumAllocation}: a
+ * selector factor per task, linked to the cost factors of the planes that
+ * see it.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@SuppressWarnings("unchecked")
+public class MaxSumBenchmark {
+
+    @Param({"independent", "workload"})
+    public String function;
+
+    @Param({"8", "32"})
+    public int planes;
+
+    @Param({"32", "256"})
+    public int tasks;
+
+    /**
+     * Number of planes that see each task.
+     */
+    @Param({"4"})
+    public int degree;
+
+    private List<Factor<Factor<?>>> factors;
+
+    @Setup
+    public void setUp() {
+        Random r = new Random(0);
+        final Minimize operator = new Minimize();
+        final DirectCommunicationAdapter channel = new DirectCommunicationAdapter();
+        factors = new ArrayList<Factor<Factor<?>>>();
+
+        List<CostFactor<Factor<?>>> costs = new ArrayList<CostFactor<Factor<?>>>();
+        for (int i = 0; i < planes; i++) {
+            CostFactor<Factor<?>> c;
+            if ("workload".equals(function)) {
+                WorkloadFactor<Factor<?>> w = new WorkloadFactor<Factor<?>>();
+                w.setFunction(new KAlphaFunction(1000, 2));
+                c = w;
+            } else {
+                c = new IndependentFactor<Factor<?>>();
+            }
+            init(c, operator, channel);
+            costs.add(c);
+        }
+
+        for (int i = 0; i < tasks; i++) {
+            final SelectorFactor<Factor<?>> s = new SelectorFactor<Factor<?>>();
+            init(s, operator, channel);
+            factors.add(s);
+            for (int j = 0; j < Math.min(degree, planes); j++) {
+                final CostFactor<Factor<?>> c = costs.get((i + j) % planes);
+                s.addNeighbor(c);
+                c.addNeighbor(s);
+                c.setPotential(s, r.nextDouble() * 10000);
+            }
+        }
+        factors.addAll(costs);
+    }
+
+    private static void init(Factor f, Minimize operator, DirectCommunicationAdapter channel) {
+        f.setIdentity(f);
+        f.setMaxOperator(operator);
+        f.setCommunicationAdapter(channel);
+    }
+
+    /**
+     * One max-sum iteration, running every factor once.
+     */
+    @Benchmark
+    public int iteration() {
+        for (Factor f : factors) {
+            f.run();
+        }
+        return factors.size();
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.omniscient;
+
+import es.csic.iiia.planes.DefaultWorld;
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.MessagingAgent;
+import es.csic.iiia.planes.Task;
+import es.csic.iiia.planes.World;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the sequential single-item auction allocations.
+ * <p/>
+ * Each plane sees a random half of the tasks, as if they were spread over
+ * several connected components.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class AllocationBenchmark {
+
+    @Param({"ssi", "incremental-ssi"})
+    public String strategy;
+
+    @Param({"8", "32"})
+    public int planes;
+
+    @Param({"32", "256"})
+    public int tasks;
+
+    private World world;
+    private OmniscientPlane[] planeArray;
+    private TreeMap<MessagingAgent, Set<Task>> visibilityMap;
+    private TreeMap<OmniscientPlane, Task> assignmentMap;
+    private TreeMap<Task, OmniscientPlane> reverseMap;
+    private AllocationStrategy allocation;
+
+    @Setup
+    public void setUp() {
+        Random r = new Random(0);
+        world = new DefaultWorld(null);
+        planeArray = new OmniscientPlane[planes];
+        for (int i = 0; i < planes; i++) {
+            planeArray[i] = new OmniscientPlane(randomLocation(r));
+            world.addPlane(planeArray[i]);
+        }
+        Task[] taskArray = new Task[tasks];
+        for (int i = 0; i < tasks; i++) {
+            taskArray[i] = new Task(randomLocation(r));
+            world.addTask(taskArray[i]);
+        }
+
+        visibilityMap = new TreeMap<MessagingAgent, Set<Task>>();
+        for (OmniscientPlane p : planeArray) {
+            Set<Task> visible = new TreeSet<Task>();
+            for (Task t : taskArray) {
+                if (r.nextBoolean()) {
+                    visible.add(t);
+                }
+            }
+            visibilityMap.put(p, visible);
+        }
+        assignmentMap = new TreeMap<OmniscientPlane, Task>();
+        reverseMap = new TreeMap<Task, OmniscientPlane>();
+
+        allocation = "ssi".equals(strategy)
+                ? new SSIAllocation() : new IncrementalSSIAllocation();
+    }
+
+    private static Location randomLocation(Random r) {
+        return new Location(r.nextDouble()*10000, r.nextDouble()*10000);
+    }
+
+    /**
+     * Allocation of all the tasks to the planes.
+     */
+    @Benchmark
+    public int allocate() {
+        allocation.allocate(world, planeArray, visibilityMap, assignmentMap, reverseMap);
+        return assignmentMap.size();
+    }
+
+}
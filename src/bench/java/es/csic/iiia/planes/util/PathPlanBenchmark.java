@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import es.csic.iiia.planes.AbstractPositionedElement;
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.Positioned;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the construction and querying of path plans.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class PathPlanBenchmark {
+
+    @Param({"8", "64", "512"})
+    public int size;
+
+    private Positioned start;
+    private Positioned[] positions;
+    private PathPlan plan;
+
+    @Setup
+    public void setUp() {
+        Random r = new Random(0);
+        start = new Waypoint(new Location(5000, 5000));
+        positions = new Positioned[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = new Waypoint(new Location(r.nextDouble()*10000, r.nextDouble()*10000));
+        }
+        plan = build();
+    }
+
+    private PathPlan build() {
+        PathPlan p = new PathPlan(start);
+        for (Positioned position : positions) {
+            p.add(position);
+        }
+        return p;
+    }
+
+    /**
+     * Building a plan by adding all the positions, one at a time.
+     */
+    @Benchmark
+    public double add() {
+        return build().getCost();
+    }
+
+    /**
+     * Cost of reaching every position of a plan.
+     */
+    @Benchmark
+    public double getCostTo() {
+        double cost = 0;
+        for (Positioned position : positions) {
+            cost += plan.getCostTo(position);
+        }
+        return cost;
+    }
+
+    /**
+     * Positioned element used as a plan's waypoint.
+     */
+    private static class Waypoint extends AbstractPositionedElement {
+
+        public Waypoint(Location location) {
+            super(location);
+        }
+
+        @Override
+        public void initialize() {}
+    }
+
+}
@@ -37,12 +37,11 @@
 package es.csic.iiia.planes;
 
 import es.csic.iiia.planes.cli.Configuration;
-import es.csic.iiia.planes.definition.DTask;
+import es.csic.iiia.planes.definition.DTaskSource;
 import es.csic.iiia.planes.evaluation.EvaluationStrategy;
 import es.csic.iiia.planes.idle.IdleStrategy;
 import es.csic.iiia.planes.maxsum.centralized.CostFactor;
 import java.lang.reflect.Constructor;
-import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -76,7 +75,7 @@ public abstract class AbstractFactory implements Factory {
     }
 
     @Override
-    public Operator buildOperator(Location location, List<DTask> tasks) {
+    public Operator buildOperator(Location location, DTaskSource tasks) {
         Operator o = new Operator(location, tasks);
         o.setStrategy(config.getOperatorStrategy());
         initialize(o);
@@ -96,8 +95,8 @@ public abstract class AbstractFactory implements Factory {
         } catch (Exception ex) {
             throw new RuntimeException("Unable to build the planes", ex);
         }
-        initialize(p);
         world.addPlane(p);
+        initialize(p);
         p.setAngle(location.getAngle(world.getNearestOperator(location).getLocation()));
         return p;
     }
@@ -117,16 +116,16 @@ public abstract class AbstractFactory implements Factory {
     @Override
     public Station buildStation(Location l) {
         Station s = new Station(l);
-        initialize(s);
         world.addStation(s);
+        initialize(s);
         return s;
     }
 
     @Override
     public Task buildTask(Location location) {
         Task t = new Task(location);
-        initialize(t);
         world.addTask(t);
+        initialize(t);
         return t;
     }
 
@@ -137,12 +136,17 @@ public abstract class AbstractFactory implements Factory {
 
     /**
      * Initializes an element.
+     * <p/>
+     * Agents are only attached to the world here. The world initializes them
+     * when the simulation starts, once all of them have been built.
      *
      * @param element to initialize.
      */
     protected void initialize(Element element) {
         element.setWorld(world);
-        element.initialize();
+        if (!(element instanceof Agent)) {
+            element.initialize();
+        }
     }
 
 }
\ No newline at end of file
@@ -44,10 +44,10 @@ import es.csic.iiia.planes.gui.Drawable;
 import es.csic.iiia.planes.gui.PlaneDrawer;
 import es.csic.iiia.planes.idle.IdleStrategy;
 import es.csic.iiia.planes.util.RotatingList;
+import es.csic.iiia.planes.util.TaskList;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -62,14 +62,22 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
     private static final Logger LOG = Logger.getLogger(AbstractPlane.class.getName());
 
     /**
-     * ID Generator
+     * Plane id, assigned by the world when the plane is added to it.
      */
-    final private static AtomicInteger idGenerator = new AtomicInteger();
+    private int id;
 
     /**
-     * Plane id
+     * Dense index of this plane within the world's planes, assigned by the
+     * world when the plane is added to it.
      */
-    final int id = idGenerator.incrementAndGet();
+    private int index = -1;
+
+    /**
+     * Store holding the speed, battery charge and movement of this plane,
+     * and row within it. It is the world's one once the plane is added to it.
+     */
+    private PlaneStates states = new PlaneStates(1);
+    private int row = states.add();
 
     /**
      * Current plane state
@@ -81,11 +89,6 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
      */
     private long rechargeRatio = 3;
 
-    /**
-     * Agent speed in meters per tenth of second
-     */
-    private double speed = 0;
-
     /**
      * Remaining battery in tenths of second
      */
@@ -133,7 +136,7 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
 
     private Location.MoveStep currentDestination;
 
-    private PlaneDrawer drawer = null;
+    private transient PlaneDrawer drawer = null;
 
     /**
      * Default constructor
@@ -142,7 +145,7 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
      */
     public AbstractPlane(Location location) {
         super(location);
-        tasks = new ArrayList<Task>();
+        tasks = new TaskList();
         completedLocations = new RotatingList<Location>(Plane.NUM_COMPLETED_TASKS);
     }
 
@@ -160,6 +163,44 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
         return id;
     }
 
+    /**
+     * Set the identifier of this plane.
+     *
+     * @param id identifier of this plane.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Get the dense index of this plane within the world's planes.
+     *
+     * @return index of this plane, or -1 if it has not been added to a world.
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Set the dense index of this plane within the world's planes, moving its
+     * state to the corresponding row of the world's store.
+     *
+     * @param states store of the world's planes.
+     * @param index index of this plane, and row within the store.
+     */
+    void attach(PlaneStates states, int index) {
+        states.setSpeed(index, getSpeed());
+        this.states = states;
+        this.row = index;
+        this.index = index;
+        if (battery instanceof DefaultBattery) {
+            ((DefaultBattery)battery).attach(states, index);
+        }
+        if (currentDestination != null) {
+            currentDestination.attach(states, index);
+        }
+    }
+
     @Override
     public State getState() {
         return state;
@@ -168,6 +209,9 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
     @Override
     public void setBattery(Battery battery) {
         this.battery = battery;
+        if (battery instanceof DefaultBattery) {
+            ((DefaultBattery)battery).attach(states, row);
+        }
     }
 
     @Override
@@ -215,7 +259,12 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
         }
 
         angle = getLocation().getAngle(l);
-        currentDestination = getLocation().buildMoveStep(l, getSpeed());
+        currentDestination = getLocation().buildMoveStep(l, getSpeed(), states, row);
+    }
+
+    @Override
+    public Location getDestination() {
+        return currentDestination == null ? null : currentDestination.destination;
     }
 
     protected Task getNearest(List<Task> tasks) {
@@ -325,21 +374,139 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Planes flying in a straight line are quiet until they reach their
+     * destination or may run short of battery, and charging planes until
+     * their battery is full. Idle planes are quiet for as long as their idle
+     * strategy says so.
+     */
+    @Override
+    public long getQuietUntil() {
+        final long now = getWorld().getTime();
+        final long quiet = super.getQuietUntil();
+        if (quiet <= now + 1) {
+            return now + 1;
+        }
+
+        switch (state) {
+            case CHARGING:
+                if (battery.isFull() || rechargeRatio <= 0) {
+                    return now + 1;
+                }
+                final long missing = battery.getCapacity() - battery.getEnergy();
+                return Math.min(quiet, now + (missing + rechargeRatio - 1) / rechargeRatio);
+
+            case TO_CHARGE:
+                return Math.min(quiet, now + currentDestination.getSteps());
+
+            default:
+                final long until = Math.min(quiet, getBatteryQuietUntil(now));
+                if (nextTask != null) {
+                    return Math.min(until, now + currentDestination.getSteps());
+                }
+                if (!tasks.isEmpty()) {
+                    return now + 1;
+                }
+                return Math.min(until, idleStrategy.getQuietUntil(this));
+        }
+    }
+
+    /**
+     * Check whether this plane is flying, and hence will keep moving during
+     * its quiet steps.
+     *
+     * @see #getQuietUntil()
+     * @return True if the plane is flying, or False if it stands still.
+     */
+    public boolean isFlying() {
+        switch (state) {
+            case CHARGING:
+                return false;
+            case TO_CHARGE:
+                return true;
+            default:
+                return nextTask != null
+                    || idleStrategy.getQuietUntil(this) != Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Get the first step at which this plane may need to go recharge itself.
+     * <p/>
+     * The remaining battery decreases by one unit per step, and the distance
+     * to the nearest station (measured in steps) changes by one at most.
+     * Hence, the margin between them shrinks by two units per step at most.
+     *
+     * @param now current time.
+     * @return first step at which the battery check may be triggered.
+     */
+    private long getBatteryQuietUntil(long now) {
+        final Station st = getWorld().getNearestStation(getLocation());
+        final double margin = battery.getEnergy()
+                - getLocation().getDistance(st.getLocation())/getSpeed();
+        if (!(margin > 1)) {
+            return now + 1;
+        }
+        return now + 1 + (long)((margin - 1) / 2);
+    }
+
+    @Override
+    public void skip(long steps) {
+        super.skip(steps);
+        switch (state) {
+            case CHARGING:
+                battery.recharge(rechargeRatio * steps);
+                break;
+
+            case TO_CHARGE:
+                move(steps);
+                break;
+
+            default:
+                if (nextTask != null) {
+                    move(steps);
+                } else if (!idleStrategy.skip(this, steps)) {
+                    angle = Location.accumulate(angle, 0.01, steps);
+                }
+        }
+    }
+
     @Override
     public double getSpeed() {
-        return speed;
+        return states.getSpeed(row);
     }
 
     @Override
     public void setSpeed(double speed) {
-        this.speed = speed;
+        states.setSpeed(row, speed);
     }
 
     @Override
     public boolean move() {
         flightDistance += getSpeed();
         battery.consume(1);
-        return getLocation().move(currentDestination);
+        final boolean arrived = getLocation().move(currentDestination);
+        getWorld().planeMoved(this);
+        return arrived;
+    }
+
+    @Override
+    public boolean move(long steps) {
+        flightDistance = Location.accumulate(flightDistance, getSpeed(), steps);
+        battery.consume(steps);
+        final boolean arrived = getLocation().move(currentDestination, steps);
+        getWorld().planeMoved(this);
+        return arrived;
+    }
+
+    @Override
+    public void setLocation(Location location) {
+        super.setLocation(location);
+        if (getWorld() != null) {
+            getWorld().planeMoved(this);
+        }
     }
 
     /**
@@ -411,6 +578,7 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
 
     @Override
     public void addTask(Task task) {
+        getWorld().wakeUp(this);
         tasks.add(task);
 
         taskAdded(task);
@@ -425,6 +593,7 @@ public abstract class AbstractPlane extends AbstractBehaviorAgent
 
     @Override
     public Task removeTask(Task task) {
+        getWorld().wakeUp(this);
         tasks.remove(task);
         taskRemoved(task);
         return task;
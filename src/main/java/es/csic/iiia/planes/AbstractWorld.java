@@ -42,8 +42,18 @@ import es.csic.iiia.planes.definition.DPlane;
 import es.csic.iiia.planes.definition.DProblem;
 import es.csic.iiia.planes.definition.DStation;
 import es.csic.iiia.planes.messaging.Message;
+import es.csic.iiia.planes.util.KDTree;
+import es.csic.iiia.planes.util.Metrics;
+import es.csic.iiia.planes.util.TaskList;
+import es.csic.iiia.planes.util.TimeTracker;
+import es.csic.iiia.planes.util.UniformGrid;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -58,9 +68,28 @@ public abstract class AbstractWorld implements World {
     private Space space = null;
     private List<Agent> agents = new ArrayList<Agent>();
     private List<Plane> planes = new ArrayList<Plane>();
-    private List<Task> tasks = new ArrayList<Task>();
+    private List<Task> tasks = new TaskList();
     private List<Station> stations = new ArrayList<Station>();
 
+    /**
+     * Spatial index of the planes, used to answer range queries without
+     * scanning all of them. It is (re)built lazily whenever needed.
+     */
+    private UniformGrid<Plane> planeIndex = null;
+
+    /**
+     * Speed, battery charge and movement of the planes, by their dense index.
+     */
+    private PlaneStates planeStates = new PlaneStates();
+
+    /**
+     * Spatial indexes of the stations and operators, used to find the
+     * nearest one without scanning all of them. They are (re)built lazily
+     * whenever needed.
+     */
+    private KDTree<Station> stationIndex = null;
+    private KDTree<Operator> operatorIndex = null;
+
     /**
      * Statistics collector.
      */
@@ -71,6 +100,26 @@ public abstract class AbstractWorld implements World {
      */
     private ArrayList<Operator> operators = new ArrayList<Operator>();
 
+    /**
+     * Last identifiers given to the elements of this world. Identifiers are
+     * handed out by the world (instead of globally) so that they do not
+     * depend on any other simulation running in the same JVM.
+     */
+    private int lastPlaneId = 0;
+    private int lastTaskId = 0;
+    private int lastStationId = 0;
+    private int lastOperatorId = 0;
+
+    /**
+     * Random number generator of this simulation.
+     */
+    private Random random = new Random(0L);
+
+    /**
+     * Stream where the results of this simulation are printed.
+     */
+    private PrintStream output = System.out;
+
     /**
      * Current simulation time.
      */
@@ -86,6 +135,52 @@ public abstract class AbstractWorld implements World {
      */
     private final Factory factory;
 
+    /**
+     * Number of threads used to run the agents' phases (1 means sequential).
+     */
+    private int threads = 1;
+
+    /**
+     * Whether to skip the steps in which no agent acts.
+     */
+    private boolean fastForward = false;
+
+    /**
+     * Tick at the end of which a snapshot of the simulation is saved
+     * (negative for none), and file where it is saved.
+     */
+    private long snapshotAt = -1;
+    private File snapshotFile = null;
+
+    /**
+     * Collector of runtime metrics (null when they are not collected), along
+     * with the number of ticks between their snapshots and the ticks of the
+     * last and next ones.
+     */
+    private Metrics metrics = null;
+    private long metricsEvery;
+    private long lastMetricsAt = -1;
+    private long nextMetricsAt;
+
+    /**
+     * Whether the state of this world has been restored from a snapshot, and
+     * hence its agents are already initialized.
+     */
+    private boolean restored = false;
+
+    /**
+     * Runner of the agents' phases in parallel mode, or <em>null</em> in
+     * sequential simulations. It is kept once the simulation ends, to
+     * account for the cpu time of its threads.
+     */
+    private ParallelRunner runner = null;
+
+    /**
+     * Schedule of the agents when fast-forwarding a sequential simulation, or
+     * <em>null</em> when all of the agents run at every step.
+     */
+    private Schedule schedule = null;
+
     /**
      * Builds a new world.
      *
@@ -115,13 +210,17 @@ public abstract class AbstractWorld implements World {
      * @param operator operator to add.
      */
     public void addOperator(Operator operator) {
+        operator.setId(++lastOperatorId);
         operators.add(operator);
         agents.add(operator);
+        operatorIndex = null;
     }
 
     @Override
     public void addStation(Station station) {
+        station.setId(++lastStationId);
         stations.add(station);
+        stationIndex = null;
     }
 
     /**
@@ -136,10 +235,34 @@ public abstract class AbstractWorld implements World {
     public void init(DProblem d) {
         space = new Space(d.getWidth(), d.getHeight());
         setDuration(d.getDuration());
+        setThreads(factory.getConfiguration().getThreads());
+        setFastForward(factory.getConfiguration().isFastForward());
+        setSnapshot(factory.getConfiguration().getSnapshotAt(),
+                factory.getConfiguration().getSnapshotFile());
+        stats = new StatsCollector(this, factory.getConfiguration().getStatsAccuracy());
+        if (factory.getConfiguration().getMetricsFormat() != null) {
+            final File metricsFile = factory.getConfiguration().getMetricsFile();
+            try {
+                setMetrics(new Metrics(metricsFile, factory.getConfiguration().getMetricsFormat()),
+                        factory.getConfiguration().getMetricsEvery());
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Unable to write the metrics to \"" + metricsFile + "\"", ex);
+            }
+        }
+
+        final File restoreFile = factory.getConfiguration().getRestoreFile();
+        if (restoreFile != null) {
+            try {
+                restoreSnapshot(restoreFile);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Unable to restore the snapshot \"" + restoreFile + "\"", ex);
+            }
+            return;
+        }
 
         for (DOperator o : d.getOperators()) {
             Location l = new Location(o.getX(), o.getY());
-            Operator operator = factory.buildOperator(l, o.getTasks());
+            Operator operator = factory.buildOperator(l, o.getTaskSource());
             operator.setCommunicationRange(o.getCommunicationRange());
             addOperator(operator);
         }
@@ -161,11 +284,154 @@ public abstract class AbstractWorld implements World {
         }
     }
 
+    /**
+     * Save a snapshot of the whole simulation state to the given file.
+     * <p/>
+     * The snapshot holds the state at the end of the current tick, so that a
+     * simulation restored from it continues from the next one.
+     *
+     * @param file file where the snapshot is saved.
+     * @throws IOException if the snapshot can not be written.
+     */
+    public void saveSnapshot(File file) throws IOException {
+        if (schedule != null) {
+            schedule.advanceAll();
+        }
+
+        Snapshot state = new Snapshot();
+        state.time = time + 1;
+        state.duration = duration;
+        state.space = space;
+        state.agents = agents;
+        state.planes = planes;
+        state.planeStates = planeStates;
+        state.tasks = tasks;
+        state.stations = stations;
+        state.operators = operators;
+        state.stats = stats;
+        state.random = random;
+        state.lastIds = new int[]{lastPlaneId, lastTaskId, lastStationId, lastOperatorId};
+
+        state.save(file, this);
+    }
+
+    /**
+     * Replace the state of this world with the one saved in a snapshot file.
+     * <p/>
+     * The elements of the snapshot are attached to this world, and hence to
+     * its factory and configuration.
+     *
+     * @see #saveSnapshot(java.io.File)
+     * @param file file where the snapshot was saved.
+     * @throws IOException if the snapshot can not be read.
+     */
+    public void restoreSnapshot(File file) throws IOException {
+        final Snapshot state = Snapshot.load(file, this);
+
+        time = state.time;
+        duration = state.duration;
+        space = state.space;
+        agents = state.agents;
+        planes = state.planes;
+        planeStates = state.planeStates;
+        tasks = state.tasks;
+        stations = state.stations;
+        operators = state.operators;
+        stats = state.stats;
+        random = state.random;
+        lastPlaneId = state.lastIds[0];
+        lastTaskId = state.lastIds[1];
+        lastStationId = state.lastIds[2];
+        lastOperatorId = state.lastIds[3];
+
+        planeIndex = null;
+        stationIndex = null;
+        operatorIndex = null;
+        restored = true;
+    }
+
     @Override
     public void setDuration(long duration) {
         this.duration = duration;
     }
 
+    /**
+     * Set the number of threads used to run the agents' phases.
+     *
+     * @see ParallelAgent
+     * @param threads number of threads (1 runs the simulation sequentially).
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Set whether to skip the steps in which no agent acts.
+     * <p/>
+     * Sequential simulations run each agent only at the steps where it may
+     * act, and bring the rest up to date only when they are observed or
+     * changed by someone else. However, agents that message or look up other
+     * agents (such as planes that coordinate through beacons or auctions)
+     * keep running at every step until all of the agents are quiet. Parallel
+     * simulations skip only the steps in which all of the agents are quiet.
+     *
+     * @see Agent#getQuietUntil()
+     * @see World#wakeUp(Agent)
+     * @param fastForward true to skip the quiet steps.
+     */
+    public void setFastForward(boolean fastForward) {
+        this.fastForward = fastForward;
+    }
+
+    /**
+     * Set when to save a snapshot of the simulation.
+     *
+     * @see #saveSnapshot(java.io.File)
+     * @param tick tick at the end of which the snapshot is saved (negative
+     *             for none).
+     * @param file file where the snapshot is saved.
+     */
+    public void setSnapshot(long tick, File file) {
+        this.snapshotAt = tick;
+        this.snapshotFile = file;
+    }
+
+    @Override
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Collect the runtime metrics of this simulation.
+     *
+     * @param metrics collector of the metrics, that is closed at the end of
+     *                the simulation.
+     * @param every number of ticks between snapshots of the metrics.
+     */
+    public void setMetrics(Metrics metrics, long every) {
+        this.metrics = metrics;
+        this.metricsEvery = every;
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void setOutput(PrintStream output) {
+        this.output = output;
+    }
+
+    /**
+     * Get the stream where the results of this simulation are printed.
+     *
+     * @return stream where the results are printed.
+     */
+    PrintStream getOutput() {
+        return output;
+    }
+
     @Override
     public long getTime() {
         return time;
@@ -179,15 +445,58 @@ public abstract class AbstractWorld implements World {
     @Override
     public void run() {
 
-        for (Agent a : agents) {
-            a.initialize();
+        if (!restored) {
+            for (Agent a : agents) {
+                a.initialize();
+            }
         }
 
-        for (time=0; time<duration || tasks.size() > 0; time++) {
+        runner = threads > 1 ? new ParallelRunner(this, threads) : null;
+        try {
+            simulate();
+        } finally {
+            if (runner != null) {
+                runner.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Runs the simulation loop, and displays the final statistics.
+     */
+    private void simulate() {
+        if (metrics != null) {
+            nextMetricsAt = (time / metricsEvery + 1) * metricsEvery;
+        }
+        if (fastForward && runner == null) {
+            double maxSpeed = planeStates.getMaxSpeed();
+            for (Plane p : planes) {
+                if (!(p instanceof AbstractPlane)) {
+                    maxSpeed = Math.max(maxSpeed, p.getSpeed());
+                }
+            }
+            schedule = new Schedule(this, agents, maxSpeed);
+        }
+        for (; time<duration || tasks.size() > 0; time++) {
             LOG.fine("----------     TICK     ----------");
             computeStep();
             displayStep();
 
+            if (metrics != null && time >= nextMetricsAt) {
+                writeMetrics(time);
+                nextMetricsAt = (time / metricsEvery + 1) * metricsEvery;
+            }
+
+            if (snapshotAt >= 0 && time >= snapshotAt) {
+                try {
+                    saveSnapshot(snapshotFile);
+                    LOG.info("Snapshot of tick " + time + " saved to " + snapshotFile);
+                } catch (IOException ex) {
+                    LOG.log(Level.SEVERE, "Unable to save the snapshot \"" + snapshotFile + "\"", ex);
+                }
+                snapshotAt = -1;
+            }
+
             // TODO: Replace this maximum duration factor by something that detects if tasks are
             // being completed or not.
             if (time > duration*10) {
@@ -198,12 +507,59 @@ public abstract class AbstractWorld implements World {
                 break;
             }
 
+            if (schedule != null) {
+                time += schedule.getQuietSteps(getSkipLimit());
+            } else if (fastForward) {
+                time += skipQuietSteps();
+            }
+        }
+
+        // Unless the simulation was given up, the last tick computed is the
+        // previous one
+        final long last = time < duration || tasks.size() > 0 ? time : time - 1;
+        if (schedule != null) {
+            schedule.advanceAll(last);
+            schedule = null;
         }
 
         for (Plane p : planes) {
             stats.collect(p);
         }
         stats.display();
+
+        if (metrics != null) {
+            if (last != lastMetricsAt) {
+                writeMetrics(last);
+            }
+            try {
+                metrics.close();
+            } catch (IOException ex) {
+                LOG.log(Level.SEVERE, "Unable to write the metrics", ex);
+            }
+        }
+
+        final File sketchFile = factory.getConfiguration().getStatsSketchFile();
+        if (sketchFile != null && stats.getSketch() != null) {
+            try {
+                stats.getSketch().save(sketchFile);
+            } catch (IOException ex) {
+                LOG.log(Level.SEVERE, "Unable to save the statistics \"" + sketchFile + "\"", ex);
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of the runtime metrics, and stops collecting them if
+     * it can not be written.
+     */
+    private void writeMetrics(long tick) {
+        try {
+            metrics.write(tick);
+            lastMetricsAt = tick;
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Unable to write the metrics", ex);
+            metrics = null;
+        }
     }
 
     /**
@@ -213,6 +569,22 @@ public abstract class AbstractWorld implements World {
      * perform actions, by calling their {@link Agent#step()} methods.
      */
     protected void computeStep() {
+        if (schedule != null) {
+            schedule.computeStep();
+            return;
+        }
+
+        if (metrics != null) {
+            computeMeasuredStep();
+            return;
+        }
+
+        if (runner != null) {
+            runner.runPhase(Phase.PRE_STEP, agents);
+            runner.runPhase(Phase.STEP, agents);
+            runner.runPhase(Phase.POST_STEP, agents);
+            return;
+        }
 
         for (Agent a : agents) {
             a.preStep();
@@ -225,6 +597,91 @@ public abstract class AbstractWorld implements World {
         }
     }
 
+    /**
+     * Computes a single simulation step, measuring the time spent in each
+     * of its phases.
+     */
+    private void computeMeasuredStep() {
+        for (Phase phase : Phase.values()) {
+            final long wall = System.nanoTime();
+            final long cpu = getCpuTime();
+            if (runner != null) {
+                runner.runPhase(phase, agents);
+            } else {
+                for (Agent a : agents) {
+                    phase.run(a);
+                }
+            }
+            metrics.addPhase(phase.toString(), System.nanoTime() - wall,
+                    getCpuTime() - cpu);
+        }
+    }
+
+    /**
+     * Fast-forward all the agents across the steps that follow the current
+     * one and in which none of them would act.
+     * <p/>
+     * This is only used by parallel simulations, which run all of the agents
+     * at each step. Sequential ones use a {@link Schedule} instead.
+     *
+     * @return number of steps skipped.
+     */
+    private long skipQuietSteps() {
+        long until = getSkipLimit();
+        for (Agent a : agents) {
+            until = Math.min(until, a.getQuietUntil());
+            if (until <= time + 1) {
+                return 0;
+            }
+        }
+
+        final long steps = until - time - 1;
+        LOG.log(Level.FINE, "Skipping {0} quiet steps.", steps);
+        for (Agent a : agents) {
+            a.skip(steps);
+        }
+        return steps;
+    }
+
+    /**
+     * Get the first step that must not be skipped, whether some agent acts
+     * on it or not: the end of the simulation, or the point where it would
+     * be given up if there are pending tasks.
+     *
+     * @return step that must not be skipped.
+     */
+    private long getSkipLimit() {
+        return tasks.isEmpty() ? duration : duration*10 + 1;
+    }
+
+    /**
+     * Get the cpu time spent by this simulation, in nanoseconds.
+     *
+     * @return user time of the simulation thread plus that of the threads
+     *         used to run the parallel phases.
+     */
+    long getUserTime() {
+        long t = TimeTracker.getUserTime();
+        if (runner != null) {
+            t += runner.getUserTime();
+        }
+        return t;
+    }
+
+    /**
+     * Get the cpu time spent by this simulation, in nanoseconds.
+     *
+     * @return cpu time of the simulation thread plus that of the threads
+     *         used to run the parallel phases.
+     */
+    long getCpuTime() {
+        long t = TimeTracker.getCpuTime();
+        if (runner != null) {
+            t += runner.getCpuTime();
+        }
+        return t;
+    }
+
     /**
      * Displays the progress of the simulation.
      *
@@ -235,12 +692,23 @@ public abstract class AbstractWorld implements World {
 
     @Override
     public void addPlane(Plane p) {
+        // Every plane gets a row, so that rows follow the order of the planes
+        final int index = planeStates.add();
+        if (p instanceof AbstractPlane) {
+            ((AbstractPlane)p).setId(++lastPlaneId);
+            ((AbstractPlane)p).attach(planeStates, index);
+        }
         planes.add(p);
         agents.add(p);
+        planeIndex = null;
     }
 
     @Override
     public List<Plane> getPlanes() {
+        if (schedule != null) {
+            schedule.interacted();
+            schedule.advanceAll();
+        }
         return planes;
     }
 
@@ -259,59 +727,175 @@ public abstract class AbstractWorld implements World {
         if (tasks.contains(task)) {
             throw new RuntimeException("This task already exists!");
         }
+        task.setId(++lastTaskId);
         tasks.add(task);
     }
 
     @Override
     public void removeTask(Task t) {
+        if (runner != null && runner.deferRemoval(t)) {
+            return;
+        }
+
         // Check if it has been removed before tracking the stats. Sometimes two
         // planes may think that they complete a pending task, whereas in
         // reality another plane has already completed it before (split brain).
-        while (tasks.remove(t)) {
+        // Tasks are never added twice, so there is at most one to remove.
+        if (tasks.remove(t)) {
             stats.collect(t);
         }
     }
 
     @Override
     public Station getNearestStation(Location location) {
-        double mind = Double.MAX_VALUE;
-        Station best = null;
-        for (Station s : stations) {
-            final double d = location.getDistance(s.getLocation());
-            if (d < mind) {
-                best = s;
-                mind = d;
-            }
-        }
-        return best;
+        return getStationIndex().getNearest(location);
     }
 
     @Override
     public Operator getNearestOperator(Location location) {
-        double mind = Double.MAX_VALUE;
-        Operator best = null;
-        for (Operator o : operators) {
-            final double d = location.getDistance(o.getLocation());
-            if (d < mind) {
-                best = o;
-                mind = d;
+        return getOperatorIndex().getNearest(location);
+    }
+
+    /**
+     * Builds the spatial indexes that are missing, so that agents running
+     * in parallel only query them.
+     */
+    void buildIndexes() {
+        getPlaneIndex();
+        getStationIndex();
+        getOperatorIndex();
+    }
+
+    /**
+     * Get the spatial index of the stations, building it if necessary.
+     *
+     * @return spatial index of the stations.
+     */
+    private KDTree<Station> getStationIndex() {
+        if (stationIndex == null) {
+            stationIndex = new KDTree<Station>(stations);
+        }
+        return stationIndex;
+    }
+
+    /**
+     * Get the spatial index of the operators, building it if necessary.
+     *
+     * @return spatial index of the operators.
+     */
+    private KDTree<Operator> getOperatorIndex() {
+        if (operatorIndex == null) {
+            operatorIndex = new KDTree<Operator>(operators);
+        }
+        return operatorIndex;
+    }
+
+    @Override
+    public List<Plane> getPlanesInRange(Location location, double range) {
+        if (schedule != null) {
+            schedule.interacted();
+            schedule.advanceWithin(location, range);
+        }
+        return getPlaneIndex().getWithin(location, range);
+    }
+
+    @Override
+    public boolean isPlaneInRange(Location location, double range) {
+        if (schedule != null) {
+            schedule.interacted();
+            schedule.advanceWithin(location, range);
+        }
+        return getPlaneIndex().isAnyWithin(location, range);
+    }
+
+    @Override
+    public void wakeUp(Agent a) {
+        if (schedule != null) {
+            schedule.wakeUp(a);
+        }
+    }
+
+    @Override
+    public void planeMoved(Plane p) {
+        // Parallel phases update the index once all the agents are done
+        if (planeIndex != null && (runner == null || !runner.isRunning())) {
+            planeIndex.update(indexOf(p));
+        }
+    }
+
+    /**
+     * Get the index of a plane within the spatial index of the planes.
+     *
+     * Planes are added to the spatial index in the same order as to the
+     * world, so the dense index of an {@link AbstractPlane} can be used
+     * directly without looking it up.
+     *
+     * @param p plane to look for.
+     * @return index of the plane, or -1 if it is not indexed.
+     */
+    int indexOf(Plane p) {
+        if (p instanceof AbstractPlane) {
+            final int index = ((AbstractPlane)p).getIndex();
+            return getPlaneIndex().get(index) == p ? index : -1;
+        }
+        return getPlaneIndex().indexOf(p);
+    }
+
+    /**
+     * Get the spatial index of the planes, building it if necessary.
+     *
+     * The cells of the index are sized after the largest communication range
+     * of the planes, because that is the most common query range.
+     *
+     * @return spatial index of the planes.
+     */
+    UniformGrid<Plane> getPlaneIndex() {
+        if (planeIndex == null) {
+            double cellSize = 0;
+            for (Plane p : planes) {
+                cellSize = Math.max(cellSize, p.getCommunicationRange());
+            }
+            planeIndex = new UniformGrid<Plane>(cellSize > 0 ? cellSize : 1);
+            for (Plane p : planes) {
+                planeIndex.add(p);
             }
         }
-        return best;
+        return planeIndex;
     }
 
     @Override
     public void sendMessage(Message message) {
+        if (metrics != null) {
+            metrics.addSent(message.getClass());
+        }
         final Location origin = message.getSender().getLocation();
         final double range = message.getSender().getCommunicationRange();
+        final MessagingAgent recipient = message.getRecipient();
 
-        for (Plane p : planes) {
-            if (  origin.distance(p.getLocation()) <= range
-               && (p == message.getRecipient() || message.getRecipient() == null))
-            {
-                p.receive(message);
+        if (runner != null && runner.deferMessage(message, origin, range)) {
+            return;
+        }
+
+        if (schedule != null) {
+            schedule.interacted();
+        }
+
+        // Directed messages only need to check their recipient
+        if (recipient != null) {
+            if (schedule != null) {
+                schedule.advance(recipient);
             }
+            if (recipient instanceof Plane
+                    && indexOf((Plane)recipient) >= 0
+                    && origin.distance(recipient.getLocation()) <= range) {
+                recipient.receive(message);
+            }
+            return;
+        }
+
+        for (Plane p : getPlanesInRange(origin, range)) {
+            p.receive(message);
         }
     }
 
-}
\ No newline at end of file
+}
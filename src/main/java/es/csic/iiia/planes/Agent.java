@@ -73,4 +73,31 @@ public interface Agent extends Element {
      */
     public void postStep();
 
+    /**
+     * Get the first step at which this agent may need to act again, assuming
+     * that no other element changes it in between.
+     * <p/>
+     * All the steps before that one are <em>quiet</em>: running them would
+     * only change this agent in ways that {@link #skip(long)} can reproduce,
+     * and their {@link #preStep()} would not change it at all. Agents that can
+     * not guarantee anything must return the next step (the current time plus
+     * one), and agents that will never act again by themselves may return
+     * {@link Long#MAX_VALUE}. Elements that change some other agent must
+     * notify the world through {@link World#wakeUp(Agent)} beforehand.
+     *
+     * @return first step at which this agent may need to act again.
+     */
+    public long getQuietUntil();
+
+    /**
+     * Fast-forward this agent across the given number of quiet steps.
+     * <p/>
+     * A stretch of quiet steps may be skipped in several consecutive calls,
+     * which must leave the agent exactly as a single call would.
+     *
+     * @see #getQuietUntil()
+     * @param steps number of steps to skip.
+     */
+    public void skip(long steps);
+
 }
\ No newline at end of file
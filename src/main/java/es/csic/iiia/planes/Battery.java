@@ -36,12 +36,14 @@
  */
 package es.csic.iiia.planes;
 
+import java.io.Serializable;
+
 /**
  * A battery that planes can use.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public interface Battery {
+public interface Battery extends Serializable {
 
     /**
      * Set the maximum capacity of this battery.
@@ -38,48 +38,67 @@ package es.csic.iiia.planes;
 
 /**
  * Simple rechargeable battery.
+ * <p/>
+ * The charge is kept in the {@link PlaneStates} of the world of its plane,
+ * so this battery is just a view over the plane's row.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
 public class DefaultBattery implements Battery {
 
-    private long capacity;
-    private long energy;
+    /**
+     * Store holding the charge of this battery, and row within it.
+     */
+    private PlaneStates states = new PlaneStates(1);
+    private int row = states.add();
+
+    /**
+     * Move the charge of this battery to the given row of a store.
+     *
+     * @param states store where to keep the charge.
+     * @param row row of the battery's plane.
+     */
+    void attach(PlaneStates states, int row) {
+        states.setCapacity(row, getCapacity());
+        states.setEnergy(row, getEnergy());
+        this.states = states;
+        this.row = row;
+    }
 
     @Override
     public void setCapacity(long capacity) {
-        this.capacity = capacity;
+        states.setCapacity(row, capacity);
     }
 
     @Override
     public long getCapacity() {
-        return capacity;
+        return states.getCapacity(row);
     }
 
     @Override
     public void consume(long energy) {
-        this.energy -= energy;
+        states.setEnergy(row, states.getEnergy(row) - energy);
     }
 
     @Override
     public void recharge(long energy) {
-        this.energy += energy;
-        this.energy = Math.min(this.energy, capacity);
+        states.setEnergy(row, Math.min(states.getEnergy(row) + energy,
+                states.getCapacity(row)));
     }
 
     @Override
     public void setEnergy(long energy) {
-        this.energy = energy;
+        states.setEnergy(row, energy);
     }
 
     @Override
     public long getEnergy() {
-        return this.energy;
+        return states.getEnergy(row);
     }
 
     @Override
     public boolean isFull() {
-        return energy == capacity;
+        return states.getEnergy(row) == states.getCapacity(row);
     }
 
 }
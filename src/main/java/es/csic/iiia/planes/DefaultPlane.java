@@ -46,7 +46,7 @@ import java.util.List;
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public class DefaultPlane extends AbstractPlane {
+public class DefaultPlane extends AbstractPlane implements ParallelAgent {
 
     public DefaultPlane(Location location) {
         super(location);
@@ -37,9 +37,8 @@
 package es.csic.iiia.planes;
 
 import es.csic.iiia.planes.cli.Configuration;
-import es.csic.iiia.planes.definition.DTask;
+import es.csic.iiia.planes.definition.DTaskSource;
 import es.csic.iiia.planes.maxsum.centralized.CostFactor;
-import java.util.List;
 
 /**
  * Factory used to build all of the simulation's participants.
@@ -61,14 +60,14 @@ public interface Factory {
     /**
      * Builds an {@link Operator}.
      *
-     * The created operator will create and submit tasks according to the given
-     * list of task definitions.
+     * The created operator will create and submit tasks according to the task
+     * definitions delivered by the given source.
      *
      * @param location location where this operator is positioned.
-     * @param taskDefinitions list of task definitions,
+     * @param taskDefinitions source of the task definitions.
      * @return Operator newly build Operator.
      */
-    public Operator buildOperator(Location location, List<DTask> taskDefinitions);
+    public Operator buildOperator(Location location, DTaskSource taskDefinitions);
 
     /**
      * Builds a {@link Plane}.
@@ -38,6 +38,7 @@
 package es.csic.iiia.planes;
 
 import java.awt.geom.Point2D;
+import java.io.Serializable;
 
 /**
  * Represents a point in the world's space.
@@ -46,7 +47,7 @@ import java.awt.geom.Point2D;
  * @see Space
  * @author Marc Pujol <mpujol at iiia.csic.es>
  */
-public class Location extends Point2D {
+public class Location extends Point2D implements Serializable {
 
     private double x;
     private double y;
@@ -112,6 +113,18 @@ public class Location extends Point2D {
         return step.move();
     }
 
+    /**
+     * Continue advancing along a MoveStep plan during multiple steps.
+     *
+     * @see #move(es.csic.iiia.planes.Location.MoveStep)
+     * @param step movestep plan to follow.
+     * @param n number of steps to advance.
+     * @return True if the destination has been reached, or false otherwise.
+     */
+    public boolean move(MoveStep step, long n) {
+        return step.move(n);
+    }
+
     /**
      * Returns the movestep plan to reach the desired destination.
      * <p/>
@@ -131,7 +144,28 @@ public class Location extends Point2D {
             return null;
         }
 
-        return new MoveStep(destination, speed);
+        final PlaneStates states = new PlaneStates(1);
+        return new MoveStep(destination, speed, states, states.add());
+    }
+
+    /**
+     * Returns the movestep plan to reach the desired destination, keeping its
+     * remaining steps in the given row of a plane states store.
+     *
+     * @see #buildMoveStep(Location, double)
+     * @param destination
+     * @param speed
+     * @param states store where to keep the remaining steps.
+     * @param row row of the moving plane.
+     * @return MoveStep to reach the given destination.
+     */
+    MoveStep buildMoveStep(Location destination, double speed,
+            PlaneStates states, int row) {
+        if (destination == null) {
+            return null;
+        }
+
+        return new MoveStep(destination, speed, states, row);
     }
 
     @Override
@@ -186,16 +220,84 @@ public class Location extends Point2D {
         y = d1;
     }
 
-    public class MoveStep {
+    /**
+     * Add the given increment to a value n times, rounding after each
+     * addition exactly as the loop <code>for (..n..) value += increment;</code>
+     * would.
+     * <p/>
+     * While the magnitude of the value stays within the same power of two,
+     * its ulp does not change, and hence every addition adds the very same
+     * rounded increment. Then, all those steps can be added at once exactly.
+     * Only the additions close to a power of two (or whose rounding is a tie)
+     * are performed one by one, so the cost grows with the number of powers
+     * of two crossed instead of the number of steps.
+     *
+     * @param value initial value.
+     * @param increment increment added at each step.
+     * @param n number of steps.
+     * @return value after the n steps.
+     */
+    static double accumulate(double value, double increment, long n) {
+        // Bounds of the significands of normal doubles
+        final long low = 1L << 52, high = 1L << 53;
+
+        while (n > 0) {
+            final double magnitude = Math.abs(value);
+            if (!(magnitude >= java.lang.Double.MIN_NORMAL) || java.lang.Double.isInfinite(magnitude)) {
+                value += increment;
+                n--;
+                continue;
+            }
+
+            // Work with the magnitude and its significand m (in ulps), so that
+            // each step adds d ulps to it as long as it stays within [low, high)
+            final double ulp = Math.ulp(magnitude);
+            final long m = (long)(magnitude / ulp);
+            final double inc = value > 0 ? increment : -increment;
+            final double rounded = (magnitude + inc) - magnitude;
+            final long d = (long)(rounded / ulp);
+            final long ad = Math.abs(d);
+
+            long k = 0;
+            if (m - ad - 1 >= low && m + ad + 2 < high
+                    && rounded == (magnitude + ulp + inc) - (magnitude + ulp))
+            {
+                if (d == 0) {
+                    return value;
+                }
+                k = d > 0 ? (high - 2 - m - d) / d + 1 : (m - low - ad - 1) / ad + 1;
+            }
+            if (k < 2) {
+                value += increment;
+                n--;
+                continue;
+            }
+
+            k = Math.min(k, n);
+            final double result = magnitude + k * rounded;
+            value = value > 0 ? result : -result;
+            n -= k;
+        }
+        return value;
+    }
+
+    /**
+     * Plan to move this location in a straight line towards a destination.
+     * <p/>
+     * The remaining number of steps is kept in a {@link PlaneStates} row,
+     * which is that of the moving plane when the plan is built by one.
+     */
+    public class MoveStep implements Serializable {
         public final double dx;
         public final double dy;
         public final double alpha;
         public final double incx;
         public final double incy;
         public final Location destination;
-        public int steps;
+        private PlaneStates states;
+        private int row;
 
-        public MoveStep(Location destination, double speed) {
+        MoveStep(Location destination, double speed, PlaneStates states, int row) {
             this.destination = destination;
             dx = destination.x - x;
             dy = destination.y - y;
@@ -204,11 +306,35 @@ public class Location extends Point2D {
             incy = speed * Math.sin(alpha);
 
             final double distance = getDistance(destination);
-            steps = (int)Math.ceil(distance/speed);
+            this.states = states;
+            this.row = row;
+            states.setSteps(row, (int)Math.ceil(distance/speed));
+        }
+
+        /**
+         * Get the number of steps left to reach the destination.
+         *
+         * @return remaining number of steps.
+         */
+        public int getSteps() {
+            return states.getSteps(row);
+        }
+
+        /**
+         * Move the remaining steps of this plan to the given row of a store.
+         *
+         * @param states store where to keep the remaining steps.
+         * @param row row of the moving plane.
+         */
+        void attach(PlaneStates states, int row) {
+            states.setSteps(row, getSteps());
+            this.states = states;
+            this.row = row;
         }
 
         protected boolean move() {
-            steps--;
+            final int steps = states.getSteps(row) - 1;
+            states.setSteps(row, steps);
             if (steps <= 0) {
                 x = destination.x;
                 y = destination.y;
@@ -219,5 +345,28 @@ public class Location extends Point2D {
             y += incy;
             return false;
         }
+
+        /*
+         * The increments are accumulated with the same rounding as when
+         * moving step by step (instead of multiplied), to obtain exactly the
+         * same location.
+         */
+        protected boolean move(long n) {
+            final int steps = states.getSteps(row);
+            if (n <= 0) {
+                return steps <= 0;
+            }
+            if (n >= steps) {
+                states.setSteps(row, steps > 0 ? 0 : steps - 1);
+                x = destination.x;
+                y = destination.y;
+                return true;
+            }
+
+            states.setSteps(row, steps - (int)n);
+            x = accumulate(x, incx, n);
+            y = accumulate(y, incy, n);
+            return false;
+        }
     }
 }
\ No newline at end of file
@@ -38,6 +38,7 @@
 package es.csic.iiia.planes;
 
 import es.csic.iiia.planes.definition.DTask;
+import es.csic.iiia.planes.definition.DTaskSource;
 import es.csic.iiia.planes.gui.Drawable;
 import es.csic.iiia.planes.gui.graphics.OperatorGraphic;
 import es.csic.iiia.planes.messaging.Message;
@@ -46,10 +47,7 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Operator that will be submitting tasks to the UAVs.
@@ -58,20 +56,21 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class Operator extends AbstractMessagingAgent implements Drawable {
 
-    private static AtomicInteger idGenerator = new AtomicInteger();
-
-    private int id = idGenerator.incrementAndGet();
+    /**
+     * Operator id, assigned by the world when the operator is added to it.
+     */
+    private int id;
 
     /**
-     * List of the definitions of all the tasks that this operator will submit
-     * during the simulation.
+     * Source of the definitions of all the tasks that this operator will
+     * submit during the simulation.
      */
-    private List<DTask> tasks;
+    private DTaskSource tasks;
 
     /**
-     * Index of the next task to be submitted.
+     * Definition of the next task to be submitted.
      */
-    private int nextTask = 0;
+    private DTask nextTask;
 
     /**
      * Time step at which the next task has to be submitted.
@@ -90,20 +89,36 @@ public class Operator extends AbstractMessagingAgent implements Drawable {
     List<Task> delayedTasks = new ArrayList<Task>();
 
     /**
-     * Creates a new operator that will submit the given list of tasks.
+     * Creates a new operator that will submit the given tasks.
      *
-     * @param tasks to be submitted by this operator.
+     * @param tasks source of the tasks to be submitted by this operator.
      */
-    public Operator(Location position, List<DTask> tasks) {
+    public Operator(Location position, DTaskSource tasks) {
         super(position);
         this.tasks = tasks;
-        Collections.sort(this.tasks, new TaskSorter());
-        nextTaskTime = this.tasks.get(0).getTime();
+        fetchNextTask();
+    }
+
+    /**
+     * Fetch the definition of the next task to submit from the task source.
+     */
+    private void fetchNextTask() {
+        nextTask = tasks.next();
+        nextTaskTime = nextTask == null ? Long.MAX_VALUE : nextTask.getTime();
     }
 
     @Override
     public void initialize() {}
 
+    /**
+     * Set the identifier of this operator.
+     *
+     * @param id identifier of this operator.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Get the strategy used by this operator.
      *
@@ -140,17 +155,9 @@ public class Operator extends AbstractMessagingAgent implements Drawable {
     @Override
     public void step() {
         while (nextTaskTime <= getWorld().getTime()) {
-            Task t = createTask(tasks.get(nextTask));
+            Task t = createTask(nextTask);
             pendingTasks.add(t);
-
-            tasks.set(nextTask, null);
-            nextTask++;
-
-            if (nextTask == tasks.size()) {
-                nextTaskTime = Long.MAX_VALUE;
-            } else {
-                nextTaskTime = tasks.get(nextTask).getTime();
-            }
+            fetchNextTask();
         }
 
         if (isPlaneInRange() && !pendingTasks.isEmpty()) {
@@ -167,6 +174,26 @@ public class Operator extends AbstractMessagingAgent implements Drawable {
     @Override
     public void postStep() {}
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Operators only act when their next task is due, or while they have
+     * tasks waiting for some plane to get in range.
+     */
+    @Override
+    public long getQuietUntil() {
+        if (!pendingTasks.isEmpty()) {
+            return getWorld().getTime() + 1;
+        }
+        return nextTaskTime;
+    }
+
+    /**
+     * Do nothing, because operators have no state to update while quiet.
+     */
+    @Override
+    public void skip(long steps) {}
+
     /**
      * Create a simulation Task from the given Task definition.
      *
@@ -202,15 +229,7 @@ public class Operator extends AbstractMessagingAgent implements Drawable {
     }
 
     private boolean isPlaneInRange() {
-        final Location l = getLocation();
-
-        for (Plane p : getWorld().getPlanes()) {
-            if (l.getDistance(p.getLocation()) <= getCommunicationRange()) {
-                return true;
-            }
-        }
-
-        return false;
+        return getWorld().isPlaneInRange(getLocation(), getCommunicationRange());
     }
 
     @Override
@@ -235,15 +254,4 @@ public class Operator extends AbstractMessagingAgent implements Drawable {
         return 1;
     }
 
-    /**
-     * Comparator of DTasks that is used to sort the list of task definitions
-     * by increasing submission time.
-     */
-    private class TaskSorter implements Comparator<DTask> {
-        @Override
-        public int compare(DTask t, DTask t1) {
-            return Long.valueOf(t.getTime()).compareTo(t1.getTime());
-        }
-    }
-
-}
\ No newline at end of file
+}
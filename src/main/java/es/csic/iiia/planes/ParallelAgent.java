@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+/**
+ * Marker interface for agents whose phases can be run concurrently with
+ * those of other parallel agents.
+ * <p/>
+ * When the simulation runs in parallel mode, consecutive parallel agents
+ * execute each of their {@link #preStep()}, {@link #step()} and
+ * {@link #postStep()} phases in separate threads. To guarantee that the
+ * results are exactly the same as those of a sequential run, such agents must
+ * only modify their own state, and interact with the rest of the simulation
+ * exclusively through:
+ * <ul>
+ *   <li>{@link World#sendMessage(es.csic.iiia.planes.messaging.Message)}
+ *       (not during {@link #preStep()}),</li>
+ *   <li>{@link World#removeTask(Task)}, and</li>
+ *   <li>{@link World#planeMoved(Plane)}.</li>
+ * </ul>
+ * The world defers these operations until the end of the phase, and then
+ * replays them in the same order as a sequential run would have performed
+ * them.
+ * <p/>
+ * The only other shared state touched from parallel phases is the
+ * {@link es.csic.iiia.planes.omniscient.OmniscientGod} of omniscient planes,
+ * which stays order-independent because:
+ * <ul>
+ *   <li>its allocation is computed by the first plane that calls
+ *       {@code iter} in a tick (a synchronized, idempotent call), from state
+ *       that no agent modifies during {@link #preStep()};</li>
+ *   <li>each plane only reads its own assignment from it; and</li>
+ *   <li>completed tasks are only queued during the tick, and removed in
+ *       identifier order when the next allocation is computed.</li>
+ * </ul>
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public interface ParallelAgent extends MessagingAgent {
+
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+import es.csic.iiia.planes.messaging.Message;
+import es.csic.iiia.planes.util.TimeTracker;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runner of the phases of a simulation step on a pool of threads.
+ * <p/>
+ * Consecutive {@link ParallelAgent}s are run concurrently, whereas the
+ * remaining agents are run sequentially in between them. While running, the
+ * operations of the parallel agents on the world are deferred by the world
+ * through {@link #deferRemoval(Task)} and
+ * {@link #deferMessage(Message, Location, double)}, and then replayed
+ * in the agents' order once all of them have finished.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class ParallelRunner {
+
+    /**
+     * World whose agents are run.
+     */
+    private final AbstractWorld world;
+
+    /**
+     * Number of threads of the pool.
+     */
+    private final int threads;
+
+    /**
+     * Thread pool used to run the agents' phases.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Threads of the pool, tracked to account for their cpu time.
+     */
+    private final List<Thread> workers =
+            Collections.synchronizedList(new ArrayList<Thread>());
+
+    /**
+     * Chunk of agents being run by the current thread, or <em>null</em> if it
+     * is not running a parallel phase.
+     */
+    private final ThreadLocal<Chunk> currentChunk = new ThreadLocal<Chunk>();
+
+    /**
+     * Builds a new runner, starting its threads.
+     *
+     * @param world world whose agents are run.
+     * @param threads number of threads to use.
+     */
+    public ParallelRunner(AbstractWorld world, int threads) {
+        this.world = world;
+        this.threads = threads;
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int n = 0;
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "planes-worker-" + (++n));
+                t.setDaemon(true);
+                workers.add(t);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Stops the threads of this runner. Their cpu time is still accounted
+     * for afterwards.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Check whether the current thread is running a parallel agent.
+     *
+     * @return <em>true</em> if the current thread is running a parallel
+     *         agent, or <em>false</em> otherwise.
+     */
+    public boolean isRunning() {
+        return currentChunk.get() != null;
+    }
+
+    /**
+     * Defers the removal of a task, if it is made by a parallel agent.
+     *
+     * @param t task to remove.
+     * @return <em>true</em> if the removal has been deferred, or
+     *         <em>false</em> if it must be done right away.
+     */
+    public boolean deferRemoval(Task t) {
+        final Chunk chunk = currentChunk.get();
+        if (chunk == null) {
+            return false;
+        }
+        chunk.deferred.add(new Deferred(chunk.current, t));
+        return true;
+    }
+
+    /**
+     * Defers the sending of a message, if it is sent by a parallel agent.
+     *
+     * @param message message to send.
+     * @param origin location of the sender.
+     * @param range communication range of the sender.
+     * @return <em>true</em> if the sending has been deferred, or
+     *         <em>false</em> if it must be done right away.
+     */
+    public boolean deferMessage(Message message, Location origin, double range) {
+        final Chunk chunk = currentChunk.get();
+        if (chunk == null) {
+            return false;
+        }
+        final Agent agent = chunk.group.get(chunk.current);
+        chunk.deferred.add(new Deferred(chunk.current,
+                new Location(((ParallelAgent)agent).getLocation()),
+                message, new Location(origin), range));
+        return true;
+    }
+
+    /**
+     * Get the user time spent by the threads of this runner.
+     *
+     * @return user time of the threads, in nanoseconds.
+     */
+    public long getUserTime() {
+        long t = 0;
+        synchronized (workers) {
+            for (Thread w : workers) {
+                t += TimeTracker.getUserTime(w);
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Get the cpu time spent by the threads of this runner.
+     *
+     * @return cpu time of the threads, in nanoseconds.
+     */
+    public long getCpuTime() {
+        long t = 0;
+        synchronized (workers) {
+            for (Thread w : workers) {
+                t += TimeTracker.getCpuTime(w);
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Runs the given phase for all the agents.
+     *
+     * Consecutive {@link ParallelAgent}s are run concurrently, whereas the
+     * remaining agents are run sequentially in between them.
+     *
+     * @param phase phase to run.
+     * @param agents agents to run, in order.
+     */
+    public void runPhase(Phase phase, List<Agent> agents) {
+        final int n = agents.size();
+        int i = 0;
+        while (i < n) {
+            if (!(agents.get(i) instanceof ParallelAgent)) {
+                phase.run(agents.get(i++));
+                continue;
+            }
+
+            int j = i + 1;
+            while (j < n && agents.get(j) instanceof ParallelAgent) {
+                j++;
+            }
+            runParallel(phase, agents.subList(i, j));
+            i = j;
+        }
+    }
+
+    /**
+     * Runs the given phase for a group of parallel agents.
+     * <p/>
+     * The group is split in contiguous chunks, one per thread. While running,
+     * the agents' operations on the world are deferred, and then replayed in
+     * the agents' order after all of them have finished. Messages are checked
+     * against the location that each recipient would have had at the time of
+     * sending in a sequential run: after its own phase if it precedes the
+     * sender, or before it otherwise.
+     *
+     * @param phase phase to run.
+     * @param group agents to run.
+     */
+    private void runParallel(Phase phase, List<Agent> group) {
+        final int n = group.size();
+        if (n < 2) {
+            for (Agent a : group) {
+                phase.run(a);
+            }
+            return;
+        }
+
+        // Make sure that the indexes exist before the agents query them
+        world.buildIndexes();
+
+        final Location[] before = new Location[n];
+        for (int i=0; i<n; i++) {
+            before[i] = new Location(((ParallelAgent)group.get(i)).getLocation());
+        }
+
+        final int nchunks = Math.min(threads, n);
+        final List<Chunk> chunks = new ArrayList<Chunk>(nchunks);
+        for (int c=0; c<nchunks; c++) {
+            chunks.add(new Chunk(phase, group, c*n/nchunks, (c+1)*n/nchunks));
+        }
+
+        try {
+            for (Future<Void> f : executor.invokeAll(chunks)) {
+                f.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        }
+
+        // Bring the plane index up to date before delivering any message
+        double maxDisplacement = 0;
+        for (int i=0; i<n; i++) {
+            final Agent a = group.get(i);
+            if (a instanceof Plane) {
+                world.planeMoved((Plane)a);
+                maxDisplacement = Math.max(maxDisplacement,
+                        before[i].distance(((Plane)a).getLocation()));
+            }
+        }
+
+        Map<Agent, Integer> order = null;
+        for (Chunk c : chunks) {
+            for (Deferred d : c.deferred) {
+                if (d.task != null) {
+                    world.removeTask(d.task);
+                    continue;
+                }
+
+                if (order == null) {
+                    order = new IdentityHashMap<Agent, Integer>(n*2);
+                    for (int i=0; i<n; i++) {
+                        order.put(group.get(i), i);
+                    }
+                }
+                deliver(d, order, before, maxDisplacement);
+            }
+        }
+    }
+
+    /**
+     * Delivers a message deferred during a parallel phase.
+     *
+     * @param d deferred message.
+     * @param order position of each agent within the parallel group.
+     * @param before locations of the group's agents before the phase.
+     * @param maxDisplacement maximum distance moved by any of them.
+     */
+    private void deliver(Deferred d, Map<Agent, Integer> order,
+            Location[] before, double maxDisplacement)
+    {
+        final MessagingAgent recipient = d.message.getRecipient();
+        if (recipient != null) {
+            if (recipient instanceof Plane
+                    && world.indexOf((Plane)recipient) >= 0
+                    && d.origin.distance(getLocationAt(recipient, d, order, before)) <= d.range) {
+                recipient.receive(d.message);
+            }
+            return;
+        }
+
+        for (Plane p : world.getPlanesInRange(d.origin, d.range + maxDisplacement)) {
+            if (d.origin.distance(getLocationAt(p, d, order, before)) <= d.range) {
+                p.receive(d.message);
+            }
+        }
+    }
+
+    /**
+     * Get the location that an agent had when the given message was sent.
+     */
+    private Location getLocationAt(MessagingAgent a, Deferred d,
+            Map<Agent, Integer> order, Location[] before)
+    {
+        final Integer i = order.get(a);
+        if (i == null || i < d.agent) {
+            return a.getLocation();
+        }
+        if (i > d.agent) {
+            return before[i];
+        }
+        return d.agentLocation;
+    }
+
+    /**
+     * Contiguous range of parallel agents run by a single thread, along with
+     * the world operations that they have deferred.
+     */
+    private class Chunk implements Callable<Void> {
+        private final Phase phase;
+        private final List<Agent> group;
+        private final int from;
+        private final int to;
+        private final List<Deferred> deferred = new ArrayList<Deferred>();
+        private int current;
+
+        public Chunk(Phase phase, List<Agent> group, int from, int to) {
+            this.phase = phase;
+            this.group = group;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Void call() {
+            currentChunk.set(this);
+            try {
+                for (current = from; current < to; current++) {
+                    phase.run(group.get(current));
+                }
+            } finally {
+                currentChunk.remove();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * World operation deferred during a parallel phase: either a task removal
+     * or a message sending.
+     */
+    private static class Deferred {
+        private final int agent;
+        private final Task task;
+        private final Location agentLocation;
+        private final Message message;
+        private final Location origin;
+        private final double range;
+
+        public Deferred(int agent, Task task) {
+            this.agent = agent;
+            this.task = task;
+            this.agentLocation = null;
+            this.message = null;
+            this.origin = null;
+            this.range = 0;
+        }
+
+        public Deferred(int agent, Location agentLocation, Message message,
+                Location origin, double range) {
+            this.agent = agent;
+            this.task = null;
+            this.agentLocation = agentLocation;
+            this.message = message;
+            this.origin = origin;
+            this.range = range;
+        }
+    }
+
+}
@@ -178,6 +178,14 @@ public interface Plane extends MessagingAgent {
      */
     public void setDestination(Location location);
 
+    /**
+     * Gets the plane's destination.
+     *
+     * @return location where the plane is moving towards, or <em>null</em> if
+     *         it has none.
+     */
+    public Location getDestination();
+
     /**
      * Moves the plane towards its current destination.
      * <p/>
@@ -188,6 +196,19 @@ public interface Plane extends MessagingAgent {
      */
     public boolean move();
 
+    /**
+     * Moves the plane towards its current destination during the given number
+     * of steps at once.
+     * <p/>
+     * This is exactly equivalent to calling {@link #move()} once in each of
+     * those steps, and is used to fast-forward across quiet steps.
+     *
+     * @see Agent#skip(long)
+     * @param steps number of steps to move.
+     * @return True if the destination has been reached, or False otherwise.
+     */
+    public boolean move(long steps);
+
     /***************************************************************************
      * STATISTICS TRACKING
      **************************************************************************/
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Kinematic and energy state of the planes of a world, stored as primitive
+ * columns indexed by the dense index of each plane.
+ * <p/>
+ * The speed of an {@link AbstractPlane}, the charge of its
+ * {@link DefaultBattery} and the remaining steps of its current
+ * {@link Location.MoveStep} are views over a row of these columns. Hence, the
+ * per-step updates of all the planes touch contiguous memory, and a snapshot
+ * of the world saves them along with the planes.
+ * <p/>
+ * Elements that do not belong to any world yet keep their state in a store
+ * of their own, and move it to the world's one when attached to it.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class PlaneStates implements Serializable {
+
+    private int size = 0;
+
+    /**
+     * Speed of each plane, in meters per tenth of second.
+     */
+    private double[] speeds;
+
+    /**
+     * Remaining energy and capacity of the battery of each plane.
+     */
+    private long[] energies;
+    private long[] capacities;
+
+    /**
+     * Remaining steps of the current movement of each plane.
+     */
+    private int[] steps;
+
+    /**
+     * Build an empty store.
+     */
+    public PlaneStates() {
+        this(16);
+    }
+
+    /**
+     * Build an empty store for the given number of rows, which grows as
+     * needed.
+     *
+     * @param capacity initial number of rows.
+     */
+    public PlaneStates(int capacity) {
+        capacity = Math.max(1, capacity);
+        speeds = new double[capacity];
+        energies = new long[capacity];
+        capacities = new long[capacity];
+        steps = new int[capacity];
+    }
+
+    /**
+     * Add a new row, with all of its values set to zero.
+     *
+     * @return index of the new row.
+     */
+    public int add() {
+        if (size == speeds.length) {
+            final int capacity = size * 2;
+            speeds = Arrays.copyOf(speeds, capacity);
+            energies = Arrays.copyOf(energies, capacity);
+            capacities = Arrays.copyOf(capacities, capacity);
+            steps = Arrays.copyOf(steps, capacity);
+        }
+        return size++;
+    }
+
+    /**
+     * Get the number of rows.
+     *
+     * @return number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    public double getSpeed(int row) {
+        return speeds[row];
+    }
+
+    public void setSpeed(int row, double speed) {
+        speeds[row] = speed;
+    }
+
+    /**
+     * Get the maximum speed of all the planes.
+     *
+     * @return maximum speed, or 0 if there are no planes.
+     */
+    public double getMaxSpeed() {
+        double max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, speeds[i]);
+        }
+        return max;
+    }
+
+    public long getEnergy(int row) {
+        return energies[row];
+    }
+
+    public void setEnergy(int row, long energy) {
+        energies[row] = energy;
+    }
+
+    public long getCapacity(int row) {
+        return capacities[row];
+    }
+
+    public void setCapacity(int row, long capacity) {
+        capacities[row] = capacity;
+    }
+
+    public int getSteps(int row) {
+        return steps[row];
+    }
+
+    public void setSteps(int row, int steps) {
+        this.steps[row] = steps;
+    }
+
+}
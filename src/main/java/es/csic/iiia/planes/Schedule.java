@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+import es.csic.iiia.planes.util.LongHeap;
+import es.csic.iiia.planes.util.Metrics;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Schedule of the agents of a sequential simulation that skips the quiet
+ * steps.
+ * <p/>
+ * Each agent runs only at the steps where it may act, as reported by
+ * {@link Agent#getQuietUntil()}, and it is fast-forwarded across the quiet
+ * steps in between when it runs again, when some element observes it
+ * through the world, or when it is about to be changed by someone else
+ * (see {@link World#wakeUp(Agent)}). Hence, each event only advances the
+ * agents involved in it.
+ * <p/>
+ * However, agents that message or look up other agents during a step may
+ * depend on them acting, so they run again at the next step in which
+ * anyone else does, as when all of the agents are skipped together.
+ * <p/>
+ * The schedule only reads the current time, the metrics collector and the
+ * spatial index of the planes from its world, which in turn notifies it of
+ * the agents' interactions.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class Schedule {
+    private static final Logger LOG = Logger.getLogger(Schedule.class.getName());
+
+    /**
+     * World whose agents are scheduled.
+     */
+    private final AbstractWorld world;
+
+    /**
+     * Agents of the world, in the order in which they run.
+     */
+    private final List<Agent> agents;
+
+    /**
+     * Position of each agent in the list of agents.
+     */
+    private final Map<Agent, Integer> positions =
+            new IdentityHashMap<Agent, Integer>();
+
+    /**
+     * Last step whose effects have been applied to each agent.
+     */
+    private final long[] syncedTo;
+
+    /**
+     * Next step at which each agent must run, or {@link Long#MAX_VALUE}
+     * if it is not scheduled.
+     */
+    private final long[] dueAt;
+
+    /**
+     * Whether each agent runs in the current step.
+     */
+    private final boolean[] running;
+
+    /**
+     * Whether each agent has messaged or looked up other agents in the
+     * current step.
+     */
+    private final boolean[] interacting;
+
+    /**
+     * Scheduled runs, packed as the step (in the upper 32 bits) and the
+     * position of the agent (in the lower 32 bits). Entries whose step is
+     * no longer the one at which their agent is due are stale, and they
+     * are dropped when found.
+     */
+    private final LongHeap pending = new LongHeap();
+
+    /**
+     * Positions of the agents that run in the current step, sorted.
+     */
+    private final int[] current;
+    private int ncurrent = 0;
+
+    /**
+     * Phase being run, or <em>null</em> between steps.
+     */
+    private Phase phase = null;
+
+    /**
+     * Index in {@link #current} of the agent being run.
+     */
+    private int slot = -1;
+
+    /**
+     * Maximum speed of the planes.
+     */
+    private final double maxSpeed;
+
+    /**
+     * Step that no plane lags behind of. The planes that have not been
+     * brought up to date are at most maxSpeed times the steps since then
+     * away from their indexed locations.
+     */
+    private long laggingSince;
+
+    /**
+     * Builds the schedule of a world, with all of its agents due at the
+     * current step.
+     *
+     * @param world world whose agents are scheduled.
+     * @param agents agents of the world, in the order in which they run.
+     * @param maxSpeed maximum speed of the world's planes.
+     */
+    public Schedule(AbstractWorld world, List<Agent> agents, double maxSpeed) {
+        this.world = world;
+        this.agents = agents;
+        this.maxSpeed = maxSpeed;
+
+        final long time = world.getTime();
+        final int n = agents.size();
+        syncedTo = new long[n];
+        dueAt = new long[n];
+        running = new boolean[n];
+        interacting = new boolean[n];
+        current = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions.put(agents.get(i), i);
+            syncedTo[i] = time - 1;
+            schedule(i, time);
+        }
+        laggingSince = time - 1;
+    }
+
+    /**
+     * Runs the current step for the agents that are due.
+     */
+    public void computeStep() {
+        final long time = world.getTime();
+        ncurrent = 0;
+        while (!pending.isEmpty() && (pending.peek() >>> 32) <= time) {
+            final long entry = pending.poll();
+            final int i = (int)entry;
+            if (dueAt[i] == entry >>> 32 && !running[i]) {
+                running[i] = true;
+                current[ncurrent++] = i;
+            }
+        }
+        Arrays.sort(current, 0, ncurrent);
+        for (int k = 0; k < ncurrent; k++) {
+            skipTo(current[k], time - 1);
+        }
+
+        for (Phase p : Phase.values()) {
+            final Metrics metrics = world.getMetrics();
+            final long wall = metrics == null ? 0 : System.nanoTime();
+            final long cpu = metrics == null ? 0 : world.getCpuTime();
+            phase = p;
+            for (slot = 0; slot < ncurrent; slot++) {
+                p.run(agents.get(current[slot]));
+            }
+            if (metrics != null) {
+                metrics.addPhase(p.toString(), System.nanoTime() - wall,
+                        world.getCpuTime() - cpu);
+            }
+        }
+        phase = null;
+        slot = -1;
+
+        for (int k = 0; k < ncurrent; k++) {
+            final int i = current[k];
+            running[i] = false;
+            syncedTo[i] = time;
+        }
+
+        // Interacting agents stay awake until the next step in which
+        // anyone else acts
+        long next = Long.MAX_VALUE;
+        for (int k = 0; k < ncurrent; k++) {
+            final int i = current[k];
+            final long until = Math.max(time + 1, agents.get(i).getQuietUntil());
+            if (interacting[i]) {
+                next = Math.min(next, until);
+            } else {
+                schedule(i, until);
+            }
+        }
+        next = Math.min(next, getNextStep());
+        for (int k = 0; k < ncurrent; k++) {
+            final int i = current[k];
+            if (interacting[i]) {
+                interacting[i] = false;
+                schedule(i, next);
+            }
+        }
+    }
+
+    /**
+     * Get the number of steps after the current one in which no agent is
+     * due.
+     *
+     * @param limit step that must not be skipped, whether some agent is due
+     *              or not.
+     * @return number of quiet steps to skip.
+     */
+    public long getQuietSteps(long limit) {
+        final long time = world.getTime();
+        final long until = Math.min(limit, getNextStep());
+        if (until <= time + 1) {
+            return 0;
+        }
+
+        final long steps = until - time - 1;
+        LOG.log(Level.FINE, "Skipping {0} quiet steps.", steps);
+        return steps;
+    }
+
+    /**
+     * Flags the agent being run as interacting with the others.
+     */
+    public void interacted() {
+        if (slot >= 0) {
+            interacting[current[slot]] = true;
+        }
+    }
+
+    /**
+     * Runs the given agent as soon as possible: from the next phase of the
+     * current step if it has not been run yet, or from the next step
+     * otherwise.
+     *
+     * @param a agent to wake up.
+     */
+    public void wakeUp(Agent a) {
+        final Integer position = positions.get(a);
+        if (position == null || running[position]) {
+            return;
+        }
+
+        final long time = world.getTime();
+        final int i = position;
+        if (phase == Phase.PRE_STEP || phase == Phase.STEP && i > current[slot]) {
+            skipTo(i, time - 1);
+            insert(i);
+        } else {
+            skipTo(i, time);
+            schedule(i, time + 1);
+        }
+    }
+
+    /**
+     * Brings the given element up to date, if it is a scheduled agent.
+     *
+     * @param e element that is observed.
+     */
+    public void advance(Element e) {
+        final Integer position = positions.get(e);
+        if (position != null && !running[position]) {
+            skipTo(position, getObservedStep(position));
+        }
+    }
+
+    /**
+     * Brings up to date all the planes that may be within range of the
+     * given location.
+     *
+     * @param location location being looked up from.
+     * @param range maximum distance to the location.
+     */
+    public void advanceWithin(Location location, double range) {
+        final long time = world.getTime();
+        if (maxSpeed * (time - laggingSince) > world.getPlaneIndex().getCellSize()) {
+            advanceAll();
+        }
+        final double slack = maxSpeed * (time - laggingSince);
+        for (Plane p : world.getPlaneIndex().getWithin(location, range + slack)) {
+            advance(p);
+        }
+    }
+
+    /**
+     * Brings all of the agents up to date.
+     */
+    public void advanceAll() {
+        for (int i = 0, n = agents.size(); i < n; i++) {
+            if (!running[i]) {
+                skipTo(i, getObservedStep(i));
+            }
+        }
+        laggingSince = world.getTime() - 1;
+    }
+
+    /**
+     * Brings all of the agents up to the given step, at the end of the
+     * simulation.
+     *
+     * @param step last step of the simulation.
+     */
+    public void advanceAll(long step) {
+        for (int i = 0, n = agents.size(); i < n; i++) {
+            skipTo(i, step);
+        }
+    }
+
+    /**
+     * Get the last step whose effects are visible on the given agent from
+     * the phase being run, if it were not skipped.
+     */
+    private long getObservedStep(int i) {
+        final long time = world.getTime();
+        if (phase == Phase.PRE_STEP || phase == Phase.STEP && i > current[slot]) {
+            return time - 1;
+        }
+        return time;
+    }
+
+    /**
+     * Fast-forwards an agent up to the end of the given step.
+     */
+    private void skipTo(int i, long step) {
+        final long steps = step - syncedTo[i];
+        if (steps > 0) {
+            syncedTo[i] = step;
+            agents.get(i).skip(steps);
+        }
+    }
+
+    /**
+     * Schedules an agent to run at the given step.
+     */
+    private void schedule(int i, long step) {
+        if (step > Integer.MAX_VALUE) {
+            dueAt[i] = Long.MAX_VALUE;
+            return;
+        }
+        dueAt[i] = step;
+        pending.add(step << 32 | i);
+    }
+
+    /**
+     * Adds an agent to the ones that run in the current step.
+     */
+    private void insert(int i) {
+        int k = ncurrent;
+        while (k > 0 && current[k - 1] > i) {
+            current[k] = current[k - 1];
+            k--;
+        }
+        current[k] = i;
+        ncurrent++;
+        if (k <= slot) {
+            slot++;
+        }
+        running[i] = true;
+        dueAt[i] = world.getTime();
+    }
+
+    /**
+     * Get the next step at which some agent is due.
+     */
+    private long getNextStep() {
+        while (!pending.isEmpty()) {
+            final long entry = pending.peek();
+            if (dueAt[(int)entry] == entry >>> 32) {
+                return entry >>> 32;
+            }
+            pending.poll();
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Whole state of a world, as saved in a snapshot file.
+ * <p/>
+ * The world itself is not saved. Instead, the references of the elements to
+ * it are replaced by a stand-in, which is resolved to the world that loads
+ * the snapshot.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class Snapshot implements Serializable {
+    long time;
+    long duration;
+    Space space;
+    List<Agent> agents;
+    List<Plane> planes;
+    PlaneStates planeStates;
+    List<Task> tasks;
+    List<Station> stations;
+    ArrayList<Operator> operators;
+    StatsCollector stats;
+    Random random;
+    int[] lastIds;
+
+    /**
+     * Writes this snapshot to a (gzipped) file.
+     *
+     * @param file file where the snapshot is saved.
+     * @param world world whose state is saved.
+     * @throws IOException if the snapshot can not be written.
+     */
+    public void save(File file, World world) throws IOException {
+        ObjectOutputStream out = new SnapshotOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file))), world);
+        try {
+            out.writeObject(this);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot from a file, attaching its elements to a world.
+     *
+     * @param file file where the snapshot was saved.
+     * @param world world that restores the snapshot.
+     * @return snapshot read.
+     * @throws IOException if the snapshot can not be read.
+     */
+    public static Snapshot load(File file, World world) throws IOException {
+        ObjectInputStream in = new SnapshotInputStream(new GZIPInputStream(
+                new BufferedInputStream(new FileInputStream(file))), world);
+        try {
+            return (Snapshot)in.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("Invalid snapshot file", ex);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Stand-in for the world in snapshots.
+     */
+    private enum WorldReference {
+        INSTANCE
+    }
+
+    /**
+     * Stream that writes the state of a world, replacing any reference to
+     * the world itself.
+     */
+    private static class SnapshotOutputStream extends ObjectOutputStream {
+        private final World world;
+
+        public SnapshotOutputStream(OutputStream out, World world) throws IOException {
+            super(out);
+            this.world = world;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            return obj == world ? WorldReference.INSTANCE : obj;
+        }
+    }
+
+    /**
+     * Stream that reads the state of a world, attaching it to another world.
+     */
+    private static class SnapshotInputStream extends ObjectInputStream {
+        private final World world;
+
+        public SnapshotInputStream(InputStream in, World world) throws IOException {
+            super(in);
+            this.world = world;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) {
+            return obj == WorldReference.INSTANCE ? world : obj;
+        }
+    }
+
+}
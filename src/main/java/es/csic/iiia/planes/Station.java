@@ -43,7 +43,6 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Recharging station, where planes can go to refill their batteries.
@@ -52,8 +51,10 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class Station extends AbstractPositionedElement implements Drawable {
 
-    final private static AtomicInteger idGenerator = new AtomicInteger();
-    final int id = idGenerator.incrementAndGet();
+    /**
+     * Station id, assigned by the world when the station is added to it.
+     */
+    private int id;
 
     /**
      * Default constructor.
@@ -69,6 +70,15 @@ public class Station extends AbstractPositionedElement implements Drawable {
     @Override
     public void initialize() {}
 
+    /**
+     * Set the identifier of this station.
+     *
+     * @param id identifier of this station.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     @Override
     public void draw(Graphics2D g) {
         int x = getLocation().getXInt();
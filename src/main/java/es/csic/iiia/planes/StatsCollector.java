@@ -36,54 +36,139 @@
  */
 package es.csic.iiia.planes;
 
-import es.csic.iiia.planes.util.TimeTracker;
+import es.csic.iiia.planes.util.QuantileSketch;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import java.io.Serializable;
 
 /**
+ * Collects the statistics of a simulation run.
+ * <p/>
+ * By default, all the values are kept to compute exact statistics. When
+ * built with a positive accuracy, they are kept in quantile sketches
+ * instead, whose memory does not grow with the number of tasks.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-class StatsCollector {
+class StatsCollector implements Serializable {
+
+    /**
+     * Percentiles displayed after the minimum, mean and maximum values.
+     */
+    private static final double[] PERCENTILES = {25, 50, 75, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p25", "median", "p75", "p90", "p99", "p999"};
 
     private AbstractWorld world;
-    private DescriptiveStatistics taskStats = new DescriptiveStatistics();
-    private DescriptiveStatistics planeStats = new DescriptiveStatistics();
+    private DescriptiveStatistics taskStats;
+    private DescriptiveStatistics planeStats;
+    private StatsSketch sketch;
 
     public StatsCollector(AbstractWorld w) {
+        this(w, 0);
+    }
+
+    /**
+     * Build a new statistics collector.
+     *
+     * @param w world whose statistics are collected.
+     * @param accuracy relative accuracy of the quantile sketches, or 0 to
+     *                 compute exact statistics.
+     */
+    public StatsCollector(AbstractWorld w, double accuracy) {
         world = w;
+        if (accuracy > 0) {
+            sketch = new StatsSketch(accuracy);
+        } else {
+            taskStats = new DescriptiveStatistics();
+            planeStats = new DescriptiveStatistics();
+        }
     }
 
     public void collect(Task t) {
         final long time = world.getTime() - t.getSubmissionTime();
-        taskStats.addValue(time);
+        if (sketch != null) {
+            sketch.getTaskSketch().addValue(time);
+        } else {
+            taskStats.addValue(time);
+        }
     }
 
     public void collect(Plane p) {
-        planeStats.addValue(p.getTotalDistance());
+        if (sketch != null) {
+            sketch.getPlaneSketch().addValue(p.getTotalDistance());
+        } else {
+            planeStats.addValue(p.getTotalDistance());
+        }
+    }
+
+    /**
+     * Get the sketches of this run.
+     *
+     * @return sketches of this run, or null if computing exact statistics.
+     */
+    public StatsSketch getSketch() {
+        return sketch;
     }
 
     public void display() {
         // Final stats
         StringBuilder buf = new StringBuilder();
-        buf.append("task_min=").append((int)taskStats.getMin()).append("\n")
-           .append("task_mean=").append((int)taskStats.getMean()).append("\n")
-           .append("task_max=").append((int)taskStats.getMax()).append("\n")
-           .append("task_p25=").append((int)taskStats.getPercentile(25)).append("\n")
-           .append("task_median=").append((int)taskStats.getPercentile(50)).append("\n")
-           .append("task_p75=").append((int)taskStats.getPercentile(75)).append("\n")
-        .append("\n");
-
-        buf.append("plane_min=").append((long)(planeStats.getMin()/1000)).append("\n")
-           .append("plane_mean=").append((long)(planeStats.getMean()/1000)).append("\n")
-           .append("plane_max=").append((long)(planeStats.getMax()/1000)).append("\n")
-           .append("plane_p25=").append((long)(planeStats.getPercentile(25)/1000)).append("\n")
-           .append("plane_median=").append((long)(planeStats.getPercentile(50)/1000)).append("\n")
-           .append("plane_p75=").append((long)(planeStats.getPercentile(75)/1000)).append("\n")
-           .append("\n");
-
-        buf.append("time=").append(TimeTracker.getUserTime()/1e6d);
-
-        System.out.println(buf);
+        if (sketch != null) {
+            buf.append(sketch.describe());
+        } else {
+            describe(buf, "task", series(taskStats), 1);
+            describe(buf, "plane", series(planeStats), 1000);
+        }
+
+        buf.append("time=").append(world.getUserTime()/1e6d);
+
+        world.getOutput().println(buf);
+    }
+
+    /**
+     * Append the description of a series of values to the given buffer.
+     *
+     * @param buf buffer where the description is appended.
+     * @param name name of the series.
+     * @param s series to describe.
+     * @param unit unit in which the values are displayed.
+     */
+    static void describe(StringBuilder buf, String name, Series s, double unit) {
+        buf.append(name).append("_min=").append((long)(s.getMin()/unit)).append("\n")
+           .append(name).append("_mean=").append((long)(s.getMean()/unit)).append("\n")
+           .append(name).append("_max=").append((long)(s.getMax()/unit)).append("\n");
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            buf.append(name).append('_').append(PERCENTILE_NAMES[i]).append('=')
+               .append((long)(s.getPercentile(PERCENTILES[i])/unit)).append("\n");
+        }
+        buf.append("\n");
+    }
+
+    static Series series(final DescriptiveStatistics stats) {
+        return new Series() {
+            public double getMin() { return stats.getMin(); }
+            public double getMean() { return stats.getMean(); }
+            public double getMax() { return stats.getMax(); }
+            public double getPercentile(double p) { return stats.getPercentile(p); }
+        };
+    }
+
+    static Series series(final QuantileSketch sketch) {
+        return new Series() {
+            public double getMin() { return sketch.getMin(); }
+            public double getMean() { return sketch.getMean(); }
+            public double getMax() { return sketch.getMax(); }
+            public double getPercentile(double p) { return sketch.getPercentile(p); }
+        };
+    }
+
+    /**
+     * Series of values whose statistics are displayed.
+     */
+    interface Series {
+        double getMin();
+        double getMean();
+        double getMax();
+        double getPercentile(double p);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+import es.csic.iiia.planes.util.QuantileSketch;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bounded-memory statistics of a simulation run, kept as quantile sketches
+ * of the task service times and of the distances flown by the planes.
+ * <p/>
+ * The sketches of several runs (for instance, replications of the same
+ * scenario with different seeds) can be saved and merged afterwards, to
+ * obtain the statistics of all of them together.
+ *
+ * @see QuantileSketch
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class StatsSketch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final QuantileSketch taskSketch;
+
+    private final QuantileSketch planeSketch;
+
+    /**
+     * Build new empty statistics.
+     *
+     * @param accuracy relative accuracy of the percentiles.
+     */
+    public StatsSketch(double accuracy) {
+        taskSketch = new QuantileSketch(accuracy);
+        planeSketch = new QuantileSketch(accuracy);
+    }
+
+    /**
+     * Get the sketch of the task service times (in tenths of second).
+     *
+     * @return sketch of the task service times.
+     */
+    public QuantileSketch getTaskSketch() {
+        return taskSketch;
+    }
+
+    /**
+     * Get the sketch of the distances flown by the planes (in meters).
+     *
+     * @return sketch of the plane distances.
+     */
+    public QuantileSketch getPlaneSketch() {
+        return planeSketch;
+    }
+
+    /**
+     * Add the statistics of another run to these ones.
+     *
+     * @param other statistics to merge into these ones.
+     */
+    public void merge(StatsSketch other) {
+        taskSketch.merge(other.taskSketch);
+        planeSketch.merge(other.planeSketch);
+    }
+
+    /**
+     * Get a textual description of these statistics, in the same format
+     * that the simulator uses to print its results.
+     *
+     * @return description of these statistics.
+     */
+    public String describe() {
+        StringBuilder buf = new StringBuilder();
+        StatsCollector.describe(buf, "task", StatsCollector.series(taskSketch), 1);
+        StatsCollector.describe(buf, "plane", StatsCollector.series(planeSketch), 1000);
+        return buf.toString();
+    }
+
+    /**
+     * Save these statistics to the given file.
+     *
+     * @param file file where the statistics are saved.
+     * @throws IOException if the file can not be written.
+     */
+    public void save(File file) throws IOException {
+        ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file))));
+        try {
+            out.writeObject(this);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Load the statistics saved in the given file.
+     *
+     * @see #save(java.io.File)
+     * @param file file where the statistics were saved.
+     * @return statistics saved in the file.
+     * @throws IOException if the file can not be read.
+     */
+    public static StatsSketch load(File file) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(
+                new BufferedInputStream(new FileInputStream(file))));
+        try {
+            return (StatsSketch)in.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("Invalid statistics file", ex);
+        } finally {
+            in.close();
+        }
+    }
+
+}
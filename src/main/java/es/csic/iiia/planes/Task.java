@@ -44,7 +44,6 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a location that must be checked by some plane.
@@ -54,19 +53,20 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class Task extends AbstractPositionedElement implements Drawable, Comparable {
 
     /**
-     * Generator of unique identifiers.
+     * Identifier of this task, assigned by the world when the task is added
+     * to it.
      */
-    private final static AtomicInteger idGenerator = new AtomicInteger();
+    private int id;
 
     /**
-     * Identifier of this task.
+     * Time at which this task has been submitted.
      */
-    private final int id = idGenerator.incrementAndGet();
+    private long submissionTime;
 
     /**
-     * Time at which this task has been submitted.
+     * Charging station nearest to this task, cached because tasks never move.
      */
-    private long submissionTime;
+    private Station nearestStation = null;
 
     /**
      * Builds a new task.
@@ -94,7 +94,7 @@ public class Task extends AbstractPositionedElement implements Drawable, Compara
      * Get the identifier of this task.
      *
      * Identifiers are sequential (in order of submission) and guaranteed to be
-     * unique.
+     * unique within each world.
      *
      * @return the identifier of this Task.
      */
@@ -102,6 +102,27 @@ public class Task extends AbstractPositionedElement implements Drawable, Compara
         return id;
     }
 
+    /**
+     * Set the identifier of this task.
+     *
+     * @param id identifier of this task.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Get the charging station nearest to this task.
+     *
+     * @return the charging station nearest to this task.
+     */
+    public Station getNearestStation() {
+        if (nearestStation == null) {
+            nearestStation = getWorld().getNearestStation(getLocation());
+        }
+        return nearestStation;
+    }
+
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder();
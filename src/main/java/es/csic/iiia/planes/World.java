@@ -39,7 +39,10 @@ package es.csic.iiia.planes;
 
 import es.csic.iiia.planes.definition.DProblem;
 import es.csic.iiia.planes.messaging.Message;
+import es.csic.iiia.planes.util.Metrics;
+import java.io.PrintStream;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Represents the world where a simulation runs.
@@ -72,6 +75,52 @@ public interface World extends Runnable {
      */
     List<Plane> getPlanes();
 
+    /**
+     * Get the planes located within the given range of a location.
+     *
+     * The returned planes follow the same order as in {@link #getPlanes()}.
+     *
+     * @param location where an element is querying from.
+     * @param range maximum distance (inclusive) to the given location.
+     * @return list of planes within range.
+     */
+    List<Plane> getPlanesInRange(Location location, double range);
+
+    /**
+     * Check whether there is any plane located within the given range of a
+     * location.
+     *
+     * @param location where an element is querying from.
+     * @param range maximum distance (inclusive) to the given location.
+     * @return <em>true</em> if some plane is within range, or <em>false</em>
+     *         otherwise.
+     */
+    boolean isPlaneInRange(Location location, double range);
+
+    /**
+     * Notifies the world that a plane has changed its location.
+     *
+     * Planes must call this method whenever they move, so that the world can
+     * keep its spatial lookups up to date.
+     *
+     * @param p plane that has moved.
+     */
+    void planeMoved(Plane p);
+
+    /**
+     * Notifies the world that an agent is about to be changed by some other
+     * element.
+     *
+     * Elements must call this method before changing an agent other than
+     * themselves (such as assigning it a task or delivering it a message), so
+     * that the world can bring that agent up to date and run it again even if
+     * it had reported to be quiet.
+     *
+     * @see Agent#getQuietUntil()
+     * @param a agent that is about to change.
+     */
+    void wakeUp(Agent a);
+
     /**
      * Get the {@link Space} of this simulation.
      *
@@ -133,6 +182,35 @@ public interface World extends Runnable {
      */
     public List<Task> getTasks();
 
+    /**
+     * Get the random number generator of this simulation.
+     *
+     * Elements that need randomness must draw it from here, so that each
+     * simulation is reproducible regardless of any other simulation running
+     * in the same JVM.
+     *
+     * @return random number generator of this simulation.
+     */
+    Random getRandom();
+
+    /**
+     * Get the collector of runtime metrics of this simulation.
+     *
+     * Metrics are only collected when enabled, so the elements must check
+     * the returned collector before measuring anything.
+     *
+     * @return collector of runtime metrics, or <em>null</em> if they are not
+     *         being collected.
+     */
+    Metrics getMetrics();
+
+    /**
+     * Set the stream where the results of this simulation are printed.
+     *
+     * @param output stream where the results are printed.
+     */
+    void setOutput(PrintStream output);
+
     /**
      * Get the current simulation time (in tenths of second).
      *
@@ -40,6 +40,8 @@ import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.auctions.bidding.BiddingRule;
 import es.csic.iiia.planes.behaviors.AbstractBehavior;
+import es.csic.iiia.planes.behaviors.Behavior;
+import es.csic.iiia.planes.behaviors.Handler;
 import es.csic.iiia.planes.behaviors.neighbors.NeighborTracking;
 import es.csic.iiia.planes.cli.Configuration;
 import es.csic.iiia.planes.messaging.Message;
@@ -67,6 +69,11 @@ public class AuctionBehavior extends AbstractBehavior {
 
     private BiddingRule biddingRule;
 
+    /**
+     * Last time at which this behavior sent some message.
+     */
+    private long lastSentTime = -1;
+
     /**
      * Builds an auctioning behavior for the given agent.
      *
@@ -151,6 +158,51 @@ public class AuctionBehavior extends AbstractBehavior {
 
         bid.setRecipient(ask.getSender());
         agent.send(bid);
+        lastSentTime = agent.getWorld().getTime();
+    }
+
+    /**
+     * Invoker of {@link #on(BidMessage)}.
+     */
+    private static final Handler ON_BID = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {
+            ((AuctionBehavior)b).on((BidMessage)m);
+        }
+    };
+
+    /**
+     * Invoker of {@link #on(WinnerMessage)}.
+     */
+    private static final Handler ON_WINNER = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {
+            ((AuctionBehavior)b).on((WinnerMessage)m);
+        }
+    };
+
+    /**
+     * Invoker of {@link #on(AskMessage)}.
+     */
+    private static final Handler ON_ASK = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {
+            ((AuctionBehavior)b).on((AskMessage)m);
+        }
+    };
+
+    @Override
+    public Handler getHandler(Class messageClass) {
+        if (messageClass == BidMessage.class) {
+            return ON_BID;
+        }
+        if (messageClass == WinnerMessage.class) {
+            return ON_WINNER;
+        }
+        if (messageClass == AskMessage.class) {
+            return ON_ASK;
+        }
+        return super.getHandler(messageClass);
     }
 
     @Override
@@ -186,6 +238,7 @@ public class AuctionBehavior extends AbstractBehavior {
             WinnerMessage win = new WinnerMessage(t);
             win.setRecipient(winner.getSender());
             agent.send(win);
+            lastSentTime = agent.getWorld().getTime();
         } else {
             if (LOG.isLoggable(Level.FINER)) {
                 LOG.log(Level.FINER, "{0} keeps task {1} (cost: {2})",
@@ -218,10 +271,24 @@ public class AuctionBehavior extends AbstractBehavior {
 
                 AskMessage ask = new AskMessage(t);
                 agent.send(ask);
+                lastSentTime = agent.getWorld().getTime();
             }
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * In this case, the behavior is quiet when the agent has no tasks to
+     * auction and no auction messages are in flight.
+     */
+    @Override
+    public boolean isQuiet() {
+        final Plane agent = getAgent();
+        return agent.getTasks().isEmpty() && bids.isEmpty()
+                && lastSentTime != agent.getWorld().getTime();
+    }
+
     private static int getSenderID(AuctionMessage m) {
         MessagingAgent sender = m.getSender();
         if (!(sender instanceof AuctionPlane)) {
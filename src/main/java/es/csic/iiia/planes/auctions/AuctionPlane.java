@@ -38,10 +38,12 @@ package es.csic.iiia.planes.auctions;
 
 import es.csic.iiia.planes.AbstractPlane;
 import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.ParallelAgent;
 import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.auctions.bidding.BiddingRule;
 import es.csic.iiia.planes.behaviors.neighbors.NeighborTracking;
 import es.csic.iiia.planes.cli.Configuration;
+import es.csic.iiia.planes.util.TaskList;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -54,9 +56,9 @@ import java.util.List;
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public class AuctionPlane extends AbstractPlane {
+public class AuctionPlane extends AbstractPlane implements ParallelAgent {
 
-    private ArrayList<Task> localTasks = new ArrayList<Task>();
+    private TaskList localTasks = new TaskList();
 
     public AuctionPlane(Location location) {
         super(location);
@@ -38,6 +38,7 @@ package es.csic.iiia.planes.behaviors;
 
 import es.csic.iiia.planes.MessagingAgent;
 import es.csic.iiia.planes.cli.Configuration;
+import es.csic.iiia.planes.messaging.Message;
 
 /**
  * Skeletal implementation of a behavior.
@@ -72,6 +73,26 @@ public abstract class AbstractBehavior<T extends MessagingAgent> implements Beha
     @Override
     public void postStep() {}
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * By default, behaviors are never considered quiet.
+     */
+    @Override
+    public boolean isQuiet() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * By default, behaviors have no message handlers.
+     */
+    @Override
+    public Handler getHandler(Class<? extends Message> messageClass) {
+        return null;
+    }
+
     @Override
     public T getAgent() {
         return agent;
@@ -38,12 +38,12 @@ package es.csic.iiia.planes.behaviors;
 
 import es.csic.iiia.planes.AbstractMessagingAgent;
 import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.messaging.AbstractMessage;
 import es.csic.iiia.planes.messaging.Message;
 import es.csic.iiia.planes.util.DependencyResolver;
-import org.apache.commons.collections.map.MultiKeyMap;
+import es.csic.iiia.planes.util.Metrics;
+import es.csic.iiia.planes.util.Metrics.Hook;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -115,6 +115,7 @@ public abstract class AbstractBehaviorAgent extends AbstractMessagingAgent {
         }
 
         behaviors = newBehaviors;
+        handlerTables = null;
         initialized = true;
     }
 
@@ -169,6 +170,14 @@ public abstract class AbstractBehaviorAgent extends AbstractMessagingAgent {
 
     @Override
     public void receive(Message message) {
+        if (message instanceof AbstractMessage) {
+            ((AbstractMessage)message).retain();
+        }
+        final Metrics metrics = getWorld().getMetrics();
+        if (metrics != null) {
+            metrics.addDelivered(message.getClass());
+        }
+        getWorld().wakeUp(this);
         futureMessages.add(message);
     }
 
@@ -177,6 +186,9 @@ public abstract class AbstractBehaviorAgent extends AbstractMessagingAgent {
      * <p/>
      * In this case, the step initialization is to turn the "future" messages
      * of the previous iteration into the "current" ones for this iteration.
+     * The old "current" messages have already been released at the end of
+     * the previous step, so an agent without pending messages is left
+     * untouched.
      * <p/>
      * Additionally, it gives the opportunity for behaviors to initialize
      * themselves.
@@ -184,32 +196,59 @@ public abstract class AbstractBehaviorAgent extends AbstractMessagingAgent {
     @Override
     public void preStep() {
         List<Message> tmp = currentMessages;
-        tmp.clear();
         currentMessages = futureMessages;
         futureMessages = tmp;
 
+        final Metrics metrics = getWorld().getMetrics();
         for (Behavior b : behaviors) {
-            b.preStep();
+            if (metrics == null) {
+                b.preStep();
+            } else {
+                final long start = System.nanoTime();
+                b.preStep();
+                metrics.addBehavior(b.getClass(), Hook.PRE_STEP, System.nanoTime() - start);
+            }
         }
     }
 
     /**
      * Call the message handler for each message received in the previous
-     * iteration.
+     * iteration, and release them afterwards so that pooled ones can be
+     * reused.
      */
     @Override
     public void step() {
+        final Metrics metrics = getWorld().getMetrics();
 
         for (Behavior b : behaviors) {
-            b.beforeMessages();
+            if (metrics == null) {
+                b.beforeMessages();
+            } else {
+                final long start = System.nanoTime();
+                b.beforeMessages();
+                metrics.addBehavior(b.getClass(), Hook.BEFORE_MESSAGES, System.nanoTime() - start);
+            }
         }
 
-        dispatchMessages();
+        dispatchMessages(metrics);
 
         for (Behavior b : behaviors) {
-            b.afterMessages();
+            if (metrics == null) {
+                b.afterMessages();
+            } else {
+                final long start = System.nanoTime();
+                b.afterMessages();
+                metrics.addBehavior(b.getClass(), Hook.AFTER_MESSAGES, System.nanoTime() - start);
+            }
         }
 
+        for (int i = 0, n = currentMessages.size(); i < n; i++) {
+            final Message m = currentMessages.get(i);
+            if (m instanceof AbstractMessage) {
+                ((AbstractMessage)m).release();
+            }
+        }
+        currentMessages.clear();
     }
 
     /**
@@ -220,88 +259,92 @@ public abstract class AbstractBehaviorAgent extends AbstractMessagingAgent {
      */
     @Override
     public void postStep() {
+        final Metrics metrics = getWorld().getMetrics();
+        for (Behavior b : behaviors) {
+            if (metrics == null) {
+                b.postStep();
+            } else {
+                final long start = System.nanoTime();
+                b.postStep();
+                metrics.addBehavior(b.getClass(), Hook.POST_STEP, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * In this case, the agent is quiet while all of its behaviors are quiet.
+     * The only messages that quiet agents exchange are those sent by quiet
+     * behaviors, so there is no need to check them.
+     */
+    @Override
+    public long getQuietUntil() {
         for (Behavior b : behaviors) {
-            b.postStep();
+            if (!b.isQuiet()) {
+                return getWorld().getTime() + 1;
+            }
         }
+        return Long.MAX_VALUE;
     }
 
+    @Override
+    public void skip(long steps) {}
+
     @Override
     public void send(Message message) {
         message.setSender(this);
         getWorld().sendMessage(message);
     }
 
-    private void dispatchMessages() {
+    private void dispatchMessages(Metrics metrics) {
         LOG.log(Level.FINER, "{0} dispatching {1} messages.",
                 new Object[]{this, currentMessages.size()});
 
-        for (Behavior b : behaviors) {
-            for (Message m : currentMessages) {
-                handle(b, m);
-            }
+        final int nmessages = currentMessages.size();
+        if (nmessages == 0) {
+            return;
         }
-    }
-
-    private MultiKeyMap cache = new MultiKeyMap();
-
-    private void handle(Behavior b, Message m) {
-        final Class<? extends Behavior> bClass = b.getClass();
-        final Class<? extends Message> mClass = m.getClass();
-
-        // Memoize the method
-        Method method;
-        if (cache.containsKey(bClass, mClass)) {
-            method = (Method)cache.get(bClass, mClass);
-        } else {
-            method = getMethod(bClass, mClass);
-            if (method != null) {
-                if (LOG.isLoggable(Level.FINEST)) {
-                    LOG.log(Level.FINEST, "Dispatching {0} to {1}",
-                            new Object[]{mClass.getSimpleName(), method.toGenericString()});
-                }
+        if (handlerTables == null) {
+            handlerTables = new HandlerTable[behaviors.size()];
+            for (int i = 0; i < handlerTables.length; i++) {
+                handlerTables[i] = HandlerTable.get(behaviors.get(i).getClass());
             }
-            cache.put(bClass, mClass, method);
         }
-
-        if (method == null) {
-            return;
+        if (messageTypes == null || messageTypes.length < nmessages) {
+            messageTypes = new int[Math.max(nmessages, 16)];
         }
-
-        // Invoke it
-        try {
-            method.invoke(b, m);
-        } catch (IllegalAccessException ex) {
-            LOG.log(Level.SEVERE, null, ex);
-        } catch (IllegalArgumentException ex) {
-            LOG.log(Level.SEVERE, "Error invoking " + method.toGenericString()
-                    + " on " + b + " with argument " + m, ex);
-        } catch (InvocationTargetException ex) {
-            Throwable throwable = ex.getTargetException();
-            if (throwable instanceof Error) {
-                throw (Error) throwable;
-            } else if(throwable instanceof RuntimeException) {
-                throw (RuntimeException) throwable;
-            }
-            LOG.log(Level.SEVERE, null, throwable);
+        for (int j = 0; j < nmessages; j++) {
+            messageTypes[j] = HandlerTable.getMessageType(currentMessages.get(j).getClass());
         }
-    }
 
-    @SuppressWarnings("unchecked")
-    private static Method getMethod(Class<? extends Behavior> bClass,
-            Class<? extends Message> mClass)
-    {
-        Method m = null;
-        try {
-            m = bClass.getMethod("on", mClass);
-        } catch (NoSuchMethodException ex) {
-            Class c = mClass.getSuperclass();
-            if (Message.class.isAssignableFrom(c)) {
-                m = getMethod(bClass, (Class<? extends Message>)c);
+        for (int i = 0; i < handlerTables.length; i++) {
+            final Behavior b = behaviors.get(i);
+            final HandlerTable table = handlerTables[i];
+            final long start = metrics == null ? 0 : System.nanoTime();
+            for (int j = 0; j < nmessages; j++) {
+                final Message m = currentMessages.get(j);
+                final Handler handler = table.getHandler(messageTypes[j], m.getClass(), b);
+                if (handler != null) {
+                    handler.invoke(b, m);
+                }
+            }
+            if (metrics != null) {
+                metrics.addBehavior(b.getClass(), Hook.MESSAGES, System.nanoTime() - start);
             }
-        } catch (SecurityException ex) {
-            LOG.log(Level.SEVERE, null, ex);
         }
-        return m;
     }
 
-}
\ No newline at end of file
+    /**
+     * Handler tables of the behaviors, in the same order. They are shared by
+     * all the agents, so they are looked up again after restoring the agent
+     * from a snapshot.
+     */
+    private transient HandlerTable[] handlerTables;
+
+    /**
+     * Buffer of the message types being dispatched.
+     */
+    private transient int[] messageTypes;
+
+}
@@ -38,6 +38,7 @@ package es.csic.iiia.planes.behaviors;
 
 import es.csic.iiia.planes.messaging.Message;
 import es.csic.iiia.planes.MessagingAgent;
+import java.io.Serializable;
 
 /**
  * Defines some behavior for {@link MessagingAgent}s, by implementing arbitrary
@@ -50,11 +51,12 @@ import es.csic.iiia.planes.MessagingAgent;
  * In order to define the reaction to a specific type of event, a class
  * implementing this interface must implement an method<br/>
  * <code>on(MessageType message)</code><br/>
- * for each type of message that it reacts to.
+ * for each type of message that it reacts to, and return an invoker of that
+ * method from {@link #getHandler(java.lang.Class)}.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public interface Behavior<T extends MessagingAgent> {
+public interface Behavior<T extends MessagingAgent> extends Serializable {
 
     /**
      * Get the agent that exhibits this behavior.
@@ -99,4 +101,30 @@ public interface Behavior<T extends MessagingAgent> {
      */
     public void postStep();
 
+    /**
+     * Check whether this behavior is quiet.
+     * <p/>
+     * A behavior is quiet when running further steps would not change
+     * anything, as long as its agent does not move and all the other agents
+     * are quiet too.
+     *
+     * @see es.csic.iiia.planes.Agent#getQuietUntil()
+     * @return <em>true</em> if this behavior is quiet, or <em>false</em>
+     *         otherwise.
+     */
+    public boolean isQuiet();
+
+    /**
+     * Get the invoker of one of the message handlers of this behavior.
+     * <p/>
+     * The handler that takes each message class is found by reflection, but
+     * messages are then dispatched through the returned invoker.
+     *
+     * @param messageClass parameter type of the
+     *                     <code>on(MessageType message)</code> handler.
+     * @return invoker that calls the handler, or <em>null</em> if this
+     *         behavior has no such handler.
+     */
+    public Handler getHandler(Class<? extends Message> messageClass);
+
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.behaviors;
+
+import es.csic.iiia.planes.messaging.Message;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Message handlers of a behavior class, indexed by message type.
+ * <p/>
+ * Each message class gets a dense integer type when first seen, and each
+ * behavior class gets a single table that maps those types to the invokers
+ * of its <code>on(Message)</code> handlers. Handlers are resolved by
+ * reflection once per (behavior class, message class) pair, so dispatching a
+ * message only costs an array access and a plain call to the invoker, and
+ * messages without handler are skipped right away.
+ * <p/>
+ * Tables are shared between all the agents (and threads) of the simulation.
+ * Lookups are lock-free, whereas the (rare) resolutions are synchronized and
+ * publish a new copy of the table.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+final class HandlerTable {
+    private static final Logger LOG = Logger.getLogger(HandlerTable.class.getName());
+
+    /**
+     * Marker of the types that have been resolved to no handler.
+     */
+    private static final Handler NO_HANDLER = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {}
+    };
+
+    /**
+     * Dense type of each message class.
+     */
+    private static final ConcurrentMap<Class<?>, Integer> messageTypes =
+            new ConcurrentHashMap<Class<?>, Integer>();
+
+    /**
+     * Type to assign to the next message class.
+     */
+    private static final AtomicInteger nextMessageType = new AtomicInteger();
+
+    /**
+     * Handler table of each behavior class.
+     */
+    private static final ConcurrentMap<Class<?>, HandlerTable> tables =
+            new ConcurrentHashMap<Class<?>, HandlerTable>();
+
+    /**
+     * Behavior class whose handlers are stored in this table.
+     */
+    private final Class<? extends Behavior> behaviorClass;
+
+    /**
+     * Handlers by message type (<em>null</em> for the unresolved ones).
+     */
+    private volatile Handler[] handlers = new Handler[0];
+
+    private HandlerTable(Class<? extends Behavior> behaviorClass) {
+        this.behaviorClass = behaviorClass;
+    }
+
+    /**
+     * Get the dense type of a message class.
+     *
+     * @param messageClass class of the message.
+     * @return type of the message class.
+     */
+    public static int getMessageType(Class<? extends Message> messageClass) {
+        Integer type = messageTypes.get(messageClass);
+        if (type == null) {
+            final Integer newType = nextMessageType.getAndIncrement();
+            type = messageTypes.putIfAbsent(messageClass, newType);
+            if (type == null) {
+                type = newType;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Get the handler table of a behavior class.
+     *
+     * @param behaviorClass class of the behavior.
+     * @return handler table of the behavior class.
+     */
+    public static HandlerTable get(Class<? extends Behavior> behaviorClass) {
+        HandlerTable table = tables.get(behaviorClass);
+        if (table == null) {
+            final HandlerTable newTable = new HandlerTable(behaviorClass);
+            table = tables.putIfAbsent(behaviorClass, newTable);
+            if (table == null) {
+                table = newTable;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Get the handler of a message type.
+     *
+     * @param type type of the message, as given by
+     *             {@link #getMessageType(java.lang.Class)}.
+     * @param messageClass class of the message.
+     * @param behavior behavior of this table's class, which provides the
+     *                 invoker when the type is not resolved yet.
+     * @return invoker of the handler of the messages of that type, or
+     *         <em>null</em> if the behavior does not handle them.
+     */
+    public Handler getHandler(int type, Class<? extends Message> messageClass,
+            Behavior behavior)
+    {
+        final Handler[] h = handlers;
+        final Handler handler = type < h.length ? h[type] : null;
+        if (handler == null) {
+            return resolve(type, messageClass, behavior);
+        }
+        return handler == NO_HANDLER ? null : handler;
+    }
+
+    private synchronized Handler resolve(int type, Class<? extends Message> messageClass,
+            Behavior behavior)
+    {
+        final Handler[] h = handlers;
+        if (type < h.length && h[type] != null) {
+            return h[type] == NO_HANDLER ? null : h[type];
+        }
+
+        Handler handler = null;
+        final Method method = getMethod(behaviorClass, messageClass);
+        if (method != null) {
+            @SuppressWarnings("unchecked")
+            final Class<? extends Message> parameter =
+                    (Class<? extends Message>)method.getParameterTypes()[0];
+            handler = behavior.getHandler(parameter);
+            if (handler == null) {
+                throw new IllegalStateException(behaviorClass.getName()
+                        + " does not provide the invoker of " + method.toGenericString());
+            }
+            if (LOG.isLoggable(Level.FINEST)) {
+                LOG.log(Level.FINEST, "Dispatching {0} to {1}",
+                        new Object[]{messageClass.getSimpleName(), method.toGenericString()});
+            }
+        }
+
+        final Handler[] newHandlers = new Handler[Math.max(h.length, type + 1)];
+        System.arraycopy(h, 0, newHandlers, 0, h.length);
+        newHandlers[type] = handler == null ? NO_HANDLER : handler;
+        handlers = newHandlers;
+        return handler;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Method getMethod(Class<? extends Behavior> bClass,
+            Class<? extends Message> mClass)
+    {
+        Method m = null;
+        try {
+            m = bClass.getMethod("on", mClass);
+        } catch (NoSuchMethodException ex) {
+            Class c = mClass.getSuperclass();
+            if (Message.class.isAssignableFrom(c)) {
+                m = getMethod(bClass, (Class<? extends Message>)c);
+            }
+        } catch (SecurityException ex) {
+            LOG.log(Level.SEVERE, null, ex);
+        }
+        return m;
+    }
+
+}
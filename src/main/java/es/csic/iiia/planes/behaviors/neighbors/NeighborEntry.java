@@ -37,13 +37,14 @@
 package es.csic.iiia.planes.behaviors.neighbors;
 
 import es.csic.iiia.planes.MessagingAgent;
+import java.io.Serializable;
 
 /**
  * Represents an entry in the NeighborList
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-class NeighborEntry implements Comparable<NeighborEntry> {
+class NeighborEntry implements Comparable<NeighborEntry>, Serializable {
 
     public final int iters;
     public final MessagingAgent agent;
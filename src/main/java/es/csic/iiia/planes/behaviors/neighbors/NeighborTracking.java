@@ -40,8 +40,14 @@ import es.csic.iiia.planes.Location;
 import es.csic.iiia.planes.MessagingAgent;
 import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.behaviors.AbstractBehavior;
+import es.csic.iiia.planes.behaviors.AbstractBehaviorAgent;
+import es.csic.iiia.planes.behaviors.Behavior;
+import es.csic.iiia.planes.behaviors.Handler;
 import es.csic.iiia.planes.messaging.AbstractMessage;
+import es.csic.iiia.planes.messaging.Message;
+import es.csic.iiia.planes.messaging.MessagePool;
 
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,6 +57,23 @@ import java.util.logging.Logger;
  * This behavior tracks neighbors when they get in and out of range.
  * Additionally, it allows depending behaviors to require that other agents
  * must be guaranteed to stay neighbors for a fixed number of iterations.
+ * <p/>
+ * By default, neighbors are detected through the beacons that every agent
+ * broadcasts at the end of each step. In <em>oracle</em> mode (see the
+ * <code>neighbor-tracking</code> setting), the beacons are not sent at all.
+ * Instead, each agent looks up the agents that would have received its
+ * beacon directly from the world's positions, and computes the very same
+ * neighbor horizons from them. Beacons are never lost, so both modes
+ * yield exactly the same neighbors.
+ * <p/>
+ * In <em>adaptive</em> mode, neighbors are kept across steps, and their
+ * horizons are counted down as time goes by. Agents only beacon when they
+ * change their destination, when they detect a new neighbor, or right before
+ * the shortest horizon of their neighbors expires (assuming that the
+ * neighbors computed a similar horizon for them). Horizons are always
+ * computed assuming that both agents fly towards each other at full speed,
+ * so the guarantees given by {@link #isNeighbor(MessagingAgent, int)} still
+ * hold.
  *
  * @see #isNeighbor(es.csic.iiia.planes.MessagingAgent, int)
  *
@@ -61,6 +84,40 @@ public class NeighborTracking extends AbstractBehavior<Plane> {
 
     private NeighborsCollection neighbors = new NeighborsCollection();
     private Location lastLocation;
+    private Location previousLocation;
+
+    /**
+     * Pool of beacons, which are sent every single step.
+     */
+    private transient MessagePool<TrackingMessage> beacons;
+
+    /**
+     * How neighbors are detected.
+     */
+    private Mode mode = Mode.BEACONS;
+
+    /**
+     * Step at which the neighbors were last counted down, in adaptive mode.
+     */
+    private long lastCountDown = -1;
+
+    /**
+     * Step at which the next beacon is due, in adaptive mode.
+     */
+    private long nextBeacon = 0;
+
+    /**
+     * Destination announced with the last beacon, in adaptive mode.
+     */
+    private Location announcedDestination;
+
+    /**
+     * Agents that would have received our last beacon, and their distances,
+     * when running in oracle mode.
+     */
+    private MessagingAgent[] candidates = new MessagingAgent[0];
+    private double[] distances = new double[0];
+    private int ncandidates = 0;
 
     /**
      * Builds a new neighbor tracking behavior.
@@ -77,6 +134,11 @@ public class NeighborTracking extends AbstractBehavior<Plane> {
         return new Class[0];
     }
 
+    @Override
+    public void initialize() {
+        mode = getConfiguration().getNeighborTrackingMode();
+    }
+
     /**
      * Check if the given agent is a neighbor (and is guaranteed to receive
      * any messages that we send him during this iteration)
@@ -129,8 +191,25 @@ public class NeighborTracking extends AbstractBehavior<Plane> {
 
     @Override
     public void beforeMessages() {
+        if (mode == Mode.ADAPTIVE) {
+            final long now = getAgent().getWorld().getTime();
+            if (lastCountDown >= 0) {
+                neighbors.countDown((int)Math.min(Integer.MAX_VALUE, now - lastCountDown));
+            }
+            lastCountDown = now;
+            neighbors.add(getAgent(), Integer.MAX_VALUE);
+            return;
+        }
+
         neighbors.clear();
         neighbors.add(getAgent(), Integer.MAX_VALUE);
+
+        // In oracle mode there are no beacons to wait for. No depending
+        // behavior looks at the neighbors before the messages are dispatched,
+        // so they can be filled in right away.
+        for (int i = 0; i < ncandidates; i++) {
+            track(candidates[i], distances[i]);
+        }
     }
 
     /**
@@ -139,13 +218,42 @@ public class NeighborTracking extends AbstractBehavior<Plane> {
      * @param m beacon message of the detected possible neighbor.
      */
     public void on(TrackingMessage m) {
-        final MessagingAgent neighbor = m.getSender();
+        LOG.log(Level.FINEST, "My location: {0}, theirs: {1}", new Object[]{lastLocation, m.getLocation()});
+        track(m.getSender(), lastLocation.getDistance(m.getLocation()));
+    }
+
+    /**
+     * Invoker of {@link #on(TrackingMessage)}.
+     */
+    private static final Handler ON_TRACKING = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {
+            ((NeighborTracking)b).on((TrackingMessage)m);
+        }
+    };
+
+    @Override
+    public Handler getHandler(Class<? extends Message> messageClass) {
+        if (messageClass == TrackingMessage.class) {
+            return ON_TRACKING;
+        }
+        return super.getHandler(messageClass);
+    }
+
+    /**
+     * Update our knowledge about a possible neighbor.
+     *
+     * @param neighbor detected possible neighbor.
+     * @param d distance to that neighbor, at the time of detection.
+     */
+    private void track(MessagingAgent neighbor, double d) {
+        if (mode == Mode.ADAPTIVE && neighbor == getAgent()) {
+            // We are always our own neighbor
+            return;
+        }
 
         // Compute the number of steps that the neighbor is guaranteed to still
         // be in range.
-        LOG.log(Level.FINEST, "My location: {0}, theirs: {1}", new Object[]{lastLocation, m.getLocation()});
-        final double d = lastLocation.getDistance(m.getLocation());
-
         double d_step = getAgent().getSpeed();
         if (neighbor instanceof Plane) {
             d_step += ((Plane)neighbor).getSpeed();
@@ -160,8 +268,15 @@ public class NeighborTracking extends AbstractBehavior<Plane> {
         if (n > 0) {
             LOG.log(Level.FINER, "Adding {0} as a neighbor for {1} iterations.",
                     new Object[]{neighbor, n});
+            if (mode == Mode.ADAPTIVE && !neighbors.contains(neighbor, 1)) {
+                // Let the new neighbor know about us as soon as possible
+                nextBeacon = getAgent().getWorld().getTime();
+            }
             neighbors.add(neighbor, n);
         } else {
+            if (mode == Mode.ADAPTIVE) {
+                neighbors.remove(neighbor);
+            }
             LOG.log(Level.FINEST, "Ignoring {0} as a neighbor (s={1}, d_step={2}).",
                     new Object[]{neighbor, s, d_step});
         }
@@ -176,15 +291,143 @@ public class NeighborTracking extends AbstractBehavior<Plane> {
     @Override
     public void postStep() {
         MessagingAgent a = getAgent();
-        if (LOG.isLoggable(Level.FINER)) {
+        if (LOG.isLoggable(Level.FINER) && mode == Mode.BEACONS) {
             LOG.log(Level.FINER, "{0} sending beacon.", new Object[]{a});
         }
-        lastLocation = new Location(a.getLocation());
-        a.send(new TrackingMessage(lastLocation));
+
+        // Reuse the oldest location, unless it is the agent's own one
+        final Location reused = previousLocation;
+        previousLocation = lastLocation;
+        if (reused == null || reused == a.getLocation()) {
+            lastLocation = new Location(a.getLocation());
+        } else {
+            reused.setLocation(a.getLocation());
+            lastLocation = reused;
+        }
+
+        if (mode == Mode.ORACLE) {
+            collectCandidates();
+            return;
+        }
+        if (mode == Mode.ADAPTIVE && !isBeaconDue()) {
+            return;
+        }
+
+        final TrackingMessage beacon = getBeacons().acquire();
+        beacon.location.setLocation(lastLocation);
+        a.send(beacon);
+    }
+
+    /**
+     * Check whether a beacon must be sent in this step, when running in
+     * adaptive mode. If so, the following one is scheduled right before the
+     * shortest horizon of our current neighbors expires.
+     *
+     * @return true if a beacon must be sent, or false otherwise.
+     */
+    private boolean isBeaconDue() {
+        final Plane a = getAgent();
+        final long now = a.getWorld().getTime();
+        final Location destination = a.getDestination();
+        final boolean changed = destination == null
+                ? announcedDestination != null
+                : !destination.equals(announcedDestination);
+        if (now < nextBeacon && !changed) {
+            return false;
+        }
+
+        final int interval = Math.min(getConfiguration().getBeaconMaxInterval(),
+                neighbors.getMinIterations(a));
+        nextBeacon = now + Math.max(1, interval - 1);
+        announcedDestination = destination;
+        if (LOG.isLoggable(Level.FINER)) {
+            LOG.log(Level.FINER, "{0} sending beacon, next one at {1}.",
+                    new Object[]{a, nextBeacon});
+        }
+        return true;
+    }
+
+    /**
+     * Collect the agents that would have received a beacon sent now, along
+     * with their distances.
+     * <p/>
+     * Agents farther than our own communication range can never become our
+     * neighbors, so only those within it are considered. Nobody moves after
+     * stepping, so the positions seen here are the same that the beacons of
+     * all the agents would have carried.
+     */
+    private void collectCandidates() {
+        final Plane a = getAgent();
+        ncandidates = 0;
+        for (Plane p : a.getWorld().getPlanesInRange(lastLocation, a.getCommunicationRange())) {
+            if (!(p instanceof AbstractBehaviorAgent)
+                    || ((AbstractBehaviorAgent)p).getBehavior(NeighborTracking.class) == null
+                    || p.getLocation().distance(lastLocation) > p.getCommunicationRange()) {
+                continue;
+            }
+
+            if (ncandidates == candidates.length) {
+                final int capacity = Math.max(8, ncandidates * 2);
+                candidates = Arrays.copyOf(candidates, capacity);
+                distances = Arrays.copyOf(distances, capacity);
+            }
+            candidates[ncandidates] = p;
+            distances[ncandidates] = lastLocation.getDistance(p.getLocation());
+            ncandidates++;
+        }
+    }
+
+    private MessagePool<TrackingMessage> getBeacons() {
+        if (beacons == null) {
+            beacons = new MessagePool<TrackingMessage>() {
+                @Override
+                protected TrackingMessage create() {
+                    return new TrackingMessage(getAgent().getLocation());
+                }
+            };
+        }
+        return beacons;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * In this case, the behavior is quiet when the last two beacons carried
+     * the same location, because then the neighbors computed in the next
+     * step will be the same as those computed in this one.
+     */
+    @Override
+    public boolean isQuiet() {
+        if (mode == Mode.ADAPTIVE) {
+            // Beacons are scheduled over time, so they can not be skipped
+            return false;
+        }
+        return previousLocation != null && previousLocation.equals(lastLocation);
+    }
+
+    /**
+     * Ways to detect the neighbors.
+     */
+    public enum Mode {
+        /**
+         * Every agent beacons at every step.
+         */
+        BEACONS,
+        /**
+         * Neighbors are computed from the world's positions, without beacons.
+         */
+        ORACLE,
+        /**
+         * Agents only beacon when their neighbors' horizons are about to
+         * expire, and the receivers count them down in between.
+         */
+        ADAPTIVE,
     }
 
     /**
      * Beacon message sent by agents that keep track of their neighbors.
+     * <p/>
+     * Beacons are pooled, so handlers must not keep references to them.
      */
     public class TrackingMessage extends AbstractMessage {
 
@@ -37,24 +37,65 @@
 package es.csic.iiia.planes.behaviors.neighbors;
 
 import es.csic.iiia.planes.MessagingAgent;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.NavigableMap;
-import java.util.NavigableSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 
 /**
  * Collection that holds the list of neighbors, including for how many
  * iterations are they guaranteed to still be neighbors.
+ * <p/>
+ * Neighbors are stored in parallel arrays by the order in which they are
+ * added, and looked up through an open-addressing table of those slots.
+ * Hence, clearing and refilling the collection every step does not allocate
+ * anything once the arrays have grown enough. The neighbors are sorted (by
+ * decreasing number of iterations, and then by hash code) only when they
+ * are iterated after some change.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-class NeighborsCollection implements Collection<NeighborEntry>
+class NeighborsCollection extends AbstractCollection<NeighborEntry>
+    implements Serializable
 {
-    private Map<MessagingAgent, Integer> map = new HashMap<MessagingAgent, Integer>();
-    private TreeSet<NeighborEntry> set = new TreeSet<NeighborEntry>();
+    /**
+     * Neighbor agents, by slot.
+     */
+    private MessagingAgent[] agents = new MessagingAgent[8];
+
+    /**
+     * Number of iterations that each neighbor will remain so, by slot.
+     */
+    private int[] iters = new int[8];
+
+    /**
+     * Number of used slots.
+     */
+    private int size = 0;
+
+    /**
+     * Open-addressing table of slots (plus one, so that zero means empty),
+     * indexed by the agents' hash codes.
+     */
+    private int[] table = new int[16];
+
+    /**
+     * Slots sorted by decreasing number of iterations, valid when
+     * {@link #sorted} is set.
+     */
+    private int[] order = new int[8];
+
+    /**
+     * Scratch space for sorting the slots.
+     */
+    private transient int[] scratch;
+
+    /**
+     * Whether {@link #order} is up to date.
+     */
+    private boolean sorted = true;
 
     /**
      * Adds a new neighbor to the collection.
@@ -64,24 +105,36 @@ class NeighborsCollection implements Collection<NeighborEntry>
      *              guaranteed to still be a neighbor.
      * @return True if the neighbors collection has been updated, or False otherwise.
      */
-    public boolean add(MessagingAgent a, Integer iters) {
-
-        if (map.containsKey(a)) {
-            int old_iters = map.get(a);
-            if (old_iters == iters) {
+    public boolean add(MessagingAgent a, int iters) {
+        final int slot = find(a);
+        if (slot >= 0) {
+            if (this.iters[slot] == iters) {
                 // Re-adding an entry that is already inserted
                 return false;
             }
 
             // We need to update the iters value
-            if (!remove(new NeighborEntry(a, old_iters))) {
-                throw new IllegalStateException("Corruption detected in this neihgbor's list");
-            }
+            this.iters[slot] = iters;
+            sorted = false;
+            return true;
         }
 
-        NeighborEntry entry = new NeighborEntry(a, iters);
-        map.put(a, iters);
-        set.add(entry);
+        if (size == agents.length) {
+            final int capacity = size * 2;
+            agents = Arrays.copyOf(agents, capacity);
+            this.iters = Arrays.copyOf(this.iters, capacity);
+            order = new int[capacity];
+        }
+        agents[size] = a;
+        this.iters[size] = iters;
+        size++;
+        if (size * 2 > table.length) {
+            table = new int[table.length * 2];
+            rehash();
+        } else {
+            insert(size - 1);
+        }
+        sorted = false;
         return true;
     }
 
@@ -111,7 +164,12 @@ class NeighborsCollection implements Collection<NeighborEntry>
      * @return
      */
     public boolean hasNeighbors(final int iterations) {
-        return set.lower(new NeighborEntry(null, iterations-1)) != null;
+        for (int i = 0; i < size; i++) {
+            if (iters[i] >= iterations) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -125,48 +183,113 @@ class NeighborsCollection implements Collection<NeighborEntry>
      *         <em>iters</em> iterations, or False otherwise.
      */
     public boolean contains(MessagingAgent a, int iters) {
-        if (!map.containsKey(a)) {
-            return false;
+        final int slot = find(a);
+        return slot >= 0 && iters <= this.iters[slot];
+    }
+
+    /**
+     * Count down the iterations of all the neighbors, removing those whose
+     * guarantee expires. Neighbors guaranteed forever (with
+     * {@link Integer#MAX_VALUE} iterations) are left untouched.
+     *
+     * @param steps number of iterations elapsed.
+     */
+    public void countDown(int steps) {
+        if (steps <= 0) {
+            return;
         }
 
-        final int i = map.get(a);
-        return iters <= i;
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int n = iters[i];
+            if (n != Integer.MAX_VALUE) {
+                n = n > steps ? n - steps : 0;
+            }
+            if (n > 0) {
+                agents[kept] = agents[i];
+                iters[kept] = n;
+                kept++;
+            }
+        }
+        if (kept < size) {
+            Arrays.fill(agents, kept, size, null);
+            size = kept;
+            rehash();
+        }
+        sorted = false;
+    }
+
+    /**
+     * Get the smallest number of iterations among the neighbors, excluding
+     * the given one.
+     *
+     * @param except neighbor to ignore (usually, the agent itself).
+     * @return smallest number of iterations, or {@link Integer#MAX_VALUE} if
+     *         there are no other neighbors.
+     */
+    public int getMinIterations(MessagingAgent except) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (iters[i] < min && !agents[i].equals(except)) {
+                min = iters[i];
+            }
+        }
+        return min;
     }
 
     @Override
     public void clear() {
-        set.clear();
-        map.clear();
+        Arrays.fill(agents, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+        sorted = true;
     }
 
     @Override
     public int size() {
-        return map.size();
+        return size;
     }
 
     @Override
     public boolean isEmpty() {
-        return map.isEmpty();
+        return size == 0;
     }
 
     @Override
     public boolean contains(Object o) {
-        return set.contains(o);
+        if (!(o instanceof NeighborEntry)) {
+            return false;
+        }
+        final NeighborEntry e = (NeighborEntry)o;
+        final int slot = find(e.agent);
+        return slot >= 0 && iters[slot] == e.iters;
     }
 
     @Override
     public Iterator<NeighborEntry> iterator() {
-        return set.iterator();
-    }
+        sort();
+        return new Iterator<NeighborEntry>() {
+            private int next = 0;
 
-    @Override
-    public Object[] toArray() {
-        return set.toArray();
-    }
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
 
-    @Override
-    public <T> T[] toArray(T[] ts) {
-        return set.toArray(ts);
+            @Override
+            public NeighborEntry next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                final int slot = order[next++];
+                return new NeighborEntry(agents[slot], iters[slot]);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+        };
     }
 
     @Override
@@ -181,11 +304,12 @@ class NeighborsCollection implements Collection<NeighborEntry>
      * @return True if the entry has been removed, or False otherwise.
      */
     public boolean remove(NeighborEntry e) {
-        boolean result = set.remove(e);
-        if (result) {
-            result = map.remove(e.agent) != null;
+        final int slot = find(e.agent);
+        if (slot < 0 || iters[slot] != e.iters) {
+            return false;
         }
-        return result;
+        removeSlot(slot);
+        return true;
     }
 
     /**
@@ -195,12 +319,12 @@ class NeighborsCollection implements Collection<NeighborEntry>
      * @return True if the neighbor has been removed, or False otherwise.
      */
     public boolean remove(MessagingAgent a) {
-        Integer niters = map.remove(a);
-        if (niters == null) {
+        final int slot = find(a);
+        if (slot < 0) {
             return false;
         }
-
-        return set.remove(new NeighborEntry(a, niters));
+        removeSlot(slot);
+        return true;
     }
 
     @Override
@@ -214,22 +338,6 @@ class NeighborsCollection implements Collection<NeighborEntry>
         return false;
     }
 
-    @Override
-    public boolean containsAll(Collection<?> clctn) {
-        return set.containsAll(clctn);
-    }
-
-    @Override
-    public boolean addAll(Collection<? extends NeighborEntry> clctn) {
-        boolean changed = false;
-
-        for (NeighborEntry e : clctn) {
-            changed = add(e) || changed;
-        }
-
-        return changed;
-    }
-
     @Override
     public boolean removeAll(Collection<?> clctn) {
         boolean changed = false;
@@ -248,42 +356,170 @@ class NeighborsCollection implements Collection<NeighborEntry>
 
     @Override
     public String toString() {
-        return map.toString();
+        sort();
+        StringBuilder buf = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(agents[order[i]]).append('=').append(iters[order[i]]);
+        }
+        return buf.append('}').toString();
+    }
+
+    /**
+     * Get the slot of an agent.
+     *
+     * @param a agent to look for.
+     * @return slot of the agent, or -1 if it is not in the collection.
+     */
+    private int find(MessagingAgent a) {
+        if (a == null) {
+            return -1;
+        }
+        final int mask = table.length - 1;
+        for (int i = hash(a) & mask; table[i] != 0; i = (i + 1) & mask) {
+            final int slot = table[i] - 1;
+            if (agents[slot] == a || agents[slot].equals(a)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int slot) {
+        final int mask = table.length - 1;
+        int i = hash(agents[slot]) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot + 1;
+    }
+
+    private void rehash() {
+        Arrays.fill(table, 0);
+        for (int slot = 0; slot < size; slot++) {
+            insert(slot);
+        }
+    }
+
+    /**
+     * Get the position of a slot in the table.
+     */
+    private int position(int slot) {
+        final int mask = table.length - 1;
+        int i = hash(agents[slot]) & mask;
+        while (table[i] != slot + 1) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Empty the given position of the table, moving back the entries that
+     * follow it in their probe sequences so that lookups still find them.
+     */
+    private void unindex(int i) {
+        final int mask = table.length - 1;
+        int hole = i;
+        for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+            final int home = hash(agents[table[j] - 1]) & mask;
+            // Move the entry unless its home lies cyclically in (hole, j]
+            if (hole <= j ? (home <= hole || home > j) : (home <= hole && home > j)) {
+                table[hole] = table[j];
+                hole = j;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private static int hash(MessagingAgent a) {
+        final int h = a.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Removes a slot, moving the last one into its place.
+     */
+    private void removeSlot(int slot) {
+        unindex(position(slot));
+        size--;
+        if (slot != size) {
+            table[position(size)] = slot + 1;
+            agents[slot] = agents[size];
+            iters[slot] = iters[size];
+        }
+        agents[size] = null;
+        sorted = false;
+    }
+
+    /**
+     * Sort the slots by decreasing number of iterations, breaking ties by
+     * the agents' hash codes (as the previous tree-based implementation did).
+     */
+    private void sort() {
+        if (sorted) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        if (scratch == null || scratch.length < order.length) {
+            scratch = new int[order.length];
+        }
+        mergeSort(order, scratch, 0, size);
+        sorted = true;
+    }
+
+    private void mergeSort(int[] a, int[] tmp, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid);
+        mergeSort(a, tmp, mid, to);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            tmp[k++] = compare(a[j], a[i]) < 0 ? a[j++] : a[i++];
+        }
+        while (i < mid) {
+            tmp[k++] = a[i++];
+        }
+        while (j < to) {
+            tmp[k++] = a[j++];
+        }
+        System.arraycopy(tmp, from, a, from, to - from);
+    }
+
+    private int compare(int s1, int s2) {
+        int r = iters[s2] - iters[s1];
+        if (r == 0) {
+            r = agents[s1].hashCode() - agents[s2].hashCode();
+        }
+        return r;
     }
 
     private class NeighborIterator implements Iterator<MessagingAgent> {
 
         private final int iterations;
-        private final Iterator<NeighborEntry> iterator;
-        private MessagingAgent next = null;
+        private int next = 0;
 
         public NeighborIterator(int iterations) {
-            iterator = NeighborsCollection.this.iterator();
             this.iterations = iterations;
-            advance();
-        }
-
-        private void advance() {
-            if (iterator.hasNext()) {
-                NeighborEntry e = iterator.next();
-                if (e.iters >= iterations) {
-                    next = e.agent;
-                    return;
-                }
-            }
-            next = null;
+            sort();
         }
 
         @Override
         public boolean hasNext() {
-            return next != null;
+            return next < size && iters[order[next]] >= iterations;
         }
 
         @Override
         public MessagingAgent next() {
-            MessagingAgent result = next;
-            advance();
-            return result;
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return agents[order[next++]];
         }
 
         @Override
@@ -293,4 +529,4 @@ class NeighborsCollection implements Collection<NeighborEntry>
 
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2012 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.cli;
+
+import es.csic.iiia.planes.DefaultFactory;
+import es.csic.iiia.planes.Factory;
+import es.csic.iiia.planes.World;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Object in charge of executing a batch of independent simulations
+ * concurrently, each one in its own world.
+ * <p/>
+ * The simulations are run by a fixed pool of threads, and the results of
+ * each one (preceded by its settings) are printed as a single block once it
+ * finishes. Hence, results may come out of order, but never interleaved.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class BatchApp {
+    private static final Logger LOG = Logger.getLogger(BatchApp.class.getName());
+
+    private final List<Properties> settings;
+
+    private final int jobs;
+
+    /**
+     * Builds a new batch runner.
+     * <p/>
+     * The configuration of each simulation is only loaded when it starts, so
+     * that the problem definitions of the simulations that are not running
+     * do not take any memory.
+     *
+     * @param settings settings of each of the simulations to run.
+     * @param jobs maximum number of simulations to run at the same time.
+     */
+    public BatchApp(List<Properties> settings, int jobs) {
+        this.settings = settings;
+        this.jobs = jobs;
+    }
+
+    /**
+     * Runs all the simulations, and waits until they are done.
+     *
+     * @return number of simulations that failed.
+     */
+    public int run() {
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        List<Future<Void>> results = new ArrayList<Future<Void>>();
+        for (Properties s : settings) {
+            results.add(executor.submit(new Simulation(s)));
+        }
+        executor.shutdown();
+
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                return results.size() - i;
+            } catch (ExecutionException ex) {
+                LOG.log(Level.SEVERE, "Simulation of \"" + settings.get(i).getProperty("problem")
+                        + "\" failed", ex.getCause());
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Task that runs a single simulation.
+     */
+    private static class Simulation implements Callable<Void> {
+        private final Properties settings;
+
+        public Simulation(Properties settings) {
+            this.settings = settings;
+        }
+
+        @Override
+        public Void call() {
+            Configuration config = new Configuration(settings);
+            Factory f = new DefaultFactory(config);
+            World world = f.buildWorld();
+
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(buf);
+            out.println(config.toString());
+            world.setOutput(out);
+
+            world.init(config.getProblemDefinition());
+            world.run();
+
+            out.flush();
+            synchronized (System.out) {
+                System.out.print(buf.toString());
+                System.out.flush();
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,674 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.cli;
+
+import es.csic.iiia.planes.DefaultFactory;
+import es.csic.iiia.planes.World;
+import es.csic.iiia.planes.generator.Generator;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Throughput and scaling benchmark of the coordination algorithms.
+ * <p/>
+ * Generates a grid of scenarios (varying the number of planes, the number of
+ * tasks and the communication range), and simulates each of them headless
+ * with every algorithm. After some warm-up runs, it measures the ticks
+ * simulated per second, the allocation rate and the peak heap usage, and
+ * counts the messages exchanged. The results and the scaling curves of each
+ * algorithm are written to a JSON report, which can be given as the baseline
+ * of later benchmarks to detect throughput regressions.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class Benchmark {
+    private static final String SETTINGS_FILE = "/es/csic/iiia/planes/cli/benchmark.properties";
+    private static final String GENERATOR_SETTINGS_FILE = "/es/csic/iiia/planes/generator/settings.properties";
+    private static final String SIMULATOR_SETTINGS_FILE = "/es/csic/iiia/planes/cli/settings.properties";
+
+    private static final Logger LOG = Logger.getLogger(Benchmark.class.getName());
+
+    /**
+     * Dimensions of the scenario grid, in the order they are reported.
+     */
+    static final String[] DIMENSIONS = new String[]{"planes", "tasks", "communication-range"};
+
+    /**
+     * List of available cli options.
+     */
+    private static Options options = new Options();
+
+    private final Properties settings;
+
+    private final boolean quiet;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Builds a new benchmark.
+     *
+     * @param settings benchmark settings.
+     * @param quiet true to hide the progress.
+     */
+    public Benchmark(Properties settings, boolean quiet) {
+        this.settings = settings;
+        this.quiet = quiet;
+    }
+
+    /**
+     * Benchmark's cli entry point.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        initializeLogging();
+
+        options.addOption(OptionBuilder.withArgName("file")
+                .hasArg()
+                .withDescription("compare the throughput against the report in <file>, exiting with status 2 if there is any regression.")
+                .withLongOpt("baseline")
+                .create('b'));
+        options.addOption("d", "dump-settings", false, "dump the default settings to standard output. This can be used to prepare a settings file.");
+        options.addOption("h", "help", false, "show this help message.");
+        options.addOption(OptionBuilder.withArgName("setting=value")
+                .hasArgs(2)
+                .withValueSeparator()
+                .withDescription("override \"setting\" with \"value\".")
+                .create('o'));
+        options.addOption("q", "quiet", false, "disable all output except for regressions and errors.");
+        options.addOption(OptionBuilder.withArgName("file")
+                .hasArg()
+                .withDescription("Load settings from <file>.")
+                .withLongOpt("settings")
+                .create('s'));
+
+        CommandLineParser parser = new PosixParser();
+        CommandLine line = null;
+        try {
+            line = parser.parse(options, args);
+        } catch (ParseException ex) {
+            LOG.log(Level.SEVERE, ex.getLocalizedMessage(), ex);
+            showHelp();
+        }
+        if (line.hasOption('h')) {
+            showHelp();
+        }
+        if (line.hasOption('d')) {
+            dumpSettings();
+        }
+        if (line.getArgs().length != 1) {
+            showHelp();
+        }
+
+        Properties settings = loadSettings(SETTINGS_FILE);
+        if (line.hasOption('s')) {
+            String fname = line.getOptionValue('s');
+            try {
+                settings.load(new FileReader(fname));
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Unable to load the settings file \"" + fname + "\"");
+            }
+        }
+        settings.putAll(line.getOptionProperties("o"));
+
+        final File report = new File(line.getArgs()[0]);
+        final Benchmark benchmark = new Benchmark(settings, line.hasOption('q'));
+        List<Result> results = benchmark.run();
+
+        int regressions = 0;
+        JsonNode baseline = null;
+        if (line.hasOption('b')) {
+            final String fname = line.getOptionValue('b');
+            try {
+                baseline = new ObjectMapper().readTree(new File(fname));
+            } catch (IOException ex) {
+                LOG.log(Level.SEVERE, "Unable to read the baseline \"" + fname + "\"", ex);
+                System.exit(1);
+            }
+            final double tolerance = Double.valueOf(settings.getProperty("tolerance").trim());
+            regressions = compare(results, baseline, tolerance);
+            for (Result r : results) {
+                if (r.regression) {
+                    System.out.println(String.format(
+                            "REGRESSION %s: %.1f ticks/s against %.1f in the baseline",
+                            r, r.getTicksPerSecond(), r.getTicksPerSecond() / r.change));
+                }
+            }
+        }
+
+        try {
+            new ObjectMapper().writerWithDefaultPrettyPrinter()
+                    .writeValue(report, benchmark.buildReport(results));
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Unable to write the report \"" + report + "\"", ex);
+            System.exit(1);
+        }
+        if (regressions > 0) {
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Runs the whole benchmark.
+     *
+     * @return results of every scenario and algorithm, in order.
+     */
+    List<Result> run() {
+        final List<Integer> planes = parseList(settings.getProperty("planes"));
+        final List<Integer> tasks = parseList(settings.getProperty("tasks"));
+        final List<Integer> ranges = parseList(settings.getProperty("communication-range"));
+        final long duration = Long.valueOf(settings.getProperty("duration").trim());
+        final int warmup = Integer.valueOf(settings.getProperty("warmup").trim());
+        final int runs = Integer.valueOf(settings.getProperty("runs").trim());
+        if (warmup < 1) {
+            throw new IllegalArgumentException("The warmup must be at least 1.");
+        }
+        if (runs < 1) {
+            throw new IllegalArgumentException("The runs must be at least 1.");
+        }
+
+        List<String> algorithms = new ArrayList<String>();
+        for (String algorithm : settings.getProperty("algorithms").split(",")) {
+            if (!algorithm.trim().isEmpty()) {
+                algorithms.add(algorithm.trim().toLowerCase());
+            }
+        }
+
+        File dir = getWorkDir();
+        List<Result> results = new ArrayList<Result>();
+        try {
+            for (int p : planes) {
+                for (int t : tasks) {
+                    for (int range : ranges) {
+                        final File problem = new File(dir, "p" + p + "-t" + t + "-r" + range + ".json");
+                        generate(problem, p, t, range, duration);
+                        for (String algorithm : algorithms) {
+                            Result r = new Result(algorithm, p, t, range);
+                            measure(r, problem, warmup, runs);
+                            results.add(r);
+                            if (!quiet) {
+                                System.out.println(r.describe());
+                            }
+                        }
+                        if (settings.getProperty("work-dir").trim().isEmpty()) {
+                            problem.delete();
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (settings.getProperty("work-dir").trim().isEmpty()) {
+                dir.delete();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Get the directory where the scenarios are generated, creating it if
+     * necessary.
+     */
+    private File getWorkDir() {
+        String path = settings.getProperty("work-dir").trim();
+        File dir;
+        if (path.isEmpty()) {
+            try {
+                dir = File.createTempFile("benchmark", "");
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Unable to create a temporary directory", ex);
+            }
+            dir.delete();
+        } else {
+            dir = new File(path);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create the directory \"" + dir + "\"");
+        }
+        return dir;
+    }
+
+    /**
+     * Generates a scenario of the grid.
+     */
+    private void generate(File problem, int planes, int tasks, int range, long duration) {
+        Properties s = loadSettings(GENERATOR_SETTINGS_FILE);
+        putPrefixed(s, "generator.");
+        s.setProperty("random-seed", settings.getProperty("random-seed").trim());
+        s.setProperty("duration", String.valueOf(duration));
+        s.setProperty("planes", String.valueOf(planes));
+        s.setProperty("task-frequency", String.valueOf(tasks / (double)duration));
+        s.setProperty("communication-range", String.valueOf(range));
+        s.setProperty("output-format", "json");
+        s.setProperty("streaming", "false");
+        s.setProperty("problem", problem.getPath());
+        new Generator(new es.csic.iiia.planes.generator.Configuration(s)).run();
+    }
+
+    /**
+     * Runs the warm-up and measured simulations of a scenario with an
+     * algorithm, and collects their measures in the given result.
+     */
+    private void measure(Result r, File problem, int warmup, int runs) {
+        final File metricsFile = new File(problem.getParentFile(), "benchmark-metrics.csv");
+        for (int i = 0; i < warmup; i++) {
+            World world = buildWorld(problem, r.algorithm, i == 0 ? metricsFile : null);
+            world.run();
+            if (i == 0) {
+                r.sent = world.getMetrics().getSent();
+                r.delivered = world.getMetrics().getDelivered();
+                metricsFile.delete();
+            }
+        }
+
+        r.ticksPerSecond = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            World world = buildWorld(problem, r.algorithm, null);
+            System.gc();
+            resetPeakHeap();
+            final long allocated = getAllocatedBytes();
+            final long start = System.nanoTime();
+            world.run();
+            final long elapsed = System.nanoTime() - start;
+
+            r.ticks = world.getTime();
+            r.ticksPerSecond[i] = r.ticks * 1e9 / elapsed;
+            if (allocated >= 0) {
+                r.allocatedBytes = Math.max(r.allocatedBytes,
+                        (getAllocatedBytes() - allocated) * 1e9 / elapsed);
+            } else {
+                r.allocatedBytes = -1;
+            }
+            r.peakHeap = Math.max(r.peakHeap, getPeakHeap());
+        }
+        Arrays.sort(r.ticksPerSecond);
+    }
+
+    /**
+     * Builds a headless world ready to simulate the given problem.
+     *
+     * @param problem problem file.
+     * @param algorithm algorithm used by the planes.
+     * @param metricsFile file where the metrics are written, or null to not
+     *                    collect them.
+     */
+    private World buildWorld(File problem, String algorithm, File metricsFile) {
+        Properties s = loadSettings(SIMULATOR_SETTINGS_FILE);
+        putPrefixed(s, "simulator.");
+        s.setProperty("gui", "false");
+        s.setProperty("quiet", "true");
+        s.setProperty("problem", problem.getPath());
+        if (algorithm.startsWith("omniscient/")) {
+            s.setProperty("planes", "omniscient");
+            s.setProperty("operator-strategy", "omniscient");
+            s.setProperty("omniscient-allocation", algorithm.substring(algorithm.indexOf('/') + 1));
+        } else {
+            s.setProperty("planes", algorithm);
+        }
+        if (metricsFile != null) {
+            s.setProperty("metrics", "csv");
+            s.setProperty("metrics-every", String.valueOf(Long.MAX_VALUE));
+            s.setProperty("metrics-file", metricsFile.getPath());
+        } else {
+            s.setProperty("metrics", "none");
+        }
+
+        Configuration config = new Configuration(s);
+        World world = new DefaultFactory(config).buildWorld();
+        world.setOutput(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {}
+        }));
+        world.init(config.getProblemDefinition());
+        return world;
+    }
+
+    /**
+     * Get the bytes allocated by the current thread so far, or -1 if the
+     * virtual machine can not tell.
+     */
+    private long getAllocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean)threads;
+            if (t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled()) {
+                return t.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Get the sum of the peak usages of the heap pools since they were last
+     * reset.
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Copies the benchmark settings with the given prefix to the given
+     * settings, removing the prefix.
+     */
+    private void putPrefixed(Properties s, String prefix) {
+        for (String key : settings.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                s.setProperty(key.substring(prefix.length()), settings.getProperty(key));
+            }
+        }
+    }
+
+    /**
+     * Builds the report of the given results.
+     */
+    private Map<String, Object> buildReport(List<Result> results) {
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        report.put("settings", new TreeMap<Object, Object>(settings));
+        List<Map<String, Object>> values = new ArrayList<Map<String, Object>>();
+        for (Result r : results) {
+            values.add(r.toMap());
+        }
+        report.put("results", values);
+        report.put("curves", curves(results));
+        return report;
+    }
+
+    /**
+     * Computes the scaling curves of each algorithm. There is a curve for each
+     * dimension of the grid, whose points are the geometric mean of the ticks
+     * per second of all the scenarios with each value of that dimension.
+     *
+     * @param results benchmark results.
+     * @return curves of each algorithm, indexed by dimension and value.
+     */
+    static Map<String, Map<String, Map<Integer, Double>>> curves(List<Result> results) {
+        Map<String, Map<String, Map<Integer, double[]>>> sums =
+                new LinkedHashMap<String, Map<String, Map<Integer, double[]>>>();
+        for (Result r : results) {
+            Map<String, Map<Integer, double[]>> algorithm = sums.get(r.algorithm);
+            if (algorithm == null) {
+                algorithm = new LinkedHashMap<String, Map<Integer, double[]>>();
+                for (String dimension : DIMENSIONS) {
+                    algorithm.put(dimension, new TreeMap<Integer, double[]>());
+                }
+                sums.put(r.algorithm, algorithm);
+            }
+            for (String dimension : DIMENSIONS) {
+                double[] sum = algorithm.get(dimension).get(r.get(dimension));
+                if (sum == null) {
+                    sum = new double[2];
+                    algorithm.get(dimension).put(r.get(dimension), sum);
+                }
+                sum[0] += Math.log(r.getTicksPerSecond());
+                sum[1]++;
+            }
+        }
+
+        Map<String, Map<String, Map<Integer, Double>>> curves =
+                new LinkedHashMap<String, Map<String, Map<Integer, Double>>>();
+        for (Map.Entry<String, Map<String, Map<Integer, double[]>>> a : sums.entrySet()) {
+            Map<String, Map<Integer, Double>> algorithm = new LinkedHashMap<String, Map<Integer, Double>>();
+            for (Map.Entry<String, Map<Integer, double[]>> d : a.getValue().entrySet()) {
+                Map<Integer, Double> curve = new TreeMap<Integer, Double>();
+                for (Map.Entry<Integer, double[]> v : d.getValue().entrySet()) {
+                    curve.put(v.getKey(), Math.exp(v.getValue()[0] / v.getValue()[1]));
+                }
+                algorithm.put(d.getKey(), curve);
+            }
+            curves.put(a.getKey(), algorithm);
+        }
+        return curves;
+    }
+
+    /**
+     * Compares the throughput of the given results against those of the same
+     * scenario and algorithm in a baseline report, flagging the results that
+     * are slower than the baseline by more than the given tolerance.
+     *
+     * @param results benchmark results.
+     * @param baseline baseline report.
+     * @param tolerance relative drop of the ticks per second that is
+     *                  considered a regression.
+     * @return number of regressions found.
+     */
+    static int compare(List<Result> results, JsonNode baseline, double tolerance) {
+        Map<String, Double> previous = new HashMap<String, Double>();
+        for (JsonNode r : baseline.path("results")) {
+            previous.put(r.path("algorithm").getTextValue() + " " + r.path("planes").getIntValue()
+                    + " " + r.path("tasks").getIntValue() + " " + r.path("communication-range").getIntValue(),
+                    r.path("ticks_per_s").getDoubleValue());
+        }
+
+        int regressions = 0;
+        for (Result r : results) {
+            final Double tps = previous.get(r.algorithm + " " + r.planes + " " + r.tasks + " " + r.range);
+            if (tps == null || tps <= 0) {
+                continue;
+            }
+            r.change = r.getTicksPerSecond() / tps;
+            r.regression = r.change < 1 - tolerance;
+            if (r.regression) {
+                regressions++;
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Parses a comma-separated list of integers.
+     */
+    static List<Integer> parseList(String value) {
+        List<Integer> values = new ArrayList<Integer>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                values.add(Integer.valueOf(item.trim()));
+            }
+        }
+        return values;
+    }
+
+    private static void showHelp() {
+        HelpFormatter formatter = new HelpFormatter();
+        formatter.printHelp("benchmark [options] <report>", options);
+        System.exit(1);
+    }
+
+    /**
+     * Initializes the logging system.
+     */
+    private static void initializeLogging() {
+        try {
+            LogManager.getLogManager().readConfiguration(
+                    Benchmark.class.getResourceAsStream("/logging.properties"));
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Loads the settings of the given resource.
+     */
+    private static Properties loadSettings(String resource) {
+        Properties settings = new Properties();
+        try {
+            InputStream is = Benchmark.class.getResourceAsStream(resource);
+            if (is == null) {
+                throw new RuntimeException("Unable to locate default settings file.");
+            }
+            settings.load(is);
+            is.close();
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, null, ex);
+        }
+        return settings;
+    }
+
+    /**
+     * Dumps the default settings to standard output and exits.
+     */
+    private static void dumpSettings() {
+        BufferedReader is = new BufferedReader(new InputStreamReader(
+            Benchmark.class.getResourceAsStream(SETTINGS_FILE)
+        ));
+        try {
+            for (String line=is.readLine(); line != null; line=is.readLine()) {
+                System.out.println(line);
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, null, ex);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Measures of a scenario simulated with an algorithm.
+     */
+    static class Result {
+        final String algorithm;
+        final int planes;
+        final int tasks;
+        final int range;
+
+        /** Ticks simulated by each run. */
+        long ticks;
+        /** Ticks per second of each measured run, sorted. */
+        double[] ticksPerSecond;
+        /** Maximum allocation rate among the runs, in bytes per second. */
+        double allocatedBytes;
+        /** Maximum peak heap usage among the runs, in bytes. */
+        long peakHeap;
+        /** Messages sent and delivered by a run. */
+        long sent, delivered;
+        /** Ratio between the ticks per second and those of the baseline. */
+        double change = Double.NaN;
+        boolean regression;
+
+        Result(String algorithm, int planes, int tasks, int range) {
+            this.algorithm = algorithm;
+            this.planes = planes;
+            this.tasks = tasks;
+            this.range = range;
+        }
+
+        /**
+         * Get the median ticks per second of the measured runs.
+         */
+        double getTicksPerSecond() {
+            final int n = ticksPerSecond.length;
+            return n % 2 == 1 ? ticksPerSecond[n/2]
+                    : (ticksPerSecond[n/2 - 1] + ticksPerSecond[n/2]) / 2;
+        }
+
+        /**
+         * Get the value of a dimension of the grid.
+         */
+        int get(String dimension) {
+            if (dimension.equals("planes")) {
+                return planes;
+            } else if (dimension.equals("tasks")) {
+                return tasks;
+            }
+            return range;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<String, Object>();
+            m.put("algorithm", algorithm);
+            m.put("planes", planes);
+            m.put("tasks", tasks);
+            m.put("communication-range", range);
+            m.put("ticks", ticks);
+            m.put("ticks_per_s", getTicksPerSecond());
+            m.put("ticks_per_s_min", ticksPerSecond[0]);
+            m.put("ticks_per_s_max", ticksPerSecond[ticksPerSecond.length - 1]);
+            m.put("allocated_bytes_per_s", allocatedBytes < 0 ? null : allocatedBytes);
+            m.put("peak_heap_bytes", peakHeap);
+            m.put("messages_sent", sent);
+            m.put("messages_delivered", delivered);
+            if (!Double.isNaN(change)) {
+                m.put("baseline_ratio", change);
+                m.put("regression", regression);
+            }
+            return m;
+        }
+
+        String describe() {
+            return String.format("%s: %.1f ticks/s, %.1f MB/s allocated, %d MB heap, %.2f messages/tick",
+                    this, getTicksPerSecond(), allocatedBytes / (1 << 20),
+                    peakHeap >> 20, sent / (double)ticks);
+        }
+
+        @Override
+        public String toString() {
+            return algorithm + " planes=" + planes + " tasks=" + tasks
+                    + " communication-range=" + range;
+        }
+    }
+
+}
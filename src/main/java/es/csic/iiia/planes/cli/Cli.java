@@ -40,6 +40,8 @@ package es.csic.iiia.planes.cli;
 import org.apache.commons.cli.*;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -60,6 +62,11 @@ public class Cli {
      */
     private static Options options = new Options();
 
+    /**
+     * Maximum number of simulations to run at the same time.
+     */
+    private static int jobs = Runtime.getRuntime().availableProcessors();
+
     /**
      * Cli's entry point.
      *
@@ -71,6 +78,11 @@ public class Cli {
         options.addOption("d", "dump-settings", false, "dump the default settings to standard output. This can be used to prepare a settings file.");;
         options.addOption("g", "gui", false, "graphically display the simulation.");
         options.addOption("h", "help", false, "show this help message.");
+        options.addOption(OptionBuilder.withArgName("n")
+                .hasArg()
+                .withDescription("run up to <n> simulations at the same time when several problems are given (defaults to the number of processors).")
+                .withLongOpt("jobs")
+                .create('j'));
         options.addOption(OptionBuilder.withArgName("setting=value")
                 .hasArgs(2)
                 .withValueSeparator()
@@ -87,24 +99,34 @@ public class Cli {
                 .withDescription("Output only the resolved settings, but do not run the simulation.")
                 .create('t'));
 
-        Configuration config = parseOptions(args);
+        List<Properties> runs = parseOptions(args);
+        if (runs.size() > 1) {
+            BatchApp batch = new BatchApp(runs, jobs);
+            System.exit(batch.run() == 0 ? 0 : 1);
+        }
+
+        Configuration config = new Configuration(runs.get(0));
+        System.out.println(config.toString());
         CliApp app = new CliApp(config);
         app.run();
     }
 
     private static void showHelp() {
         HelpFormatter formatter = new HelpFormatter();
-        formatter.printHelp("simulator [options] <problem>", options);
+        formatter.printHelp("simulator [options] <problem> [<problem>...]", options);
         System.exit(1);
     }
 
     /**
      * Parse the provided list of arguments according to the program's options.
      *
+     * When several problems are given, each one is run as an independent
+     * simulation with the same settings.
+     *
      * @param in_args list of input arguments.
-     * @return a configuration object set according to the input options.
+     * @return the settings of each simulation to run.
      */
-    private static Configuration parseOptions(String[] in_args) {
+    private static List<Properties> parseOptions(String[] in_args) {
         CommandLineParser parser = new PosixParser();
         CommandLine line = null;
         Properties settings = loadDefaultSettings();
@@ -143,15 +165,41 @@ public class Cli {
         if (args.length < 1) {
             showHelp();
         }
-        settings.setProperty("problem", args[0]);
 
-        Configuration c = new Configuration(settings);
-        System.out.println(c.toString());
+        if (args.length > 1) {
+            if (line.hasOption('g')) {
+                throw new IllegalArgumentException("The gui can not be used when running several problems.");
+            }
+            // Concurrent simulations can not share the progress output
+            settings.setProperty("quiet", "true");
+        }
+        if (line.hasOption('j')) {
+            try {
+                jobs = Integer.parseInt(line.getOptionValue('j'));
+            } catch (NumberFormatException ex) {
+                jobs = 0;
+            }
+            if (jobs < 1) {
+                LOG.severe("The number of jobs must be a positive integer.");
+                showHelp();
+            }
+        }
+
+        List<Properties> runs = new ArrayList<Properties>();
+        for (String problem : args) {
+            Properties run = new Properties();
+            run.putAll(settings);
+            run.setProperty("problem", problem);
+            runs.add(run);
+        }
 
         if (line.hasOption('t')) {
+            for (Properties run : runs) {
+                System.out.println(new Configuration(run).toString());
+            }
             System.exit(0);
         }
-        return c;
+        return runs;
     }
 
     /**
@@ -45,7 +45,10 @@ import es.csic.iiia.planes.DefaultPlane;
 import es.csic.iiia.planes.InfiniteBattery;
 import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.auctions.AuctionPlane;
+import es.csic.iiia.planes.behaviors.neighbors.NeighborTracking;
+import es.csic.iiia.planes.definition.BinaryProblemFormat;
 import es.csic.iiia.planes.definition.DProblem;
+import es.csic.iiia.planes.definition.DProblemReader;
 import es.csic.iiia.planes.evaluation.EvaluationStrategy;
 import es.csic.iiia.planes.evaluation.IndependentDistanceBatteryEvaluation;
 import es.csic.iiia.planes.evaluation.IndependentDistanceEvaluation;
@@ -74,6 +77,7 @@ import es.csic.iiia.planes.operator_behavior.NearestInRange;
 import es.csic.iiia.planes.operator_behavior.OperatorStrategy;
 import es.csic.iiia.planes.operator_behavior.Random;
 import es.csic.iiia.planes.operator_behavior.RandomInRange;
+import es.csic.iiia.planes.util.Metrics;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
@@ -100,6 +104,58 @@ public final class Configuration {
      */
     private boolean quiet;
 
+    /**
+     * Number of threads used to run the simulation.
+     */
+    private int threads;
+
+    /**
+     * Run the simulation from event to event, skipping the quiet steps.
+     */
+    private boolean fastForward;
+
+    /**
+     * Tick at which a snapshot of the simulation is saved (negative for none).
+     */
+    private long snapshotAt;
+
+    /**
+     * File where the snapshot is saved.
+     */
+    private File snapshotFile;
+
+    /**
+     * Snapshot file to restore the simulation from (null to start from
+     * scratch).
+     */
+    private File restoreFile;
+
+    /**
+     * Relative accuracy of the statistics' quantile sketches (0 to compute
+     * exact statistics).
+     */
+    private double statsAccuracy;
+
+    /**
+     * File where the statistics' sketches are saved (null to not save them).
+     */
+    private File statsSketchFile;
+
+    /**
+     * Format of the runtime metrics (null to not collect them).
+     */
+    private Metrics.Format metricsFormat;
+
+    /**
+     * Number of ticks between snapshots of the runtime metrics.
+     */
+    private long metricsEvery;
+
+    /**
+     * File where the runtime metrics are written.
+     */
+    private File metricsFile;
+
     /**
      * Problem's file name.
      */
@@ -130,6 +186,12 @@ public final class Configuration {
      */
     private Class<? extends AllocationStrategy> omniscientAllocationStrategy;
 
+    /**
+     * True if the omniscient agents share their tasks with their whole
+     * communication component.
+     */
+    private boolean omniscientVisibilityComponents;
+
     /**
      * Class of the battery used by the planes.
      */
@@ -145,6 +207,16 @@ public final class Configuration {
      */
     private Class<? extends EvaluationStrategy<Plane>> evaluationClass;
 
+    /**
+     * How the planes detect their neighbors.
+     */
+    private NeighborTracking.Mode neighborTrackingMode;
+
+    /**
+     * Maximum number of steps between beacons in adaptive neighbor tracking.
+     */
+    private int beaconMaxInterval;
+
     /* AUCTIONS specific stuff */
     private int aucEvery;
     private BiddingRuleFactory aucBiddingRuleFactory;
@@ -169,6 +241,18 @@ public final class Configuration {
     private CostFactorFactory<Factor<?>> msCostFactorFactory;
     private WorkloadFunctionFactory msWorkloadFunctionFactory;
 
+    /**
+     * Get the file with the given name, where the "{problem}" placeholder
+     * is replaced by the name of the problem file (without extension).
+     */
+    private File getProblemRelativeFile(String file) {
+        String name = new File(problemFile).getName();
+        if (name.lastIndexOf('.') > 0) {
+            name = name.substring(0, name.lastIndexOf('.'));
+        }
+        return new File(file.replace("{problem}", name));
+    }
+
     private <T> T fetch(Properties settings, Map<String, T> map, String key) {
         String value = settings.getProperty(key).toLowerCase();
         if (map.containsKey(value)) {
@@ -184,6 +268,7 @@ public final class Configuration {
 
         if (values.get("operator-strategy").equals("omniscient")) {
             omniscientAllocationStrategy = fetch(settings, getAllocationStrategies(), "omniscient-allocation");
+            omniscientVisibilityComponents = fetch(settings, getOmniscientVisibilityModes(), "omniscient-visibility");
         }
 
         batteryClass = fetch(settings, getBatteryClasses(), "battery");
@@ -197,16 +282,76 @@ public final class Configuration {
         }
 
         evaluationClass = fetch(settings, getEvaluationClasses(), "task-evaluation");
+        neighborTrackingMode = fetch(settings, getNeighborTrackingModes(), "neighbor-tracking");
+        if (neighborTrackingMode == NeighborTracking.Mode.ADAPTIVE) {
+            beaconMaxInterval = Integer.valueOf(settings.getProperty("beacon-max-interval"));
+            values.put("beacon-max-interval", String.valueOf(beaconMaxInterval));
+            if (beaconMaxInterval < 1) {
+                throw new IllegalArgumentException("The beacon-max-interval must be at least 1.");
+            }
+        }
         gui = fetch(settings, getBooleanValues(), "gui");
         quiet = fetch(settings, getBooleanValues(), "quiet");
 
+        threads = Integer.valueOf(settings.getProperty("threads"));
+        values.put("threads", String.valueOf(threads));
+        if (threads > 1 && idleClass == FlyTowardsOperatorP.class) {
+            throw new IllegalArgumentException("The fly-towards-operator-p idle strategy can not be run in parallel.");
+        }
+        fastForward = fetch(settings, getBooleanValues(), "fast-forward");
+
+        snapshotAt = Long.valueOf(settings.getProperty("snapshot-at"));
+        values.put("snapshot-at", String.valueOf(snapshotAt));
+        if (snapshotAt >= 0) {
+            snapshotFile = new File(settings.getProperty("snapshot-file"));
+            values.put("snapshot-file", snapshotFile.getPath());
+        }
+        final String restore = settings.getProperty("restore-from", "").trim();
+        if (!restore.isEmpty()) {
+            restoreFile = new File(restore);
+            values.put("restore-from", restore);
+        }
+
 
         DProblem d = new DProblem();
-        ObjectMapper mapper = new ObjectMapper();
         problemFile = settings.getProperty("problem");
         values.put("problem", problemFile);
+
+        if (fetch(settings, getStatsModes(), "stats")) {
+            statsAccuracy = Double.valueOf(settings.getProperty("stats-accuracy"));
+            values.put("stats-accuracy", String.valueOf(statsAccuracy));
+            if (!(statsAccuracy > 0 && statsAccuracy < 1)) {
+                throw new IllegalArgumentException("The stats-accuracy must be between 0 and 1.");
+            }
+            final String sketchFile = settings.getProperty("stats-sketch-file", "").trim();
+            if (!sketchFile.isEmpty()) {
+                statsSketchFile = getProblemRelativeFile(sketchFile);
+                values.put("stats-sketch-file", statsSketchFile.getPath());
+            }
+        }
+
+        metricsFormat = fetch(settings, getMetricsFormats(), "metrics");
+        if (metricsFormat != null) {
+            metricsEvery = Long.valueOf(settings.getProperty("metrics-every"));
+            values.put("metrics-every", String.valueOf(metricsEvery));
+            if (metricsEvery < 1) {
+                throw new IllegalArgumentException("The metrics-every must be at least 1.");
+            }
+            metricsFile = getProblemRelativeFile(settings.getProperty("metrics-file").trim());
+            values.put("metrics-file", metricsFile.getPath());
+        }
+
         try {
-            d = mapper.readValue(new File(getProblemFile()), DProblem.class);
+            // The gui displays all the tasks, so they must be in memory
+            final File f = new File(getProblemFile());
+            if (BinaryProblemFormat.isBinary(f)) {
+                d = gui ? BinaryProblemFormat.load(f) : BinaryProblemFormat.read(f);
+            } else if (gui) {
+                ObjectMapper mapper = new ObjectMapper();
+                d = mapper.readValue(f, DProblem.class);
+            } else {
+                d = DProblemReader.read(f);
+            }
             // Register the generator settings used to generate this problem
             for (String key : d.getGeneratorSettings().keySet()) {
                 values.put("g-" + key, d.getGeneratorSettings().get(key));
@@ -324,6 +469,94 @@ public final class Configuration {
         return quiet;
     }
 
+    /**
+     * @return the number of threads used to run the simulation
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return true if the steps in which no agent acts should be skipped
+     */
+    public boolean isFastForward() {
+        return fastForward;
+    }
+
+    /**
+     * @return how the planes detect their neighbors
+     */
+    public NeighborTracking.Mode getNeighborTrackingMode() {
+        return neighborTrackingMode;
+    }
+
+    /**
+     * @return the maximum number of steps between beacons in adaptive
+     *         neighbor tracking
+     */
+    public int getBeaconMaxInterval() {
+        return beaconMaxInterval;
+    }
+
+    /**
+     * @return the tick at which a snapshot is saved (negative for none)
+     */
+    public long getSnapshotAt() {
+        return snapshotAt;
+    }
+
+    /**
+     * @return the file where the snapshot is saved
+     */
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * @return the snapshot file to restore the simulation from, or null to
+     *         start it from scratch
+     */
+    public File getRestoreFile() {
+        return restoreFile;
+    }
+
+    /**
+     * @return the relative accuracy of the statistics' quantile sketches, or
+     *         0 to compute exact statistics
+     */
+    public double getStatsAccuracy() {
+        return statsAccuracy;
+    }
+
+    /**
+     * @return the file where the statistics' sketches are saved, or null to
+     *         not save them
+     */
+    public File getStatsSketchFile() {
+        return statsSketchFile;
+    }
+
+    /**
+     * @return the format of the runtime metrics, or null to not collect them
+     */
+    public Metrics.Format getMetricsFormat() {
+        return metricsFormat;
+    }
+
+    /**
+     * @return the number of ticks between snapshots of the runtime metrics
+     */
+    public long getMetricsEvery() {
+        return metricsEvery;
+    }
+
+    /**
+     * @return the file where the runtime metrics are written
+     */
+    public File getMetricsFile() {
+        return metricsFile;
+    }
+
     /**
      * @return the problemFile
      */
@@ -359,6 +592,14 @@ public final class Configuration {
         return omniscientAllocationStrategy;
     }
 
+    /**
+     * @return true if the omniscient agents share their tasks with their
+     *         whole communication component.
+     */
+    public boolean isOmniscientVisibilityComponents() {
+        return omniscientVisibilityComponents;
+    }
+
     /**
      * @return the batteryClass
      */
@@ -536,6 +777,14 @@ public final class Configuration {
         }};
     }
 
+    private Map<String, NeighborTracking.Mode> getNeighborTrackingModes() {
+        return new HashMap<String, NeighborTracking.Mode>() {{
+           put("beacons", NeighborTracking.Mode.BEACONS);
+           put("oracle", NeighborTracking.Mode.ORACLE);
+           put("adaptive", NeighborTracking.Mode.ADAPTIVE);
+        }};
+    }
+
     private Map<String, Boolean> getBooleanValues() {
         return new HashMap<String, Boolean>() {{
            put("true", true);
@@ -547,6 +796,28 @@ public final class Configuration {
         }};
     }
 
+    private Map<String, Boolean> getOmniscientVisibilityModes() {
+        return new HashMap<String, Boolean>() {{
+           put("hops", false);
+           put("components", true);
+        }};
+    }
+
+    private Map<String, Boolean> getStatsModes() {
+        return new HashMap<String, Boolean>() {{
+           put("exact", false);
+           put("sketch", true);
+        }};
+    }
+
+    private Map<String, Metrics.Format> getMetricsFormats() {
+        return new HashMap<String, Metrics.Format>() {{
+           put("none", null);
+           put("csv", Metrics.Format.CSV);
+           put("json", Metrics.Format.JSON);
+        }};
+    }
+
     private Map<String, BiddingRuleFactory> getBiddingRuleFactories() {
         return new HashMap<String, BiddingRuleFactory>() {{
             put("cost", new CostBiddingRuleFactory());
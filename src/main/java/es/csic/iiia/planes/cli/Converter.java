@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.cli;
+
+import es.csic.iiia.planes.definition.BinaryProblemFormat;
+import es.csic.iiia.planes.definition.DProblem;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Converter of problem files between the JSON and binary formats.
+ * <p/>
+ * The direction of the conversion is given by the format of the input file:
+ * JSON problems are converted to binary ones, and vice versa.
+ *
+ * @see BinaryProblemFormat
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class Converter {
+
+    private static final Logger LOG = Logger.getLogger(Converter.class.getName());
+
+    /**
+     * List of available cli options.
+     */
+    private static Options options = new Options();
+
+    /**
+     * Converter's entry point.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        options.addOption("h", "help", false, "show this help message.");
+
+        CommandLineParser parser = new PosixParser();
+        CommandLine line = null;
+        try {
+            line = parser.parse(options, args);
+        } catch (ParseException ex) {
+            LOG.log(Level.SEVERE, ex.getLocalizedMessage(), ex);
+            showHelp();
+        }
+        if (line.hasOption('h') || line.getArgs().length != 2) {
+            showHelp();
+        }
+
+        final File input = new File(line.getArgs()[0]);
+        final File output = new File(line.getArgs()[1]);
+        try {
+            convert(input, output);
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "Unable to convert \"" + input + "\"", ex);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Convert the given problem file to the other format.
+     *
+     * @param input problem file to convert.
+     * @param output file where to write the converted problem.
+     * @throws IOException if either file can not be read or written.
+     */
+    public static void convert(File input, File output) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        if (BinaryProblemFormat.isBinary(input)) {
+            DProblem d = BinaryProblemFormat.load(input);
+            mapper.writeValue(output, d);
+        } else {
+            DProblem d = mapper.readValue(input, DProblem.class);
+            BinaryProblemFormat.write(d, output);
+        }
+    }
+
+    private static void showHelp() {
+        HelpFormatter formatter = new HelpFormatter();
+        formatter.printHelp("converter [options] <input> <output>", options);
+        System.exit(1);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.cli;
+
+import es.csic.iiia.planes.StatsSketch;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+/**
+ * Merger of the statistics' sketches saved by several simulation runs.
+ * <p/>
+ * Prints the statistics of all the given runs together, and optionally
+ * saves the merged sketches so that they can be merged again later on.
+ *
+ * @see StatsSketch
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class StatsMerge {
+
+    private static final Logger LOG = Logger.getLogger(StatsMerge.class.getName());
+
+    /**
+     * List of available cli options.
+     */
+    private static Options options = new Options();
+
+    /**
+     * Merger's entry point.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        options.addOption("h", "help", false, "show this help message.");
+        options.addOption(OptionBuilder.withLongOpt("output")
+                .withArgName("file")
+                .withDescription("save the merged sketches to <file>.")
+                .hasArg()
+                .create('o'));
+
+        CommandLineParser parser = new PosixParser();
+        CommandLine line = null;
+        try {
+            line = parser.parse(options, args);
+        } catch (ParseException ex) {
+            LOG.log(Level.SEVERE, ex.getLocalizedMessage(), ex);
+            showHelp();
+        }
+        if (line.hasOption('h') || line.getArgs().length == 0) {
+            showHelp();
+        }
+
+        File input = null;
+        try {
+            StatsSketch merged = null;
+            for (String arg : line.getArgs()) {
+                input = new File(arg);
+                StatsSketch sketch = StatsSketch.load(input);
+                if (merged == null) {
+                    merged = sketch;
+                } else {
+                    merged.merge(sketch);
+                }
+            }
+            System.out.print(merged.describe());
+
+            if (line.hasOption('o')) {
+                input = null;
+                merged.save(new File(line.getOptionValue('o')));
+            }
+        } catch (IOException ex) {
+            if (input == null) {
+                LOG.log(Level.SEVERE, "Unable to save \"" + line.getOptionValue('o') + "\"", ex);
+            } else {
+                LOG.log(Level.SEVERE, "Unable to read \"" + input + "\"", ex);
+            }
+            System.exit(1);
+        }
+    }
+
+    private static void showHelp() {
+        HelpFormatter formatter = new HelpFormatter();
+        formatter.printHelp("stats-merge [options] <sketch> [<sketch>...]", options);
+        System.exit(1);
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact binary format for problem definitions.
+ * <p/>
+ * The tasks are stored in columns of fixed-width values, grouped by operator
+ * and sorted by increasing submission time within each operator. Hence, the
+ * tasks of any operator can be served straight from a memory-mapped view of
+ * the file, and repeated runs of the same problem share the operating
+ * system's page cache instead of parsing it again. The layout (in big-endian
+ * order) is:
+ * <ul>
+ * <li>magic number and format version (two ints).</li>
+ * <li>length of the header (int), followed by the header itself. The header
+ * is the JSON definition of the problem, without any tasks.</li>
+ * <li>number of tasks <em>N</em> (long) and number of operators <em>M</em>
+ * (int).</li>
+ * <li><em>M+1</em> longs with the index of the first task of every operator
+ * (and the total number of tasks at the end).</li>
+ * <li>padding to the next multiple of 8 bytes.</li>
+ * <li>the columns: <em>N</em> longs with the tasks' times, followed by
+ * <em>N</em> ints for each of the x coordinates, y coordinates, operators
+ * and crisis ids.</li>
+ * </ul>
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class BinaryProblemFormat {
+
+    /**
+     * Magic number that identifies binary problem files ("MASP").
+     */
+    static final int MAGIC = 0x4D415350;
+
+    /**
+     * Version of the format.
+     */
+    static final int VERSION = 1;
+
+    private BinaryProblemFormat() {}
+
+    /**
+     * Check whether the given file is a binary problem file.
+     *
+     * @param file to check.
+     * @return true if the file is a binary problem file, false otherwise.
+     * @throws IOException if the file can not be read.
+     */
+    public static boolean isBinary(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return file.length() >= 4 && in.readInt() == MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read the problem defined in the given binary file.
+     * <p/>
+     * The tasks are not loaded. Instead, the operators of the problem get
+     * sources that serve them from a memory-mapped view of the file.
+     *
+     * @param file binary problem file to read.
+     * @return problem definition.
+     * @throws IOException if the file can not be read or is not a valid
+     *                     binary problem file.
+     */
+    public static DProblem read(File file) throws IOException {
+        final File source = file.getAbsoluteFile();
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(source)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("\"" + file + "\" is not a binary problem file");
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary problem version " + version);
+            }
+
+            byte[] header = new byte[in.readInt()];
+            in.readFully(header);
+            DProblem d = DProblemReader.MAPPER.readValue(header, DProblem.class);
+
+            final long nTasks = in.readLong();
+            final int nOperators = in.readInt();
+            if (nOperators != d.getOperators().size()) {
+                throw new IOException("Corrupt binary problem file \"" + file + "\"");
+            }
+            long[] offsets = new long[nOperators + 1];
+            for (int i = 0; i <= nOperators; i++) {
+                offsets[i] = in.readLong();
+            }
+
+            final long columns = align(12L + header.length + 12 + 8L*(nOperators + 1));
+            for (int i = 0; i < nOperators; i++) {
+                d.getOperators().get(i).setTaskSource(new MappedTaskSource(
+                        source, columns, nTasks, offsets[i], offsets[i+1]));
+            }
+            return d;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read the problem defined in the given binary file, loading all of its
+     * tasks into memory.
+     *
+     * @param file binary problem file to read.
+     * @return problem definition, with the tasks of every operator in its
+     *         list of tasks.
+     * @throws IOException if the file can not be read or is not a valid
+     *                     binary problem file.
+     */
+    public static DProblem load(File file) throws IOException {
+        DProblem d = read(file);
+        for (DOperator o : d.getOperators()) {
+            DTaskSource source = o.getTaskSource();
+            for (DTask t = source.next(); t != null; t = source.next()) {
+                o.getTasks().add(t);
+            }
+            o.setTaskSource(null);
+        }
+        return d;
+    }
+
+    /**
+     * Write the given problem to a binary file.
+     *
+     * @param d problem definition to write. All of its tasks must be loaded
+     *          in the operators' task lists.
+     * @param file destination file.
+     * @throws IOException if the file can not be written.
+     */
+    public static void write(DProblem d, File file) throws IOException {
+        write(d, new FileOutputStream(file).getChannel());
+    }
+
+    /**
+     * Write the given problem in binary format to the given channel.
+     *
+     * @param d problem definition to write. All of its tasks must be loaded
+     *          in the operators' task lists.
+     * @param channel channel of the destination file. It is closed once the
+     *                problem has been written.
+     * @throws IOException if the file can not be written.
+     */
+    public static void write(DProblem d, FileChannel channel) throws IOException {
+        final int nOperators = d.getOperators().size();
+        long[] counts = new long[nOperators];
+        for (int i = 0; i < nOperators; i++) {
+            counts[i] = d.getOperators().get(i).getTasks().size();
+        }
+
+        BinaryProblemWriter out = new BinaryProblemWriter(channel, d, counts);
+        try {
+            for (DOperator o : d.getOperators()) {
+                List<DTask> tasks = new ArrayList<DTask>(o.getTasks());
+                Collections.sort(tasks, DTaskList.BY_TIME);
+                for (DTask t : tasks) {
+                    out.write(t);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Round the given position up to the next multiple of 8.
+     */
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writer that streams a problem definition in binary format.
+ * <p/>
+ * Since the number of tasks is known in advance, the position of every
+ * column in the file is known too. Hence, the tasks are appended to all the
+ * columns at the same time, through one small buffer per column.
+ *
+ * @see BinaryProblemFormat
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class BinaryProblemWriter implements DProblemWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int TIMES = 0, XS = 1, YS = 2, OPERATORS = 3, CRISIS = 4;
+
+    private final FileChannel channel;
+
+    /**
+     * Index of the first task of every operator.
+     */
+    private final long[] offsets;
+
+    private final ByteBuffer[] buffers = new ByteBuffer[5];
+
+    /**
+     * Position in the file where each buffer must be flushed to.
+     */
+    private final long[] positions = new long[5];
+
+    private long written = 0;
+
+    private int operator = 0;
+
+    /**
+     * Build a new writer.
+     *
+     * @param channel channel of the file where to write the problem.
+     * @param problem problem definition to write.
+     * @param counts number of tasks of each operator.
+     * @throws IOException if the problem can not be written.
+     */
+    public BinaryProblemWriter(FileChannel channel, DProblem problem,
+            long[] counts) throws IOException
+    {
+        final int nOperators = problem.getOperators().size();
+        if (counts.length != nOperators) {
+            throw new IllegalArgumentException("There must be one count per operator");
+        }
+        this.channel = channel;
+
+        offsets = new long[nOperators + 1];
+        for (int i = 0; i < nOperators; i++) {
+            offsets[i+1] = offsets[i] + counts[i];
+        }
+        final long nTasks = offsets[nOperators];
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[] header = DProblemReader.MAPPER.writeValueAsBytes(getHeader(problem));
+        out.writeInt(BinaryProblemFormat.MAGIC);
+        out.writeInt(BinaryProblemFormat.VERSION);
+        out.writeInt(header.length);
+        out.write(header);
+        out.writeLong(nTasks);
+        out.writeInt(nOperators);
+        for (long offset : offsets) {
+            out.writeLong(offset);
+        }
+        while (out.size() % 8 != 0) {
+            out.writeByte(0);
+        }
+        out.close();
+        channel.truncate(0);
+        flush(ByteBuffer.wrap(bytes.toByteArray()), 0);
+
+        positions[TIMES] = bytes.size();
+        positions[XS] = positions[TIMES] + 8*nTasks;
+        positions[YS] = positions[XS] + 4*nTasks;
+        positions[OPERATORS] = positions[YS] + 4*nTasks;
+        positions[CRISIS] = positions[OPERATORS] + 4*nTasks;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Get a copy of the given problem, without any tasks.
+     */
+    private static DProblem getHeader(DProblem problem) {
+        DProblem h = new DProblem();
+        h.setWidth(problem.getWidth());
+        h.setHeight(problem.getHeight());
+        h.setDuration(problem.getDuration());
+        h.setnCrisis(problem.getnCrisis());
+        h.setPlanes(problem.getPlanes());
+        h.setStations(problem.getStations());
+        h.setGeneratorSettings(problem.getGeneratorSettings());
+        for (DOperator o : problem.getOperators()) {
+            DOperator ho = new DOperator();
+            ho.setX(o.getX());
+            ho.setY(o.getY());
+            ho.setCommunicationRange(o.getCommunicationRange());
+            h.getOperators().add(ho);
+        }
+        return h;
+    }
+
+    @Override
+    public void write(DTask task) throws IOException {
+        if (written >= offsets[offsets.length - 1]) {
+            throw new IllegalStateException("More tasks than declared");
+        }
+        while (written >= offsets[operator + 1]) {
+            operator++;
+        }
+
+        buffer(TIMES, 8).putLong(task.getTime());
+        buffer(XS, 4).putInt(task.getX());
+        buffer(YS, 4).putInt(task.getY());
+        buffer(OPERATORS, 4).putInt(operator);
+        buffer(CRISIS, 4).putInt(task.getnCrisis());
+        written++;
+    }
+
+    /**
+     * Get the buffer of the given column, making sure that it has room for
+     * the given number of bytes.
+     */
+    private ByteBuffer buffer(int column, int bytes) throws IOException {
+        ByteBuffer buffer = buffers[column];
+        if (buffer.remaining() < bytes) {
+            flush(column);
+        }
+        return buffer;
+    }
+
+    private void flush(int column) throws IOException {
+        ByteBuffer buffer = buffers[column];
+        buffer.flip();
+        positions[column] = flush(buffer, positions[column]);
+        buffer.clear();
+    }
+
+    private long flush(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (int i = 0; i < buffers.length; i++) {
+                flush(i);
+            }
+        } finally {
+            channel.close();
+        }
+        if (written < offsets[offsets.length - 1]) {
+            throw new IllegalStateException("Fewer tasks than declared");
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+/**
+ * Input stream that counts the bytes read through it.
+ * <p/>
+ * Parsers read their input in buffers, so the count alone is ahead of the
+ * token being parsed. {@link #getOffset(JsonParser)} subtracts the bytes
+ * that the parser has buffered but not consumed yet to get the exact byte
+ * offset of an object in the stream.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class CountingInputStream extends FilterInputStream {
+
+    /**
+     * Output stream that discards everything written to it.
+     */
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {}
+        @Override
+        public void write(byte[] b, int off, int len) {}
+    };
+
+    private long count = 0;
+
+    /**
+     * Build a new counting stream.
+     *
+     * @param in stream to read from.
+     */
+    CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * Get the number of bytes read (or skipped) through this stream.
+     *
+     * @return number of bytes read.
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the offset, relative to the start of this stream, of the object
+     * that the given parser has just started.
+     *
+     * @param p parser reading from this stream, whose current token must be
+     *          a {@link JsonToken#START_OBJECT}.
+     * @return byte offset of the opening brace of the object.
+     * @throws IOException if the parser can not report its buffered bytes.
+     */
+    long getOffset(JsonParser p) throws IOException {
+        DProblemReader.expect(p, p.getCurrentToken(), JsonToken.START_OBJECT);
+        final int buffered = p.releaseBuffered(DISCARD);
+        if (buffered < 0) {
+            throw new IOException("The parser does not report its buffered input");
+        }
+        // The parser has consumed the opening brace, a single byte
+        return count - buffered - 1;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b >= 0) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int n = super.read(b, off, len);
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+}
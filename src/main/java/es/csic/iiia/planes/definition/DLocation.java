@@ -36,13 +36,15 @@
  */
 package es.csic.iiia.planes.definition;
 
+import java.io.Serializable;
+
 /**
  * Skeletal definition of an object that has a specific location in the
  * simulation space.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public abstract class DLocation {
+public abstract class DLocation implements Serializable {
     private int x;
     private int y;
 
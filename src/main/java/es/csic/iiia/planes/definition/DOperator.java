@@ -37,6 +37,7 @@
 package es.csic.iiia.planes.definition;
 
 import java.util.ArrayList;
+import org.codehaus.jackson.annotate.JsonIgnore;
 
 /**
  * Definition of an operator.
@@ -46,6 +47,7 @@ import java.util.ArrayList;
 public class DOperator extends DLocation {
     private double communicationRange;
     private ArrayList<DTask> tasks = new ArrayList<DTask>();
+    private DTaskSource taskSource;
 
     /**
      * Get the list of tasks in this scenario.
@@ -65,6 +67,32 @@ public class DOperator extends DLocation {
         this.tasks = tasks;
     }
 
+    /**
+     * Get the source that delivers the tasks of this operator.
+     * <p/>
+     * Unless a different source has been set, the tasks are delivered from
+     * this operator's list of tasks.
+     *
+     * @return source of the tasks of this operator.
+     */
+    @JsonIgnore
+    public DTaskSource getTaskSource() {
+        if (taskSource == null) {
+            return new DTaskList(tasks);
+        }
+        return taskSource;
+    }
+
+    /**
+     * Set the source that delivers the tasks of this operator.
+     *
+     * @param taskSource source of the tasks of this operator.
+     */
+    @JsonIgnore
+    public void setTaskSource(DTaskSource taskSource) {
+        this.taskSource = taskSource;
+    }
+
     /**
      * Get the communication range of this operator.
      *
@@ -0,0 +1,218 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+
+/**
+ * Reader of problem definitions that streams the tasks from the problem file.
+ * <p/>
+ * The planes, stations and operators of the problem are read eagerly, but
+ * the tasks of each operator are not loaded into memory. Instead, every
+ * operator gets a {@link DTaskSource} that reads its tasks from the file as
+ * the simulation reaches their submission times. Hence, the memory used
+ * by the tasks is bounded by the number of pending tasks, and not by the
+ * total number of tasks in the problem. The byte offset of the first task of
+ * each operator is recorded while reading the problem, so that its source
+ * can seek straight to it.
+ * <p/>
+ * Tasks can only be streamed when they are stored in order of increasing
+ * submission time. The tasks of operators whose list is not sorted are
+ * loaded and sorted (by a stable sort) when the first one is requested.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class DProblemReader {
+
+    /**
+     * Mapper used to read the individual elements of the problem.
+     */
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private DProblemReader() {}
+
+    /**
+     * Read the problem defined in the given file.
+     *
+     * @param file problem file to read.
+     * @return problem definition, whose operators stream their tasks from
+     *         the file.
+     * @throws IOException if the file can not be read or is not a valid
+     *                     problem definition.
+     */
+    public static DProblem read(File file) throws IOException {
+        final File source = file.getAbsoluteFile();
+        DProblem d = new DProblem();
+        final CountingInputStream in = new CountingInputStream(
+                new FileInputStream(source));
+        try {
+            JsonParser p = MAPPER.getJsonFactory().createJsonParser(in);
+            expect(p, p.nextToken(), JsonToken.START_OBJECT);
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = p.getCurrentName();
+                p.nextToken();
+                if ("width".equals(field)) {
+                    d.setWidth(p.getIntValue());
+                } else if ("height".equals(field)) {
+                    d.setHeight(p.getIntValue());
+                } else if ("duration".equals(field)) {
+                    d.setDuration(p.getLongValue());
+                } else if ("nCrisis".equals(field)) {
+                    d.setnCrisis(p.getIntValue());
+                } else if ("operators".equals(field)) {
+                    readOperators(p, in, d, source);
+                } else if ("planes".equals(field)) {
+                    expect(p, p.getCurrentToken(), JsonToken.START_ARRAY);
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        d.getPlanes().add(MAPPER.readValue(p, DPlane.class));
+                    }
+                } else if ("stations".equals(field)) {
+                    expect(p, p.getCurrentToken(), JsonToken.START_ARRAY);
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        d.getStations().add(MAPPER.readValue(p, DStation.class));
+                    }
+                } else if ("generatorSettings".equals(field)) {
+                    HashMap<String, String> settings = MAPPER.readValue(p,
+                            new TypeReference<HashMap<String, String>>() {});
+                    d.setGeneratorSettings(settings);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            p.close();
+        } finally {
+            in.close();
+        }
+        return d;
+    }
+
+    /**
+     * Read the operators of the problem, checking whether their tasks are
+     * sorted but without keeping them.
+     */
+    private static void readOperators(JsonParser p, CountingInputStream in,
+            DProblem d, File source) throws IOException
+    {
+        expect(p, p.getCurrentToken(), JsonToken.START_ARRAY);
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            expect(p, p.getCurrentToken(), JsonToken.START_OBJECT);
+            DOperator o = new DOperator();
+            Boolean sorted = null;
+            long offset = -1;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = p.getCurrentName();
+                p.nextToken();
+                if ("x".equals(field)) {
+                    o.setX(p.getIntValue());
+                } else if ("y".equals(field)) {
+                    o.setY(p.getIntValue());
+                } else if ("communicationRange".equals(field)) {
+                    o.setCommunicationRange(p.getDoubleValue());
+                } else if ("tasks".equals(field)
+                        && p.getCurrentToken() != JsonToken.VALUE_NULL) {
+                    expect(p, p.getCurrentToken(), JsonToken.START_ARRAY);
+                    sorted = true;
+                    if (p.nextToken() != JsonToken.END_ARRAY) {
+                        offset = in.getOffset(p);
+                        sorted = isSorted(p);
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+            // Operators without tasks keep their (empty) list
+            if (sorted != null) {
+                final int index = d.getOperators().size();
+                o.setTaskSource(new StreamedTaskSource(source, index, offset, sorted));
+            }
+            d.getOperators().add(o);
+        }
+    }
+
+    /**
+     * Scan the task list the parser is positioned at (on its first task),
+     * checking whether the tasks are sorted by increasing submission time.
+     * Only the times of the tasks are read, and only until an unsorted one
+     * is found.
+     */
+    private static boolean isSorted(JsonParser p) throws IOException {
+        boolean sorted = true;
+        long last = Long.MIN_VALUE;
+        for (JsonToken t = p.getCurrentToken(); t != JsonToken.END_ARRAY; t = p.nextToken()) {
+            expect(p, t, JsonToken.START_OBJECT);
+            if (!sorted) {
+                p.skipChildren();
+                continue;
+            }
+
+            long time = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = p.getCurrentName();
+                p.nextToken();
+                if ("time".equals(field)) {
+                    time = p.getLongValue();
+                } else {
+                    p.skipChildren();
+                }
+            }
+            sorted = time >= last;
+            last = time;
+        }
+        return sorted;
+    }
+
+    /**
+     * Check that the parser is at the expected token.
+     */
+    static void expect(JsonParser p, JsonToken token, JsonToken expected)
+            throws JsonParseException
+    {
+        if (token != expected) {
+            throw new JsonParseException("Expected " + expected + " but found "
+                    + token, p.getCurrentLocation());
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Task source that delivers the tasks of an in-memory list.
+ * <p/>
+ * The list is sorted by increasing submission time when the source is
+ * created, and every task is released from it once delivered.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class DTaskList implements DTaskSource {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Comparator of DTasks that is used to sort the task definitions by
+     * increasing submission time.
+     */
+    static final Comparator<DTask> BY_TIME = new Comparator<DTask>() {
+        @Override
+        public int compare(DTask t, DTask t1) {
+            return Long.valueOf(t.getTime()).compareTo(t1.getTime());
+        }
+    };
+
+    private final List<DTask> tasks;
+
+    private int next = 0;
+
+    /**
+     * Build a new source that will deliver the given tasks.
+     *
+     * @param tasks task definitions to deliver. This list is sorted in place.
+     */
+    public DTaskList(List<DTask> tasks) {
+        this.tasks = tasks;
+        Collections.sort(this.tasks, BY_TIME);
+    }
+
+    @Override
+    public DTask next() {
+        if (next >= tasks.size()) {
+            return null;
+        }
+        return tasks.set(next++, null);
+    }
+
+}
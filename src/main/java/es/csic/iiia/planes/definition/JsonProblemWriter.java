@@ -0,0 +1,164 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+
+/**
+ * Writer that streams a problem definition in JSON format.
+ * <p/>
+ * The output is the same that would be obtained by serializing the whole
+ * problem with an ObjectMapper.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class JsonProblemWriter implements DProblemWriter {
+
+    private final DProblem problem;
+
+    private final long[] counts;
+
+    private final JsonGenerator generator;
+
+    /**
+     * Index of the operator whose tasks are being written (-1 before the
+     * first one).
+     */
+    private int operator = -1;
+
+    /**
+     * Number of tasks still to be written for the current operator.
+     */
+    private long remaining = 0;
+
+    /**
+     * Build a new writer.
+     *
+     * @param out stream where to write the problem.
+     * @param problem problem definition to write.
+     * @param counts number of tasks of each operator.
+     * @throws IOException if the problem can not be written.
+     */
+    public JsonProblemWriter(OutputStream out, DProblem problem, long[] counts)
+            throws IOException
+    {
+        if (counts.length != problem.getOperators().size()) {
+            throw new IllegalArgumentException("There must be one count per operator");
+        }
+        this.problem = problem;
+        this.counts = counts;
+        generator = DProblemReader.MAPPER.getJsonFactory()
+                .createJsonGenerator(out, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeNumberField("width", problem.getWidth());
+        generator.writeNumberField("height", problem.getHeight());
+        generator.writeNumberField("duration", problem.getDuration());
+        generator.writeNumberField("nCrisis", problem.getnCrisis());
+        generator.writeArrayFieldStart("operators");
+    }
+
+    @Override
+    public void write(DTask task) throws IOException {
+        while (remaining == 0) {
+            nextOperator();
+        }
+        generator.writeStartObject();
+        generator.writeNumberField("x", task.getX());
+        generator.writeNumberField("y", task.getY());
+        generator.writeNumberField("time", task.getTime());
+        generator.writeNumberField("nCrisis", task.getnCrisis());
+        generator.writeEndObject();
+        remaining--;
+    }
+
+    /**
+     * Close the current operator and open the next one.
+     */
+    private void nextOperator() throws IOException {
+        if (operator >= 0) {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        operator++;
+        if (operator >= counts.length) {
+            throw new IllegalStateException("More tasks than declared");
+        }
+
+        DOperator o = problem.getOperators().get(operator);
+        generator.writeStartObject();
+        generator.writeNumberField("x", o.getX());
+        generator.writeNumberField("y", o.getY());
+        generator.writeNumberField("communicationRange", o.getCommunicationRange());
+        generator.writeArrayFieldStart("tasks");
+        remaining = counts[operator];
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (remaining > 0) {
+            throw new IllegalStateException("Fewer tasks than declared");
+        }
+        while (operator + 1 < counts.length) {
+            nextOperator();
+            if (remaining > 0) {
+                throw new IllegalStateException("Fewer tasks than declared");
+            }
+        }
+        if (operator >= 0) {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        writeList("planes", problem.getPlanes());
+        writeList("stations", problem.getStations());
+        generator.writeFieldName("generatorSettings");
+        DProblemReader.MAPPER.writeValue(generator, problem.getGeneratorSettings());
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    private void writeList(String field, List<?> values) throws IOException {
+        generator.writeFieldName(field);
+        DProblemReader.MAPPER.writeValue(generator, values);
+    }
+
+}
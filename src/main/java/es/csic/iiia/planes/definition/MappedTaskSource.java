@@ -0,0 +1,157 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Task source that serves the tasks of an operator from a memory-mapped
+ * binary problem file.
+ * <p/>
+ * Only the position of the next task is serialized. A restored source maps
+ * the file again and resumes from there.
+ *
+ * @see BinaryProblemFormat
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class MappedTaskSource implements DTaskSource {
+    private static final long serialVersionUID = 1L;
+
+    private final File file;
+
+    /**
+     * Position of the first column in the file.
+     */
+    private final long columns;
+
+    /**
+     * Total number of tasks in the file.
+     */
+    private final long nTasks;
+
+    /**
+     * Index of the first task of the operator.
+     */
+    private final long start;
+
+    /**
+     * Number of tasks of the operator.
+     */
+    private final int count;
+
+    private int next = 0;
+
+    private transient LongBuffer times;
+
+    private transient IntBuffer xs;
+
+    private transient IntBuffer ys;
+
+    private transient IntBuffer crisis;
+
+    /**
+     * Build a new source of the tasks in the given range of a binary file.
+     *
+     * @param file binary problem file.
+     * @param columns position of the first column in the file.
+     * @param nTasks total number of tasks in the file.
+     * @param start index of the first task to serve.
+     * @param end index of the last task to serve (exclusive).
+     */
+    MappedTaskSource(File file, long columns, long nTasks, long start, long end) {
+        this.file = file;
+        this.columns = columns;
+        this.nTasks = nTasks;
+        this.start = start;
+        this.count = (int)(end - start);
+    }
+
+    @Override
+    public DTask next() {
+        if (next >= count) {
+            times = null;
+            xs = ys = crisis = null;
+            return null;
+        }
+        if (times == null) {
+            map();
+        }
+
+        DTask t = new DTask();
+        t.setTime(times.get(next));
+        t.setX(xs.get(next));
+        t.setY(ys.get(next));
+        t.setnCrisis(crisis.get(next));
+        next++;
+        return t;
+    }
+
+    /**
+     * Map the operator's range of every column.
+     */
+    private void map() {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                times = channel.map(FileChannel.MapMode.READ_ONLY,
+                        columns + 8*start, 8L*count).asLongBuffer();
+                final long ints = columns + 8*nTasks;
+                xs = map(channel, ints);
+                ys = map(channel, ints + 4*nTasks);
+                // The operators' column is skipped, because ranges are per-operator
+                crisis = map(channel, ints + 12*nTasks);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Error mapping the tasks of \""
+                    + file + "\"", ex);
+        }
+    }
+
+    private IntBuffer map(FileChannel channel, long column) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, column + 4*start,
+                4L*count).asIntBuffer();
+    }
+
+}
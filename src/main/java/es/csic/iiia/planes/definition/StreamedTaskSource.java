@@ -0,0 +1,193 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+/**
+ * Task source that reads the tasks of an operator from the problem file.
+ * <p/>
+ * The source seeks straight to its first task, whose byte offset is
+ * recorded when the problem is read. Sorted tasks are then read in batches
+ * of {@link #BATCH_SIZE}, recording the offset of the task that follows
+ * each batch, and the file is closed in between. Unsorted tasks are all
+ * read and sorted at once.
+ * <p/>
+ * Only the offset of the current batch and the number of its delivered
+ * tasks are serialized. A restored source reads that batch again and
+ * skips the tasks that had already been delivered before the snapshot was
+ * taken.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class StreamedTaskSource implements DTaskSource {
+    private static final long serialVersionUID = 3L;
+
+    /**
+     * Maximum number of (sorted) tasks read from the file at once.
+     */
+    static final int BATCH_SIZE = 1024;
+
+    /**
+     * Bytes prepended to the tasks read from the file, so that they are
+     * parsed as a list.
+     */
+    private static final byte[] LIST_START = new byte[]{'['};
+
+    private final File file;
+
+    private final int operator;
+
+    /**
+     * True if the tasks are stored by increasing submission time, so they
+     * can be streamed. Otherwise they are loaded and sorted in memory.
+     */
+    private final boolean sorted;
+
+    /**
+     * Byte offset of the first task of the buffer in the file, or -1 if
+     * there are no tasks.
+     */
+    private long offset;
+
+    /**
+     * Number of tasks of the buffer already delivered.
+     */
+    private int position = 0;
+
+    private boolean finished = false;
+
+    private transient List<DTask> buffer;
+
+    /**
+     * Byte offset of the task that follows the buffer, or -1 if the buffer
+     * reaches the end of the task list.
+     */
+    private transient long nextOffset;
+
+    /**
+     * Build a new source of the tasks of the given operator.
+     *
+     * @param file problem file.
+     * @param operator index of the operator in the problem file.
+     * @param offset byte offset of the operator's first task in the file, or
+     *               -1 if it has no tasks.
+     * @param sorted true if the tasks of the operator are sorted by time.
+     */
+    StreamedTaskSource(File file, int operator, long offset, boolean sorted) {
+        this.file = file;
+        this.operator = operator;
+        this.offset = offset;
+        this.sorted = sorted;
+    }
+
+    @Override
+    public DTask next() {
+        if (finished) {
+            return null;
+        }
+
+        try {
+            if (buffer == null) {
+                fill();
+            }
+            if (position == buffer.size() && nextOffset >= 0) {
+                offset = nextOffset;
+                position = 0;
+                fill();
+            }
+            if (position >= buffer.size()) {
+                finished = true;
+                buffer = null;
+                return null;
+            }
+            return buffer.set(position++, null);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Error reading the tasks of operator "
+                    + operator + " from \"" + file + "\"", ex);
+        }
+    }
+
+    /**
+     * Read the tasks that start at the current offset into the buffer: a
+     * batch of them if they are sorted, or all of them (sorted by time)
+     * otherwise.
+     */
+    private void fill() throws IOException {
+        buffer = new ArrayList<DTask>();
+        nextOffset = -1;
+        if (offset < 0) {
+            return;
+        }
+
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            // The offset points to the task, and the bytes that follow it
+            // are parsed as the elements of a list
+            in.getChannel().position(offset);
+            final CountingInputStream counter = new CountingInputStream(in);
+            JsonParser p = DProblemReader.MAPPER.getJsonFactory().createJsonParser(
+                    new SequenceInputStream(new ByteArrayInputStream(LIST_START), counter));
+            DProblemReader.expect(p, p.nextToken(), JsonToken.START_ARRAY);
+            DProblemReader.expect(p, p.nextToken(), JsonToken.START_OBJECT);
+            do {
+                if (sorted && buffer.size() == BATCH_SIZE) {
+                    nextOffset = offset + counter.getOffset(p);
+                    break;
+                }
+                buffer.add(DProblemReader.MAPPER.readValue(p, DTask.class));
+            } while (p.nextToken() == JsonToken.START_OBJECT);
+            p.close();
+        } finally {
+            in.close();
+        }
+
+        if (!sorted) {
+            Collections.sort(buffer, DTaskList.BY_TIME);
+        }
+    }
+
+}
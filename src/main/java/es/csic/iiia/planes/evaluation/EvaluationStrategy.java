@@ -38,6 +38,7 @@ package es.csic.iiia.planes.evaluation;
 
 import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.Task;
+import java.io.Serializable;
 
 /**
  * Definition of an evaluation strategy, used by the planes to compute the cost
@@ -45,7 +46,7 @@ import es.csic.iiia.planes.Task;
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public interface EvaluationStrategy<T extends Plane> {
+public interface EvaluationStrategy<T extends Plane> extends Serializable {
 
     /**
      * Evaluate the cost of performing the given Task.
@@ -39,7 +39,6 @@ package es.csic.iiia.planes.evaluation;
 import es.csic.iiia.planes.Location;
 import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.Task;
-import es.csic.iiia.planes.World;
 
 /**
  * Evaluation that computes costs based on the distance between the plane and
@@ -63,10 +62,9 @@ public class IndependentDistanceBatteryEvaluation implements EvaluationStrategy<
      */
     @Override
     public double getCost(Plane plane, Task task) {
-        final World world = plane.getWorld();
         final Location pl = plane.getLocation();
         final Location tl = task.getLocation();
-        final Location sl = world.getNearestStation(tl).getLocation();
+        final Location sl = task.getNearestStation().getLocation();
 
         final double plane2task   = pl.distance(tl);
         final double task2station = tl.distance(sl);
@@ -40,7 +40,13 @@ package es.csic.iiia.planes.generator;
 import org.apache.commons.cli.*;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -86,9 +92,99 @@ public class Cli {
                 .withDescription("Output only the resolved settings, but do not run the simulation.")
                 .create('t'));
 
-        Configuration config = parseOptions(args);
-        Generator g = new Generator(config);
-        g.run();
+        final Properties settings = parseOptions(args);
+        final List<Long> seeds = parseSeeds(settings.getProperty("random-seed", ""));
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("No random seed given");
+        }
+        final int threads = Integer.valueOf(settings.getProperty("threads", "1").trim());
+        final boolean streaming = Boolean.valueOf(settings.getProperty("streaming", "false").trim());
+        final boolean multiple = seeds.size() > 1;
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+
+        try {
+            if (executor == null || streaming) {
+                // One scenario after the other (streaming ones split their tasks among the threads)
+                for (long seed : seeds) {
+                    new Generator(configure(settings, seed, multiple), executor).run();
+                }
+            } else {
+                // One scenario per thread
+                List<Future<?>> results = new ArrayList<Future<?>>();
+                for (final long seed : seeds) {
+                    results.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            new Generator(configure(settings, seed, multiple)).run();
+                        }
+                    }));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            }
+        } catch (InterruptedException ex) {
+            LOG.log(Level.SEVERE, null, ex);
+        } catch (ExecutionException ex) {
+            LOG.log(Level.SEVERE, null, ex.getCause());
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Build the configuration to generate the scenario of the given seed.
+     *
+     * @param settings generator settings.
+     * @param seed random seed of the scenario.
+     * @param suffix true if the seed has to be appended to the problem file
+     *               name.
+     * @return configuration of the scenario.
+     */
+    private static Configuration configure(Properties settings, long seed, boolean suffix) {
+        Properties s = new Properties();
+        s.putAll(settings);
+        s.setProperty("random-seed", String.valueOf(seed));
+        if (suffix) {
+            String problem = settings.getProperty("problem");
+            int dot = problem.lastIndexOf('.');
+            if (dot <= problem.lastIndexOf(File.separatorChar)) {
+                dot = problem.length();
+            }
+            s.setProperty("problem", problem.substring(0, dot) + "-" + seed
+                    + problem.substring(dot));
+        }
+        return new Configuration(s);
+    }
+
+    /**
+     * Parse a list of seeds, given as comma-separated values and/or ranges
+     * (such as "1,5,10-20").
+     *
+     * @param value list of seeds.
+     * @return seeds in the list.
+     */
+    static List<Long> parseSeeds(String value) {
+        List<Long> seeds = new ArrayList<Long>();
+        for (String item : value.split(",")) {
+            item = item.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            final int dash = item.indexOf('-', 1);
+            if (dash < 0) {
+                seeds.add(Long.valueOf(item));
+                continue;
+            }
+            final long from = Long.valueOf(item.substring(0, dash).trim());
+            final long to = Long.valueOf(item.substring(dash + 1).trim());
+            for (long seed = from; seed <= to; seed++) {
+                seeds.add(seed);
+            }
+        }
+        return seeds;
     }
 
     private static void showHelp() {
@@ -101,9 +197,9 @@ public class Cli {
      * Parse the provided list of arguments according to the program's options.
      *
      * @param in_args list of input arguments.
-     * @return a configuration object set according to the input options.
+     * @return the settings resolved from the input options.
      */
-    private static Configuration parseOptions(String[] in_args) {
+    private static Properties parseOptions(String[] in_args) {
         CommandLineParser parser = new PosixParser();
         CommandLine line = null;
         Properties settings = loadDefaultSettings();
@@ -143,12 +239,12 @@ public class Cli {
         }
         settings.setProperty("problem", args[0]);
 
-        Configuration c = new Configuration(settings);
-
         if (line.hasOption('t')) {
+            final long seed = parseSeeds(settings.getProperty("random-seed", "")).get(0);
+            configure(settings, seed, false);
             System.exit(0);
         }
-        return c;
+        return settings;
     }
 
     /**
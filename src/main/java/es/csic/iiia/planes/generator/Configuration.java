@@ -36,9 +36,8 @@
  */
 package es.csic.iiia.planes.generator;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Properties;
@@ -64,7 +63,10 @@ public class Configuration {
     private long batteryCapacity;
     private double communicationRange;
     private double planeSpeed;
-    private BufferedWriter outputFile;
+    private FileOutputStream outputFile;
+    private boolean binaryOutput;
+    private boolean streaming;
+    private int threads;
     private Properties settings;
     private TaskDistributionFactory taskDistributionFactory;
 
@@ -83,7 +85,7 @@ public class Configuration {
         new int[]{157, 175, 255}, new int[]{41, 208, 208}, new int[]{87, 87, 87},
     };
 
-    Configuration(Properties settings) {
+    public Configuration(Properties settings) {
         this.settings = settings;
         random_seed = Long.valueOf(fetch("random-seed"));
         duration = Long.valueOf(fetch("duration"));
@@ -112,12 +114,29 @@ public class Configuration {
             hotspotFreedomDegrees = Double.valueOf(fetch("hotspot-freedom-degrees"));
         }
 
+        // Streaming generates different scenarios, so it is recorded only
+        // when enabled to keep the output of the default mode unchanged.
+        streaming = Boolean.valueOf(settings.getProperty("streaming", "false").trim());
+        if (streaming) {
+            generatorSettings.put("streaming", "true");
+        }
+
+        threads = Integer.valueOf(settings.getProperty("threads", "1").trim());
+        if (threads < 1) {
+            error("The number of threads must be at least 1");
+        }
+
+        String format = settings.getProperty("output-format", "json").trim().toLowerCase();
+        if (format.equals("binary")) {
+            binaryOutput = true;
+        } else if (!format.equals("json")) {
+            error("Unknown output-format \"" + format + "\"");
+        }
+
         // Open output file
-        FileWriter fw;
         try {
             File f = new File(settings.getProperty("problem"));
-            fw = new FileWriter(f);
-            outputFile = new BufferedWriter(fw);
+            outputFile = new FileOutputStream(f);
         } catch (IOException ex) {
             error("Unable to write to file \"" + settings.getProperty("problem")
                 + "\": " + ex.getLocalizedMessage());
@@ -207,8 +226,20 @@ public class Configuration {
         return generatorSettings;
     }
 
-    public BufferedWriter getOutputFile() {
+    public FileOutputStream getOutputFile() {
         return outputFile;
     }
 
+    public boolean isBinaryOutput() {
+        return binaryOutput;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
 }
@@ -37,21 +37,32 @@
 package es.csic.iiia.planes.generator;
 
 import es.csic.iiia.planes.util.MultivariateUniformDistribution;
+import es.csic.iiia.planes.definition.BinaryProblemFormat;
+import es.csic.iiia.planes.definition.BinaryProblemWriter;
 import es.csic.iiia.planes.definition.DOperator;
 import es.csic.iiia.planes.definition.DPlane;
 import es.csic.iiia.planes.definition.DProblem;
+import es.csic.iiia.planes.definition.DProblemWriter;
 import es.csic.iiia.planes.definition.DStation;
 import es.csic.iiia.planes.definition.DTask;
+import es.csic.iiia.planes.definition.JsonProblemWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.apache.commons.math3.distribution.BinomialDistribution;
 import org.apache.commons.math3.distribution.MultivariateRealDistribution;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.distribution.RealDistribution;
 import org.apache.commons.math3.distribution.UniformRealDistribution;
 import org.apache.commons.math3.random.EmpiricalDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.codehaus.jackson.map.ObjectMapper;
 
@@ -62,13 +73,29 @@ import org.codehaus.jackson.map.ObjectMapper;
  */
 public class Generator {
 
+    /**
+     * Expected number of tasks in each chunk of the streaming generation.
+     */
+    private static final int CHUNK_SIZE = 1 << 14;
+
     private final Configuration config;
 
     private final Random r;
 
+    /**
+     * Executor used to generate the tasks in parallel (null to generate them
+     * sequentially).
+     */
+    private final ExecutorService executor;
+
     public Generator(Configuration config) {
+        this(config, null);
+    }
+
+    public Generator(Configuration config, ExecutorService executor) {
         this.config = config;
         this.r = new Random(config.getRandom_seed());
+        this.executor = executor;
     }
 
     /**
@@ -79,6 +106,13 @@ public class Generator {
         p.setGeneratorSettings(config.getGeneratorSettings());
         addPlanes(p);
         addOperators(p);
+
+        if (config.isStreaming()) {
+            addStations(p);
+            streamTasks(p);
+            return;
+        }
+
         addTasks(p);
         addStations(p);
 
@@ -86,10 +120,13 @@ public class Generator {
     }
 
     private void writeProblem(DProblem p) {
-        // Open output file
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            mapper.writeValue(config.getOutputFile(), p);
+            if (config.isBinaryOutput()) {
+                BinaryProblemFormat.write(p, config.getOutputFile().getChannel());
+            } else {
+                ObjectMapper mapper = new ObjectMapper();
+                mapper.writeValue(config.getOutputFile(), p);
+            }
         } catch (IOException ex) {
             Logger.getLogger(Generator.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -147,17 +184,46 @@ public class Generator {
         }
 
         // Set task times. Use the crisis model for now.
+        RealDistribution[] timeDistributions = new RealDistribution[config.getNum_crisis()];
+        MultivariateRealDistribution[] spaceDistributions =
+                new MultivariateRealDistribution[config.getNum_crisis()];
+        createCrises(p, timeDistributions, spaceDistributions);
+
+        // 3. Uniformly sample tasks from these distributions
+        for (DTask t : tasks) {
+            final int i = (int)(r.nextDouble()*(config.getNum_crisis()));
+            t.setnCrisis(i);
+
+            // Time sampling
+            long time = (long)timeDistributions[i].sample();
+            while (time < 0 || time > config.getDuration()) {
+                time = (long)timeDistributions[i].sample();
+            }
+            t.setTime(time);
+
+            // Position sampling
+            samplePosition(p, t, spaceDistributions[i]);
+        }
 
-        // How is it done?
+        // 4. Debug stuff
+        //printTaskHistogram(tasks);
+    }
 
+    /**
+     * Create the time and space distributions of every crisis.
+     *
+     * The first "crisis" is the base one, uniformly spread through time and
+     * space. The others are gaussian in time, and located according to the
+     * configured task distribution.
+     */
+    private void createCrises(DProblem p, RealDistribution[] timeDistributions,
+            MultivariateRealDistribution[] spaceDistributions)
+    {
         // 1.a Create a "base" uniform distribution between 0 and duration
-        RealDistribution[] timeDistributions = new RealDistribution[config.getNum_crisis()];
         timeDistributions[0] = new UniformRealDistribution(0, config.getDuration());
         timeDistributions[0].reseedRandomGenerator(r.nextLong());
 
         // 1.b Create a "base" uniform distribution for the 2d space
-        MultivariateRealDistribution[] spaceDistributions =
-                new MultivariateRealDistribution[config.getNum_crisis()];
         spaceDistributions[0] = new MultivariateUniformDistribution(
                 new double[]{0, 0}, new double[]{p.getWidth(), p.getHeight()} );
         spaceDistributions[0].reseedRandomGenerator(r.nextLong());
@@ -176,31 +242,199 @@ public class Generator {
             spaceDistributions[i] = config.getTaskDistributionFactory().buildDistribution(config, r);
         }
 
-        // 3. Uniformly sample tasks from these distributions
-        for (DTask t : tasks) {
-            final int i = (int)(r.nextDouble()*(config.getNum_crisis()));
-            t.setnCrisis(i);
+    }
 
-            // Time sampling
-            long time = (long)timeDistributions[i].sample();
-            while (time < 0 || time > config.getDuration()) {
-                time = (long)timeDistributions[i].sample();
+    /**
+     * Sample the position of the given task from the given distribution,
+     * rejecting the samples that fall out of the scenario.
+     */
+    static void samplePosition(DProblem p, DTask t,
+            MultivariateRealDistribution spaceDistribution)
+    {
+        double[] position = spaceDistribution.sample();
+        while (  position[0] < 0 || position[1] < 0
+              || position[0] > p.getWidth() || position[1] > p.getHeight())
+        {
+            position = spaceDistribution.sample();
+        }
+        t.setX((int)position[0]);
+        t.setY((int)position[1]);
+    }
+
+    /**
+     * Generate the tasks of every operator already sorted by time, writing
+     * them to the output as they are generated.
+     *
+     * Instead of sampling the crisis and time of each task, this draws the
+     * number of tasks of each operator, crisis and time window (following
+     * the same multinomial distribution). The tasks of each operator and
+     * window are then generated as an independent chunk, whose crises are
+     * sampled as sorted time streams and merged by time. Chunks are
+     * generated in parallel when an executor is available, but they are
+     * always seeded in the same way and written in order.
+     */
+    private void streamTasks(DProblem p) {
+        final int nOperators = config.getNum_operators();
+        final int nCrisis = config.getNum_crisis();
+        final long end = config.getDuration() + 1;
+        RealDistribution[] timeDistributions = new RealDistribution[nCrisis];
+        MultivariateRealDistribution[] spaceDistributions =
+                new MultivariateRealDistribution[nCrisis];
+        createCrises(p, timeDistributions, spaceDistributions);
+
+        // Time windows expected to hold CHUNK_SIZE tasks of each operator
+        final int nWindows = (int)Math.max(1, Math.min(end,
+                config.getNum_tasks() / nOperators / CHUNK_SIZE));
+        final long[] bounds = computeWindows(timeDistributions, end, nWindows);
+
+        // Number of tasks of each operator, crisis and window
+        long[][][] counts = new long[nOperators][nCrisis][];
+        long[] operatorCounts = new long[nOperators];
+        RandomGenerator random = new Well19937c(r.nextLong());
+        int remaining = config.getNum_tasks();
+        int cells = nOperators * nCrisis;
+        for (int o = 0; o < nOperators; o++) {
+            for (int c = 0; c < nCrisis; c++, cells--) {
+                int n = remaining;
+                if (cells > 1 && remaining > 0) {
+                    n = new BinomialDistribution(random, remaining, 1d/cells).sample();
+                }
+                counts[o][c] = splitWindows(n, timeDistributions[c], bounds, random);
+                operatorCounts[o] += n;
+                remaining -= n;
             }
-            t.setTime(time);
+        }
+        final long seed = r.nextLong();
 
-            // Position sampling
-            double[] position = spaceDistributions[i].sample();
-            while (  position[0] < 0 || position[1] < 0
-                  || position[0] > p.getWidth() || position[1] > p.getHeight())
-            {
-                position = spaceDistributions[i].sample();
+        try {
+            DProblemWriter out = config.isBinaryOutput()
+                    ? new BinaryProblemWriter(config.getOutputFile().getChannel(), p, operatorCounts)
+                    : new JsonProblemWriter(config.getOutputFile(), p, operatorCounts);
+            try {
+                LinkedList<Future<DTask[]>> pending = new LinkedList<Future<DTask[]>>();
+                final int lookahead = 2 * config.getThreads();
+                for (int o = 0; o < nOperators; o++) {
+                    for (int w = 0; w < nWindows; w++) {
+                        long[] chunkCounts = new long[nCrisis];
+                        long[] seeds = new long[nCrisis];
+                        for (int c = 0; c < nCrisis; c++) {
+                            chunkCounts[c] = counts[o][c][w];
+                            seeds[c] = mix(seed ^ mix(((long)o * nCrisis + c) * nWindows + w));
+                        }
+                        TaskChunk chunk = new TaskChunk(p, timeDistributions,
+                                spaceDistributions, bounds[w], bounds[w+1],
+                                chunkCounts, seeds);
+
+                        if (executor == null) {
+                            write(out, chunk.call());
+                            continue;
+                        }
+                        pending.add(executor.submit(chunk));
+                        if (pending.size() > lookahead) {
+                            write(out, pending.removeFirst().get());
+                        }
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    write(out, pending.removeFirst().get());
+                }
+            } finally {
+                out.close();
             }
-            t.setX((int)position[0]);
-            t.setY((int)position[1]);
+        } catch (IOException ex) {
+            Logger.getLogger(Generator.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.getLogger(Generator.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (ExecutionException ex) {
+            Logger.getLogger(Generator.class.getName()).log(Level.SEVERE, null, ex.getCause());
         }
+    }
 
-        // 4. Debug stuff
-        //printTaskHistogram(tasks);
+    private void write(DProblemWriter out, DTask[] tasks) throws IOException {
+        for (DTask t : tasks) {
+            out.write(t);
+        }
+    }
+
+    /**
+     * Split the time in windows that are expected to hold the same number of
+     * tasks (of all crises).
+     *
+     * @return bounds of the windows. Window <em>w</em> spans from
+     *         <em>bounds[w]</em> to <em>bounds[w+1]</em> (exclusive).
+     */
+    private static long[] computeWindows(RealDistribution[] timeDistributions,
+            long end, int nWindows)
+    {
+        long[] bounds = new long[nWindows + 1];
+        bounds[nWindows] = end;
+        for (int w = 1; w < nWindows; w++) {
+            final double target = w / (double)nWindows;
+            long lo = bounds[w-1], hi = end;
+            while (lo < hi) {
+                final long mid = lo + (hi - lo) / 2;
+                if (mixtureProbability(timeDistributions, mid, end) >= target) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            bounds[w] = lo;
+        }
+        return bounds;
+    }
+
+    /**
+     * Cumulative probability of the given time, when picking the crises
+     * uniformly and truncating their time distributions to [0, end).
+     */
+    private static double mixtureProbability(RealDistribution[] timeDistributions,
+            long time, long end)
+    {
+        double result = 0;
+        for (RealDistribution d : timeDistributions) {
+            final double lower = d.cumulativeProbability(0);
+            result += (d.cumulativeProbability(time) - lower)
+                    / (d.cumulativeProbability(end) - lower);
+        }
+        return result / timeDistributions.length;
+    }
+
+    /**
+     * Split the given number of tasks among the time windows, according to
+     * the given time distribution.
+     */
+    private static long[] splitWindows(int n, RealDistribution d, long[] bounds,
+            RandomGenerator random)
+    {
+        final int nWindows = bounds.length - 1;
+        final double lower = d.cumulativeProbability(bounds[0]);
+        final double total = d.cumulativeProbability(bounds[nWindows]) - lower;
+
+        long[] counts = new long[nWindows];
+        double done = 0;
+        for (int w = 0; w < nWindows - 1 && n > 0; w++) {
+            final double mass = (d.cumulativeProbability(bounds[w+1])
+                    - d.cumulativeProbability(bounds[w])) / total;
+            final double probability = done >= 1 ? 1 : Math.min(1, mass / (1 - done));
+            final int k = new BinomialDistribution(random, n, probability).sample();
+            counts[w] = k;
+            n -= k;
+            done += mass;
+        }
+        counts[nWindows - 1] += n;
+        return counts;
+    }
+
+    /**
+     * Scramble the given value (SplitMix64's finalizer), to derive
+     * independent seeds.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 
     private void printTaskHistogram(ArrayList<DTask> tasks) {
@@ -0,0 +1,148 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.generator;
+
+import org.apache.commons.math3.distribution.RealDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Stream of task times, sampled from a distribution and delivered in
+ * increasing order.
+ * <p/>
+ * The sorted sample is generated sequentially, without storing it: the
+ * smallest of <em>n</em> uniform samples in [x, 1) is distributed as
+ * <em>1 - (1-x)V<sup>1/n</sup></em>, where <em>V</em> is uniform in [0, 1).
+ * These sorted uniform values are then mapped through the inverse of the
+ * distribution's cumulative function, truncated to [from, to).
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class SortedTimeStream {
+
+    private final RealDistribution distribution;
+
+    private final RandomGenerator random;
+
+    private final long from, to;
+
+    /**
+     * Cumulative probabilities of the truncation bounds.
+     */
+    private final double lower, upper;
+
+    /**
+     * Number of times still to be generated.
+     */
+    private long remaining;
+
+    /**
+     * Last uniform value generated.
+     */
+    private double last = 0;
+
+    /**
+     * Next time to deliver (only valid while there are more times).
+     */
+    private long next;
+
+    private boolean hasNext;
+
+    /**
+     * Build a new stream of times.
+     *
+     * @param distribution distribution of the times.
+     * @param from minimum time to generate.
+     * @param to maximum time to generate (exclusive).
+     * @param n number of times to generate.
+     * @param random random generator used to sample the times.
+     */
+    public SortedTimeStream(RealDistribution distribution, long from, long to,
+            long n, RandomGenerator random)
+    {
+        this.distribution = distribution;
+        this.random = random;
+        this.from = from;
+        this.to = to;
+        this.remaining = n;
+        lower = distribution.cumulativeProbability(from);
+        upper = distribution.cumulativeProbability(to);
+        advance();
+    }
+
+    /**
+     * Check whether there are more times in this stream.
+     *
+     * @return true if there are more times in this stream.
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * Get the next time of this stream, without consuming it.
+     *
+     * @return next time of this stream.
+     */
+    public long peek() {
+        return next;
+    }
+
+    /**
+     * Consume the next time of this stream.
+     *
+     * @return next time of this stream.
+     */
+    public long next() {
+        final long result = next;
+        advance();
+        return result;
+    }
+
+    private void advance() {
+        hasNext = remaining > 0;
+        if (!hasNext) {
+            return;
+        }
+
+        last += (1 - last) * (1 - Math.pow(random.nextDouble(), 1d/remaining));
+        remaining--;
+        final double p = lower + last * (upper - lower);
+        next = Math.max(from, Math.min(to - 1,
+                (long)distribution.inverseCumulativeProbability(p)));
+    }
+
+}
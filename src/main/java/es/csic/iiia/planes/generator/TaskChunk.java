@@ -0,0 +1,159 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.generator;
+
+import es.csic.iiia.planes.definition.DProblem;
+import es.csic.iiia.planes.definition.DTask;
+import es.csic.iiia.planes.util.MultivariateUniformDistribution;
+import java.util.concurrent.Callable;
+import org.apache.commons.math3.distribution.MultivariateNormalDistribution;
+import org.apache.commons.math3.distribution.MultivariateRealDistribution;
+import org.apache.commons.math3.distribution.RealDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
+
+/**
+ * Chunk of the tasks of an operator, within a time window.
+ * <p/>
+ * Every crisis of the chunk is sampled with its own random generator, seeded
+ * from the chunk's position in the scenario. Hence, chunks can be generated
+ * in any order (or in parallel) while always producing the same tasks.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class TaskChunk implements Callable<DTask[]> {
+
+    private final DProblem problem;
+
+    private final RealDistribution[] timeDistributions;
+
+    private final MultivariateRealDistribution[] spaceDistributions;
+
+    private final long from, to;
+
+    private final long[] counts;
+
+    private final long[] seeds;
+
+    /**
+     * Build a new chunk.
+     *
+     * @param problem problem being generated.
+     * @param timeDistributions time distribution of every crisis.
+     * @param spaceDistributions space distribution of every crisis.
+     * @param from start of the chunk's time window.
+     * @param to end of the chunk's time window (exclusive).
+     * @param counts number of tasks of every crisis in this chunk.
+     * @param seeds seed of the random generator of every crisis.
+     */
+    public TaskChunk(DProblem problem, RealDistribution[] timeDistributions,
+            MultivariateRealDistribution[] spaceDistributions, long from,
+            long to, long[] counts, long[] seeds)
+    {
+        this.problem = problem;
+        this.timeDistributions = timeDistributions;
+        this.spaceDistributions = spaceDistributions;
+        this.from = from;
+        this.to = to;
+        this.counts = counts;
+        this.seeds = seeds;
+    }
+
+    /**
+     * Generate the tasks of this chunk.
+     *
+     * @return tasks of this chunk, sorted by time.
+     */
+    @Override
+    public DTask[] call() {
+        final int nCrisis = counts.length;
+        SortedTimeStream[] streams = new SortedTimeStream[nCrisis];
+        MultivariateRealDistribution[] spaces = new MultivariateRealDistribution[nCrisis];
+        long n = 0;
+        for (int c = 0; c < nCrisis; c++) {
+            if (counts[c] == 0) {
+                continue;
+            }
+            RandomGenerator random = new Well19937c(seeds[c]);
+            streams[c] = new SortedTimeStream(timeDistributions[c], from, to,
+                    counts[c], random);
+            spaces[c] = copyOf(spaceDistributions[c], random);
+            n += counts[c];
+        }
+
+        DTask[] tasks = new DTask[(int)n];
+        for (int i = 0; i < tasks.length; i++) {
+            // Merge the crises by time
+            int crisis = -1;
+            for (int c = 0; c < nCrisis; c++) {
+                if (streams[c] != null && streams[c].hasNext() && (crisis < 0
+                        || streams[c].peek() < streams[crisis].peek())) {
+                    crisis = c;
+                }
+            }
+
+            DTask t = new DTask();
+            t.setnCrisis(crisis);
+            t.setTime(streams[crisis].next());
+            Generator.samplePosition(problem, t, spaces[crisis]);
+            tasks[i] = t;
+        }
+        return tasks;
+    }
+
+    /**
+     * Get a copy of the given space distribution that samples from the given
+     * random generator.
+     */
+    private static MultivariateRealDistribution copyOf(
+            MultivariateRealDistribution d, RandomGenerator random)
+    {
+        if (d instanceof MultivariateNormalDistribution) {
+            MultivariateNormalDistribution n = (MultivariateNormalDistribution)d;
+            return new MultivariateNormalDistribution(random, n.getMeans(),
+                    n.getCovariances().getData());
+        }
+        if (d instanceof MultivariateUniformDistribution) {
+            MultivariateUniformDistribution u = (MultivariateUniformDistribution)d;
+            return new MultivariateUniformDistribution(random, u.getLowerBounds(),
+                    u.getUpperBounds());
+        }
+        throw new IllegalArgumentException("Unsupported task distribution "
+                + d.getClass().getName());
+    }
+
+}
@@ -49,4 +49,14 @@ public class DoNothing implements IdleStrategy {
         return false;
     }
 
+    @Override
+    public long getQuietUntil(Plane plane) {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean skip(Plane plane, long steps) {
+        return false;
+    }
+
 }
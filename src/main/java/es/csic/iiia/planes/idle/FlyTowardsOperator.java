@@ -66,4 +66,38 @@ public class FlyTowardsOperator implements IdleStrategy {
         return false;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * In this case, the plane flies straight towards the nearest operator
+     * until getting in its range. Flying towards it keeps that operator as
+     * the nearest one, because no other operator can get closer any faster.
+     */
+    @Override
+    public long getQuietUntil(Plane plane) {
+        Location pl = plane.getLocation();
+        Operator o  = plane.getWorld().getNearestOperator(pl);
+
+        final double d = pl.getDistance(o.getLocation()) - o.getCommunicationRange();
+        if (d >= 0) {
+            return plane.getWorld().getTime() + Math.max(1, (long)(d / plane.getSpeed()));
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean skip(Plane plane, long steps) {
+        Location pl = plane.getLocation();
+        Operator o  = plane.getWorld().getNearestOperator(pl);
+        Location ol = o.getLocation();
+
+        if (pl.getDistance(ol) >= o.getCommunicationRange()) {
+            plane.setDestination(ol);
+            plane.move(steps);
+            return true;
+        }
+
+        return false;
+    }
+
 }
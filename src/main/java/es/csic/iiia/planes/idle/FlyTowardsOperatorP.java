@@ -56,7 +56,6 @@ public class FlyTowardsOperatorP implements IdleStrategy {
     private long last_time = 0;
     private long timeout = 100;
     private boolean moving = false;
-    private static Random rand = new Random(0L);
 
     @Override
     public boolean idleAction(Plane plane) {
@@ -65,6 +64,7 @@ public class FlyTowardsOperatorP implements IdleStrategy {
         if (cur_time != last_time + 1) {
             n_steps = 1;
 
+            final Random rand = plane.getWorld().getRandom();
             double r = rand.nextDouble();
             moving = false;
             timeout = 1 + rand.nextInt(10*60*60*24);
@@ -89,4 +89,55 @@ public class FlyTowardsOperatorP implements IdleStrategy {
         return false;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * In this case, the plane remains still until the timeout expires, and
+     * then flies straight towards the nearest operator until getting in its
+     * range.
+     */
+    @Override
+    public long getQuietUntil(Plane plane) {
+        final long cur_time = plane.getWorld().getTime();
+
+        // A new idle period would draw a new timeout
+        if (cur_time != last_time) {
+            return cur_time + 1;
+        }
+
+        Operator o = plane.getWorld().getNearestOperator(plane.getLocation());
+        final double d = plane.getLocation().getDistance(o.getLocation()) - o.getCommunicationRange();
+        if (d < 0) {
+            return Long.MAX_VALUE;
+        }
+
+        if (moving) {
+            return cur_time + Math.max(1, (long)(d / plane.getSpeed()));
+        }
+        if (n_steps < timeout) {
+            return cur_time + timeout - n_steps;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean skip(Plane plane, long steps) {
+        if (n_steps < timeout && n_steps + steps >= timeout) {
+            moving = true;
+        }
+        n_steps += steps;
+        last_time += steps;
+
+        if (moving) {
+            Operator o = plane.getWorld().getNearestOperator(plane.getLocation());
+            if (plane.getLocation().getDistance(o.getLocation()) >= o.getCommunicationRange()) {
+                plane.setDestination(o.getLocation());
+                plane.move(steps);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
 }
@@ -37,6 +37,7 @@
 package es.csic.iiia.planes.idle;
 
 import es.csic.iiia.planes.Plane;
+import java.io.Serializable;
 
 /**
  * Defines pluggable strategies of what to do when a plane is idle.
@@ -46,7 +47,7 @@ import es.csic.iiia.planes.Plane;
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public interface IdleStrategy {
+public interface IdleStrategy extends Serializable {
 
     /**
      * Evaluates actions to perform when a plane is idle.
@@ -56,4 +57,25 @@ public interface IdleStrategy {
      */
     public boolean idleAction(Plane plane);
 
+    /**
+     * Get the first step at which this strategy may do something different
+     * from what it did in the current step, assuming that the plane remains
+     * idle until then.
+     *
+     * @see es.csic.iiia.planes.Agent#getQuietUntil()
+     * @param plane plane that is currently idle.
+     * @return first step at which an idle action may be done.
+     */
+    public long getQuietUntil(Plane plane);
+
+    /**
+     * Fast-forward this strategy across the given number of quiet idle steps.
+     *
+     * @param plane plane that is currently idle.
+     * @param steps number of steps to skip.
+     * @return True if an action has been done in those steps, or False
+     *         otherwise.
+     */
+    public boolean skip(Plane plane, long steps);
+
 }
@@ -27,13 +27,14 @@ package es.csic.iiia.planes.maxsum.distributed;
 
 import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.Task;
+import java.io.Serializable;
 
 /**
  * Uniquely identifies a factor.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public class FactorID implements Comparable<FactorID> {
+public class FactorID implements Comparable<FactorID>, Serializable {
 
     /**
      * Plane where this node is running.
@@ -40,7 +40,10 @@ import es.csic.iiia.bms.Factor;
 import es.csic.iiia.bms.factors.SelectorFactor;
 import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.behaviors.AbstractBehavior;
+import es.csic.iiia.planes.behaviors.Behavior;
+import es.csic.iiia.planes.behaviors.Handler;
 import es.csic.iiia.planes.maxsum.centralized.CostFactor;
+import es.csic.iiia.planes.messaging.Message;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -74,12 +77,30 @@ public class MSExecutionBehavior extends AbstractBehavior<MSPlane> {
      * @param msg message to collect.
      */
     public void on(MSMessage msg) {
-        Factor<FactorID> f = getAgent().getFactor(msg.recipientFactor);
+        Factor<FactorID> f = getAgent().getFactor(msg.getRecipientFactor());
         if (f == null) {
-            LOG.log(Level.FINER, "Factor {0} does not exist in {1}. Recently completed?", new Object[]{msg.recipientFactor, getAgent()});
+            LOG.log(Level.FINER, "Factor {0} does not exist in {1}. Recently completed?", new Object[]{msg.getRecipientFactor(), getAgent()});
             return;
         }
-        f.receive(msg.value, msg.senderFactor);
+        f.receive(msg.getValue(), msg.getSenderFactor());
+    }
+
+    /**
+     * Invoker of {@link #on(MSMessage)}.
+     */
+    private static final Handler ON_MS_MESSAGE = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {
+            ((MSExecutionBehavior)b).on((MSMessage)m);
+        }
+    };
+
+    @Override
+    public Handler getHandler(Class<? extends Message> messageClass) {
+        if (messageClass == MSMessage.class) {
+            return ON_MS_MESSAGE;
+        }
+        return super.getHandler(messageClass);
     }
 
     @Override
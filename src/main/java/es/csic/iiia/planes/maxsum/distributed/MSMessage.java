@@ -46,11 +46,49 @@ import es.csic.iiia.planes.messaging.AbstractMessage;
  */
 public class MSMessage extends AbstractMessage {
 
-    public final FactorID senderFactor;
-    public final FactorID recipientFactor;
-    public final double value;
+    private FactorID senderFactor;
+    private FactorID recipientFactor;
+    private double value;
 
     public MSMessage(FactorID sender, FactorID recipient, double value) {
+        set(sender, recipient, value);
+    }
+
+    /**
+     * Get the factor that sends this message.
+     *
+     * @return sender factor.
+     */
+    public FactorID getSenderFactor() {
+        return senderFactor;
+    }
+
+    /**
+     * Get the factor that receives this message.
+     *
+     * @return recipient factor.
+     */
+    public FactorID getRecipientFactor() {
+        return recipientFactor;
+    }
+
+    /**
+     * Get the value of this message.
+     *
+     * @return value of the message.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Fill this message, when reusing it from a pool.
+     *
+     * @param sender factor sending the message.
+     * @param recipient factor receiving the message.
+     * @param value value of the message.
+     */
+    final void set(FactorID sender, FactorID recipient, double value) {
         this.senderFactor = sender;
         this.recipientFactor = recipient;
         this.value = value;
@@ -46,6 +46,9 @@ import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.behaviors.neighbors.NeighborTracking;
 import es.csic.iiia.planes.maxsum.centralized.CostFactor;
 import es.csic.iiia.planes.messaging.Message;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectInputValidation;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -63,9 +66,13 @@ public class MSPlane extends AbstractPlane {
 
     private static final MaxOperator operator = new Minimize();
 
-    private final MSCommunicationAdapter adapter = new MSCommunicationAdapter(this);
-    private CostFactor<FactorID> planeFactor;
-    private final Map<FactorID, SelectorFactor<FactorID>> taskFactors =
+    /*
+     * Max-sum factors can not be serialized, so they are rebuilt when the
+     * plane is restored from a snapshot.
+     */
+    private transient MSCommunicationAdapter adapter = new MSCommunicationAdapter(this);
+    private transient CostFactor<FactorID> planeFactor;
+    private transient Map<FactorID, SelectorFactor<FactorID>> taskFactors =
             new TreeMap<FactorID, SelectorFactor<FactorID>>();
 
     private boolean inactive;
@@ -118,6 +125,33 @@ public class MSPlane extends AbstractPlane {
         initialize(planeFactor, new FactorID(this));
     }
 
+    /**
+     * Restores this plane from a snapshot.
+     * <p/>
+     * Once the whole snapshot is read, the plane gets fresh factors for the
+     * tasks it owns. Their links to the neighbors are rebuilt at the start of
+     * the next max-sum round, so any round in progress when the snapshot was
+     * taken is lost.
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        in.registerValidation(new ObjectInputValidation() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void validateObject() {
+                adapter = new MSCommunicationAdapter(MSPlane.this);
+                taskFactors = new TreeMap<FactorID, SelectorFactor<FactorID>>();
+                planeFactor = getWorld().getFactory().buildCostFactor(MSPlane.this);
+                initialize(planeFactor, new FactorID(MSPlane.this));
+                for (Task t : getTasks()) {
+                    createTaskFactor(new FactorID(MSPlane.this, t));
+                }
+            }
+        }, 0);
+    }
+
     private void initialize(Factor<FactorID> factor, FactorID id) {
         factor.setIdentity(id);
         factor.setMaxOperator(operator);
@@ -39,7 +39,10 @@ package es.csic.iiia.planes.maxsum.distributed;
 import es.csic.iiia.bms.factors.SelectorFactor;
 import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.behaviors.AbstractBehavior;
+import es.csic.iiia.planes.behaviors.Behavior;
+import es.csic.iiia.planes.behaviors.Handler;
 import es.csic.iiia.planes.Plane;
+import es.csic.iiia.planes.messaging.Message;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -78,6 +81,24 @@ public class MSTasksDecideBehavior extends AbstractBehavior<MSPlane> {
                 new Object[]{getAgent(), msg.getTask(), getAgent().getWorld().getTime()});
     }
 
+    /**
+     * Invoker of {@link #on(HandTaskMessage)}.
+     */
+    private static final Handler ON_HAND_TASK = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {
+            ((MSTasksDecideBehavior)b).on((HandTaskMessage)m);
+        }
+    };
+
+    @Override
+    public Handler getHandler(Class<? extends Message> messageClass) {
+        if (messageClass == HandTaskMessage.class) {
+            return ON_HAND_TASK;
+        }
+        return super.getHandler(messageClass);
+    }
+
     /**
      * Implements the decisions made by the {@link MSTaskNode}s currently
      * running whithin this plane.
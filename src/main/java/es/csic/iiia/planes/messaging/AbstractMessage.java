@@ -37,6 +37,7 @@
 package es.csic.iiia.planes.messaging;
 
 import es.csic.iiia.planes.MessagingAgent;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Skeletal implementation of a message.
@@ -55,6 +56,59 @@ public abstract class AbstractMessage implements Message {
      */
     private MessagingAgent recipient;
 
+    /**
+     * Pool where this message returns once released, or <em>null</em> if it
+     * is not pooled.
+     */
+    private transient MessagePool<?> pool;
+
+    /**
+     * Number of recipients still holding this message, when it is pooled.
+     */
+    private transient volatile int references;
+
+    private static final AtomicIntegerFieldUpdater<AbstractMessage> REFERENCES =
+            AtomicIntegerFieldUpdater.newUpdater(AbstractMessage.class, "references");
+
+    /**
+     * Attach this message to the pool that it has just been acquired from.
+     *
+     * @param pool pool where to return the message once released.
+     */
+    void attach(MessagePool<?> pool) {
+        this.pool = pool;
+        this.references = 0;
+        this.sender = null;
+        this.recipient = null;
+    }
+
+    /**
+     * Signal that this message has been delivered to one more recipient.
+     * <p/>
+     * This has no effect on messages that do not come from a
+     * {@link MessagePool}.
+     */
+    public void retain() {
+        if (pool != null) {
+            REFERENCES.incrementAndGet(this);
+        }
+    }
+
+    /**
+     * Signal that a recipient is done with this message, returning it to its
+     * pool if it was the last one.
+     * <p/>
+     * This has no effect on messages that do not come from a
+     * {@link MessagePool}.
+     */
+    public void release() {
+        final MessagePool<?> p = pool;
+        if (p != null && REFERENCES.decrementAndGet(this) == 0) {
+            pool = null;
+            p.recycle(this);
+        }
+    }
+
     @Override
     public void setSender(MessagingAgent sender) {
         this.sender = sender;
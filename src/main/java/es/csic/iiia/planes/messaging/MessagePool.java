@@ -0,0 +1,105 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2012 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.messaging;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of reusable messages.
+ * <p/>
+ * Agents that send lots of short-lived messages (such as beacons) can
+ * {@link #acquire()} them from a pool instead of allocating new ones. Each
+ * delivery of a pooled message {@link AbstractMessage#retain() retains} it,
+ * and the recipients {@link AbstractMessage#release() release} it once they
+ * are done with it (after swapping their inboxes). When the last recipient
+ * releases it, the message goes back to its pool.
+ * <p/>
+ * Hence, message handlers must never keep references to pooled messages
+ * (or their payloads) after handling them. Messages that are never delivered
+ * are simply left to the garbage collector.
+ *
+ * @param <T> type of the pooled messages.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public abstract class MessagePool<T extends AbstractMessage> {
+
+    /**
+     * Messages ready to be reused.
+     */
+    private final ArrayList<T> free = new ArrayList<T>();
+
+    /**
+     * Get a message from this pool, creating a new one if none is free.
+     * <p/>
+     * The contents of reused messages are those of their previous use, except
+     * for the sender and recipient, so they must be filled again.
+     *
+     * @return message ready to be filled and sent.
+     */
+    public T acquire() {
+        T message = null;
+        synchronized (this) {
+            if (!free.isEmpty()) {
+                message = free.remove(free.size() - 1);
+            }
+        }
+        if (message == null) {
+            message = create();
+        }
+        message.attach(this);
+        return message;
+    }
+
+    /**
+     * Create a new message for this pool.
+     *
+     * @return new message.
+     */
+    protected abstract T create();
+
+    /**
+     * Return a message to this pool, once it has been released by all its
+     * recipients.
+     *
+     * @param message message to reuse.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized void recycle(AbstractMessage message) {
+        free.add((T)message);
+    }
+
+}
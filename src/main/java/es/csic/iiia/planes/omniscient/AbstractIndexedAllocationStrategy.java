@@ -0,0 +1,91 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.omniscient;
+
+import es.csic.iiia.planes.MessagingAgent;
+import es.csic.iiia.planes.Task;
+import es.csic.iiia.planes.World;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Skeletal implementation of an allocation strategy that works over dense
+ * plane and task indices.
+ * <p/>
+ * The map-based {@link AllocationStrategy} interface is adapted by building
+ * an {@link AllocationProblem} with the world's tasks, and then translating
+ * its assignment back to the assignment maps. Hence, the implementations
+ * avoid the map lookups and set membership tests in their inner loops.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public abstract class AbstractIndexedAllocationStrategy extends AbstractAllocationStrategy {
+
+    /**
+     * Compute an allocation of planes to tasks, filling the problem's
+     * assignment.
+     *
+     * @param problem allocation problem.
+     */
+    protected abstract void allocate(AllocationProblem problem);
+
+    @Override
+    public void allocate(
+        World world,
+        OmniscientPlane[] planes,
+        TreeMap<MessagingAgent, Set<Task>> visibilityMap,
+        TreeMap<OmniscientPlane, Task> assignmentMap,
+        TreeMap<Task, OmniscientPlane> reverseMap)
+    {
+        AllocationProblem problem = new AllocationProblem(world, planes,
+                world.getTasks(), visibilityMap, assignmentMap);
+        allocate(problem);
+
+        final Task[] tasks = problem.getTasks();
+        final int[] assignment = problem.getAssignment();
+        reverseMap.clear();
+        for (int i = 0; i < planes.length; i++) {
+            if (assignment[i] < 0) {
+                assignmentMap.remove(planes[i]);
+            } else {
+                assignmentMap.put(planes[i], tasks[assignment[i]]);
+                reverseMap.put(tasks[assignment[i]], planes[i]);
+            }
+        }
+    }
+
+}
@@ -37,14 +37,12 @@
 package es.csic.iiia.planes.omniscient;
 
 import es.csic.iiia.planes.Location;
-import es.csic.iiia.planes.MessagingAgent;
 import es.csic.iiia.planes.Task;
-import es.csic.iiia.planes.World;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
-import java.util.Set;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -54,7 +52,7 @@ import java.util.logging.Logger;
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public abstract class AbstractSSIAllocation extends AbstractAllocationStrategy {
+public abstract class AbstractSSIAllocation extends AbstractIndexedAllocationStrategy {
     private static final Logger LOG = Logger.getLogger(SSIAllocation.class.getName());
     Map<OmniscientPlane, PathCost> assignments = new TreeMap<OmniscientPlane, PathCost>();
 
@@ -69,16 +67,20 @@ public abstract class AbstractSSIAllocation extends AbstractAllocationStrategy {
     protected abstract BestPosition bestPosition(OmniscientPlane p, PathCost path, Task t);
 
     @Override
-    public void allocate(World w, OmniscientPlane[] planes, TreeMap<MessagingAgent, Set<Task>> visibilityMap, TreeMap<OmniscientPlane, Task> assignmentMap, TreeMap<Task, OmniscientPlane> reverseMap) {
-        List<Task> pendingTasks = new ArrayList<Task>(w.getTasks());
-        LOG.log(Level.FINER, "Tasks to allocate: {0}", pendingTasks);
+    protected void allocate(AllocationProblem problem) {
+        final OmniscientPlane[] planes = problem.getPlanes();
+        final boolean[] pending = new boolean[problem.getTasks().length];
+        Arrays.fill(pending, true);
+        int npending = pending.length;
+        LOG.log(Level.FINER, "Tasks to allocate: {0}", Arrays.asList(problem.getTasks()));
 
         // Initialize the planes paths and first bids
         assignments.clear();
-        PriorityQueue<Bid> bids = new PriorityQueue<Bid>(planes.length);
-        for (OmniscientPlane p : planes) {
+        PriorityQueue<Bid> bids = new PriorityQueue<Bid>(Math.max(1, planes.length));
+        for (int i=0; i<planes.length; i++) {
+            final OmniscientPlane p = planes[i];
             assignments.put(p, new PathCost(new ArrayList<Task>(), 0));
-            Bid best = best(p, assignments.get(p), pendingTasks, visibilityMap.get(p));
+            Bid best = best(problem, i, assignments.get(p), pending);
             if (best != null) {
                 LOG.log(Level.FINER, "New bid: {0}", best);
                 bids.add(best);
@@ -88,18 +90,19 @@ public abstract class AbstractSSIAllocation extends AbstractAllocationStrategy {
         }
 
         // Perform the SSI auction
-        while (!bids.isEmpty() && !pendingTasks.isEmpty()) {
+        while (!bids.isEmpty() && npending > 0) {
             Bid best = bids.poll();
             // Older bids may be left in the queue. When we find one of these,
             // we compute the plane's new bid without changing anything else
-            if (pendingTasks.contains(best.task)) {
+            if (pending[best.taskIndex]) {
                 LOG.log(Level.FINER, "Accepted bid: {0}", best);
                 PathCost pcost = assignments.get(best.plane);
                 pcost.path.add(best.bp.index, best.task);
                 assignments.put(best.plane, new PathCost(pcost.path, best.bp.totalCost));
-                pendingTasks.remove(best.task);
+                pending[best.taskIndex] = false;
+                npending--;
             }
-            Bid newBid = best(best.plane, assignments.get(best.plane), pendingTasks, visibilityMap.get(best.plane));
+            Bid newBid = best(problem, best.planeIndex, assignments.get(best.plane), pending);
             if (newBid != null) {
                 LOG.log(Level.FINER, "New bid: {0}", newBid);
                 bids.add(newBid);
@@ -107,26 +110,27 @@ public abstract class AbstractSSIAllocation extends AbstractAllocationStrategy {
         }
 
         // Finally set the assignments
-        reverseMap.clear();
-        for (OmniscientPlane p : planes) {
-            List<Task> path = assignments.get(p).path;
-            if (!path.isEmpty()) {
-                assignmentMap.put(p, path.get(0));
-                reverseMap.put(path.get(0), p);
-            } else {
-                assignmentMap.remove(p);
-            }
+        final int[] assignment = problem.getAssignment();
+        for (int i=0; i<planes.length; i++) {
+            List<Task> path = assignments.get(planes[i]).path;
+            assignment[i] = path.isEmpty() ? -1 : problem.indexOf(path.get(0));
         }
     }
 
-    private Bid best(OmniscientPlane p, PathCost currentPath, List<Task> remaining, Set<Task> visibles) {
+    private Bid best(AllocationProblem problem, int plane, PathCost currentPath, boolean[] pending) {
+        final OmniscientPlane p = problem.getPlanes()[plane];
+        final Task[] tasks = problem.getTasks();
+        final int[] visibleTasks = problem.getVisibleTasks();
+        final int end = problem.getVisibleOffsets()[plane + 1];
+
         PriorityQueue<Bid> bids = new PriorityQueue<Bid>();
-        for (Task t : remaining) {
-            if (!visibles.contains(t)) {
+        for (int k = problem.getVisibleOffsets()[plane]; k < end; k++) {
+            final int j = visibleTasks[k];
+            if (!pending[j]) {
                 continue;
             }
 
-            Bid bid = new Bid(p, t, bestPosition(p, currentPath, t));
+            Bid bid = new Bid(plane, p, j, tasks[j], bestPosition(p, currentPath, tasks[j]));
             bids.add(bid);
         }
 
@@ -174,12 +178,16 @@ public abstract class AbstractSSIAllocation extends AbstractAllocationStrategy {
     }
 
     private class Bid implements Comparable<Bid> {
+        public final int taskIndex;
         public final Task task;
         public final BestPosition bp;
+        public final int planeIndex;
         public final OmniscientPlane plane;
 
-        public Bid(OmniscientPlane plane, Task task, BestPosition bp) {
+        public Bid(int planeIndex, OmniscientPlane plane, int taskIndex, Task task, BestPosition bp) {
+            this.planeIndex = planeIndex;
             this.plane = plane;
+            this.taskIndex = taskIndex;
             this.task = task;
             this.bp = bp;
         }
@@ -0,0 +1,275 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.omniscient;
+
+import es.csic.iiia.planes.Task;
+import es.csic.iiia.planes.World;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Allocation problem over dense plane and task indices.
+ * <p/>
+ * Planes and tasks are identified by their index in the {@link #getPlanes()}
+ * and {@link #getTasks()} arrays, where the tasks keep the order of the
+ * world's tasks. The visibility of the tasks is given both as a bitset
+ * matrix, for constant-time lookups, and as a sparse (CSR) adjacency list
+ * with the visible tasks of each plane in ascending order. The distances
+ * between each plane and its visible tasks are precomputed along the sparse
+ * lists, so that memory grows with the number of visible pairs only.
+ * <p/>
+ * The solution is given in the {@link #getAssignment()} array, which holds
+ * the index of the task assigned to each plane (or -1 if it has none). It
+ * initially holds the assignments of the previous allocation, so that
+ * incremental strategies can build upon them.
+ *
+ * @see AbstractIndexedAllocationStrategy
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class AllocationProblem {
+
+    private final World world;
+    private final OmniscientPlane[] planes;
+    private final Task[] tasks;
+    private final Map<Task, Integer> taskIndex;
+
+    /**
+     * Bitset matrix of visibility, with a row of {@link #words} longs per
+     * plane.
+     */
+    private final long[] visibility;
+    private final int words;
+
+    /**
+     * Sparse visibility: the tasks visible by plane p are
+     * visibleTasks[visibleOffsets[p]] to visibleTasks[visibleOffsets[p+1]-1].
+     */
+    private final int[] visibleOffsets;
+    private final int[] visibleTasks;
+
+    /**
+     * True for the tasks that are visible by some plane.
+     */
+    private final boolean[] visibleByAny;
+
+    /**
+     * Distance between each plane and its visible tasks, parallel to
+     * {@link #visibleTasks}.
+     */
+    private final double[] visibleDistances;
+
+    private final int[] assignment;
+
+    /**
+     * Builds the dense view of an allocation problem.
+     *
+     * @param world simulation world.
+     * @param planes planes to allocate.
+     * @param tasks tasks to allocate.
+     * @param visibilityMap tasks known by each plane.
+     * @param assignmentMap current plane to task assignments.
+     */
+    public AllocationProblem(World world, OmniscientPlane[] planes, List<Task> tasks,
+            Map<? super OmniscientPlane, Set<Task>> visibilityMap,
+            Map<OmniscientPlane, Task> assignmentMap)
+    {
+        this.world = world;
+        this.planes = planes;
+        this.tasks = tasks.toArray(new Task[tasks.size()]);
+        final int nplanes = planes.length;
+        final int ntasks = this.tasks.length;
+
+        taskIndex = new IdentityHashMap<Task, Integer>(2 * ntasks);
+        for (int j = 0; j < ntasks; j++) {
+            taskIndex.put(this.tasks[j], j);
+        }
+
+        // Visibility matrix
+        words = (ntasks + 63) >>> 6;
+        visibility = new long[nplanes * words];
+        int nvisible = 0;
+        for (int i = 0; i < nplanes; i++) {
+            for (Task t : visibilityMap.get(planes[i])) {
+                final Integer j = taskIndex.get(t);
+                if (j != null) {
+                    visibility[i * words + (j >>> 6)] |= 1L << j;
+                    nvisible++;
+                }
+            }
+        }
+
+        // Sparse visibility and distances
+        visibleOffsets = new int[nplanes + 1];
+        visibleTasks = new int[nvisible];
+        visibleByAny = new boolean[ntasks];
+        visibleDistances = new double[nvisible];
+        int k = 0;
+        for (int i = 0; i < nplanes; i++) {
+            visibleOffsets[i] = k;
+            for (int w = 0; w < words; w++) {
+                long bits = visibility[i * words + w];
+                while (bits != 0) {
+                    final int j = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    visibleTasks[k] = j;
+                    visibleDistances[k++] = planes[i].getLocation().distance(this.tasks[j].getLocation());
+                    visibleByAny[j] = true;
+                }
+            }
+        }
+        visibleOffsets[nplanes] = k;
+
+        // Previous assignments
+        assignment = new int[nplanes];
+        for (int i = 0; i < nplanes; i++) {
+            final Task t = assignmentMap.get(planes[i]);
+            assignment[i] = t == null ? -1 : indexOf(t);
+        }
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public OmniscientPlane[] getPlanes() {
+        return planes;
+    }
+
+    public Task[] getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Get the index of a task.
+     *
+     * @param task task to look for.
+     * @return index of the task, or -1 if it is not part of this problem.
+     */
+    public int indexOf(Task task) {
+        final Integer j = taskIndex.get(task);
+        return j == null ? -1 : j;
+    }
+
+    /**
+     * Check if a plane knows about a task.
+     *
+     * @param plane index of the plane.
+     * @param task index of the task.
+     * @return true if the plane knows about the task.
+     */
+    public boolean isVisible(int plane, int task) {
+        return (visibility[plane * words + (task >>> 6)] & (1L << task)) != 0;
+    }
+
+    /**
+     * Check if some plane knows about a task.
+     *
+     * @param task index of the task.
+     * @return true if any plane knows about the task.
+     */
+    public boolean isVisibleByAny(int task) {
+        return visibleByAny[task];
+    }
+
+    /**
+     * Get the offsets of the sparse visibility lists, so that the tasks
+     * visible by plane p are those between
+     * <code>getVisibleTasks()[getVisibleOffsets()[p]]</code> and
+     * <code>getVisibleTasks()[getVisibleOffsets()[p+1]-1]</code>.
+     *
+     * @return offsets of the visibility list of each plane (plus the end of
+     *         the last one).
+     */
+    public int[] getVisibleOffsets() {
+        return visibleOffsets;
+    }
+
+    /**
+     * Get the concatenated lists of tasks visible by each plane.
+     *
+     * @return task indices visible by each plane, in ascending order.
+     * @see #getVisibleOffsets()
+     */
+    public int[] getVisibleTasks() {
+        return visibleTasks;
+    }
+
+    /**
+     * Get the distances between each plane and its visible tasks.
+     *
+     * @return distances parallel to the visible tasks lists.
+     * @see #getVisibleTasks()
+     */
+    public double[] getVisibleDistances() {
+        return visibleDistances;
+    }
+
+    /**
+     * Get the distance between a plane and a task.
+     * <p/>
+     * The task is looked up in the visibility list of the plane, so
+     * strategies that go through all the visible tasks should rather use
+     * {@link #getVisibleDistances()}.
+     *
+     * @param plane index of the plane.
+     * @param task index of the task.
+     * @return distance between them, or infinity if the plane does not know
+     *         about the task.
+     */
+    public double getDistance(int plane, int task) {
+        if (!isVisible(plane, task)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final int k = Arrays.binarySearch(visibleTasks, visibleOffsets[plane],
+                visibleOffsets[plane + 1], task);
+        return visibleDistances[k];
+    }
+
+    /**
+     * Get the assignment of tasks to planes, which must be filled by the
+     * allocation strategy.
+     *
+     * @return index of the task assigned to each plane, or -1 if it has none.
+     */
+    public int[] getAssignment() {
+        return assignment;
+    }
+
+}
@@ -38,19 +38,14 @@ package es.csic.iiia.planes.omniscient;
 
 import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.World;
-import es.csic.iiia.planes.MessagingAgent;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Set;
-import java.util.TreeMap;
 import java.util.logging.Logger;
 
 /**
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public class HungarianMethodAllocation extends AbstractAllocationStrategy {
+public class HungarianMethodAllocation extends AbstractIndexedAllocationStrategy {
     private static final Logger LOG = Logger.getLogger(HungarianMethodAllocation.class.getName());
 
     @Override
@@ -64,81 +59,58 @@ public class HungarianMethodAllocation extends AbstractAllocationStrategy {
     }
 
     @Override
-    public void allocate(
-        World world,
-        OmniscientPlane[] planes,
-        TreeMap<MessagingAgent, Set<Task>> visibilityMap,
-        TreeMap<OmniscientPlane, Task> assignmentMap,
-        TreeMap<Task, OmniscientPlane> reverseMap)
-    {
-        List<Task> tasks = world.getTasks();
+    protected void allocate(AllocationProblem problem) {
+        final World world = problem.getWorld();
+        final Task[] tasks = problem.getTasks();
+        final int nplanes = problem.getPlanes().length;
         final double maxWeight = world.getSpace().getDimension().height + world.getSpace().getDimension().width;
 
         // Remove tasks that can not be seen by any plane
-        Iterator<Task> it = tasks.iterator();
-        while (it.hasNext()) {
-            final Task t = it.next();
-            boolean visible = false;
-            for (OmniscientPlane p : planes) {
-                if (visibilityMap.get(p).contains(t)) {
-                    visible = true;
-                    break;
-                }
-            }
-            if (!visible) {
-                it.remove();
+        int[] columns = new int[tasks.length];
+        int[] columnOf = new int[tasks.length];
+        int ntasks = 0;
+        for (int j=0; j<tasks.length; j++) {
+            if (problem.isVisibleByAny(j)) {
+                columnOf[j] = ntasks;
+                columns[ntasks++] = j;
+            } else {
+                world.getTasks().remove(tasks[j]);
             }
         }
 
         // Compute the cost matrix
-        double[][] costMatrix = new double[planes.length][tasks.size()+planes.length];
-        int i=0;
-        for (OmniscientPlane p : planes) {
-            Set<Task> visibles = visibilityMap.get(p);
+        final int[] offsets = problem.getVisibleOffsets();
+        final int[] visibleTasks = problem.getVisibleTasks();
+        final double[] distances = problem.getVisibleDistances();
+        double[][] costMatrix = new double[nplanes][ntasks+nplanes];
+        for (int i=0; i<nplanes; i++) {
+            // Not visible tasks are at an infinite distance
             Arrays.fill(costMatrix[i], Double.POSITIVE_INFINITY);
-
-            for (int j=0, len=tasks.size(); j<len; j++) {
-                final Task t = tasks.get(j);
-
-                if (visibles.contains(t)) {
-                    costMatrix[i][j] = distance(p, t);
-                } else {
-                    costMatrix[i][j] = Double.POSITIVE_INFINITY;
-                }
+            for (int k=offsets[i]; k<offsets[i+1]; k++) {
+                costMatrix[i][columnOf[visibleTasks[k]]] = distances[k];
             }
 
             // The task ntasks+i is a special task to say "plane i does nothing".
-            costMatrix[i][tasks.size()+i] = maxWeight;
-
-            i++;
+            costMatrix[i][ntasks+i] = maxWeight;
         }
 
         // Solve the allocation problem
         LOG.fine("Cost matrix:" + Arrays.deepToString(costMatrix));
         HungarianAlgorithm algorithm = new HungarianAlgorithm(costMatrix, maxWeight);
         int[] result = algorithm.execute();
-        if (result.length != planes.length) {
+        if (result.length != nplanes) {
             LOG.severe("Unexpected output from the hungarian algorithm");
             System.exit(1);
         }
         LOG.fine("result : " + Arrays.toString(result));
 
         // Translate the result to assignments
-        i=0; reverseMap.clear();
-        for (OmniscientPlane p : planes) {
-            int task = result[i];
-            if (task < 0 || task >= tasks.size()) {
-                assignmentMap.remove(p);
-            } else {
-                assignmentMap.put(p, tasks.get(task));
-                reverseMap.put(tasks.get(task), p);
-            }
-
-            i++;
+        final int[] assignment = problem.getAssignment();
+        for (int i=0; i<nplanes; i++) {
+            final int task = result[i];
+            assignment[i] = task < 0 || task >= ntasks ? -1 : columns[task];
         }
 
     }
 
-
-
 }
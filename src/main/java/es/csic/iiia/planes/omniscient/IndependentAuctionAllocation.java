@@ -36,18 +36,14 @@
  */
 package es.csic.iiia.planes.omniscient;
 
-import es.csic.iiia.planes.Location;
 import es.csic.iiia.planes.Task;
-import es.csic.iiia.planes.World;
-import es.csic.iiia.planes.MessagingAgent;
-import java.util.Set;
-import java.util.TreeMap;
+import java.util.Arrays;
 
 /**
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public class IndependentAuctionAllocation extends AbstractAllocationStrategy {
+public class IndependentAuctionAllocation extends AbstractIndexedAllocationStrategy {
 
     @Override
     public String getName() {
@@ -60,45 +56,55 @@ public class IndependentAuctionAllocation extends AbstractAllocationStrategy {
     }
 
     @Override
-    public void allocate(
-        World world,
-        OmniscientPlane[] planes,
-        TreeMap<MessagingAgent, Set<Task>> visibilityMap,
-        TreeMap<OmniscientPlane, Task> assignmentMap,
-        TreeMap<Task, OmniscientPlane> reverseMap)
-    {
-        for (Task t : world.getTasks()) {
-            final Location tl = t.getLocation();
-            OmniscientPlane best = null;
-            double mind = Double.MAX_VALUE;
+    protected void allocate(AllocationProblem problem) {
+        final OmniscientPlane[] planes = problem.getPlanes();
+        final Task[] tasks = problem.getTasks();
+        final int[] assignment = problem.getAssignment();
 
-            for (OmniscientPlane p : planes) {
-                if (!visibilityMap.get(p).contains(t)) {
-                    continue;
-                }
+        // Plane assigned to each task, if any
+        final int[] owner = new int[tasks.length];
+        Arrays.fill(owner, -1);
+        for (int i=0; i<planes.length; i++) {
+            if (assignment[i] >= 0) {
+                owner[assignment[i]] = i;
+            }
+        }
 
-                final Location pl = p.getLocation();
-                double d = tl.distance(pl);
-                if (d < mind) {
-                    best = p;
-                    mind = d;
+        // Nearest plane to each task, among those that know about it
+        final int[] offsets = problem.getVisibleOffsets();
+        final int[] visibleTasks = problem.getVisibleTasks();
+        final double[] distances = problem.getVisibleDistances();
+        final int[] nearest = new int[tasks.length];
+        final double[] nearestDistance = new double[tasks.length];
+        Arrays.fill(nearest, -1);
+        Arrays.fill(nearestDistance, Double.MAX_VALUE);
+        for (int i=0; i<planes.length; i++) {
+            for (int k=offsets[i]; k<offsets[i+1]; k++) {
+                final int j = visibleTasks[k];
+                if (distances[k] < nearestDistance[j]) {
+                    nearest[j] = i;
+                    nearestDistance[j] = distances[k];
                 }
             }
+        }
+
+        for (int j=0; j<tasks.length; j++) {
+            final int best = nearest[j];
+            final double mind = nearestDistance[j];
 
-            if (best != null) {
-                if (  assignmentMap.containsKey(best)
-                   && distance(best, assignmentMap.get(best)) <= mind )
-                {
+            if (best >= 0) {
+                final int current = assignment[best];
+                if (current >= 0 && distance(planes[best], tasks[current]) <= mind) {
                     continue;
                 }
-                if (reverseMap.containsKey(t)) {
-                    OmniscientPlane other = reverseMap.get(t);
-                    if (assignmentMap.get(other) == t) {
-                        assignmentMap.remove(other);
-                    }
+                if (owner[j] >= 0) {
+                    assignment[owner[j]] = -1;
+                }
+                if (current >= 0) {
+                    owner[current] = -1;
                 }
-                assignmentMap.put(best, t);
-                reverseMap.put(t, best);
+                assignment[best] = j;
+                owner[j] = best;
             }
         }
     }
@@ -36,13 +36,12 @@
  */
 package es.csic.iiia.planes.omniscient;
 
-import es.csic.iiia.planes.Location;
 import es.csic.iiia.planes.Operator;
-import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.World;
 import es.csic.iiia.planes.operator_behavior.OperatorStrategy;
-import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  *
@@ -50,31 +49,48 @@ import java.util.List;
  */
 public class Omniscient implements OperatorStrategy {
 
-    private static OmniscientGod god = new OmniscientGod();
+    /**
+     * Gods of the worlds that use this strategy, so that several simulations
+     * can run at the same time without sharing their god.
+     */
+    private transient Map<World, OmniscientGod> gods = new WeakHashMap<World, OmniscientGod>();
 
-    static Task getNextTask(OmniscientPlane plane) {
-        return god.getNextTask(plane);
+    /**
+     * Get the god of the given world, creating it if necessary.
+     *
+     * @param w world whose god to get.
+     * @return god of the given world.
+     */
+    static OmniscientGod getGod(World w) {
+        Omniscient strategy = (Omniscient)w.getFactory().getConfiguration().getOperatorStrategy();
+        return strategy.getWorldGod(w);
     }
 
-    static void taskCompleted(Task t) {
-        god.taskCompleted(t);
+    /**
+     * Set the god of the given world.
+     *
+     * @param w world whose god to set.
+     * @param god god of the given world.
+     */
+    static void setGod(World w, OmniscientGod god) {
+        Omniscient strategy = (Omniscient)w.getFactory().getConfiguration().getOperatorStrategy();
+        synchronized (strategy) {
+            strategy.gods.put(w, god);
+        }
     }
 
-    static void iter(long time) {
-        god.iter(time);
-    }
-
-    static void initialize(World w) {
-        god.initialize(w);
-    }
-
-    static List<Location> getPlannedLocations(OmniscientPlane plane) {
-        return god.getPlannedLocations(plane);
+    private synchronized OmniscientGod getWorldGod(World w) {
+        OmniscientGod god = gods.get(w);
+        if (god == null) {
+            god = new OmniscientGod();
+            gods.put(w, god);
+        }
+        return god;
     }
 
     @Override
     public boolean submitTask(World w, Operator o, Task t) {
-        return god.addTask(o, t);
+        return getGod(w).addTask(o, t);
     }
 
 }
@@ -43,9 +43,19 @@ import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.World;
 import es.csic.iiia.planes.cli.Configuration;
 import es.csic.iiia.planes.MessagingAgent;
+import es.csic.iiia.planes.util.LongHeap;
+import es.csic.iiia.planes.util.Metrics;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectInputValidation;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -54,10 +64,17 @@ import java.util.logging.Logger;
 
 /**
  * Omniscient god that sees everything and commands omniscient planes.
+ * <p/>
+ * The god is shared by all the omniscient planes, which may run in parallel.
+ * Hence, its public operations are synchronized, and those that planes call
+ * while running keep the results independent of the order of the calls: the
+ * allocation is computed once per tick by whichever plane calls
+ * {@link #iter(long)} first, and the tasks completed during a tick are only
+ * removed at the start of the next allocation.
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-class OmniscientGod {
+class OmniscientGod implements Serializable {
     private static final Logger LOG = Logger.getLogger(OmniscientGod.class.getName());
 
     private World world = null;
@@ -66,21 +83,66 @@ class OmniscientGod {
     private TreeMap<OmniscientPlane, Task> assignmentMap = new TreeMap<OmniscientPlane, Task>();
     private TreeMap<Task, OmniscientPlane> reverseMap = new TreeMap<Task, OmniscientPlane>();
     private boolean[][] planeVisibility;
+
+    /**
+     * Agents in the same order as the rows and columns of planeVisibility.
+     */
+    private transient MessagingAgent[] agents;
+
+    /**
+     * Pairs of agents whose visibility must be checked, packed as the tick
+     * at which it may change (in the upper 32 bits) and the index of the pair
+     * (i * agents.length + j, as an unsigned int in the lower 32 bits). It is
+     * rebuilt after restoring a snapshot.
+     */
+    private transient LongHeap visibilityChecks;
+
+    /**
+     * Index of each agent in the agents array.
+     */
+    private transient Map<MessagingAgent, Integer> agentIndex;
+
+    /**
+     * True if the agents share the tasks they know with their whole
+     * communication component, or false if they only get those known by
+     * their neighbors on each allocation.
+     */
+    private boolean components;
+
+    /**
+     * Pending tasks that may be held by the visibility sets of the
+     * components, each one with a slot recycled once it is completed.
+     */
+    private TaskBitSet.Index taskIndex;
+
+    /**
+     * Tasks completed since the last allocation, whose removal from the
+     * visibility sets and assignments is deferred until the next one.
+     */
+    private final List<Task> completed = new ArrayList<Task>();
+
     private boolean changes = true;
-    private AllocationStrategy strategy;
+    private transient AllocationStrategy strategy;
 
     public OmniscientGod() {
 
     }
 
-    public void initialize(World w) {
+    public synchronized void initialize(World w) {
         if (world != null) {
             return;
         }
 
         this.world = w;
+        components = w.getFactory().getConfiguration().isOmniscientVisibilityComponents();
+        if (components) {
+            taskIndex = new TaskBitSet.Index();
+        }
+        buildStrategy();
+    }
 
-        Configuration config = w.getFactory().getConfiguration();
+    private void buildStrategy() {
+        Configuration config = world.getFactory().getConfiguration();
         try {
             strategy = config.getOmniscientAllocationStrategy().newInstance();
         } catch (InstantiationException ex) {
@@ -92,49 +154,146 @@ class OmniscientGod {
         }
     }
 
-    private boolean checkPlaneVisibility() {
+    /**
+     * Restores this god from a snapshot.
+     * <p/>
+     * Once the whole snapshot is read, the god registers itself as the god of
+     * the restored world, and builds the allocation strategy of the world's
+     * configuration (that may differ from the one of the snapshot).
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        in.registerValidation(new ObjectInputValidation() {
+            @Override
+            public void validateObject() {
+                Omniscient.setGod(world, OmniscientGod.this);
+                buildStrategy();
+            }
+        }, 0);
+    }
+
+    /**
+     * Checks whether the visibility between some pair of agents has changed
+     * since the last check.
+     * <p/>
+     * Only the pairs whose visibility may have changed are checked. After
+     * checking a pair, it is scheduled to be checked again at the first tick
+     * at which its visibility may flip, assuming that both agents fly
+     * straight towards (or away from) each other at full speed.
+     *
+     * @param now current time.
+     * @return true if the visibility between some pair of agents has changed.
+     */
+    private boolean checkPlaneVisibility(long now) {
         boolean changed = false;
-        int i=0;
-        for (MessagingAgent p1 : visibilityMap.keySet()) {
-            double r = p1.getCommunicationRange();
-            int j=0;
-            for (MessagingAgent p2 : visibilityMap.keySet()) {
-                double d = p1.getLocation().distance(p2.getLocation());
-                boolean expected = false;
-                if (d <= r) {
-                    expected = true;
-                }
-                if (planeVisibility[i][j] != expected) {
-                    changed = true;
+        if (visibilityChecks == null) {
+            // Check all the pairs, such as after restoring a snapshot
+            agents = visibilityMap.keySet().toArray(new MessagingAgent[0]);
+            final long pairs = (long)agents.length * agents.length;
+            if (pairs > 1L << 32) {
+                throw new IllegalStateException("The omniscient god cannot "
+                        + "track the visibility of " + agents.length + " agents.");
+            }
+            agentIndex = new HashMap<MessagingAgent, Integer>(2 * agents.length);
+            for (int i = 0; i < agents.length; i++) {
+                agentIndex.put(agents[i], i);
+            }
+            visibilityChecks = new LongHeap((int)Math.min(pairs, Integer.MAX_VALUE - 8));
+            for (int i = 0; i < agents.length; i++) {
+                for (int j = 0; j < agents.length; j++) {
+                    changed |= checkPlaneVisibility(i, j, now);
                 }
-                planeVisibility[i][j] = expected;
-                j++;
             }
-            i++;
+            return changed;
+        }
+
+        while (!visibilityChecks.isEmpty() && (visibilityChecks.peek() >>> 32) <= now) {
+            final long pair = visibilityChecks.poll() & 0xFFFFFFFFL;
+            changed |= checkPlaneVisibility((int)(pair / agents.length),
+                    (int)(pair % agents.length), now);
         }
         return changed;
     }
 
+    private boolean checkPlaneVisibility(int i, int j, long now) {
+        final MessagingAgent p1 = agents[i];
+        final MessagingAgent p2 = agents[j];
+        final double r = p1.getCommunicationRange();
+        final double d = p1.getLocation().distance(p2.getLocation());
+        final boolean expected = d <= r;
+        final boolean changed = planeVisibility[i][j] != expected;
+        planeVisibility[i][j] = expected;
+
+        // The distance between two agents changes by at most the sum of
+        // their speeds on each tick
+        final double speed = getMaxSpeed(p1) + getMaxSpeed(p2);
+        if (i != j && speed > 0) {
+            final long deadline = Math.min(Integer.MAX_VALUE,
+                    now + Math.max(1, (long)(Math.abs(d - r) / speed)));
+            visibilityChecks.add(deadline << 32
+                    | (((long)i * agents.length + j) & 0xFFFFFFFFL));
+        }
+        return changed;
+    }
+
+    private static double getMaxSpeed(MessagingAgent a) {
+        if (a instanceof Plane) {
+            return ((Plane)a).getSpeed();
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the first step at which the visibility between some pair of
+     * agents may change, that is, the next scheduled visibility check.
+     *
+     * @param now current time.
+     * @return first step at which a reallocation may be triggered by
+     *         visibility changes.
+     */
+    public synchronized long getVisibilityDeadline(long now) {
+        if (visibilityChecks == null) {
+            return now + 1;
+        }
+        if (visibilityChecks.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(now + 1, visibilityChecks.peek() >>> 32);
+    }
+
     private long lastIter = -1;
-    public void iter(long i) {
+    public synchronized void iter(long i) {
         if (lastIter == i) return;
         if (lastIter == -1) {
             planes = world.getPlanes().toArray(new OmniscientPlane[0]);
             int nagents = world.getPlanes().size();
             for (Plane p : world.getPlanes()) {
-                visibilityMap.put(p, new TreeSet<Task>());
+                visibilityMap.put(p, buildTaskSet());
             }
             nagents += world.getOperators().size();
             for (Operator o : world.getOperators()) {
-                visibilityMap.put(o, new TreeSet<Task>());
+                visibilityMap.put(o, buildTaskSet());
             }
             planeVisibility = new boolean[nagents][nagents];
         }
+        removeCompleted();
 
-        if (checkPlaneVisibility() || changes) {
+        final boolean visibilityChanged = checkPlaneVisibility(i);
+        if (visibilityChanged || changes) {
 
-            updateVisibility();
+            // The components only change along with the visibility, and
+            // their sets already hold any new tasks
+            if (visibilityChanged || !components) {
+                updateVisibility();
+            }
+            final Metrics metrics = world.getMetrics();
+            final long start = metrics == null ? 0 : System.nanoTime();
             strategy.allocate(world, planes, visibilityMap, assignmentMap, reverseMap);
+            if (metrics != null) {
+                metrics.addAllocation(strategy.getClass(), System.nanoTime() - start);
+            }
             LOG.finer("[" + world.getTime() + "] " + assignmentMap.toString());
             LOG.finer("[" + world.getTime() + "] " + reverseMap.toString());
 
@@ -155,30 +314,52 @@ class OmniscientGod {
         changes = false;
     }
 
+    private Set<Task> buildTaskSet() {
+        if (components) {
+            return new TaskBitSet(taskIndex);
+        }
+        return new TreeSet<Task>();
+    }
+
     private ArrayList<MessagingAgent> getNeighbors(Location from, double range) {
         ArrayList<MessagingAgent> neighs = new ArrayList<MessagingAgent>();
 
-        for (MessagingAgent p : visibilityMap.keySet()) {
-            final double d = from.distance(p.getLocation());
-            if (d <= range) {
+        // Planes move, so we use the world's spatial index to find them
+        for (Plane p : world.getPlanesInRange(from, range)) {
+            if (visibilityMap.containsKey(p)) {
                 neighs.add(p);
             }
         }
 
+        // Operators are few and static, so a linear scan is good enough
+        for (Operator o : world.getOperators()) {
+            if (from.distance(o.getLocation()) <= range && visibilityMap.containsKey(o)) {
+                neighs.add(o);
+            }
+        }
+
         return neighs;
     }
 
-    public boolean addTask(Operator o, Task t) {
+    public synchronized boolean addTask(Operator o, Task t) {
+        if (components) {
+            taskIndex.add(t);
+        }
         boolean added = false;
         for (MessagingAgent p : getNeighbors(o.getLocation(), o.getCommunicationRange())) {
             visibilityMap.get(p).add(t);
             added = true;
         }
-        changes = true;
+        setChanges();
         return added;
     }
 
     public void updateVisibility() {
+        if (components) {
+            updateComponents();
+            return;
+        }
+
         for (MessagingAgent p : visibilityMap.keySet()) {
             for (MessagingAgent p2 : getNeighbors(p.getLocation(), p.getCommunicationRange())) {
                 visibilityMap.get(p).addAll(visibilityMap.get(p2));
@@ -186,22 +367,125 @@ class OmniscientGod {
         }
     }
 
-    public Task getNextTask(OmniscientPlane plane) {
-        return assignmentMap.get(plane);
+    /**
+     * Computes the communication components of the agents, and makes all the
+     * agents of each component share a single set with the tasks known by
+     * any of them.
+     */
+    private void updateComponents() {
+        final int n = agents.length;
+        final int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < n; i++) {
+            final MessagingAgent p = agents[i];
+            for (MessagingAgent p2 : getNeighbors(p.getLocation(), p.getCommunicationRange())) {
+                final int a = find(parent, i);
+                final int b = find(parent, agentIndex.get(p2));
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+
+        // Merge the sets of the previous components, each one once per new
+        // component (members of a previous component usually stay together)
+        final TaskBitSet[] sets = new TaskBitSet[n];
+        final Map<Set<Task>, Integer> merged = new IdentityHashMap<Set<Task>, Integer>();
+        for (int i = 0; i < n; i++) {
+            final int root = find(parent, i);
+            if (sets[root] == null) {
+                sets[root] = new TaskBitSet(taskIndex);
+            }
+            final Set<Task> previous = visibilityMap.get(agents[i]);
+            final Integer mergedInto = merged.put(previous, root);
+            if (mergedInto == null || mergedInto != root) {
+                sets[root].or((TaskBitSet)previous);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            visibilityMap.put(agents[i], sets[find(parent, i)]);
+        }
     }
 
-    void taskCompleted(Task t) {
-        for (MessagingAgent p : visibilityMap.keySet()) {
-            visibilityMap.get(p).remove(t);
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
         }
+        return i;
+    }
 
-        LOG.fine("Removing task " + t + " because it has been completed.");
-        assignmentMap.remove(reverseMap.get(t));
-        reverseMap.remove(t);
+    /**
+     * Flag that a new allocation is required, waking up the planes so that
+     * they run it at the next step.
+     */
+    private void setChanges() {
+        if (!changes && planes != null) {
+            for (OmniscientPlane p : planes) {
+                world.wakeUp(p);
+            }
+        }
         changes = true;
     }
 
-    List<Location> getPlannedLocations(OmniscientPlane plane) {
+    /**
+     * Check if there are changes that require a new allocation.
+     *
+     * @return <em>true</em> if tasks have been added or completed since the
+     *         last allocation, or <em>false</em> otherwise.
+     */
+    public synchronized boolean hasChanges() {
+        return changes;
+    }
+
+    public synchronized Task getNextTask(OmniscientPlane plane) {
+        return assignmentMap.get(plane);
+    }
+
+    /**
+     * Flag a task as completed, so that it is removed before the next
+     * allocation.
+     * <p/>
+     * Planes complete their tasks while running (maybe in parallel), so the
+     * task is only queued here. This way, the state read by the other planes
+     * during the tick does not depend on the order in which they run.
+     *
+     * @param t task that has been completed.
+     */
+    synchronized void taskCompleted(Task t) {
+        completed.add(t);
+        setChanges();
+    }
+
+    /**
+     * Removes the tasks completed since the last allocation, in identifier
+     * order.
+     */
+    @SuppressWarnings("unchecked")
+    private void removeCompleted() {
+        if (completed.isEmpty()) {
+            return;
+        }
+        Collections.sort(completed);
+
+        for (Task t : completed) {
+            for (MessagingAgent p : visibilityMap.keySet()) {
+                visibilityMap.get(p).remove(t);
+            }
+            if (components) {
+                taskIndex.remove(t);
+            }
+
+            LOG.fine("Removing task " + t + " because it has been completed.");
+            assignmentMap.remove(reverseMap.get(t));
+            reverseMap.remove(t);
+        }
+        completed.clear();
+    }
+
+    synchronized List<Location> getPlannedLocations(OmniscientPlane plane) {
         return strategy.getPlannedLocations(plane);
     }
 
@@ -38,6 +38,7 @@ package es.csic.iiia.planes.omniscient;
 
 import es.csic.iiia.planes.AbstractPlane;
 import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.ParallelAgent;
 import es.csic.iiia.planes.Task;
 import java.util.List;
 
@@ -45,7 +46,12 @@ import java.util.List;
  *
  * @author Marc Pujol <mpujol at iiia.csic.es>
  */
-public class OmniscientPlane extends AbstractPlane {
+public class OmniscientPlane extends AbstractPlane implements ParallelAgent {
+
+    /**
+     * God of this plane's world, in charge of telling it what to do.
+     */
+    private OmniscientGod god;
 
     public OmniscientPlane(Location location) {
         super(location);
@@ -54,26 +60,40 @@ public class OmniscientPlane extends AbstractPlane {
     @Override
     public void initialize() {
         super.initialize();
-        Omniscient.initialize(getWorld());
+        god = Omniscient.getGod(getWorld());
+        god.initialize(getWorld());
     }
 
     @Override
     public void preStep() {
-        Omniscient.iter(getWorld().getTime());
+        god.iter(getWorld().getTime());
     }
 
     @Override
     public void step() {
-        Task nextTask = Omniscient.getNextTask(this);
+        Task nextTask = god.getNextTask(this);
         if (nextTask != getNextTask()) {
             setNextTask(nextTask);
         }
         super.step();
     }
 
+    @Override
+    public long getQuietUntil() {
+        final long now = getWorld().getTime();
+        if (god.hasChanges()) {
+            return now + 1;
+        }
+        final long until = super.getQuietUntil();
+        if (until <= now + 1) {
+            return until;
+        }
+        return Math.min(until, god.getVisibilityDeadline(now));
+    }
+
     @Override
     protected void taskCompleted(Task t) {
-        Omniscient.taskCompleted(t);
+        god.taskCompleted(t);
     }
 
     @Override
@@ -84,7 +104,7 @@ public class OmniscientPlane extends AbstractPlane {
 
     @Override
     public List<Location> getPlannedLocations() {
-        return Omniscient.getPlannedLocations(this);
+        return god.getPlannedLocations(this);
     }
 
 
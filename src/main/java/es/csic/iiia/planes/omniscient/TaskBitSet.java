@@ -0,0 +1,348 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.omniscient;
+
+import es.csic.iiia.planes.Task;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact set of tasks, stored as a bitset over the slots of the tasks in
+ * their {@link Index}.
+ * <p/>
+ * The sets only hold tasks registered in their index, which gives each
+ * pending task a dense slot and recycles it once the task is removed. Hence,
+ * the bitsets span the pending tasks only, no matter how many tasks have
+ * been created before. Tasks are still iterated in ascending identifier order
+ * (the same order as a sorted set of tasks).
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+class TaskBitSet extends AbstractSet<Task> implements Serializable {
+
+    private final Index index;
+    private final BitSet bits = new BitSet();
+
+    /**
+     * Builds a new empty set of the tasks of the given index.
+     *
+     * @param index index of the tasks that this set may hold.
+     */
+    public TaskBitSet(Index index) {
+        this.index = index;
+    }
+
+    @Override
+    public int size() {
+        return bits.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Task)) {
+            return false;
+        }
+        final int slot = index.slotOf((Task)o);
+        return slot >= 0 && bits.get(slot);
+    }
+
+    @Override
+    public boolean add(Task t) {
+        final int slot = index.slotOf(t);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Task " + t + " is not indexed.");
+        }
+        if (bits.get(slot)) {
+            return false;
+        }
+        bits.set(slot);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Task)) {
+            return false;
+        }
+        final int slot = index.slotOf((Task)o);
+        if (slot < 0 || !bits.get(slot)) {
+            return false;
+        }
+        bits.clear(slot);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        bits.clear();
+    }
+
+    /**
+     * Adds all the tasks of another set of the same index to this one.
+     *
+     * @param other set to add.
+     */
+    public void or(TaskBitSet other) {
+        bits.or(other.bits);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Slots are recycled, so the tasks are sorted by identifier when the
+     * iteration starts.
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        final Task[] sorted = new Task[bits.cardinality()];
+        int n = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            sorted[n++] = index.get(i);
+        }
+        Arrays.sort(sorted);
+
+        return new Iterator<Task>() {
+            private int next = 0;
+            private Task last = null;
+
+            @Override
+            public boolean hasNext() {
+                return next < sorted.length;
+            }
+
+            @Override
+            public Task next() {
+                if (next >= sorted.length) {
+                    throw new NoSuchElementException();
+                }
+                last = sorted[next++];
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                bits.clear(index.slotOf(last));
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Pending tasks, each one with a dense slot, shared by all the sets that
+     * may hold them.
+     * <p/>
+     * The slots of removed tasks are kept in a free list, and given to the
+     * next tasks added. The slot of each task is found through an
+     * open-addressing table indexed by the task identifiers.
+     */
+    static class Index implements Serializable {
+
+        /**
+         * Indexed tasks, by slot (<em>null</em> for free slots).
+         */
+        private Task[] tasks = new Task[16];
+
+        /**
+         * Number of slots ever used.
+         */
+        private int end = 0;
+
+        /**
+         * Free slots below {@link #end}, used as a stack.
+         */
+        private int[] free = new int[16];
+        private int nfree = 0;
+
+        /**
+         * Open-addressing table of slots (plus one, so that zero means
+         * empty), indexed by the tasks' identifiers.
+         */
+        private int[] table = new int[32];
+
+        /**
+         * Get the indexed task with the given slot.
+         *
+         * @param slot task slot.
+         * @return indexed task, or null if there is none.
+         */
+        public Task get(int slot) {
+            return slot < end ? tasks[slot] : null;
+        }
+
+        /**
+         * Get the slot of an indexed task.
+         *
+         * @param t task to look for.
+         * @return slot of the task, or -1 if it is not indexed.
+         */
+        public int slotOf(Task t) {
+            final int i = position(t.getId());
+            if (i < 0) {
+                return -1;
+            }
+            final int slot = table[i] - 1;
+            return tasks[slot] == t ? slot : -1;
+        }
+
+        /**
+         * Get the number of slots ever used, which bounds the slots of all
+         * the indexed tasks.
+         *
+         * @return number of slots used.
+         */
+        public int getCapacity() {
+            return end;
+        }
+
+        /**
+         * Add a task to the index, giving it a free slot.
+         *
+         * @param t task to add.
+         * @return slot of the task.
+         */
+        public int add(Task t) {
+            final int existing = slotOf(t);
+            if (existing >= 0) {
+                return existing;
+            }
+
+            final int slot;
+            if (nfree > 0) {
+                slot = free[--nfree];
+            } else {
+                if (end == tasks.length) {
+                    tasks = Arrays.copyOf(tasks, end * 2);
+                }
+                slot = end++;
+            }
+            tasks[slot] = t;
+
+            if ((end - nfree) * 2 > table.length) {
+                table = new int[table.length * 2];
+                rehash();
+            } else {
+                insert(slot);
+            }
+            return slot;
+        }
+
+        /**
+         * Remove a task from the index, freeing its slot. The sets that hold
+         * it must have removed it before.
+         *
+         * @param t task to remove.
+         */
+        public void remove(Task t) {
+            final int slot = slotOf(t);
+            if (slot < 0) {
+                return;
+            }
+
+            unindex(position(t.getId()));
+            tasks[slot] = null;
+            if (nfree == free.length) {
+                free = Arrays.copyOf(free, nfree * 2);
+            }
+            free[nfree++] = slot;
+        }
+
+        private int position(int id) {
+            final int mask = table.length - 1;
+            for (int i = hash(id) & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (tasks[table[i] - 1].getId() == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void insert(int slot) {
+            final int mask = table.length - 1;
+            int i = hash(tasks[slot].getId()) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = slot + 1;
+        }
+
+        private void rehash() {
+            Arrays.fill(table, 0);
+            for (int i = 0; i < end; i++) {
+                if (tasks[i] != null) {
+                    insert(i);
+                }
+            }
+        }
+
+        /**
+         * Empty the given position of the table, moving back the entries
+         * that follow it in their probe sequences so that lookups still find
+         * them.
+         */
+        private void unindex(int i) {
+            final int mask = table.length - 1;
+            int hole = i;
+            for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+                final int home = hash(tasks[table[j] - 1].getId()) & mask;
+                // Move the entry unless its home lies cyclically in (hole, j]
+                if (hole <= j ? (home <= hole || home > j) : (home <= hole && home > j)) {
+                    table[hole] = table[j];
+                    hole = j;
+                }
+            }
+            table[hole] = 0;
+        }
+
+        private static int hash(int id) {
+            final int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+}
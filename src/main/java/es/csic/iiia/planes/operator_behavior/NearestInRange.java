@@ -53,18 +53,13 @@ public class NearestInRange implements OperatorStrategy {
 
     @Override
     public boolean submitTask(World w, Operator o, Task t) {
-        final List<Plane> planes = w.getPlanes();
         final Location tl = t.getLocation();
-        final Location ol = o.getLocation();
-        final double or = o.getCommunicationRange();
+        final List<Plane> planes = w.getPlanesInRange(o.getLocation(),
+                o.getCommunicationRange());
 
         double mind = Double.MAX_VALUE;
         Plane nearest = null;
         for (Plane p : planes) {
-            if (ol.distance(p.getLocation()) > or) {
-                continue;
-            }
-
             final double d = p.getLocation().getDistance(tl);
             if (d < mind) {
                 mind = d;
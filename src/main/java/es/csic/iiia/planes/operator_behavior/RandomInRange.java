@@ -40,7 +40,6 @@ import es.csic.iiia.planes.Operator;
 import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.World;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -54,15 +53,8 @@ public class RandomInRange implements OperatorStrategy {
 
     @Override
     public boolean submitTask(World w, Operator o, Task t) {
-        final List<Plane> planes = w.getPlanes();
-        final double orange = o.getCommunicationRange();
-
-        final List<Plane> planesInRange = new ArrayList<Plane>();
-        for (Plane p : planes) {
-            if (o.getLocation().distance(p.getLocation()) <= orange) {
-                planesInRange.add(p);
-            }
-        }
+        final List<Plane> planesInRange = w.getPlanesInRange(o.getLocation(),
+                o.getCommunicationRange());
 
         int pnum = r.nextInt(planesInRange.size());
         planesInRange.get(pnum).addTask(t);
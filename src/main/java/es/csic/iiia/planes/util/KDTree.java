@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.Positioned;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static two-dimensional tree, used to find the nearest element of a set of
+ * positioned elements that never move (such as stations or operators).
+ * <p/>
+ * The tree is built once, in O(n log^2 n) time, and then each nearest
+ * neighbor query takes O(log n) time on average instead of the O(n) of a
+ * linear scan.
+ * <p/>
+ * When several elements are at the same distance of the queried location,
+ * the one that comes first in the list used to build the tree is returned.
+ * Hence, the results are exactly the same as those of a linear scan that
+ * only replaces the current best element with strictly nearer ones.
+ *
+ * @param <T> type of the indexed elements.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class KDTree<T extends Positioned> {
+
+    /**
+     * Relative tolerance when pruning subtrees, to account for rounding
+     * errors in the computed distances.
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Root of the tree, or null if the tree is empty.
+     */
+    private final Node<T> root;
+
+    /**
+     * Builds a new tree containing the given elements.
+     *
+     * @param elements elements to index, in order of precedence.
+     */
+    public KDTree(List<T> elements) {
+        List<Node<T>> nodes = new ArrayList<Node<T>>(elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            nodes.add(new Node<T>(elements.get(i), i));
+        }
+        root = build(nodes, false);
+    }
+
+    /**
+     * Get the element nearest to the given location.
+     *
+     * @param location location to search from.
+     * @return element nearest to the given location, or null if the tree is
+     *         empty.
+     */
+    public T getNearest(Location location) {
+        if (root == null) {
+            return null;
+        }
+
+        Search<T> search = new Search<T>(location);
+        search.visit(root);
+        return search.best.element;
+    }
+
+    private static <T extends Positioned> Node<T> build(List<Node<T>> nodes,
+            final boolean vertical)
+    {
+        if (nodes.isEmpty()) {
+            return null;
+        }
+
+        Collections.sort(nodes, new Comparator<Node<T>>() {
+            @Override
+            public int compare(Node<T> o1, Node<T> o2) {
+                final int c = Double.compare(o1.coordinate(vertical), o2.coordinate(vertical));
+                return c != 0 ? c : o1.order - o2.order;
+            }
+        });
+
+        final int median = nodes.size() / 2;
+        final Node<T> node = nodes.get(median);
+        node.vertical = vertical;
+        node.left  = build(new ArrayList<Node<T>>(nodes.subList(0, median)), !vertical);
+        node.right = build(new ArrayList<Node<T>>(nodes.subList(median + 1, nodes.size())), !vertical);
+        return node;
+    }
+
+    /**
+     * Node of the tree, that splits the space across its element's location.
+     */
+    private static class Node<T extends Positioned> {
+        private final T element;
+        private final Location location;
+        private final int order;
+        private boolean vertical;
+        private Node<T> left;
+        private Node<T> right;
+
+        public Node(T element, int order) {
+            this.element = element;
+            this.location = element.getLocation();
+            this.order = order;
+        }
+
+        public double coordinate(boolean vertical) {
+            return vertical ? location.getY() : location.getX();
+        }
+    }
+
+    /**
+     * State of a nearest neighbor search.
+     */
+    private static class Search<T extends Positioned> {
+        private final Location location;
+        private Node<T> best = null;
+        private double bestDistance = Double.MAX_VALUE;
+
+        public Search(Location location) {
+            this.location = location;
+        }
+
+        public void visit(Node<T> node) {
+            final double d = location.getDistance(node.location);
+            if (d < bestDistance || (d == bestDistance && node.order < best.order)) {
+                best = node;
+                bestDistance = d;
+            }
+
+            final double diff = (node.vertical ? location.getY() : location.getX())
+                    - node.coordinate(node.vertical);
+            final Node<T> near = diff < 0 ? node.left : node.right;
+            final Node<T> far  = diff < 0 ? node.right : node.left;
+            if (near != null) {
+                visit(near);
+            }
+            if (far != null && Math.abs(diff) <= bestDistance * (1 + TOLERANCE)) {
+                visit(far);
+            }
+        }
+    }
+
+}
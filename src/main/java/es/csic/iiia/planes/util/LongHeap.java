@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of primitive longs.
+ *
+ * Unlike a {@link java.util.PriorityQueue} of {@link Long}, adding and
+ * removing values never allocates (other than to grow the heap), so it is
+ * suitable to keep the events that must be processed at each step of the
+ * simulation, such as packed (tick, element) pairs.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class LongHeap {
+
+    private long[] values;
+    private int size;
+
+    public LongHeap() {
+        this(16);
+    }
+
+    public LongHeap(int capacity) {
+        values = new long[Math.max(1, capacity)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Add a value to the heap.
+     *
+     * @param value value to add.
+     */
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, 2 * size);
+        }
+        int i = size++;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (values[parent] <= value) {
+                break;
+            }
+            values[i] = values[parent];
+            i = parent;
+        }
+        values[i] = value;
+    }
+
+    /**
+     * Get the minimum value of the heap, without removing it.
+     *
+     * @return minimum value.
+     * @throws NoSuchElementException if the heap is empty.
+     */
+    public long peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return values[0];
+    }
+
+    /**
+     * Remove the minimum value of the heap.
+     *
+     * @return minimum value.
+     * @throws NoSuchElementException if the heap is empty.
+     */
+    public long poll() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        final long result = values[0];
+        final long last = values[--size];
+        int i = 0;
+        while (true) {
+            int child = 2*i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && values[child + 1] < values[child]) {
+                child++;
+            }
+            if (last <= values[child]) {
+                break;
+            }
+            values[i] = values[child];
+            i = child;
+        }
+        values[i] = last;
+        return result;
+    }
+
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.util.MinimalPrettyPrinter;
+
+/**
+ * Runtime metrics of a simulation: the time spent in each phase of the
+ * simulation steps and in each behavior hook, the messages sent and
+ * delivered of each class, and the time spent allocating tasks.
+ * <p/>
+ * The metrics are cumulative, and snapshots of them can be periodically
+ * written to a file in either CSV or JSON (one object per line) format.
+ * <p/>
+ * Metrics are only collected when enabled, so that the code being measured
+ * must check whether there is a metrics collector before taking any time.
+ * Metrics can be added from any thread, but snapshots can only be written
+ * while no other thread is adding them (for instance, between simulation
+ * phases).
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class Metrics implements Closeable {
+
+    /**
+     * Output formats of the metrics.
+     */
+    public enum Format {
+        CSV, JSON
+    }
+
+    /**
+     * Behavior hooks that are timed.
+     */
+    public enum Hook {
+        PRE_STEP("preStep"),
+        BEFORE_MESSAGES("beforeMessages"),
+        MESSAGES("messages"),
+        AFTER_MESSAGES("afterMessages"),
+        POST_STEP("postStep");
+
+        private final String name;
+
+        private Hook(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final String CSV_HEADER = "tick,kind,name,count,wall_ns,cpu_ns,max_ns";
+
+    private final Format format;
+
+    private final Writer out;
+
+    private final JsonGenerator generator;
+
+    /**
+     * Count, wall time and cpu time of each phase, which are only added by
+     * the simulation thread.
+     */
+    private final Map<String, long[]> phases = new LinkedHashMap<String, long[]>();
+
+    /**
+     * Metrics added by each thread, kept apart to avoid contention.
+     */
+    private final List<Counters> counters = new ArrayList<Counters>();
+
+    private final ThreadLocal<Counters> localCounters = new ThreadLocal<Counters>() {
+        @Override
+        protected Counters initialValue() {
+            Counters c = new Counters();
+            synchronized (counters) {
+                counters.add(c);
+            }
+            return c;
+        }
+    };
+
+    /**
+     * Build a new metrics collector.
+     *
+     * @param file file where the snapshots are written.
+     * @param format format of the snapshots.
+     * @throws IOException if the file can not be opened.
+     */
+    public Metrics(File file, Format format) throws IOException {
+        this.format = format;
+        out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), "UTF-8"));
+        if (format == Format.JSON) {
+            generator = new JsonFactory().createJsonGenerator(out);
+            // Each snapshot goes on its own line
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+        } else {
+            generator = null;
+            out.write(CSV_HEADER);
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Add the time spent running a phase of a simulation step. This can only
+     * be called from the simulation thread.
+     *
+     * @param phase name of the phase.
+     * @param wall wall time spent, in nanoseconds.
+     * @param cpu cpu time spent by all the simulation threads, in nanoseconds.
+     */
+    public void addPhase(String phase, long wall, long cpu) {
+        long[] values = phases.get(phase);
+        if (values == null) {
+            values = new long[3];
+            phases.put(phase, values);
+        }
+        values[0]++;
+        values[1] += wall;
+        values[2] += cpu;
+    }
+
+    /**
+     * Add the time spent running a hook of a behavior.
+     *
+     * @param behavior class of the behavior.
+     * @param hook hook being run.
+     * @param wall wall time spent, in nanoseconds.
+     */
+    public void addBehavior(Class<?> behavior, Hook hook, long wall) {
+        final long[] values = get(localCounters.get().behaviors, behavior,
+                2*Hook.values().length);
+        values[2*hook.ordinal()]++;
+        values[2*hook.ordinal() + 1] += wall;
+    }
+
+    /**
+     * Count a message being sent.
+     *
+     * @param message class of the message.
+     */
+    public void addSent(Class<?> message) {
+        get(localCounters.get().messages, message, 2)[0]++;
+    }
+
+    /**
+     * Count a message being delivered to an agent.
+     *
+     * @param message class of the message.
+     */
+    public void addDelivered(Class<?> message) {
+        get(localCounters.get().messages, message, 2)[1]++;
+    }
+
+    /**
+     * Add the time spent by a run of an allocation strategy.
+     *
+     * @param strategy class of the allocation strategy.
+     * @param wall wall time spent, in nanoseconds.
+     */
+    public void addAllocation(Class<?> strategy, long wall) {
+        final long[] values = get(localCounters.get().allocations, strategy, 3);
+        values[0]++;
+        values[1] += wall;
+        values[2] = Math.max(values[2], wall);
+    }
+
+    /**
+     * Get the total number of messages sent so far, of any class.
+     *
+     * @return number of messages sent.
+     */
+    public long getSent() {
+        return countMessages(0);
+    }
+
+    /**
+     * Get the total number of messages delivered so far, of any class.
+     *
+     * @return number of messages delivered.
+     */
+    public long getDelivered() {
+        return countMessages(1);
+    }
+
+    private long countMessages(int index) {
+        long count = 0;
+        synchronized (counters) {
+            for (Counters c : counters) {
+                for (long[] values : c.messages.values()) {
+                    count += values[index];
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long[] get(Map<Class<?>, long[]> map, Class<?> key, int size) {
+        long[] values = map.get(key);
+        if (values == null) {
+            values = new long[size];
+            map.put(key, values);
+        }
+        return values;
+    }
+
+    /**
+     * Write a snapshot of the metrics collected so far.
+     *
+     * @param tick current simulation tick.
+     * @throws IOException if the snapshot can not be written.
+     */
+    public void write(long tick) throws IOException {
+        // Merge the metrics of all the threads, sorted by class name
+        Map<String, long[]> behaviors = new TreeMap<String, long[]>();
+        Map<String, long[]> messages = new TreeMap<String, long[]>();
+        Map<String, long[]> allocations = new TreeMap<String, long[]>();
+        synchronized (counters) {
+            for (Counters c : counters) {
+                merge(c.behaviors, behaviors, false);
+                merge(c.messages, messages, false);
+                merge(c.allocations, allocations, true);
+            }
+        }
+
+        if (format == Format.JSON) {
+            writeJson(tick, behaviors, messages, allocations);
+        } else {
+            writeCsv(tick, behaviors, messages, allocations);
+        }
+        out.flush();
+    }
+
+    private static void merge(Map<Class<?>, long[]> from, Map<String, long[]> to,
+            boolean lastIsMax)
+    {
+        for (Map.Entry<Class<?>, long[]> e : from.entrySet()) {
+            final long[] values = e.getValue();
+            long[] merged = to.get(e.getKey().getName());
+            if (merged == null) {
+                to.put(e.getKey().getName(), values.clone());
+                continue;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (lastIsMax && i == values.length - 1) {
+                    merged[i] = Math.max(merged[i], values[i]);
+                } else {
+                    merged[i] += values[i];
+                }
+            }
+        }
+    }
+
+    private void writeCsv(long tick, Map<String, long[]> behaviors,
+            Map<String, long[]> messages, Map<String, long[]> allocations)
+            throws IOException
+    {
+        for (Map.Entry<String, long[]> e : phases.entrySet()) {
+            final long[] v = e.getValue();
+            writeCsvRow(tick, "phase", e.getKey(), v[0], v[1], v[2], -1);
+        }
+        for (Map.Entry<String, long[]> e : behaviors.entrySet()) {
+            final long[] v = e.getValue();
+            for (Hook h : Hook.values()) {
+                if (v[2*h.ordinal()] > 0) {
+                    writeCsvRow(tick, "behavior", e.getKey() + "." + h,
+                            v[2*h.ordinal()], v[2*h.ordinal() + 1], -1, -1);
+                }
+            }
+        }
+        for (Map.Entry<String, long[]> e : messages.entrySet()) {
+            final long[] v = e.getValue();
+            writeCsvRow(tick, "sent", e.getKey(), v[0], -1, -1, -1);
+            writeCsvRow(tick, "delivered", e.getKey(), v[1], -1, -1, -1);
+        }
+        for (Map.Entry<String, long[]> e : allocations.entrySet()) {
+            final long[] v = e.getValue();
+            writeCsvRow(tick, "allocation", e.getKey(), v[0], v[1], -1, v[2]);
+        }
+    }
+
+    /**
+     * Write a row of the CSV output, where negative values are left empty.
+     */
+    private void writeCsvRow(long tick, String kind, String name, long count,
+            long wall, long cpu, long max) throws IOException
+    {
+        out.write(tick + "," + kind + "," + name + "," + count + ","
+                + (wall < 0 ? "" : String.valueOf(wall)) + ","
+                + (cpu < 0 ? "" : String.valueOf(cpu)) + ","
+                + (max < 0 ? "" : String.valueOf(max)) + "\n");
+    }
+
+    private void writeJson(long tick, Map<String, long[]> behaviors,
+            Map<String, long[]> messages, Map<String, long[]> allocations)
+            throws IOException
+    {
+        generator.writeStartObject();
+        generator.writeNumberField("tick", tick);
+
+        generator.writeObjectFieldStart("phases");
+        for (Map.Entry<String, long[]> e : phases.entrySet()) {
+            final long[] v = e.getValue();
+            generator.writeObjectFieldStart(e.getKey());
+            generator.writeNumberField("count", v[0]);
+            generator.writeNumberField("wall_ns", v[1]);
+            generator.writeNumberField("cpu_ns", v[2]);
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("behaviors");
+        for (Map.Entry<String, long[]> e : behaviors.entrySet()) {
+            final long[] v = e.getValue();
+            generator.writeObjectFieldStart(e.getKey());
+            for (Hook h : Hook.values()) {
+                if (v[2*h.ordinal()] > 0) {
+                    generator.writeObjectFieldStart(h.toString());
+                    generator.writeNumberField("count", v[2*h.ordinal()]);
+                    generator.writeNumberField("wall_ns", v[2*h.ordinal() + 1]);
+                    generator.writeEndObject();
+                }
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("messages");
+        for (Map.Entry<String, long[]> e : messages.entrySet()) {
+            final long[] v = e.getValue();
+            generator.writeObjectFieldStart(e.getKey());
+            generator.writeNumberField("sent", v[0]);
+            generator.writeNumberField("delivered", v[1]);
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("allocations");
+        for (Map.Entry<String, long[]> e : allocations.entrySet()) {
+            final long[] v = e.getValue();
+            generator.writeObjectFieldStart(e.getKey());
+            generator.writeNumberField("count", v[0]);
+            generator.writeNumberField("wall_ns", v[1]);
+            generator.writeNumberField("max_ns", v[2]);
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (generator != null) {
+            generator.close();
+        }
+        out.close();
+    }
+
+    /**
+     * Metrics added by a single thread.
+     */
+    private static class Counters {
+        private final Map<Class<?>, long[]> behaviors = new HashMap<Class<?>, long[]>();
+        private final Map<Class<?>, long[]> messages = new HashMap<Class<?>, long[]>();
+        private final Map<Class<?>, long[]> allocations = new HashMap<Class<?>, long[]>();
+    }
+
+}
@@ -39,6 +39,7 @@ package es.csic.iiia.planes.util;
 import org.apache.commons.math3.distribution.AbstractMultivariateRealDistribution;
 import org.apache.commons.math3.distribution.UniformRealDistribution;
 import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.Well19937c;
 
 /**
@@ -50,7 +51,13 @@ public class MultivariateUniformDistribution extends AbstractMultivariateRealDis
     private UniformRealDistribution[] distributions;
 
     public MultivariateUniformDistribution(double[] lowers, double[] uppers) {
-        super(new Well19937c(), lowers.length);
+        this(new Well19937c(), lowers, uppers);
+    }
+
+    public MultivariateUniformDistribution(RandomGenerator rng, double[] lowers,
+            double[] uppers)
+    {
+        super(rng, lowers.length);
         final int n_vars = getDimension();
 
         if (uppers.length != n_vars) {
@@ -72,6 +79,22 @@ public class MultivariateUniformDistribution extends AbstractMultivariateRealDis
         return sample;
     }
 
+    public double[] getLowerBounds() {
+        double[] bounds = new double[getDimension()];
+        for (int i=0; i<getDimension(); i++) {
+            bounds[i] = distributions[i].getSupportLowerBound();
+        }
+        return bounds;
+    }
+
+    public double[] getUpperBounds() {
+        double[] bounds = new double[getDimension()];
+        for (int i=0; i<getDimension(); i++) {
+            bounds[i] = distributions[i].getSupportUpperBound();
+        }
+        return bounds;
+    }
+
     @Override
     public double density(double[] x) {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Mergeable sketch of the distribution of a series of non-negative values,
+ * whose percentiles are estimated within a given relative accuracy.
+ * <p/>
+ * Values are counted in logarithmically sized buckets (as in HDR histograms
+ * or DDSketch): bucket <em>i</em> holds the values in
+ * (&gamma;<sup>i-1</sup>, &gamma;<sup>i</sup>], where
+ * &gamma; = (1+&alpha;)/(1-&alpha;) for a relative accuracy &alpha;. Hence,
+ * the memory used only depends on the accuracy and the range of the values,
+ * but not on their number. The minimum, maximum and mean are exact.
+ * <p/>
+ * Two sketches with the same accuracy can be merged, giving the same sketch
+ * that would have been obtained by adding all their values to a single one.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class QuantileSketch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final double accuracy;
+
+    private final double gamma;
+
+    private final double logGamma;
+
+    /**
+     * Counts of the buckets, where counts[i] is the count of bucket
+     * offset+i.
+     */
+    private long[] counts = new long[0];
+
+    private int offset;
+
+    /**
+     * Number of values that are zero (or negative).
+     */
+    private long zeros;
+
+    private long n;
+
+    private double sum;
+
+    private double min = Double.NaN;
+
+    private double max = Double.NaN;
+
+    /**
+     * Build a new empty sketch.
+     *
+     * @param accuracy relative accuracy of the estimated percentiles, in
+     *                 (0, 1).
+     */
+    public QuantileSketch(double accuracy) {
+        if (!(accuracy > 0 && accuracy < 1)) {
+            throw new IllegalArgumentException("The accuracy must be in (0, 1)");
+        }
+        this.accuracy = accuracy;
+        gamma = (1 + accuracy) / (1 - accuracy);
+        logGamma = Math.log(gamma);
+    }
+
+    /**
+     * Get the relative accuracy of this sketch.
+     *
+     * @return relative accuracy of this sketch.
+     */
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * Add a value to this sketch.
+     *
+     * @param value value to add.
+     */
+    public void addValue(double value) {
+        if (n == 0 || value < min) {
+            min = value;
+        }
+        if (n == 0 || value > max) {
+            max = value;
+        }
+        n++;
+        sum += value;
+
+        if (value <= 0) {
+            zeros++;
+            return;
+        }
+        final int bucket = (int)Math.ceil(Math.log(value) / logGamma);
+        ensureBucket(bucket);
+        counts[bucket - offset]++;
+    }
+
+    /**
+     * Add all the values of the given sketch to this one.
+     *
+     * @param other sketch to merge into this one.
+     */
+    public void merge(QuantileSketch other) {
+        if (other.accuracy != accuracy) {
+            throw new IllegalArgumentException("Only sketches with the same accuracy can be merged");
+        }
+        if (other.n == 0) {
+            return;
+        }
+        if (n == 0 || other.min < min) {
+            min = other.min;
+        }
+        if (n == 0 || other.max > max) {
+            max = other.max;
+        }
+        n += other.n;
+        sum += other.sum;
+        zeros += other.zeros;
+
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] > 0) {
+                ensureBucket(other.offset + i);
+                counts[other.offset + i - offset] += other.counts[i];
+            }
+        }
+    }
+
+    /**
+     * Make room for the given bucket.
+     */
+    private void ensureBucket(int bucket) {
+        if (counts.length == 0) {
+            offset = bucket;
+            counts = new long[8];
+            return;
+        }
+        if (bucket < offset) {
+            final int grow = Math.max(offset - bucket, counts.length / 2);
+            long[] tmp = new long[counts.length + grow];
+            System.arraycopy(counts, 0, tmp, grow, counts.length);
+            counts = tmp;
+            offset -= grow;
+        } else if (bucket - offset >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(bucket - offset + 1,
+                    counts.length + counts.length / 2));
+        }
+    }
+
+    /**
+     * Get the number of values in this sketch.
+     *
+     * @return number of values.
+     */
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * Get the minimum value of this sketch.
+     *
+     * @return minimum value, or NaN if the sketch is empty.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Get the maximum value of this sketch.
+     *
+     * @return maximum value, or NaN if the sketch is empty.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the values in this sketch.
+     *
+     * @return mean value, or NaN if the sketch is empty.
+     */
+    public double getMean() {
+        return n == 0 ? Double.NaN : sum / n;
+    }
+
+    /**
+     * Get an estimate of the given percentile.
+     *
+     * @param p percentile to estimate, in [0, 100].
+     * @return estimated percentile, or NaN if the sketch is empty.
+     */
+    public double getPercentile(double p) {
+        if (p < 0 || p > 100) {
+            throw new IllegalArgumentException("The percentile must be in [0, 100]");
+        }
+        if (n == 0) {
+            return Double.NaN;
+        }
+
+        // Same rank as the default estimation of commons-math, but rounded
+        // to the nearest value instead of interpolated
+        final double rank = Math.min(n - 1, Math.max(0, Math.rint(p / 100 * (n + 1)) - 1));
+        long seen = zeros;
+        if (rank < seen) {
+            return Math.max(min, 0);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                final double estimate = 2 * Math.pow(gamma, offset + i) / (gamma + 1);
+                return Math.max(min, Math.min(max, estimate));
+            }
+        }
+        return max;
+    }
+
+}
@@ -36,6 +36,7 @@
  */
 package es.csic.iiia.planes.util;
 
+import java.io.Serializable;
 import java.util.AbstractList;
 
 /**
@@ -49,7 +50,7 @@ import java.util.AbstractList;
  *
  * @author Marc Pujol <mpujol@iiia.csic.es>
  */
-public class RotatingList<T> extends AbstractList<T> {
+public class RotatingList<T> extends AbstractList<T> implements Serializable {
 
     private final T[] elements;
     private int capacity;
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import es.csic.iiia.planes.Task;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Insertion-ordered list of tasks, indexed by their ids.
+ * <p/>
+ * The index is an open-addressing table from task ids to their slots, so
+ * its size follows the number of tasks in the list rather than the range of
+ * their ids, no matter how long some task stays in it. Hence, the tasks in a
+ * list must have distinct ids, as is the case for the tasks of a world.
+ * <p/>
+ * Adding, removing and looking up tasks takes (amortized) constant time,
+ * whereas iteration always follows the order in which the tasks were added,
+ * exactly as with an {@link java.util.ArrayList}.
+ * <p/>
+ * Removed tasks leave a hole in the underlying array, which is skipped by
+ * the iterators and compacted when the array fills up with more holes than
+ * tasks, or before accessing a task by its position.
+ * <p/>
+ * A task can only be in the list once, so adding an already present task
+ * does nothing and returns <em>false</em>, as in a set. Inserting or
+ * replacing tasks at given positions is not supported.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class TaskList extends AbstractList<Task> implements Serializable {
+
+    /**
+     * Tasks in insertion order, with nulls where tasks have been removed.
+     */
+    private Task[] slots = new Task[16];
+
+    /**
+     * Number of used slots (including holes).
+     */
+    private int end = 0;
+
+    /**
+     * Number of tasks in the list.
+     */
+    private int size = 0;
+
+    /**
+     * Open-addressing table of slots (plus one, so that zero means empty),
+     * indexed by the tasks' ids.
+     */
+    private int[] index = new int[16];
+
+    /**
+     * Number of times that the holes have been compacted.
+     */
+    private int compactions = 0;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return find(o) >= 0;
+    }
+
+    @Override
+    public boolean add(Task t) {
+        if (t == null) {
+            throw new NullPointerException();
+        }
+        if (contains(t)) {
+            return false;
+        }
+
+        if (end == slots.length) {
+            if (end - size > size) {
+                compact();
+            } else {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+        }
+        slots[end++] = t;
+        size++;
+        if (size * 2 > index.length) {
+            index = new int[index.length * 2];
+            rehash();
+        } else {
+            insert(end - 1);
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        final int slot = find(o);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    @Override
+    public Task remove(int i) {
+        final Task t = get(i);
+        removeSlot(i);
+        return t;
+    }
+
+    @Override
+    public Task get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        if (end != size) {
+            compact();
+        }
+        return slots[i];
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, 0, end, null);
+        Arrays.fill(index, 0);
+        end = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Get the slot where the given object is stored.
+     *
+     * @param o object to look for.
+     * @return slot of the object, or -1 if it is not in this list.
+     */
+    private int find(Object o) {
+        if (!(o instanceof Task)) {
+            return -1;
+        }
+        final int i = position(((Task)o).getId());
+        if (i < 0) {
+            return -1;
+        }
+        final int slot = index[i] - 1;
+        return slots[slot] == o ? slot : -1;
+    }
+
+    /**
+     * Get the position of the index that points to the task with the given
+     * id.
+     *
+     * @param id id of the task to look for.
+     * @return position in the index, or -1 if there is no such task.
+     */
+    private int position(int id) {
+        final int mask = index.length - 1;
+        for (int i = hash(id) & mask; index[i] != 0; i = (i + 1) & mask) {
+            if (slots[index[i] - 1].getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int slot) {
+        final int mask = index.length - 1;
+        int i = hash(slots[slot].getId()) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+    }
+
+    private void rehash() {
+        Arrays.fill(index, 0);
+        for (int i = 0; i < end; i++) {
+            if (slots[i] != null) {
+                insert(i);
+            }
+        }
+    }
+
+    /**
+     * Empty the given position of the index, moving back the entries that
+     * follow it in their probe sequences so that lookups still find them.
+     */
+    private void unindex(int i) {
+        final int mask = index.length - 1;
+        int hole = i;
+        for (int j = (i + 1) & mask; index[j] != 0; j = (j + 1) & mask) {
+            final int home = hash(slots[index[j] - 1].getId()) & mask;
+            // Move the entry unless its home lies cyclically in (hole, j]
+            if (hole <= j ? (home <= hole || home > j) : (home <= hole && home > j)) {
+                index[hole] = index[j];
+                hole = j;
+            }
+        }
+        index[hole] = 0;
+    }
+
+    private static int hash(int id) {
+        final int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void removeSlot(int slot) {
+        unindex(position(slots[slot].getId()));
+        slots[slot] = null;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Move all the tasks to the beginning of the array, removing the holes.
+     */
+    private void compact() {
+        int j = 0;
+        for (int i = 0; i < end; i++) {
+            final Task t = slots[i];
+            if (t != null) {
+                if (i != j) {
+                    index[position(t.getId())] = j + 1;
+                    slots[j] = t;
+                }
+                j++;
+            }
+        }
+        Arrays.fill(slots, j, end, null);
+        end = j;
+        compactions++;
+    }
+
+    /**
+     * Iterator that skips the holes left by removed tasks.
+     * <p/>
+     * Compacting the list does not alter its contents, so the iterator
+     * survives (read-only) positional accesses done while iterating.
+     */
+    private class Itr implements Iterator<Task> {
+        private int cursor = skipHoles(0);
+        private int nextIndex = 0;
+        private int last = -1;
+        private int expectedModCount = modCount;
+        private int expectedCompactions = compactions;
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        public Task next() {
+            sync();
+            if (nextIndex >= size) {
+                throw new NoSuchElementException();
+            }
+            last = cursor;
+            cursor = skipHoles(cursor + 1);
+            nextIndex++;
+            return slots[last];
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            sync();
+            removeSlot(last);
+            last = -1;
+            nextIndex--;
+            expectedModCount = modCount;
+        }
+
+        private void sync() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (compactions != expectedCompactions) {
+                // There are no holes after compacting, so slots are positions
+                cursor = nextIndex;
+                if (last >= 0) {
+                    last = nextIndex - 1;
+                }
+                expectedCompactions = compactions;
+            }
+        }
+
+        private int skipHoles(int i) {
+            while (i < end && slots[i] == null) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+}
@@ -54,4 +54,35 @@ public class TimeTracker {
                 ? bean.getCurrentThreadUserTime() : 0L;
     }
 
+    /**
+     * Get the user time of the given thread in nanoseconds.
+     */
+    public static long getUserTime(Thread thread) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadCpuTimeSupported()) {
+            return 0L;
+        }
+        return Math.max(0L, bean.getThreadUserTime(thread.getId()));
+    }
+
+    /**
+     * Get cpu (user plus system) time in nanoseconds.
+     */
+    public static long getCpuTime() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean.isCurrentThreadCpuTimeSupported()
+                ? bean.getCurrentThreadCpuTime() : 0L;
+    }
+
+    /**
+     * Get the cpu (user plus system) time of the given thread in nanoseconds.
+     */
+    public static long getCpuTime(Thread thread) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadCpuTimeSupported()) {
+            return 0L;
+        }
+        return Math.max(0L, bean.getThreadCpuTime(thread.getId()));
+    }
+
 }
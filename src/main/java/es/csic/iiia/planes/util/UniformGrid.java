@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.Positioned;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid spatial index, used to speed up range queries over a set of
+ * positioned elements.
+ * <p/>
+ * The space is divided in square cells of a fixed size, and each element is
+ * stored in the cell that contains its location. Hence, a range query only
+ * needs to check the elements of the cells that overlap with the query's
+ * bounding box. When the cell size is similar to the usual query ranges, this
+ * turns the O(n) scans into (almost) constant-time lookups.
+ * <p/>
+ * Each element gets a dense index when added, following the insertion order.
+ * Its coordinates and cell are kept in primitive arrays by that index, so
+ * that both the updates and the distance checks of the queries run over
+ * contiguous memory instead of chasing the elements' locations. The results
+ * of a query are always sorted by index, so that the simulations behave
+ * exactly as if the elements had been scanned linearly.
+ * <p/>
+ * Locations are mutable, so the index must be notified through
+ * {@link #update(Positioned)} (or {@link #update(int)}) whenever an indexed
+ * element moves.
+ *
+ * @param <T> type of the indexed elements.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class UniformGrid<T extends Positioned> {
+
+    /**
+     * Side length of each cell.
+     */
+    private final double cellSize;
+
+    /**
+     * Non-empty cells of the grid, indexed by their packed coordinates.
+     */
+    private final Map<Long, IntList> cells = new HashMap<Long, IntList>();
+
+    /**
+     * Dense index of each element.
+     */
+    private final Map<T, Integer> indexes = new HashMap<T, Integer>();
+
+    /**
+     * Indexed elements, by index (<em>null</em> for removed ones).
+     */
+    private final List<T> elements = new ArrayList<T>();
+
+    /**
+     * Coordinates of the elements, by index.
+     */
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+
+    /**
+     * Cell of the elements, by index.
+     */
+    private long[] cellOf = new long[16];
+
+    /**
+     * Build a new grid index with the given cell size.
+     *
+     * @param cellSize side length of the grid cells.
+     */
+    public UniformGrid(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("The cell size must be positive.");
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Get the side length of the grid cells.
+     *
+     * @return side length of the grid cells.
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Get the number of indexed elements.
+     *
+     * @return number of indexed elements.
+     */
+    public int size() {
+        return indexes.size();
+    }
+
+    /**
+     * Check whether an element is indexed.
+     *
+     * @param element element to check.
+     * @return <em>true</em> if the element is indexed, or <em>false</em>
+     *         otherwise.
+     */
+    public boolean contains(T element) {
+        return indexes.containsKey(element);
+    }
+
+    /**
+     * Get the dense index of an element.
+     *
+     * @param element element to look for.
+     * @return index of the element, or -1 if it is not indexed.
+     */
+    public int indexOf(T element) {
+        final Integer index = indexes.get(element);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Get the element with the given dense index.
+     *
+     * @param index index of the element.
+     * @return element with that index, or <em>null</em> if there is none.
+     */
+    public T get(int index) {
+        return index >= 0 && index < elements.size() ? elements.get(index) : null;
+    }
+
+    /**
+     * Add an element to the index.
+     * <p/>
+     * Elements get consecutive indexes, starting from zero, in the order they
+     * are added. Indexes of removed elements are never reused.
+     *
+     * @param element element to add.
+     * @return dense index of the element.
+     */
+    public int add(T element) {
+        final Integer existing = indexes.get(element);
+        if (existing != null) {
+            return existing;
+        }
+
+        final int index = elements.size();
+        if (index == xs.length) {
+            final int capacity = index * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            cellOf = Arrays.copyOf(cellOf, capacity);
+        }
+        elements.add(element);
+        indexes.put(element, index);
+
+        final Location l = element.getLocation();
+        xs[index] = l.getX();
+        ys[index] = l.getY();
+        cellOf[index] = getCell(xs[index], ys[index]);
+        getOrCreateCell(cellOf[index]).add(index);
+        return index;
+    }
+
+    /**
+     * Remove an element from the index.
+     *
+     * @param element element to remove.
+     * @return <em>true</em> if the element was indexed, or <em>false</em>
+     *         otherwise.
+     */
+    public boolean remove(T element) {
+        final Integer index = indexes.remove(element);
+        if (index == null) {
+            return false;
+        }
+        elements.set(index, null);
+        removeFromCell(index);
+        return true;
+    }
+
+    /**
+     * Update the position of an element in the index, after it has moved.
+     *
+     * @param element element that has moved.
+     */
+    public void update(T element) {
+        final Integer index = indexes.get(element);
+        if (index != null) {
+            update(index);
+        }
+    }
+
+    /**
+     * Update the position of the element with the given dense index, after
+     * it has moved.
+     *
+     * @param index index of the element that has moved.
+     */
+    public void update(int index) {
+        final T element = get(index);
+        if (element == null) {
+            return;
+        }
+
+        final Location l = element.getLocation();
+        xs[index] = l.getX();
+        ys[index] = l.getY();
+        final long cell = getCell(xs[index], ys[index]);
+        if (cell != cellOf[index]) {
+            removeFromCell(index);
+            cellOf[index] = cell;
+            getOrCreateCell(cell).add(index);
+        }
+    }
+
+    /**
+     * Get all the elements located within the given range of a location.
+     *
+     * @param center location from where to search.
+     * @param range maximum distance (inclusive) to the center.
+     * @return list of elements in range, sorted by insertion order.
+     */
+    public List<T> getWithin(Location center, double range) {
+        final IntList found = new IntList();
+        collect(center, range, found, false);
+
+        Arrays.sort(found.items, 0, found.size);
+        List<T> result = new ArrayList<T>(found.size);
+        for (int i = 0; i < found.size; i++) {
+            result.add(elements.get(found.items[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Check if there is any element located within the given range of a
+     * location.
+     *
+     * @param center location from where to search.
+     * @param range maximum distance (inclusive) to the center.
+     * @return <em>true</em> if some element is in range, or <em>false</em>
+     *         otherwise.
+     */
+    public boolean isAnyWithin(Location center, double range) {
+        return collect(center, range, null, true);
+    }
+
+    /**
+     * Collect the indexes of the elements within the given range of a
+     * location.
+     *
+     * @param center location from where to search.
+     * @param range maximum distance (inclusive) to the center.
+     * @param found list where to store the indexes found, if any.
+     * @param stopAtFirst whether to stop searching after the first index found.
+     * @return <em>true</em> if some element is in range, or <em>false</em>
+     *         otherwise.
+     */
+    private boolean collect(Location center, double range, IntList found,
+            boolean stopAtFirst)
+    {
+        if (range < 0 || cells.isEmpty()) {
+            return false;
+        }
+
+        final double cx = center.getX();
+        final double cy = center.getY();
+        final long minx = index(cx - range);
+        final long maxx = index(cx + range);
+        final long miny = index(cy - range);
+        final long maxy = index(cy + range);
+
+        // Huge ranges overlap more cells than the non-empty ones, so it is
+        // cheaper to scan the coordinates directly.
+        final double ncells = ((double)maxx - minx + 1) * ((double)maxy - miny + 1);
+        if (ncells > cells.size()) {
+            boolean any = false;
+            for (int i = 0, n = elements.size(); i < n; i++) {
+                if (elements.get(i) != null && isWithin(i, cx, cy, range)) {
+                    if (stopAtFirst) {
+                        return true;
+                    }
+                    found.add(i);
+                    any = true;
+                }
+            }
+            return any;
+        }
+
+        boolean any = false;
+        for (long x = minx; x <= maxx; x++) {
+            for (long y = miny; y <= maxy; y++) {
+                final IntList cell = cells.get(key(x, y));
+                if (cell == null) {
+                    continue;
+                }
+                for (int j = 0; j < cell.size; j++) {
+                    final int i = cell.items[j];
+                    if (isWithin(i, cx, cy, range)) {
+                        if (stopAtFirst) {
+                            return true;
+                        }
+                        found.add(i);
+                        any = true;
+                    }
+                }
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Check if the element with the given index is within range of a point,
+     * computing the distance exactly as {@link Location#distance} does.
+     */
+    private boolean isWithin(int i, double cx, double cy, double range) {
+        final double dx = cx - xs[i];
+        final double dy = cy - ys[i];
+        return Math.sqrt(dx * dx + dy * dy) <= range;
+    }
+
+    private IntList getOrCreateCell(long cell) {
+        IntList indexesInCell = cells.get(cell);
+        if (indexesInCell == null) {
+            indexesInCell = new IntList();
+            cells.put(cell, indexesInCell);
+        }
+        return indexesInCell;
+    }
+
+    private void removeFromCell(int index) {
+        final long cell = cellOf[index];
+        final IntList indexesInCell = cells.get(cell);
+        indexesInCell.remove(index);
+        if (indexesInCell.size == 0) {
+            cells.remove(cell);
+        }
+    }
+
+    private long index(double coordinate) {
+        return (long)Math.floor(coordinate / cellSize);
+    }
+
+    private long getCell(double x, double y) {
+        return key(index(x), index(y));
+    }
+
+    private static long key(long x, long y) {
+        return (x << 32) ^ (y & 0xffffffffL);
+    }
+
+    /**
+     * Minimal growable list of primitive integers.
+     */
+    private static class IntList {
+        private int[] items = new int[4];
+        private int size;
+
+        public void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        /**
+         * Removes a value, moving the last one into its place.
+         */
+        public void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == value) {
+                    items[i] = items[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -27,6 +27,7 @@ package it.univr.ia.planes.dsa;
 
 import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.Task;
+import java.io.Serializable;
 
 /**
  * This Class represents a generic Node which contains a Task, its owner Plane,
@@ -36,7 +37,7 @@ import es.csic.iiia.planes.Task;
  * 
  * @author Andrea Jeradi, Francesco Donato
  */
-public abstract class AbstractTaskNode {
+public abstract class AbstractTaskNode implements Serializable {
     
     /**
      * Task that is represented from this Node.
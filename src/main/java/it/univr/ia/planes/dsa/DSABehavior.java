@@ -29,7 +29,10 @@ import es.csic.iiia.planes.MessagingAgent;
 import es.csic.iiia.planes.Plane;
 import es.csic.iiia.planes.Task;
 import es.csic.iiia.planes.behaviors.AbstractBehavior;
+import es.csic.iiia.planes.behaviors.Behavior;
+import es.csic.iiia.planes.behaviors.Handler;
 import es.csic.iiia.planes.behaviors.neighbors.NeighborTracking;
+import es.csic.iiia.planes.messaging.Message;
 import java.util.List;
 import java.util.Random;
 import java.util.logging.Level;
@@ -178,6 +181,50 @@ public class DSABehavior extends AbstractBehavior<DSAPlane> {
         }
     }
 
+    /**
+     * Invoker of {@link #on(PresentationMessage)}.
+     */
+    private static final Handler ON_PRESENTATION = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {
+            ((DSABehavior)b).on((PresentationMessage)m);
+        }
+    };
+
+    /**
+     * Invoker of {@link #on(TaskMessage)}.
+     */
+    private static final Handler ON_TASK = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {
+            ((DSABehavior)b).on((TaskMessage)m);
+        }
+    };
+
+    /**
+     * Invoker of {@link #on(ReallocatedTaskMessage)}.
+     */
+    private static final Handler ON_REALLOCATED_TASK = new Handler() {
+        @Override
+        public void invoke(Behavior b, Message m) {
+            ((DSABehavior)b).on((ReallocatedTaskMessage)m);
+        }
+    };
+
+    @Override
+    public Handler getHandler(Class<? extends Message> messageClass) {
+        if (messageClass == PresentationMessage.class) {
+            return ON_PRESENTATION;
+        }
+        if (messageClass == TaskMessage.class) {
+            return ON_TASK;
+        }
+        if (messageClass == ReallocatedTaskMessage.class) {
+            return ON_REALLOCATED_TASK;
+        }
+        return super.getHandler(messageClass);
+    }
+
     @Override
     public void afterMessages() {
 
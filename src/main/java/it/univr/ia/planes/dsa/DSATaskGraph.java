@@ -26,19 +26,23 @@
 package it.univr.ia.planes.dsa;
 
 import es.csic.iiia.planes.Task;
+import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Represents the DSA graph of a Plane.<br>
  * It's builded by a Plane during the DSA with its TaskNodes and with the received TaskNodes from Planes near.<br>
  * It is formed by AbstractTaskNode.
  * Nodes are dived into two set, MyPlaneTaskNode, and NearPlaneTaskNode.
+ * Both sets are ordered by task id, so that the graph is always traversed in
+ * the same order (tasks have no hash code of their own, and their identity
+ * hashes change when the simulation is saved to a snapshot or restored).
  * 
  * @author Andrea Jeradi, Francesco Donato
  */
-public class DSATaskGraph {
+public class DSATaskGraph implements Serializable {
     /**
      * Map that represents the link between a myTask and a Node of the Graph.
      */
@@ -53,8 +57,8 @@ public class DSATaskGraph {
      */
     public DSATaskGraph() {
        
-      this.myTasks = new HashMap<Task,MyPlaneTaskNode>();
-      this.otherTasks = new HashMap<Task,NearPlaneTaskNode>();
+      this.myTasks = new TreeMap<Task,MyPlaneTaskNode>();
+      this.otherTasks = new TreeMap<Task,NearPlaneTaskNode>();
       
     }
     
@@ -25,12 +25,14 @@
  */
 package it.univr.ia.planes.dsa;
 
+import java.io.Serializable;
+
 /**
  * Interface that represents the Evaluation Function used by dsa.
  * 
  * @author Andrea Jeradi, Francesco Donato
  */
-public interface EvaluationFunction {
+public interface EvaluationFunction extends Serializable {
     /**
      * Gets the name of the evaluation function choosen for dsa.
      * @return String represents the evaluation function name.
@@ -0,0 +1,117 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the Location class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class LocationTest {
+
+    private static double loop(double value, double increment, long n) {
+        for (long i = 0; i < n; i++) {
+            value += increment;
+        }
+        return value;
+    }
+
+    private static void assertAccumulates(double value, double increment, long n) {
+        final double expected = loop(value, increment, n);
+        final double actual = Location.accumulate(value, increment, n);
+        assertEquals(value + " + " + n + "*" + increment,
+                Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+
+    /**
+     * Test of accumulate method, of class Location.
+     */
+    @Test
+    public void testAccumulate() {
+        Random r = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            final double angle = r.nextDouble() * 2 * Math.PI;
+            final double speed = 0.5 + r.nextDouble() * 2;
+            final double value = (r.nextDouble() - 0.3) * 10000;
+            final long n = r.nextInt(20000);
+            assertAccumulates(value, speed * Math.cos(angle), n);
+            assertAccumulates(value, speed * Math.sin(angle), n);
+        }
+
+        // Flight distances, crossing several powers of two
+        assertAccumulates(0, 1.388888888888889, 500000);
+        // Increments that vanish, and ties rounded to even
+        assertAccumulates(1e17, 1.25, 1000);
+        assertAccumulates(1, Math.ulp(1.0) / 2, 1000);
+        assertAccumulates(1 + Math.ulp(1.0), Math.ulp(1.0) / 2, 1000);
+        assertAccumulates(3, -Math.ulp(3.0) * 1.5, 1000);
+        // Values crossing zero
+        assertAccumulates(5, -1.3, 10);
+        assertAccumulates(-5, 1e-3, 20000);
+    }
+
+    /**
+     * Test of move(MoveStep, long) method, of class Location.
+     */
+    @Test
+    public void testMoveSteps() {
+        Random r = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            final Location origin = new Location(r.nextDouble() * 10000, r.nextDouble() * 10000);
+            final Location destination = new Location(r.nextDouble() * 10000, r.nextDouble() * 10000);
+            final double speed = 0.5 + r.nextDouble() * 2;
+            final Location.MoveStep step = origin.buildMoveStep(destination, speed);
+            final int n = r.nextInt(step.getSteps() + 2);
+
+            Location expected = new Location(origin);
+            Location.MoveStep expectedStep = expected.buildMoveStep(destination, speed);
+            boolean arrived = false;
+            for (int j = 0; j < n && !arrived; j++) {
+                arrived = expected.move(expectedStep);
+            }
+
+            assertEquals(arrived || n == 0 && step.getSteps() <= 0, origin.move(step, n));
+            assertEquals(expected.getX(), origin.getX(), 0);
+            assertEquals(expected.getY(), origin.getY(), 0);
+            assertEquals(expectedStep.getSteps(), step.getSteps());
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the PlaneStates class, and the views over it.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class PlaneStatesTest {
+
+    /**
+     * Test that the rows grow as needed, starting from zero.
+     */
+    @Test
+    public void testAdd() {
+        PlaneStates states = new PlaneStates(1);
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i, states.add());
+            states.setSpeed(i, i);
+        }
+        assertEquals(40, states.size());
+        assertEquals(39, states.getSpeed(39), 0);
+        assertEquals(0, states.getEnergy(39));
+        assertEquals(39, states.getMaxSpeed(), 0);
+    }
+
+    /**
+     * Test that planes keep their state when moved to the world's store.
+     */
+    @Test
+    public void testAttach() {
+        DefaultPlane p1 = new DefaultPlane(new Location(0, 0));
+        p1.setSpeed(2);
+        DefaultBattery b1 = new DefaultBattery();
+        b1.setCapacity(100);
+        b1.setEnergy(60);
+        p1.setBattery(b1);
+
+        PlaneStates states = new PlaneStates();
+        p1.attach(states, states.add());
+        DefaultPlane p2 = new DefaultPlane(new Location(0, 0));
+        p2.attach(states, states.add());
+        p2.setSpeed(3);
+        DefaultBattery b2 = new DefaultBattery();
+        p2.setBattery(b2);
+        b2.setCapacity(10);
+        b2.setEnergy(10);
+
+        assertEquals(2, p1.getSpeed(), 0);
+        assertEquals(60, b1.getEnergy());
+        assertEquals(100, b1.getCapacity());
+        assertEquals(3, states.getSpeed(1), 0);
+        assertEquals(10, states.getEnergy(1));
+
+        b1.recharge(50);
+        assertTrue(b1.isFull());
+        assertEquals(100, states.getEnergy(0));
+        assertTrue(b2.isFull());
+    }
+
+    /**
+     * Test that move plans keep their remaining steps in the plane's row.
+     */
+    @Test
+    public void testMoveStep() {
+        PlaneStates states = new PlaneStates();
+        final int row = states.add();
+        Location l = new Location(0, 0);
+        Location.MoveStep step = l.buildMoveStep(new Location(10, 0), 3);
+        assertEquals(4, step.getSteps());
+
+        step.attach(states, row);
+        assertEquals(4, states.getSteps(row));
+        assertFalse(l.move(step));
+        assertEquals(3, states.getSteps(row));
+        assertTrue(l.move(step, 3));
+        assertEquals(0, step.getSteps());
+        assertEquals(10, l.getX(), 0);
+    }
+
+}
@@ -0,0 +1,332 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes;
+
+import es.csic.iiia.planes.behaviors.AbstractBehaviorAgent;
+import es.csic.iiia.planes.behaviors.neighbors.NeighborTracking;
+import es.csic.iiia.planes.cli.Configuration;
+import es.csic.iiia.planes.generator.Generator;
+import es.csic.iiia.planes.messaging.Message;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * End-to-end tests checking that the execution settings that should not
+ * alter the results of a simulation actually do not, by running a small
+ * generated scenario both ways and comparing the final statistics.
+ *
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class SimulationEquivalenceTest {
+
+    private static File problem;
+
+    @BeforeClass
+    public static void generateProblem() throws IOException {
+        problem = File.createTempFile("equivalence", ".json");
+        Properties s = loadSettings("/es/csic/iiia/planes/generator/settings.properties");
+        s.setProperty("duration", "18000");
+        s.setProperty("planes", "8");
+        s.setProperty("task-frequency", String.valueOf(150 / 18000d));
+        s.setProperty("communication-range", "1500");
+        s.setProperty("problem", problem.getPath());
+        new Generator(new es.csic.iiia.planes.generator.Configuration(s)).run();
+    }
+
+    @AfterClass
+    public static void deleteProblem() {
+        problem.delete();
+    }
+
+    private static Properties loadSettings(String resource) throws IOException {
+        Properties s = new Properties();
+        InputStream in = SimulationEquivalenceTest.class.getResourceAsStream(resource);
+        try {
+            s.load(in);
+        } finally {
+            in.close();
+        }
+        return s;
+    }
+
+    /**
+     * Simulate the test problem with the default settings, overridden by the
+     * given setting=value pairs.
+     *
+     * @return final statistics of the simulation, along with its duration.
+     */
+    private static String simulate(String... overrides) throws IOException {
+        Configuration config = configure(overrides);
+        return simulate(config, new DefaultFactory(config).buildWorld());
+    }
+
+    /**
+     * Build the configuration of a simulation of the test problem, with the
+     * default settings overridden by the given setting=value pairs.
+     */
+    private static Configuration configure(String... overrides) throws IOException {
+        Properties s = loadSettings("/es/csic/iiia/planes/cli/settings.properties");
+        s.setProperty("gui", "false");
+        s.setProperty("quiet", "true");
+        s.setProperty("problem", problem.getPath());
+        for (String o : overrides) {
+            final int i = o.indexOf('=');
+            s.setProperty(o.substring(0, i), o.substring(i + 1));
+        }
+        return new Configuration(s);
+    }
+
+    /**
+     * Simulate the test problem in the given world.
+     *
+     * @return final statistics of the simulation, along with its duration.
+     */
+    private static String simulate(Configuration config, World world) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buf);
+        world.setOutput(out);
+        world.init(config.getProblemDefinition());
+        world.run();
+        out.flush();
+
+        // The user time is the only value that may change between runs
+        StringBuilder result = new StringBuilder();
+        for (String line : buf.toString().split("\n")) {
+            if (!line.startsWith("time=")) {
+                result.append(line).append('\n');
+            }
+        }
+        return result.append("ticks=").append(world.getTime()).toString();
+    }
+
+    /**
+     * Parallel runs must produce the results of sequential ones.
+     */
+    @Test
+    public void testThreads() throws IOException {
+        assertEquals(simulate("planes=none", "battery=default"),
+                simulate("planes=none", "battery=default", "threads=3"));
+        assertEquals(simulate("planes=auction"),
+                simulate("planes=auction", "threads=3"));
+        assertEquals(simulate("planes=omniscient", "operator-strategy=omniscient"),
+                simulate("planes=omniscient", "operator-strategy=omniscient", "threads=3"));
+    }
+
+    /**
+     * Fast-forwarded runs must produce the results of tick-by-tick ones.
+     */
+    @Test
+    public void testFastForward() throws IOException {
+        assertEquals(simulate("planes=none", "battery=default"),
+                simulate("planes=none", "battery=default", "fast-forward=true"));
+        assertEquals(simulate("planes=auction"),
+                simulate("planes=auction", "fast-forward=true"));
+        assertEquals(simulate("planes=omniscient", "operator-strategy=omniscient"),
+                simulate("planes=omniscient", "operator-strategy=omniscient", "fast-forward=true"));
+        assertEquals(simulate("planes=omniscient", "operator-strategy=omniscient", "battery=default"),
+                simulate("planes=omniscient", "operator-strategy=omniscient", "battery=default", "fast-forward=true"));
+        assertEquals(simulate("planes=none", "battery=default", "operator-strategy=nearest"),
+                simulate("planes=none", "battery=default", "operator-strategy=nearest", "fast-forward=true"));
+        assertEquals(simulate("planes=dsa", "battery=default"),
+                simulate("planes=dsa", "battery=default", "fast-forward=true"));
+    }
+
+    /**
+     * Snapshots saved while skipping quiet steps must hold the state of the
+     * agents that have not run lately too.
+     */
+    @Test
+    public void testFastForwardSnapshots() throws IOException {
+        final File snapshot = File.createTempFile("equivalence", ".bin");
+        try {
+            final String expected = simulate("planes=none", "battery=default");
+            assertEquals(expected, simulate("planes=none", "battery=default",
+                    "fast-forward=true", "snapshot-at=6000",
+                    "snapshot-file=" + snapshot.getPath()));
+            assertEquals(expected, simulate("planes=none", "battery=default",
+                    "restore-from=" + snapshot.getPath()));
+        } finally {
+            snapshot.delete();
+        }
+    }
+
+    /**
+     * Planes tracking their neighbors with the oracle must produce the
+     * results of those that beacon.
+     */
+    @Test
+    public void testOracleNeighbors() throws IOException {
+        assertEquals(simulate("planes=auction"),
+                simulate("planes=auction", "neighbor-tracking=oracle"));
+        assertEquals(simulate("planes=dsa", "battery=default"),
+                simulate("planes=dsa", "battery=default", "neighbor-tracking=oracle"));
+    }
+
+    /**
+     * Planes tracking their neighbors adaptively must only rely on neighbors
+     * that beaconing planes would also detect, for at least as many
+     * iterations, while sending fewer beacons.
+     */
+    @Test
+    public void testAdaptiveNeighbors() throws IOException {
+        final Configuration beacons = configure("planes=auction");
+        final NeighborCheckingWorld beaconing = NeighborCheckingWorld.build(beacons);
+        simulate(beacons, beaconing);
+
+        final Configuration adaptive = configure("planes=auction",
+                "neighbor-tracking=adaptive");
+        final NeighborCheckingWorld tracking = NeighborCheckingWorld.build(adaptive);
+        simulate(adaptive, tracking);
+
+        assertTrue(tracking.neighbors > 0);
+        assertTrue(tracking.beacons > 0);
+        assertTrue(tracking.beacons < beaconing.beacons);
+    }
+
+    /**
+     * World that counts the beacons sent, and checks at the end of each step
+     * that the neighbors of every plane are guaranteed for no more iterations
+     * than a beacon sent at the end of the previous step would give.
+     */
+    private static class NeighborCheckingWorld extends DefaultWorld {
+        private final Map<Plane, Location> previous = new IdentityHashMap<Plane, Location>();
+        private long beacons = 0;
+        private long neighbors = 0;
+
+        public NeighborCheckingWorld(Factory factory) {
+            super(factory);
+        }
+
+        /**
+         * Build a checking world for the given configuration.
+         */
+        public static NeighborCheckingWorld build(Configuration config) {
+            return (NeighborCheckingWorld)new DefaultFactory(config) {
+                @Override
+                public World buildWorld() {
+                    world = new NeighborCheckingWorld(this);
+                    return world;
+                }
+            }.buildWorld();
+        }
+
+        @Override
+        public void sendMessage(Message message) {
+            if (message instanceof NeighborTracking.TrackingMessage) {
+                beacons++;
+            }
+            super.sendMessage(message);
+        }
+
+        @Override
+        protected void computeStep() {
+            super.computeStep();
+
+            for (Plane a : getPlanes()) {
+                final NeighborTracking tracking =
+                        ((AbstractBehaviorAgent)a).getBehavior(NeighborTracking.class);
+                final Location la = previous.get(a);
+                if (la == null) {
+                    continue;
+                }
+
+                for (Plane b : getPlanes()) {
+                    if (a == b) {
+                        continue;
+                    }
+                    final double d = la.getDistance(previous.get(b));
+                    int expected = 0;
+                    if (d <= b.getCommunicationRange()) {
+                        final double s = (a.getCommunicationRange() - d)
+                                / (a.getSpeed() + b.getSpeed());
+                        expected = Math.max(0, (int)s);
+                    }
+                    assertFalse(a + " tracks " + b + " beyond " + expected + " iterations",
+                            tracking.isNeighbor(b, expected + 1));
+                    if (tracking.isNeighbor(b, 1)) {
+                        neighbors++;
+                    }
+                }
+            }
+
+            for (Plane p : getPlanes()) {
+                previous.put(p, new Location(p.getLocation()));
+            }
+        }
+    }
+
+    /**
+     * Saving a snapshot must not alter the simulation, and restoring it must
+     * produce the results of the uninterrupted run.
+     */
+    @Test
+    public void testSnapshots() throws IOException {
+        final File snapshot = File.createTempFile("equivalence", ".bin");
+        try {
+            for (String[] settings : new String[][]{
+                {"planes=none", "battery=default"},
+                {"planes=auction"},
+                {"planes=dsa", "battery=default"},
+                {"planes=omniscient", "operator-strategy=omniscient"},
+            }) {
+                final String expected = simulate(settings);
+                final String[] save = Arrays.copyOf(settings, settings.length + 2);
+                save[settings.length] = "snapshot-at=6000";
+                save[settings.length + 1] = "snapshot-file=" + snapshot.getPath();
+                assertEquals(expected, simulate(save));
+
+                final String[] restore = Arrays.copyOf(settings, settings.length + 1);
+                restore[settings.length] = "restore-from=" + snapshot.getPath();
+                assertEquals(expected, simulate(restore));
+            }
+        } finally {
+            snapshot.delete();
+        }
+    }
+
+}
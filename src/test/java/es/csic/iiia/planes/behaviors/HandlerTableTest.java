@@ -0,0 +1,138 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.behaviors;
+
+import es.csic.iiia.planes.MessagingAgent;
+import es.csic.iiia.planes.messaging.AbstractMessage;
+import es.csic.iiia.planes.messaging.Message;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the HandlerTable class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class HandlerTableTest {
+
+    public static class PingMessage extends AbstractMessage {}
+
+    public static class PongMessage extends PingMessage {}
+
+    public static class IgnoredMessage extends AbstractMessage {}
+
+    public static class PingBehavior extends AbstractBehavior<MessagingAgent> {
+        private int pings;
+
+        public PingBehavior() {
+            super(null);
+        }
+
+        @Override
+        public Class[] getDependencies() {
+            return new Class[0];
+        }
+
+        public void on(PingMessage m) {
+            pings++;
+        }
+
+        private static final Handler ON_PING = new Handler() {
+            @Override
+            public void invoke(Behavior b, Message m) {
+                ((PingBehavior)b).on((PingMessage)m);
+            }
+        };
+
+        @Override
+        public Handler getHandler(Class<? extends Message> messageClass) {
+            return messageClass == PingMessage.class ? ON_PING : null;
+        }
+    }
+
+    /**
+     * Behavior with a handler but without its invoker.
+     */
+    public static class BrokenBehavior extends AbstractBehavior<MessagingAgent> {
+
+        public BrokenBehavior() {
+            super(null);
+        }
+
+        @Override
+        public Class[] getDependencies() {
+            return new Class[0];
+        }
+
+        public void on(PingMessage m) {}
+    }
+
+    /**
+     * Test that messages are dispatched to the handler of their nearest
+     * class, of class HandlerTable.
+     */
+    @Test
+    public void testGetHandler() {
+        PingBehavior b = new PingBehavior();
+        HandlerTable table = HandlerTable.get(PingBehavior.class);
+        assertSame(table, HandlerTable.get(PingBehavior.class));
+
+        Message[] messages = {new PingMessage(), new PongMessage(), new IgnoredMessage()};
+        for (int i = 0; i < 2; i++) {
+            for (Message m : messages) {
+                final Handler h = table.getHandler(
+                        HandlerTable.getMessageType(m.getClass()), m.getClass(), b);
+                if (h != null) {
+                    h.invoke(b, m);
+                }
+            }
+        }
+        assertEquals(4, b.pings);
+        assertNull(table.getHandler(HandlerTable.getMessageType(IgnoredMessage.class),
+                IgnoredMessage.class, b));
+    }
+
+    /**
+     * Test that handlers must come with their invoker, of class HandlerTable.
+     */
+    @Test(expected=IllegalStateException.class)
+    public void testMissingInvoker() {
+        HandlerTable table = HandlerTable.get(BrokenBehavior.class);
+        table.getHandler(HandlerTable.getMessageType(PingMessage.class),
+                PingMessage.class, new BrokenBehavior());
+    }
+
+}
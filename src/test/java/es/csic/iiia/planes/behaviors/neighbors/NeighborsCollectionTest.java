@@ -37,7 +37,16 @@
 package es.csic.iiia.planes.behaviors.neighbors;
 
 import es.csic.iiia.planes.DefaultPlane;
+import es.csic.iiia.planes.DefaultWorld;
 import es.csic.iiia.planes.MessagingAgent;
+import es.csic.iiia.planes.Plane;
+import es.csic.iiia.planes.World;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -62,8 +71,11 @@ public class NeighborsCollectionTest {
     public static void tearDownClass() {
     }
 
+    World world;
+
     @Before
     public void setUp() {
+        world = new DefaultWorld(null);
     }
 
     @After
@@ -87,4 +99,152 @@ public class NeighborsCollectionTest {
         assertEquals(true, instance.hasNeighbors(10));
     }
 
+    /**
+     * Test of get method, of class NeighborsCollection.
+     */
+    @Test
+    public void testGet() {
+        NeighborsCollection instance = new NeighborsCollection();
+        MessagingAgent a = buildPlane();
+        MessagingAgent b = buildPlane();
+        MessagingAgent c = buildPlane();
+        instance.add(c, 5);
+        instance.add(b, 10);
+        instance.add(a, 3);
+        assertTrue(instance.add(a, 20));
+        assertFalse(instance.add(a, 20));
+
+        List<MessagingAgent> found = new ArrayList<MessagingAgent>();
+        for (MessagingAgent n : instance.get(5)) {
+            found.add(n);
+        }
+        assertEquals(Arrays.asList(a, b, c), found);
+        assertTrue(instance.contains(b, 10));
+        assertFalse(instance.contains(b, 11));
+
+        instance.clear();
+        assertFalse(instance.contains(a, 0));
+        assertFalse(instance.get(0).iterator().hasNext());
+        instance.add(b, 1);
+        assertEquals(1, instance.size());
+        assertTrue(instance.contains(b, 1));
+    }
+
+    /**
+     * Test of countDown method, of class NeighborsCollection.
+     */
+    @Test
+    public void testCountDown() {
+        NeighborsCollection instance = new NeighborsCollection();
+        MessagingAgent a = buildPlane();
+        MessagingAgent b = buildPlane();
+        MessagingAgent c = buildPlane();
+        instance.add(a, 10);
+        instance.add(b, 3);
+        instance.add(c, Integer.MAX_VALUE);
+
+        instance.countDown(0);
+        assertTrue(instance.contains(a, 10));
+        assertTrue(instance.contains(b, 3));
+
+        instance.countDown(2);
+        assertTrue(instance.contains(a, 8));
+        assertFalse(instance.contains(a, 9));
+        assertTrue(instance.contains(b, 1));
+        assertFalse(instance.contains(b, 2));
+        assertEquals(3, instance.size());
+
+        // Neighbors whose guarantee expires are removed
+        instance.countDown(1);
+        assertFalse(instance.contains(b, 0));
+        assertEquals(2, instance.size());
+        assertEquals(7, instance.getMinIterations(c));
+
+        instance.countDown(100);
+        assertFalse(instance.contains(a, 0));
+        assertEquals(1, instance.size());
+        List<MessagingAgent> found = new ArrayList<MessagingAgent>();
+        for (MessagingAgent n : instance.get(1)) {
+            found.add(n);
+        }
+        assertEquals(Arrays.asList(c), found);
+
+        // Removed neighbors can be added back
+        instance.add(b, 4);
+        assertTrue(instance.contains(b, 4));
+        assertEquals(4, instance.getMinIterations(c));
+    }
+
+    /**
+     * Test that countDown never touches the neighbors guaranteed forever.
+     */
+    @Test
+    public void testCountDownForever() {
+        NeighborsCollection instance = new NeighborsCollection();
+        MessagingAgent a = buildPlane();
+        MessagingAgent b = buildPlane();
+        instance.add(a, Integer.MAX_VALUE);
+        instance.add(b, Integer.MAX_VALUE - 1);
+
+        instance.countDown(Integer.MAX_VALUE - 1);
+        assertTrue(instance.contains(a, Integer.MAX_VALUE));
+        assertFalse(instance.contains(b, 0));
+        assertEquals(1, instance.size());
+
+        instance.countDown(Integer.MAX_VALUE);
+        assertTrue(instance.contains(a, Integer.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE, instance.getMinIterations(null));
+    }
+
+    /**
+     * Test of remove method, of class NeighborsCollection, interleaving
+     * additions and removals against a reference map.
+     */
+    @Test
+    public void testRemove() {
+        NeighborsCollection instance = new NeighborsCollection();
+        Plane[] planes = new Plane[200];
+        for (int i = 0; i < planes.length; i++) {
+            planes[i] = buildPlane();
+        }
+
+        Map<MessagingAgent, Integer> expected = new HashMap<MessagingAgent, Integer>();
+        Random r = new Random(0);
+        for (int k = 0; k < 5000; k++) {
+            final Plane p = planes[r.nextInt(planes.length)];
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(p) != null, instance.remove(p));
+            } else {
+                final int iters = 1 + r.nextInt(50);
+                instance.add(p, iters);
+                expected.put(p, iters);
+            }
+        }
+
+        assertEquals(expected.size(), instance.size());
+        for (Plane p : planes) {
+            final Integer iters = expected.get(p);
+            if (iters == null) {
+                assertFalse(instance.contains(p, 0));
+            } else {
+                assertTrue(instance.contains(p, iters));
+                assertFalse(instance.contains(p, iters + 1));
+            }
+        }
+        for (MessagingAgent p : expected.keySet()) {
+            assertTrue(instance.remove(p));
+        }
+        assertTrue(instance.isEmpty());
+        assertFalse(instance.get(0).iterator().hasNext());
+    }
+
+    /**
+     * Builds a plane with a unique identifier, given by the world.
+     */
+    private Plane buildPlane() {
+        Plane p = new DefaultPlane(null);
+        world.addPlane(p);
+        return p;
+    }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.cli;
+
+import es.csic.iiia.planes.cli.Benchmark.Result;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the Benchmark class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class BenchmarkTest {
+
+    private static Result buildResult(String algorithm, int planes, int tasks, double... tps) {
+        Result r = new Result(algorithm, planes, tasks, 2000);
+        r.ticksPerSecond = tps;
+        return r;
+    }
+
+    /**
+     * Test of parseList method, of class Benchmark.
+     */
+    @Test
+    public void testParseList() {
+        assertEquals(Arrays.asList(5, 10, 20), Benchmark.parseList("5, 10,20,"));
+        assertTrue(Benchmark.parseList(" ").isEmpty());
+    }
+
+    /**
+     * Test of the median ticks per second, of class Result.
+     */
+    @Test
+    public void testTicksPerSecond() {
+        assertEquals(20, buildResult("none", 1, 1, 10, 20, 90).getTicksPerSecond(), 0);
+        assertEquals(15, buildResult("none", 1, 1, 10, 20).getTicksPerSecond(), 0);
+    }
+
+    /**
+     * Test of curves method, of class Benchmark.
+     */
+    @Test
+    public void testCurves() {
+        List<Result> results = Arrays.asList(
+                buildResult("none", 5, 100, 100),
+                buildResult("none", 5, 200, 400),
+                buildResult("none", 10, 100, 10),
+                buildResult("none", 10, 200, 40),
+                buildResult("auction", 5, 100, 7));
+        Map<String, Map<String, Map<Integer, Double>>> curves = Benchmark.curves(results);
+
+        assertEquals(Arrays.asList("none", "auction"), Arrays.asList(curves.keySet().toArray()));
+        // Geometric means of the ticks per second of each value
+        assertEquals(200, curves.get("none").get("planes").get(5), 1e-9);
+        assertEquals(20, curves.get("none").get("planes").get(10), 1e-9);
+        assertEquals(Math.sqrt(1000), curves.get("none").get("tasks").get(100), 1e-9);
+        assertEquals(Math.sqrt(16000), curves.get("none").get("tasks").get(200), 1e-9);
+        assertEquals(7, curves.get("auction").get("communication-range").get(2000), 1e-9);
+    }
+
+    /**
+     * Test of compare method, of class Benchmark.
+     */
+    @Test
+    public void testCompare() throws Exception {
+        JsonNode baseline = new ObjectMapper().readTree("{\"results\": ["
+                + "{\"algorithm\": \"none\", \"planes\": 5, \"tasks\": 100, \"communication-range\": 2000, \"ticks_per_s\": 100},"
+                + "{\"algorithm\": \"none\", \"planes\": 10, \"tasks\": 100, \"communication-range\": 2000, \"ticks_per_s\": 100},"
+                + "{\"algorithm\": \"auction\", \"planes\": 5, \"tasks\": 100, \"communication-range\": 2000, \"ticks_per_s\": 100}"
+                + "]}");
+        Result faster = buildResult("none", 5, 100, 120);
+        Result slower = buildResult("none", 10, 100, 80);
+        Result within = buildResult("auction", 5, 100, 95);
+        Result missing = buildResult("dsa", 5, 100, 10);
+
+        assertEquals(1, Benchmark.compare(Arrays.asList(faster, slower, within, missing), baseline, 0.1));
+        assertFalse(faster.regression);
+        assertTrue(slower.regression);
+        assertEquals(0.8, slower.change, 1e-9);
+        assertFalse(within.regression);
+        assertFalse(missing.regression);
+        assertTrue(Double.isNaN(missing.change));
+    }
+
+}
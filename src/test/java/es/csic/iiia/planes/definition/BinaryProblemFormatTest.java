@@ -0,0 +1,162 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests for the BinaryProblemFormat class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class BinaryProblemFormatTest {
+
+    DProblem problem;
+    File file;
+
+    @Before
+    public void setUp() throws IOException {
+        problem = new DProblem();
+        problem.setWidth(100);
+        problem.setDuration(50);
+        problem.getGeneratorSettings().put("seed", "42");
+        DOperator o1 = buildOperator(1, 10);
+        o1.getTasks().add(buildTask(1, 3, 0));
+        o1.getTasks().add(buildTask(2, 3, 0));
+        o1.getTasks().add(buildTask(3, 7, 1));
+        DOperator o2 = buildOperator(2, 20);
+        o2.getTasks().add(buildTask(4, 9, 0));
+        o2.getTasks().add(buildTask(5, 2, 1));
+        buildOperator(3, 30);
+        DStation s = new DStation();
+        s.setX(30);
+        problem.getStations().add(s);
+
+        file = File.createTempFile("problem", ".bin");
+        BinaryProblemFormat.write(problem, file);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Test that the problem is read back, with its tasks sorted by time.
+     */
+    @Test
+    public void testRead() throws IOException {
+        assertTrue(BinaryProblemFormat.isBinary(file));
+
+        DProblem d = BinaryProblemFormat.read(file);
+        assertEquals(100, d.getWidth());
+        assertEquals(50, d.getDuration());
+        assertEquals("42", d.getGeneratorSettings().get("seed"));
+        assertEquals(30, d.getStations().get(0).getX());
+        assertEquals(3, d.getOperators().size());
+        assertEquals(20.0, d.getOperators().get(1).getCommunicationRange(), 0);
+        assertTrue(d.getOperators().get(0).getTasks().isEmpty());
+
+        DTaskSource source = d.getOperators().get(1).getTaskSource();
+        DTask t = source.next();
+        assertEquals(5, t.getX());
+        assertEquals(2, t.getTime());
+        assertEquals(1, t.getnCrisis());
+        assertEquals(4, source.next().getX());
+        assertNull(source.next());
+        assertNull(d.getOperators().get(2).getTaskSource().next());
+    }
+
+    /**
+     * Test that the tasks can be loaded into memory.
+     */
+    @Test
+    public void testLoad() throws IOException {
+        DProblem d = BinaryProblemFormat.load(file);
+        assertEquals(3, d.getOperators().get(0).getTasks().size());
+        assertEquals(2, d.getOperators().get(0).getTasks().get(1).getX());
+        assertEquals(7, d.getOperators().get(0).getTasks().get(2).getTime());
+        assertTrue(d.getOperators().get(2).getTasks().isEmpty());
+    }
+
+    /**
+     * Test that a restored source resumes after the delivered tasks.
+     */
+    @Test
+    public void testSerialization() throws Exception {
+        DTaskSource source = BinaryProblemFormat.read(file)
+                .getOperators().get(0).getTaskSource();
+        source.next();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(source);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        DTaskSource restored = (DTaskSource)in.readObject();
+
+        assertEquals(2, restored.next().getX());
+        assertEquals(3, restored.next().getX());
+        assertNull(restored.next());
+    }
+
+    private DOperator buildOperator(int x, double range) {
+        DOperator o = new DOperator();
+        o.setX(x);
+        o.setCommunicationRange(range);
+        problem.getOperators().add(o);
+        return o;
+    }
+
+    private DTask buildTask(int x, long time, int nCrisis) {
+        DTask t = new DTask();
+        t.setX(x);
+        t.setTime(time);
+        t.setnCrisis(nCrisis);
+        return t;
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests for the DProblemReader class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class DProblemReaderTest {
+
+    File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("problem", ".json");
+        FileWriter w = new FileWriter(file);
+        w.write("{\"width\":100,\"height\":200,\"duration\":50,\"nCrisis\":2,"
+                + "\"operators\":["
+                + "{\"x\":1,\"y\":2,\"communicationRange\":10.0,\"tasks\":["
+                + "{\"x\":1,\"y\":1,\"time\":3,\"nCrisis\":0},"
+                + "{\"x\":2,\"y\":2,\"time\":3,\"nCrisis\":0},"
+                + "{\"x\":3,\"y\":3,\"time\":7,\"nCrisis\":1}]},"
+                + "{\"x\":3,\"y\":4,\"communicationRange\":20.0,\"tasks\":["
+                + "{\"x\":4,\"y\":4,\"time\":9,\"nCrisis\":0},"
+                + "{\"x\":5,\"y\":5,\"time\":2,\"nCrisis\":0},"
+                + "{\"x\":6,\"y\":6,\"time\":9,\"nCrisis\":1}]},"
+                + "{\"x\":5,\"y\":6,\"communicationRange\":30.0,\"tasks\":[]}],"
+                + "\"planes\":[{\"x\":10,\"y\":20,\"speed\":1.5,"
+                + "\"batteryCapacity\":100,\"initialBattery\":90,"
+                + "\"communicationRange\":5.0,\"color\":null}],"
+                + "\"stations\":[{\"x\":30,\"y\":40}],"
+                + "\"generatorSettings\":{\"seed\":\"42\"}}");
+        w.close();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Test that everything but the tasks is read eagerly.
+     */
+    @Test
+    public void testRead() throws IOException {
+        DProblem d = DProblemReader.read(file);
+        assertEquals(100, d.getWidth());
+        assertEquals(200, d.getHeight());
+        assertEquals(50, d.getDuration());
+        assertEquals(2, d.getnCrisis());
+        assertEquals(3, d.getOperators().size());
+        assertEquals(3, d.getOperators().get(1).getX());
+        assertEquals(20.0, d.getOperators().get(1).getCommunicationRange(), 0);
+        assertTrue(d.getOperators().get(0).getTasks().isEmpty());
+        assertEquals(1, d.getPlanes().size());
+        assertEquals(1.5, d.getPlanes().get(0).getSpeed(), 0);
+        assertEquals(40, d.getStations().get(0).getY());
+        assertEquals("42", d.getGeneratorSettings().get("seed"));
+    }
+
+    /**
+     * Test that the tasks are delivered by increasing time, keeping the
+     * file order among tasks with the same time.
+     */
+    @Test
+    public void testTasks() throws IOException {
+        DProblem d = DProblemReader.read(file);
+        assertTasks(d.getOperators().get(0).getTaskSource(), 1, 2, 3);
+        assertTasks(d.getOperators().get(1).getTaskSource(), 5, 4, 6);
+        assertNull(d.getOperators().get(2).getTaskSource().next());
+    }
+
+    /**
+     * Test that a restored source resumes after the delivered tasks.
+     */
+    @Test
+    public void testSerialization() throws Exception {
+        DProblem d = DProblemReader.read(file);
+        for (int i = 0; i < 2; i++) {
+            DTaskSource source = d.getOperators().get(i).getTaskSource();
+            source.next();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(source);
+            out.close();
+            ObjectInputStream in = new ObjectInputStream(
+                    new ByteArrayInputStream(bytes.toByteArray()));
+            DTaskSource restored = (DTaskSource)in.readObject();
+
+            assertEquals(source.next().getX(), restored.next().getX());
+            assertEquals(source.next().getX(), restored.next().getX());
+            assertNull(restored.next());
+        }
+    }
+
+    /**
+     * Test that long task lists are read in batches, seeking to the right
+     * offsets even after multi-byte characters, and that sources restored
+     * at any point of a batch resume at the right task.
+     */
+    @Test
+    public void testBatches() throws Exception {
+        final int n = 2 * StreamedTaskSource.BATCH_SIZE + 10;
+        Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        w.write("{\"generatorSettings\":{\"name\":\"\u00e9\u20ac\"},\"operators\":[");
+        for (int o = 0; o < 2; o++) {
+            w.write(o == 0 ? "{\"tasks\":[" : ",{\"tasks\": [ ");
+            for (int i = 0; i < n; i++) {
+                // The second operator's list is sorted backwards
+                final int time = o == 0 ? i : n - i;
+                w.write((i > 0 ? ", " : "") + "{\"x\":" + i + ",\"y\":" + o
+                        + ",\"time\":" + time + "}");
+            }
+            w.write("]}");
+        }
+        w.write("]}");
+        w.close();
+
+        DProblem d = DProblemReader.read(file);
+        DTaskSource source = d.getOperators().get(0).getTaskSource();
+        for (int i = 0; i < n; i++) {
+            if (i % 500 == 0 || i == StreamedTaskSource.BATCH_SIZE) {
+                source = copy(source);
+            }
+            DTask t = source.next();
+            assertEquals(i, t.getX());
+            assertEquals(0, t.getY());
+        }
+        assertNull(copy(source).next());
+        assertNull(source.next());
+
+        source = d.getOperators().get(1).getTaskSource();
+        for (int i = n - 1; i >= 0; i--) {
+            if (i % 500 == 0) {
+                source = copy(source);
+            }
+            assertEquals(i, source.next().getX());
+        }
+        assertNull(source.next());
+    }
+
+    private static DTaskSource copy(DTaskSource source) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(source);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        return (DTaskSource)in.readObject();
+    }
+
+    private void assertTasks(DTaskSource source, int... xs) {
+        for (int x : xs) {
+            assertEquals(x, source.next().getX());
+        }
+        assertNull(source.next());
+        assertNull(source.next());
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.definition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests for the JsonProblemWriter class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class JsonProblemWriterTest {
+
+    DProblem problem;
+
+    @Before
+    public void setUp() {
+        problem = new DProblem();
+        problem.setWidth(100);
+        problem.getGeneratorSettings().put("seed", "42");
+        for (int i = 0; i < 3; i++) {
+            DOperator o = new DOperator();
+            o.setX(i);
+            o.setCommunicationRange(10.5);
+            problem.getOperators().add(o);
+        }
+        problem.getOperators().get(0).getTasks().add(buildTask(1, 3));
+        problem.getOperators().get(0).getTasks().add(buildTask(2, 5));
+        problem.getOperators().get(2).getTasks().add(buildTask(3, 4));
+        DPlane p = new DPlane();
+        p.setSpeed(1.5);
+        p.setColor(new int[]{1, 2, 3});
+        problem.getPlanes().add(p);
+        problem.getStations().add(new DStation());
+    }
+
+    /**
+     * Test that the streamed problem is the same as the serialized one.
+     */
+    @Test
+    public void testWrite() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new ObjectMapper().writeValue(expected, problem);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        JsonProblemWriter out = new JsonProblemWriter(actual, problem,
+                new long[]{2, 0, 1});
+        for (DOperator o : problem.getOperators()) {
+            for (DTask t : o.getTasks()) {
+                out.write(t);
+            }
+        }
+        out.close();
+
+        assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+    }
+
+    /**
+     * Test that writing fewer tasks than declared fails.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testMissingTasks() throws IOException {
+        JsonProblemWriter out = new JsonProblemWriter(new ByteArrayOutputStream(),
+                problem, new long[]{2, 0, 1});
+        out.write(buildTask(1, 3));
+        out.close();
+    }
+
+    private DTask buildTask(int x, long time) {
+        DTask t = new DTask();
+        t.setX(x);
+        t.setTime(time);
+        return t;
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.generator;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.random.Well19937c;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the SortedTimeStream class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class SortedTimeStreamTest {
+
+    /**
+     * Test that the times are sorted, within bounds and follow the
+     * distribution.
+     */
+    @Test
+    public void testStream() {
+        final int n = 10000;
+        SortedTimeStream stream = new SortedTimeStream(
+                new NormalDistribution(100, 50), 0, 1001, n, new Well19937c(1));
+
+        long previous = 0;
+        double sum = 0;
+        int below = 0;
+        for (int i = 0; i < n; i++) {
+            assertTrue(stream.hasNext());
+            final long time = stream.next();
+            assertTrue(time >= previous);
+            assertTrue(time <= 1000);
+            if (time < 100) {
+                below++;
+            }
+            sum += time;
+            previous = time;
+        }
+        assertFalse(stream.hasNext());
+
+        // Truncated at zero, so slightly less than half fall below the mean
+        assertEquals(0.49, below / (double)n, 0.02);
+        assertEquals(102.3, sum / n, 2);
+    }
+
+    /**
+     * Test that empty streams have no times.
+     */
+    @Test
+    public void testEmpty() {
+        SortedTimeStream stream = new SortedTimeStream(
+                new NormalDistribution(100, 50), 0, 1001, 0, new Well19937c(1));
+        assertFalse(stream.hasNext());
+    }
+
+    /**
+     * Test that the times stay within the given range.
+     */
+    @Test
+    public void testRange() {
+        SortedTimeStream stream = new SortedTimeStream(
+                new NormalDistribution(100, 50), 90, 110, 1000, new Well19937c(1));
+        long previous = 90;
+        while (stream.hasNext()) {
+            final long time = stream.next();
+            assertTrue(time >= previous);
+            assertTrue(time < 110);
+            previous = time;
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.messaging;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests for the MessagePool class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class MessagePoolTest {
+
+    MessagePool<MessageMock> instance;
+
+    @Before
+    public void setUp() {
+        instance = new MessagePool<MessageMock>() {
+            @Override
+            protected MessageMock create() {
+                return new MessageMock();
+            }
+        };
+    }
+
+    /**
+     * Test that messages are reused once released by all their recipients.
+     */
+    @Test
+    public void testReuse() {
+        MessageMock m = instance.acquire();
+        m.retain();
+        m.retain();
+        m.release();
+        assertNotSame(m, instance.acquire());
+
+        m.release();
+        assertSame(m, instance.acquire());
+    }
+
+    /**
+     * Test that released messages are returned only once to the pool.
+     */
+    @Test
+    public void testDoubleRelease() {
+        MessageMock m = instance.acquire();
+        m.retain();
+        m.release();
+        m.release();
+        assertSame(m, instance.acquire());
+        assertNotSame(m, instance.acquire());
+    }
+
+    /**
+     * Test that messages not coming from a pool are left alone.
+     */
+    @Test
+    public void testNotPooled() {
+        MessageMock m = new MessageMock();
+        m.retain();
+        m.release();
+        assertNotSame(m, instance.acquire());
+    }
+
+    private static class MessageMock extends AbstractMessage {}
+}
@@ -0,0 +1,131 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.omniscient;
+
+import es.csic.iiia.planes.DefaultWorld;
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.MessagingAgent;
+import es.csic.iiia.planes.Task;
+import es.csic.iiia.planes.World;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the AllocationProblem class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class AllocationProblemTest {
+
+    private World w;
+    private OmniscientPlane p1, p2;
+    private Task t1, t2, t3;
+    private AllocationProblem instance;
+
+    @Before
+    public void setUp() {
+        w = new DefaultWorld(null);
+        p1 = new OmniscientPlane(new Location(0,0));
+        p2 = new OmniscientPlane(new Location(3,0));
+        w.addPlane(p1);
+        w.addPlane(p2);
+
+        t1 = new Task(new Location(0,1));
+        w.addTask(t1);
+        t2 = new Task(new Location(3,4));
+        w.addTask(t2);
+        t3 = new Task(new Location(5,5));
+        w.addTask(t3);
+
+        TreeMap<MessagingAgent, Set<Task>> visibilityMap = new TreeMap<MessagingAgent, Set<Task>>();
+        visibilityMap.put(p1, new TreeSet<Task>(Arrays.asList(new Task[]{t1,t2})));
+        visibilityMap.put(p2, new TreeSet<Task>(Arrays.asList(new Task[]{t2})));
+
+        TreeMap<OmniscientPlane, Task> assignmentMap = new TreeMap<OmniscientPlane, Task>();
+        assignmentMap.put(p2, t2);
+
+        instance = new AllocationProblem(w, new OmniscientPlane[]{p1, p2},
+                w.getTasks(), visibilityMap, assignmentMap);
+    }
+
+    /**
+     * Test of the visibility, of class AllocationProblem.
+     */
+    @Test
+    public void testVisibility() {
+        assertTrue(instance.isVisible(0, 0));
+        assertTrue(instance.isVisible(0, 1));
+        assertFalse(instance.isVisible(0, 2));
+        assertFalse(instance.isVisible(1, 0));
+        assertTrue(instance.isVisible(1, 1));
+
+        assertTrue(instance.isVisibleByAny(1));
+        assertFalse(instance.isVisibleByAny(2));
+
+        assertArrayEquals(new int[]{0, 2, 3}, instance.getVisibleOffsets());
+        assertArrayEquals(new int[]{0, 1, 1}, instance.getVisibleTasks());
+    }
+
+    /**
+     * Test of getDistance method, of class AllocationProblem.
+     */
+    @Test
+    public void testGetDistance() {
+        assertEquals(1, instance.getDistance(0, 0), 1e-9);
+        assertEquals(5, instance.getDistance(0, 1), 1e-9);
+        assertEquals(4, instance.getDistance(1, 1), 1e-9);
+        assertTrue(Double.isInfinite(instance.getDistance(1, 0)));
+        assertTrue(Double.isInfinite(instance.getDistance(1, 2)));
+        assertArrayEquals(new double[]{1, 5, 4}, instance.getVisibleDistances(), 1e-9);
+    }
+
+    /**
+     * Test of the initial assignment and task indices, of class
+     * AllocationProblem.
+     */
+    @Test
+    public void testAssignment() {
+        assertArrayEquals(new int[]{-1, 1}, instance.getAssignment());
+        assertEquals(2, instance.indexOf(t3));
+        assertEquals(-1, instance.indexOf(new Task(new Location(0,0))));
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright 2013 Marc Pujol <mpujol@iiia.csic.es>.
+ *
+ * Redistribution and use of this software in source and binary forms, with or
+ * without modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   Redistributions of source code must retain the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer.
+ *
+ *   Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the
+ *   following disclaimer in the documentation and/or other
+ *   materials provided with the distribution.
+ *
+ *   Neither the name of IIIA-CSIC, Artificial Intelligence Research Institute
+ *   nor the names of its contributors may be used to
+ *   endorse or promote products derived from this
+ *   software without specific prior written permission of
+ *   IIIA-CSIC, Artificial Intelligence Research Institute
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.omniscient;
+
+import es.csic.iiia.planes.DefaultWorld;
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.Task;
+import es.csic.iiia.planes.World;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the TaskBitSet class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class TaskBitSetTest {
+
+    private World w;
+    private TaskBitSet.Index index;
+    private Task[] tasks;
+
+    @Before
+    public void setUp() {
+        w = new DefaultWorld(null);
+        index = new TaskBitSet.Index();
+        tasks = new Task[100];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task(new Location(i, 0));
+            w.addTask(tasks[i]);
+            index.add(tasks[i]);
+        }
+    }
+
+    /**
+     * Test of add, contains and remove methods, of class TaskBitSet.
+     */
+    @Test
+    public void testAddRemove() {
+        TaskBitSet instance = new TaskBitSet(index);
+        assertTrue(instance.isEmpty());
+        assertTrue(instance.add(tasks[50]));
+        assertTrue(instance.add(tasks[3]));
+        assertFalse(instance.add(tasks[3]));
+        assertEquals(2, instance.size());
+        assertTrue(instance.contains(tasks[3]));
+        assertFalse(instance.contains(tasks[4]));
+
+        assertTrue(instance.remove(tasks[3]));
+        assertFalse(instance.remove(tasks[3]));
+        assertEquals(Arrays.asList(tasks[50]), new ArrayList<Task>(instance));
+    }
+
+    /**
+     * Test that the tasks are iterated in identifier order, of class
+     * TaskBitSet.
+     */
+    @Test
+    public void testIterator() {
+        TaskBitSet instance = new TaskBitSet(index);
+        instance.add(tasks[70]);
+        instance.add(tasks[10]);
+        instance.add(tasks[40]);
+        assertEquals(Arrays.asList(tasks[10], tasks[40], tasks[70]), new ArrayList<Task>(instance));
+
+        Iterator<Task> it = instance.iterator();
+        it.next();
+        it.next();
+        it.remove();
+        assertEquals(Arrays.asList(tasks[10], tasks[70]), new ArrayList<Task>(instance));
+    }
+
+    /**
+     * Test of or method, of class TaskBitSet.
+     */
+    @Test
+    public void testOr() {
+        TaskBitSet s1 = new TaskBitSet(index);
+        TaskBitSet s2 = new TaskBitSet(index);
+        s1.add(tasks[1]);
+        s1.add(tasks[2]);
+        s2.add(tasks[2]);
+        s2.add(tasks[99]);
+        s1.or(s2);
+        assertEquals(Arrays.asList(tasks[1], tasks[2], tasks[99]), new ArrayList<Task>(s1));
+        assertEquals(2, s2.size());
+    }
+
+    /**
+     * Test that only indexed tasks can be held, of class TaskBitSet.
+     */
+    @Test
+    public void testIndex() {
+        TaskBitSet instance = new TaskBitSet(index);
+        instance.add(tasks[5]);
+        instance.remove(tasks[5]);
+        final int slot = index.slotOf(tasks[5]);
+        index.remove(tasks[5]);
+        assertNull(index.get(slot));
+        assertEquals(-1, index.slotOf(tasks[5]));
+        assertFalse(instance.contains(tasks[5]));
+        try {
+            instance.add(tasks[5]);
+            fail("Unindexed tasks can not be added.");
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+
+    /**
+     * Test that the slots of removed tasks are given to new ones, of class
+     * TaskBitSet.
+     */
+    @Test
+    public void testSlotReuse() {
+        final int slot = index.slotOf(tasks[20]);
+        index.remove(tasks[20]);
+
+        Task t = new Task(new Location(0, 1));
+        w.addTask(t);
+        assertEquals(slot, index.add(t));
+        assertEquals(slot, index.add(t));
+        assertSame(t, index.get(slot));
+        assertEquals(tasks.length, index.getCapacity());
+        for (int i = 0; i < tasks.length; i++) {
+            if (i != 20) {
+                assertSame(tasks[i], index.get(index.slotOf(tasks[i])));
+            }
+        }
+
+        // The new task is iterated after older ones despite its lower slot
+        TaskBitSet instance = new TaskBitSet(index);
+        instance.add(t);
+        instance.add(tasks[90]);
+        instance.add(tasks[10]);
+        assertEquals(Arrays.asList(tasks[10], tasks[90], t), new ArrayList<Task>(instance));
+    }
+
+}
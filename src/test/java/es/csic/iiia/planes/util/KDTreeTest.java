@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import es.csic.iiia.planes.AbstractPositionedElement;
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.Positioned;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the KDTree class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class KDTreeTest {
+
+    /**
+     * Test of getNearest method, of class KDTree.
+     */
+    @Test
+    public void testGetNearest() {
+        Positioned p1 = new PositionedMock(new Location(50, 50));
+        Positioned p2 = new PositionedMock(new Location(-5, 0));
+        Positioned p3 = new PositionedMock(new Location(0, 3));
+        Positioned p4 = new PositionedMock(new Location(9, 0));
+        KDTree<Positioned> instance = new KDTree<Positioned>(Arrays.asList(p1, p2, p3, p4));
+
+        assertSame(p3, instance.getNearest(new Location(0, 0)));
+        assertSame(p1, instance.getNearest(new Location(40, 40)));
+        assertSame(p4, instance.getNearest(new Location(20, -20)));
+        assertSame(p2, instance.getNearest(new Location(-1000, 0)));
+    }
+
+    /**
+     * Test of getNearest method, of class KDTree, on an empty tree.
+     */
+    @Test
+    public void testEmpty() {
+        KDTree<Positioned> instance = new KDTree<Positioned>(new ArrayList<Positioned>());
+        assertNull(instance.getNearest(new Location(0, 0)));
+    }
+
+    /**
+     * Ties must be broken in favor of the element that comes first in the
+     * list, as a linear scan does.
+     */
+    @Test
+    public void testTies() {
+        Positioned p1 = new PositionedMock(new Location(10, 0));
+        Positioned p2 = new PositionedMock(new Location(-10, 0));
+        Positioned p3 = new PositionedMock(new Location(0, 10));
+        Positioned p4 = new PositionedMock(new Location(10, 0));
+        Location origin = new Location(0, 0);
+
+        assertSame(p1, new KDTree<Positioned>(Arrays.asList(p1, p2, p3, p4)).getNearest(origin));
+        assertSame(p2, new KDTree<Positioned>(Arrays.asList(p2, p1, p3, p4)).getNearest(origin));
+        assertSame(p3, new KDTree<Positioned>(Arrays.asList(p3, p2, p1, p4)).getNearest(origin));
+        assertSame(p4, new KDTree<Positioned>(Arrays.asList(p4, p3, p2, p1)).getNearest(origin));
+    }
+
+    /**
+     * The results must match those of a linear scan.
+     */
+    @Test
+    public void testAgainstLinearScan() {
+        Random r = new Random(0);
+        List<Positioned> elements = new ArrayList<Positioned>();
+        for (int i = 0; i < 200; i++) {
+            elements.add(new PositionedMock(new Location(r.nextInt(100), r.nextInt(100))));
+        }
+        KDTree<Positioned> instance = new KDTree<Positioned>(elements);
+
+        for (int i = 0; i < 1000; i++) {
+            Location l = new Location(r.nextInt(120) - 10, r.nextInt(120) - 10);
+            Positioned best = null;
+            double mind = Double.MAX_VALUE;
+            for (Positioned p : elements) {
+                final double d = l.getDistance(p.getLocation());
+                if (d < mind) {
+                    best = p;
+                    mind = d;
+                }
+            }
+            assertSame(best, instance.getNearest(l));
+        }
+    }
+
+    private class PositionedMock extends AbstractPositionedElement {
+
+        public PositionedMock(Location location) {
+            super(location);
+        }
+
+        @Override
+        public void initialize() {}
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the LongHeap class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class LongHeapTest {
+
+    /**
+     * Test that values are polled in ascending order, of class LongHeap.
+     */
+    @Test
+    public void testOrder() {
+        Random r = new Random(0);
+        LongHeap instance = new LongHeap(1);
+        long[] expected = new long[1000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = r.nextInt(100) - 50;
+            instance.add(expected[i]);
+        }
+        Arrays.sort(expected);
+
+        assertEquals(expected.length, instance.size());
+        for (long value : expected) {
+            assertEquals(value, instance.peek());
+            assertEquals(value, instance.poll());
+        }
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test interleaved additions and removals, of class LongHeap.
+     */
+    @Test
+    public void testInterleaved() {
+        LongHeap instance = new LongHeap();
+        instance.add(5);
+        instance.add(3);
+        assertEquals(3, instance.poll());
+        instance.add(4);
+        instance.add(7);
+        assertEquals(4, instance.poll());
+        assertEquals(5, instance.poll());
+        instance.add(1L << 40);
+        assertEquals(7, instance.poll());
+        assertEquals(1L << 40, instance.poll());
+        instance.add(1);
+        instance.clear();
+        assertTrue(instance.isEmpty());
+    }
+
+    @Test(expected=NoSuchElementException.class)
+    public void testEmpty() {
+        new LongHeap().poll();
+    }
+
+}
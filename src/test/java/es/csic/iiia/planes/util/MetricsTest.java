@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the Metrics class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class MetricsTest {
+
+    /**
+     * Test that the metrics added by several threads are merged.
+     */
+    @Test
+    public void testCsv() throws Exception {
+        File f = File.createTempFile("metrics", ".csv");
+        f.deleteOnExit();
+        final Metrics instance = new Metrics(f, Metrics.Format.CSV);
+
+        instance.addPhase("STEP", 10, 5);
+        instance.addBehavior(String.class, Metrics.Hook.POST_STEP, 3);
+        instance.addSent(Integer.class);
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                instance.addBehavior(String.class, Metrics.Hook.POST_STEP, 4);
+                instance.addDelivered(Integer.class);
+                instance.addDelivered(Integer.class);
+                instance.addAllocation(Long.class, 7);
+            }
+        };
+        t.start();
+        t.join();
+        instance.addAllocation(Long.class, 2);
+        instance.write(42);
+        instance.close();
+
+        List<String> lines = read(f);
+        assertEquals("tick,kind,name,count,wall_ns,cpu_ns,max_ns", lines.get(0));
+        assertTrue(lines.contains("42,phase,STEP,1,10,5,"));
+        assertTrue(lines.contains("42,behavior,java.lang.String.postStep,2,7,,"));
+        assertTrue(lines.contains("42,sent,java.lang.Integer,1,,,"));
+        assertTrue(lines.contains("42,delivered,java.lang.Integer,2,,,"));
+        assertTrue(lines.contains("42,allocation,java.lang.Long,2,9,,7"));
+        assertEquals(6, lines.size());
+    }
+
+    private static List<String> read(File f) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new FileReader(f));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            in.close();
+        }
+        return lines;
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the QuantileSketch class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class QuantileSketchTest {
+
+    private static final double[] PERCENTILES = {1, 25, 50, 75, 90, 99, 99.9};
+
+    /**
+     * Test that the percentiles are estimated within the given accuracy.
+     */
+    @Test
+    public void testAccuracy() {
+        final double accuracy = 0.01;
+        QuantileSketch instance = new QuantileSketch(accuracy);
+        double[] values = new double[100000];
+        Random r = new Random(0);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(r.nextGaussian() * 3);
+            instance.addValue(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, instance.getN());
+        assertEquals(values[0], instance.getMin(), 0);
+        assertEquals(values[values.length - 1], instance.getMax(), 0);
+        for (double p : PERCENTILES) {
+            final int rank = (int)Math.rint(p / 100 * (values.length + 1)) - 1;
+            final double expected = values[rank];
+            assertEquals(expected, instance.getPercentile(p), expected * accuracy);
+        }
+    }
+
+    /**
+     * Test that merging sketches is the same as sketching all the values.
+     */
+    @Test
+    public void testMerge() {
+        QuantileSketch all = new QuantileSketch(0.02);
+        QuantileSketch s1 = new QuantileSketch(0.02);
+        QuantileSketch s2 = new QuantileSketch(0.02);
+        DescriptiveStatistics stats = new DescriptiveStatistics();
+        Random r = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            // Different ranges, so that the buckets have to be shifted
+            final double v = i % 2 == 0 ? r.nextInt(100) : 1e6 + r.nextInt(1000000);
+            all.addValue(v);
+            (i % 2 == 0 ? s1 : s2).addValue(v);
+            stats.addValue(v);
+        }
+        s2.merge(s1);
+
+        assertEquals(all.getN(), s2.getN());
+        assertEquals(all.getMin(), s2.getMin(), 0);
+        assertEquals(all.getMax(), s2.getMax(), 0);
+        assertEquals(all.getMean(), s2.getMean(), 1e-6);
+        assertEquals(stats.getMean(), s2.getMean(), 1e-6);
+        for (double p : PERCENTILES) {
+            assertEquals(all.getPercentile(p), s2.getPercentile(p), 0);
+        }
+    }
+
+    /**
+     * Test sketches with zeros and without values.
+     */
+    @Test
+    public void testEdgeCases() {
+        QuantileSketch instance = new QuantileSketch(0.01);
+        assertTrue(Double.isNaN(instance.getPercentile(50)));
+        assertTrue(Double.isNaN(instance.getMean()));
+
+        instance.addValue(0);
+        instance.addValue(0);
+        instance.addValue(5);
+        assertEquals(0, instance.getPercentile(50), 0);
+        assertEquals(5, instance.getPercentile(100), 5 * 0.01);
+        assertEquals(5, instance.getMax(), 0);
+    }
+
+    /**
+     * Test that sketches with different accuracies can not be merged.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentAccuracy() {
+        new QuantileSketch(0.01).merge(new QuantileSketch(0.02));
+    }
+
+}
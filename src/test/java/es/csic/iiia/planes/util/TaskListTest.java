@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import es.csic.iiia.planes.DefaultWorld;
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.Task;
+import es.csic.iiia.planes.World;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests for the TaskList class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class TaskListTest {
+
+    World world;
+    Task t1, t2, t3, t4;
+    TaskList instance;
+
+    @Before
+    public void setUp() {
+        world = new DefaultWorld(null);
+        t1 = buildTask(new Location(0, 0));
+        t2 = buildTask(new Location(1, 0));
+        t3 = buildTask(new Location(2, 0));
+        t4 = buildTask(new Location(3, 0));
+        instance = new TaskList();
+        instance.add(t1);
+        instance.add(t2);
+        instance.add(t3);
+    }
+
+    /**
+     * Test of add method, of class TaskList.
+     */
+    @Test
+    public void testAdd() {
+        assertTrue(instance.add(t4));
+        assertFalse(instance.add(t2));
+        assertEquals(Arrays.asList(t1, t2, t3, t4), instance);
+        assertTrue(instance.contains(t4));
+    }
+
+    /**
+     * Test of remove method, of class TaskList.
+     */
+    @Test
+    public void testRemove() {
+        assertTrue(instance.remove(t2));
+        assertFalse(instance.remove(t2));
+        assertFalse(instance.contains(t2));
+        assertEquals(2, instance.size());
+
+        // Re-added tasks go to the end, as in any list
+        instance.add(t2);
+        assertEquals(Arrays.asList(t1, t3, t2), instance);
+        assertEquals(t2, instance.get(2));
+        assertEquals(t3, instance.remove(1));
+        assertEquals(Arrays.asList(t1, t2), instance);
+    }
+
+    /**
+     * Test of iterator removals, of class TaskList.
+     */
+    @Test
+    public void testIteratorRemove() {
+        Iterator<Task> it = instance.iterator();
+        while (it.hasNext()) {
+            if (it.next() != t3) {
+                it.remove();
+            }
+        }
+        assertEquals(Arrays.asList(t3), instance);
+        assertEquals(t3, instance.get(0));
+    }
+
+    /**
+     * Test that the order is kept across many additions and removals.
+     */
+    @Test
+    public void testOrder() {
+        ArrayList<Task> expected = new ArrayList<Task>(instance);
+        for (int i = 0; i < 1000; i++) {
+            Task t = buildTask(new Location(i, i));
+            instance.add(t);
+            expected.add(t);
+            if (i % 3 == 0) {
+                Task removed = expected.remove(expected.size() / 2);
+                instance.remove(removed);
+            }
+        }
+        assertEquals(expected, instance);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), instance.get(i));
+        }
+    }
+
+    /**
+     * Test that lookups keep working as the ids of the tasks in the list
+     * move forward, or jump back.
+     */
+    @Test
+    public void testSlidingIds() {
+        instance.clear();
+        ArrayList<Task> all = new ArrayList<Task>();
+        for (int i = 0; i < 5000; i++) {
+            Task t = buildTask(new Location(i, i));
+            all.add(t);
+            if (i % 7 != 0) {
+                instance.add(t);
+            }
+            if (i >= 20) {
+                instance.remove(all.get(i - 20));
+            }
+        }
+        assertTrue(instance.add(t1));
+        for (int i = 0; i < all.size(); i++) {
+            final Task t = all.get(i);
+            assertEquals(t.toString(), i % 7 != 0 && i >= 4980, instance.contains(t));
+        }
+        assertTrue(instance.contains(t1));
+        assertFalse(instance.contains(t2));
+        assertTrue(instance.remove(t1));
+    }
+
+    /**
+     * Test that lookups keep working when a long-pending task stays in the
+     * list while many others come and go in random order.
+     */
+    @Test
+    public void testRandomRemovals() {
+        Random r = new Random(0);
+        ArrayList<Task> expected = new ArrayList<Task>(instance);
+        for (int i = 0; i < 20000; i++) {
+            Task t = buildTask(new Location(i, i));
+            instance.add(t);
+            expected.add(t);
+            if (expected.size() > 50) {
+                // Never remove t1, which stays pending all along
+                Task removed = expected.remove(1 + r.nextInt(expected.size() - 1));
+                assertTrue(instance.remove(removed));
+                assertFalse(instance.contains(removed));
+            }
+        }
+        assertEquals(expected, instance);
+        for (Task t : expected) {
+            assertTrue(instance.contains(t));
+        }
+        assertTrue(instance.contains(t1));
+    }
+
+    /**
+     * Builds a task with a unique identifier, given by the world.
+     */
+    private Task buildTask(Location l) {
+        Task t = new Task(l);
+        world.addTask(t);
+        return t;
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2013, Marc Pujol <mpujol@iiia.csic.es>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package es.csic.iiia.planes.util;
+
+import es.csic.iiia.planes.AbstractPositionedElement;
+import es.csic.iiia.planes.Location;
+import es.csic.iiia.planes.Positioned;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests for the UniformGrid class.
+ * @author Marc Pujol <mpujol@iiia.csic.es>
+ */
+public class UniformGridTest {
+
+    Positioned p1, p2, p3, p4;
+    UniformGrid<Positioned> instance;
+
+    @Before
+    public void setUp() {
+        p1 = new PositionedMock(new Location(50, 50));
+        p2 = new PositionedMock(new Location(-5, 0));
+        p3 = new PositionedMock(new Location(0, 3));
+        p4 = new PositionedMock(new Location(9, 0));
+        instance = new UniformGrid<Positioned>(10);
+        instance.add(p1);
+        instance.add(p2);
+        instance.add(p3);
+        instance.add(p4);
+    }
+
+    /**
+     * Test of getWithin method, of class UniformGrid.
+     */
+    @Test
+    public void testGetWithin() {
+        Location origin = new Location(0, 0);
+        assertEquals(Arrays.asList(p3), instance.getWithin(origin, 3));
+        assertEquals(Arrays.asList(p2, p3), instance.getWithin(origin, 5));
+        assertEquals(Arrays.asList(p2, p3, p4), instance.getWithin(origin, 9));
+        assertEquals(Arrays.asList(p1, p2, p3, p4),
+                instance.getWithin(origin, Double.MAX_VALUE));
+        assertTrue(instance.getWithin(new Location(1000, 1000), 10).isEmpty());
+    }
+
+    /**
+     * Test of update method, of class UniformGrid.
+     */
+    @Test
+    public void testUpdate() {
+        Location origin = new Location(0, 0);
+        p1.getLocation().setLocation(1, 1);
+        instance.update(p1);
+        assertEquals(Arrays.asList(p1, p3), instance.getWithin(origin, 3));
+
+        p3.getLocation().setLocation(100, 100);
+        instance.update(p3);
+        assertEquals(Arrays.asList(p1), instance.getWithin(origin, 3));
+        assertTrue(instance.isAnyWithin(new Location(95, 95), 10));
+        assertFalse(instance.isAnyWithin(new Location(50, 50), 10));
+    }
+
+    /**
+     * Test of remove method, of class UniformGrid.
+     */
+    @Test
+    public void testRemove() {
+        assertTrue(instance.remove(p3));
+        assertFalse(instance.remove(p3));
+        assertFalse(instance.contains(p3));
+        assertEquals(3, instance.size());
+        assertFalse(instance.isAnyWithin(new Location(0, 0), 3));
+    }
+
+    /**
+     * Test of the dense indexes, of class UniformGrid.
+     */
+    @Test
+    public void testIndexes() {
+        assertEquals(0, instance.indexOf(p1));
+        assertEquals(3, instance.indexOf(p4));
+        assertEquals(2, instance.add(p3));
+        assertSame(p2, instance.get(1));
+
+        p4.getLocation().setLocation(0, -1);
+        instance.update(3);
+        assertEquals(Arrays.asList(p3, p4), instance.getWithin(new Location(0, 0), 3));
+
+        instance.remove(p2);
+        assertEquals(-1, instance.indexOf(p2));
+        assertNull(instance.get(1));
+        Positioned p5 = new PositionedMock(new Location(0, 0));
+        assertEquals(4, instance.add(p5));
+        assertEquals(Arrays.asList(p3, p4, p5), instance.getWithin(new Location(0, 0), 3));
+    }
+
+    private class PositionedMock extends AbstractPositionedElement {
+
+        public PositionedMock(Location location) {
+            super(location);
+        }
+
+        @Override
+        public void initialize() {}
+    }
+}